@@ -19,6 +19,7 @@
 package org.apache.xmlrpc.client;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.xmlrpc.XmlRpcConfig;
 import org.apache.xmlrpc.XmlRpcException;
@@ -52,6 +53,7 @@ public class XmlRpcClient extends XmlRpcController {
 	private XmlRpcTransportFactory transportFactory = XmlRpcClientDefaults.newTransportFactory(this);
 	private XmlRpcClientConfig config = XmlRpcClientDefaults.newXmlRpcClientConfig();
 	private XmlWriterFactory xmlWriterFactory = XmlRpcClientDefaults.newXmlWriterFactory();
+	private Executor executor = XmlRpcClientDefaults.getExecutor();
 
 	protected XmlRpcWorkerFactory getDefaultXmlRpcWorkerFactory() {
 		return new XmlRpcClientWorkerFactory(this);
@@ -244,4 +246,22 @@ public class XmlRpcClient extends XmlRpcController {
 	public void setXmlWriterFactory(XmlWriterFactory pFactory) {
 		xmlWriterFactory = pFactory;
 	}
+
+	/** Returns the {@link Executor}, which performs asynchronous requests.
+	 * @return The executor being used by
+	 * {@link #executeAsync(XmlRpcRequest, AsyncCallback)}.
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/** Sets the {@link Executor}, which performs asynchronous requests.
+	 * By default, a bounded pool shared by all clients is used, see
+	 * {@link XmlRpcClientDefaults#getExecutor()}.
+	 * @param pExecutor The executor being used by
+	 * {@link #executeAsync(XmlRpcRequest, AsyncCallback)}.
+	 */
+	public void setExecutor(Executor pExecutor) {
+		executor = pExecutor;
+	}
 }
@@ -18,6 +18,13 @@
  */
 package org.apache.xmlrpc.client;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.xmlrpc.serializer.DefaultXMLWriterFactory;
 import org.apache.xmlrpc.serializer.XmlWriterFactory;
 
@@ -28,6 +35,29 @@ import org.apache.xmlrpc.serializer.XmlWriterFactory;
 public class XmlRpcClientDefaults {
     private static final XmlWriterFactory xmlWriterFactory = new DefaultXMLWriterFactory();
 
+    private static final int MAX_THREADS_PER_PROCESSOR = 4;
+
+    private static final Executor executor = newSharedExecutor();
+
+    private static Executor newSharedExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        int maxThreads = MAX_THREADS_PER_PROCESSOR
+                * Runtime.getRuntime().availableProcessors();
+        // Requests are never queued. A request waiting for a slow server
+        // must not delay the requests of other clients, so the pool grows
+        // up to maxThreads and idle threads are reused. Beyond that, the
+        // calling thread performs the request itself.
+        return new ThreadPoolExecutor(0, maxThreads,
+                60, TimeUnit.SECONDS, new SynchronousQueue(), new ThreadFactory() {
+                    public Thread newThread(Runnable pRunnable) {
+                        Thread thread = new Thread(pRunnable,
+                                "XmlRpcClient-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     /**
      * Creates a new transport factory for the given client.
      */
@@ -56,4 +86,15 @@ public class XmlRpcClientDefaults {
     public static XmlWriterFactory newXmlWriterFactory() {
         return xmlWriterFactory;
     }
+
+    /**
+     * Returns the {@link Executor}, which performs asynchronous requests
+     * for all clients, which do not supply their own. It is a bounded pool
+     * of daemon threads, which starts a thread whenever all threads are
+     * busy and lets threads time out when idle. If all threads are busy
+     * and the pool is full, the calling thread performs the request.
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.xmlrpc.client;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.XmlRpcRequest;
 import org.apache.xmlrpc.common.XmlRpcController;
@@ -59,13 +61,8 @@ public class XmlRpcClientWorker implements XmlRpcWorker {
 		}
 	}
 
-	protected Thread newThread(Runnable pRunnable) {
-		Thread result = new Thread(pRunnable);
-		result.setDaemon(true);
-		return result;
-	}
-
-	/** Performs an synchronous request.
+	/** Performs an asynchronous request on the clients
+	 * {@link XmlRpcClient#getExecutor() executor}.
 	 * @param pRequest The request being performed.
 	 * @param pCallback The callback being invoked, when the request is finished.
 	 */
@@ -89,6 +86,11 @@ public class XmlRpcClientWorker implements XmlRpcWorker {
 				}
 			}
 		};
-		newThread(runnable).start();
+		try {
+			((XmlRpcClient) getController()).getExecutor().execute(runnable);
+		} catch (RejectedExecutionException e) {
+			factory.releaseWorker(this);
+			pCallback.handleError(pRequest, e);
+		}
 	}
 }
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
@@ -37,6 +38,7 @@ import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.XmlRpcRequest;
@@ -57,8 +59,10 @@ public class XmlRpcCommonsTransport extends XmlRpcHttpTransport {
     private static final int MAX_REDIRECT_ATTEMPTS = 100;
 
     protected final HttpClient client;
+    private final boolean isSharedClient;
 	private static final String userAgent = USER_AGENT + " (Jakarta Commons httpclient Transport)";
 	protected PostMethod method;
+	private HostConfiguration hostConfiguration;
 	private int contentLength = -1;
 	private XmlRpcHttpClientConfig config;      
 
@@ -68,6 +72,7 @@ public class XmlRpcCommonsTransport extends XmlRpcHttpTransport {
 	public XmlRpcCommonsTransport(XmlRpcCommonsTransportFactory pFactory) {
 		super(pFactory.getClient(), userAgent);
         HttpClient httpClient = pFactory.getHttpClient();
+        isSharedClient = httpClient != null;
         if (httpClient == null) {
             httpClient = newHttpClient();
         }
@@ -87,11 +92,25 @@ public class XmlRpcCommonsTransport extends XmlRpcHttpTransport {
         method = newPostMethod(config);
         super.initHttpHeaders(pRequest);
         
-        if (config.getConnectionTimeout() != 0)
-            client.getHttpConnectionManager().getParams().setConnectionTimeout(config.getConnectionTimeout());
+        // A shared client's connection manager is configured by its owner. The
+        // connection timeout is passed to it as a host parameter and the reply
+        // timeout is applied to this request only.
+        hostConfiguration = null;
+        if (config.getConnectionTimeout() != 0) {
+            if (isSharedClient) {
+                hostConfiguration = new HostConfiguration();
+                hostConfiguration.getParams().setIntParameter(HttpConnectionParams.CONNECTION_TIMEOUT,
+                        config.getConnectionTimeout());
+            } else {
+                client.getHttpConnectionManager().getParams().setConnectionTimeout(config.getConnectionTimeout());
+            }
+        }
         
-        if (config.getReplyTimeout() != 0)
-            client.getHttpConnectionManager().getParams().setSoTimeout(config.getReplyTimeout());
+        if (config.getReplyTimeout() != 0) {
+            if (!isSharedClient)
+                client.getHttpConnectionManager().getParams().setSoTimeout(config.getReplyTimeout());
+            method.getParams().setSoTimeout(config.getReplyTimeout());
+        }
         
         method.getParams().setVersion(HttpVersion.HTTP_1_1);
     }
@@ -224,7 +243,7 @@ public class XmlRpcCommonsTransport extends XmlRpcHttpTransport {
 		try {
             int redirectAttempts = 0;
             for (;;) {
-    			client.executeMethod(method);
+    			client.executeMethod(hostConfiguration, method);
                 if (!isRedirectRequired()) {
                     break;
                 }
@@ -61,7 +61,11 @@ public class RetryingExecutorService {
     @Override
     public void loop() throws InterruptedException {
       Future<Boolean> future = completionService.take();
-      final Callable<Boolean> callable = callables.remove(future);
+      final Callable<Boolean> callable;
+      // A Callable may complete before submit() has recorded its Future.
+      synchronized (RetryingExecutorService.this) {
+        callable = callables.remove(future);
+      }
       boolean retry;
       try {
         retry = future.get();
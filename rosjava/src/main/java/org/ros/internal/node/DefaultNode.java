@@ -19,6 +19,10 @@ package org.ros.internal.node;
 import com.google.common.annotations.VisibleForTesting;
 
 import org.apache.commons.logging.Log;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioDatagramChannelFactory;
 import org.ros.Parameters;
 import org.ros.concurrent.CancellableLoop;
 import org.ros.concurrent.ListenerCollection;
@@ -44,6 +48,7 @@ import org.ros.internal.node.topic.SubscriberFactory;
 import org.ros.internal.node.topic.TopicDeclaration;
 import org.ros.internal.node.topic.TopicParticipantManager;
 import org.ros.internal.node.xmlrpc.XmlRpcTimeoutException;
+import org.ros.internal.transport.MessageBufferPool;
 import org.ros.message.MessageDeserializer;
 import org.ros.message.MessageFactory;
 import org.ros.message.MessageSerializationFactory;
@@ -65,6 +70,7 @@ import org.ros.node.topic.DefaultPublisherListener;
 import org.ros.node.topic.DefaultSubscriberListener;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
+import org.ros.node.topic.TransportHints;
 import org.ros.time.ClockTopicTimeProvider;
 import org.ros.time.TimeProvider;
 
@@ -106,7 +112,8 @@ public class DefaultNode implements ConnectedNode {
   private final GraphName nodeName;
   private final NodeNameResolver resolver;
   private final SlaveServer slaveServer;
-  private final ParameterTree parameterTree;
+  private final DefaultParameterTree parameterTree;
+  private final MessageBufferPool messageBufferPool;
   private final PublisherFactory publisherFactory;
   private final SubscriberFactory subscriberFactory;
   private final ServiceFactory serviceFactory;
@@ -132,7 +139,7 @@ public class DefaultNode implements ConnectedNode {
         new ListenerCollection<NodeListener>(nodeListeners, scheduledExecutorService);
     this.scheduledExecutorService = scheduledExecutorService;
     masterUri = nodeConfiguration.getMasterUri();
-    masterClient = new MasterClient(masterUri);
+    masterClient = new MasterClient(masterUri, scheduledExecutorService);
     topicParticipantManager = new TopicParticipantManager();
     serviceManager = new ServiceManager();
     parameterManager = new ParameterManager(scheduledExecutorService);
@@ -153,15 +160,32 @@ public class DefaultNode implements ConnectedNode {
 
     parameterTree =
         DefaultParameterTree.newFromNodeIdentifier(nodeIdentifier, masterClient.getRemoteUri(),
-            resolver, parameterManager);
-
+            resolver, parameterManager, scheduledExecutorService,
+            nodeConfiguration.isParameterCacheEnabled());
+
+    // All outgoing TCPROS connections share one boss thread and a bounded
+    // number of worker threads.
+    ChannelFactory tcpClientChannelFactory =
+        new NioClientSocketChannelFactory(scheduledExecutorService, scheduledExecutorService,
+            nodeConfiguration.getTcpRosClientWorkerCount());
+    DatagramChannelFactory udpRosChannelFactory =
+        new NioDatagramChannelFactory(scheduledExecutorService);
+
+    // All publishers serialize into one pool of buffers so that the memory
+    // kept for reuse is bounded per node rather than per topic.
+    messageBufferPool = new MessageBufferPool();
     publisherFactory =
         new PublisherFactory(nodeIdentifier, topicParticipantManager,
-            nodeConfiguration.getTopicMessageFactory(), scheduledExecutorService);
+            nodeConfiguration.getTopicMessageFactory(), scheduledExecutorService,
+            udpRosChannelFactory, messageBufferPool);
     subscriberFactory =
-        new SubscriberFactory(nodeIdentifier, topicParticipantManager, scheduledExecutorService);
+        new SubscriberFactory(nodeIdentifier, topicParticipantManager, scheduledExecutorService,
+            tcpClientChannelFactory, udpRosChannelFactory);
     serviceFactory =
-        new ServiceFactory(nodeName, slaveServer, serviceManager, scheduledExecutorService);
+        new ServiceFactory(nodeName, slaveServer, serviceManager, scheduledExecutorService,
+            tcpClientChannelFactory, nodeConfiguration.getServiceClientConnectionCount(),
+            nodeConfiguration.getServiceServerWorkerCount(),
+            nodeConfiguration.getServiceServerMaximumQueuedRequests());
 
     registrar = new Registrar(masterClient, scheduledExecutorService);
     topicParticipantManager.setListener(registrar);
@@ -282,19 +306,32 @@ public class DefaultNode implements ConnectedNode {
 
   @Override
   public <T> Subscriber<T> newSubscriber(GraphName topicName, String messageType) {
+    return newSubscriber(topicName, messageType, new TransportHints());
+  }
+
+  @Override
+  public <T> Subscriber<T> newSubscriber(String topicName, String messageType) {
+    return newSubscriber(new GraphName(topicName), messageType);
+  }
+
+  @Override
+  public <T> Subscriber<T> newSubscriber(GraphName topicName, String messageType,
+      TransportHints transportHints) {
     GraphName resolvedTopicName = resolveName(topicName);
     TopicDescription topicDescription =
         nodeConfiguration.getTopicDescriptionFactory().newFromType(messageType);
     TopicDeclaration topicDeclaration =
         TopicDeclaration.newFromTopicName(resolvedTopicName, topicDescription);
     MessageDeserializer<T> deserializer = newMessageDeserializer(messageType);
-    Subscriber<T> subscriber = subscriberFactory.newOrExisting(topicDeclaration, deserializer);
+    Subscriber<T> subscriber =
+        subscriberFactory.newOrExisting(topicDeclaration, deserializer, transportHints);
     return subscriber;
   }
 
   @Override
-  public <T> Subscriber<T> newSubscriber(String topicName, String messageType) {
-    return newSubscriber(new GraphName(topicName), messageType);
+  public <T> Subscriber<T> newSubscriber(String topicName, String messageType,
+      TransportHints transportHints) {
+    return newSubscriber(new GraphName(topicName), messageType, transportHints);
   }
 
   @Override
@@ -406,6 +443,7 @@ public class DefaultNode implements ConnectedNode {
     for (Publisher<?> publisher : topicParticipantManager.getPublishers()) {
       publisher.shutdown();
     }
+    messageBufferPool.shutdown();
     for (Subscriber<?> subscriber : topicParticipantManager.getSubscribers()) {
       subscriber.shutdown();
     }
@@ -427,6 +465,13 @@ public class DefaultNode implements ConnectedNode {
     for (ServiceClient<?, ?> serviceClient : serviceManager.getClients()) {
       serviceClient.shutdown();
     }
+    try {
+      parameterTree.shutdown();
+    } catch (XmlRpcTimeoutException e) {
+      log.error(e);
+    } catch (RemoteException e) {
+      log.error(e);
+    }
     registrar.shutdown();
     slaveServer.shutdown();
     signalOnShutdownComplete();
@@ -16,19 +16,16 @@
 
 package org.ros.internal.node.client;
 
-import org.apache.xmlrpc.client.XmlRpcClient;
-import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
-import org.apache.xmlrpc.client.XmlRpcCommonsTransportFactory;
-import org.ros.exception.RosRuntimeException;
 import org.ros.internal.node.server.XmlRpcServer;
-import org.ros.internal.node.xmlrpc.XmlRpcClientFactory;
 import org.ros.internal.node.xmlrpc.XmlRpcEndpoint;
 
-import java.net.MalformedURLException;
 import java.net.URI;
+import java.util.concurrent.Executor;
 
 /**
  * Base class for XML-RPC clients (e.g. MasterClient and SlaveClient).
+ * Creating a {@link Client} is cheap since endpoints and their connections are
+ * shared through the {@link XmlRpcClientCache}.
  * 
  * @author damonkohler@google.com (Damon Kohler)
  * 
@@ -54,24 +51,56 @@ abstract class Client<T extends XmlRpcEndpoint> {
    *          the class literal for the XML-RPC interface
    */
   public Client(URI uri, Class<T> interfaceClass) {
-    this.uri = uri;
-    XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
-    try {
-      config.setServerURL(uri.toURL());
-    } catch (MalformedURLException e) {
-      throw new RosRuntimeException(e);
-    }
-    config.setConnectionTimeout(CONNECTION_TIMEOUT);
-    config.setReplyTimeout(REPLY_TIMEOUT);
+    this(uri, interfaceClass, CONNECTION_TIMEOUT, REPLY_TIMEOUT, XMLRPC_TIMEOUT, null);
+  }
+
+  /**
+   * @param uri
+   *          the {@link URI} to connect to
+   * @param interfaceClass
+   *          the class literal for the XML-RPC interface
+   * @param executor
+   *          the {@link Executor} that performs calls, it must not bound the
+   *          number of threads since callers may be running on it as well
+   */
+  public Client(URI uri, Class<T> interfaceClass, Executor executor) {
+    this(uri, interfaceClass, CONNECTION_TIMEOUT, REPLY_TIMEOUT, XMLRPC_TIMEOUT, executor);
+  }
+
+  /**
+   * @param uri
+   *          the {@link URI} to connect to
+   * @param interfaceClass
+   *          the class literal for the XML-RPC interface
+   * @param timeout
+   *          the time in milliseconds after which a call is abandoned
+   */
+  public Client(URI uri, Class<T> interfaceClass, int timeout) {
+    this(uri, interfaceClass, timeout, timeout, timeout, null);
+  }
 
-    XmlRpcClient client = new XmlRpcClient();
-    client.setTransportFactory(new XmlRpcCommonsTransportFactory(client));
-    client.setConfig(config);
+  /**
+   * @param uri
+   *          the {@link URI} to connect to
+   * @param interfaceClass
+   *          the class literal for the XML-RPC interface
+   * @param timeout
+   *          the time in milliseconds to wait for a connection and for each
+   *          part of the reply
+   * @param executor
+   *          the {@link Executor} that performs calls, an {@link Executor}
+   *          that runs calls in the calling thread makes them synchronous
+   */
+  public Client(URI uri, Class<T> interfaceClass, int timeout, Executor executor) {
+    this(uri, interfaceClass, timeout, timeout, timeout, executor);
+  }
 
-    XmlRpcClientFactory<T> factory = new XmlRpcClientFactory<T>(client);
+  private Client(URI uri, Class<T> interfaceClass, int connectionTimeout, int replyTimeout,
+      int xmlRpcTimeout, Executor executor) {
+    this.uri = uri;
     xmlRpcEndpoint =
-        interfaceClass.cast(factory.newInstance(getClass().getClassLoader(), interfaceClass, "",
-            XMLRPC_TIMEOUT));
+        XmlRpcClientCache.getEndpoint(uri, interfaceClass, connectionTimeout, replyTimeout,
+            xmlRpcTimeout, executor);
   }
 
   /**
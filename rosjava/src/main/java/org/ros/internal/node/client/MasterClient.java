@@ -41,6 +41,7 @@ import org.ros.node.topic.Subscriber;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Provides access to the XML-RPC API exposed by a {@link MasterServer}.
@@ -60,6 +61,16 @@ public class MasterClient extends Client<MasterXmlRpcEndpoint> {
     super(uri, MasterXmlRpcEndpoint.class);
   }
 
+  /**
+   * @param uri
+   *          the {@link URI} of the {@link MasterServer} to connect to
+   * @param executor
+   *          the {@link Executor} that performs calls
+   */
+  public MasterClient(URI uri, Executor executor) {
+    super(uri, MasterXmlRpcEndpoint.class, executor);
+  }
+
   /**
    * Registers the given {@link ServiceServer}.
    * 
@@ -33,6 +33,7 @@ import org.ros.namespace.GraphName;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Provide access to the XML-RPC API for a ROS {@link ParameterServer}.
@@ -58,6 +59,18 @@ public class ParameterClient extends Client<ParameterServerXmlRpcEndpoint> {
     nodeName = nodeIdentifier.getName().toString();
   }
 
+  /**
+   * @param uri
+   *          the {@link URI} of the {@link ParameterServer} to connect to
+   * @param executor
+   *          the {@link Executor} that performs calls
+   */
+  public ParameterClient(NodeIdentifier nodeIdentifier, URI uri, Executor executor) {
+    super(uri, ParameterServerXmlRpcEndpoint.class, executor);
+    this.nodeIdentifier = nodeIdentifier;
+    nodeName = nodeIdentifier.getName().toString();
+  }
+
   public Response<Object> getParam(GraphName parameterName) {
     return Response.fromListCheckedFailure(xmlRpcEndpoint.getParam(nodeName, parameterName.toString()),
         new ObjectResultFactory());
@@ -19,6 +19,7 @@ package org.ros.internal.node.client;
 import com.google.common.collect.Lists;
 
 import org.ros.internal.node.response.IntegerResultFactory;
+import org.ros.internal.node.response.ListResultFactory;
 import org.ros.internal.node.response.ProtocolDescriptionResultFactory;
 import org.ros.internal.node.response.Response;
 import org.ros.internal.node.response.TopicListResultFactory;
@@ -27,12 +28,14 @@ import org.ros.internal.node.response.VoidResultFactory;
 import org.ros.internal.node.topic.TopicDeclaration;
 import org.ros.internal.node.xmlrpc.SlaveXmlRpcEndpoint;
 import org.ros.internal.transport.ProtocolDescription;
+import org.ros.internal.transport.udp.UdpRosTopicRequest;
 import org.ros.namespace.GraphName;
 
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -46,12 +49,52 @@ public class SlaveClient extends Client<SlaveXmlRpcEndpoint> {
     this.nodeName = nodeName;
   }
 
-  public List<Object> getBusStats() {
-    throw new UnsupportedOperationException();
+  /**
+   * @param executor
+   *          the {@link Executor} that performs calls
+   */
+  public SlaveClient(GraphName nodeName, URI uri, Executor executor) {
+    super(uri, SlaveXmlRpcEndpoint.class, executor);
+    this.nodeName = nodeName;
+  }
+
+  /**
+   * @param timeout
+   *          the time in milliseconds after which a call is abandoned
+   */
+  public SlaveClient(GraphName nodeName, URI uri, int timeout) {
+    super(uri, SlaveXmlRpcEndpoint.class, timeout);
+    this.nodeName = nodeName;
   }
 
-  public List<Object> getBusInfo() {
-    throw new UnsupportedOperationException();
+  /**
+   * @param timeout
+   *          the time in milliseconds to wait for a connection and for each
+   *          part of the reply
+   * @param executor
+   *          the {@link Executor} that performs calls
+   */
+  public SlaveClient(GraphName nodeName, URI uri, int timeout, Executor executor) {
+    super(uri, SlaveXmlRpcEndpoint.class, timeout, executor);
+    this.nodeName = nodeName;
+  }
+
+  /**
+   * @return the transport statistics of all topic connections of the node
+   * @see SlaveXmlRpcEndpoint#getBusStats(String)
+   */
+  public Response<List<Object>> getBusStats() {
+    return Response.fromListChecked(xmlRpcEndpoint.getBusStats(nodeName.toString()),
+        new ListResultFactory());
+  }
+
+  /**
+   * @return information about all topic connections of the node
+   * @see SlaveXmlRpcEndpoint#getBusInfo(String)
+   */
+  public Response<List<Object>> getBusInfo() {
+    return Response.fromListChecked(xmlRpcEndpoint.getBusInfo(nodeName.toString()),
+        new ListResultFactory());
   }
 
   public Response<URI> getMasterUri() {
@@ -123,7 +166,32 @@ public class SlaveClient extends Client<SlaveXmlRpcEndpoint> {
 
   public Response<ProtocolDescription> requestTopic(GraphName topic,
       Collection<String> requestedProtocols) {
+    // Each requested protocol is a list of its name followed by its
+    // parameters. None of our protocols take parameters.
+    Object[][] protocols = new Object[requestedProtocols.size()][];
+    int i = 0;
+    for (String protocol : requestedProtocols) {
+      protocols[i++] = new Object[] { protocol };
+    }
+    return Response.fromListChecked(xmlRpcEndpoint.requestTopic(nodeName.toString(), topic.toString(),
+        protocols), new ProtocolDescriptionResultFactory());
+  }
+
+  /**
+   * Requests a topic, offering UDPROS ahead of {@code requestedProtocols}.
+   * 
+   * @param udpRosTopicRequest
+   *          the parameters of the UDPROS request
+   */
+  public Response<ProtocolDescription> requestTopic(GraphName topic,
+      UdpRosTopicRequest udpRosTopicRequest, Collection<String> requestedProtocols) {
+    Object[][] protocols = new Object[requestedProtocols.size() + 1][];
+    protocols[0] = udpRosTopicRequest.toList().toArray();
+    int i = 1;
+    for (String protocol : requestedProtocols) {
+      protocols[i++] = new Object[] { protocol };
+    }
     return Response.fromListChecked(xmlRpcEndpoint.requestTopic(nodeName.toString(), topic.toString(),
-        new Object[][] { requestedProtocols.toArray() }), new ProtocolDescriptionResultFactory());
+        protocols), new ProtocolDescriptionResultFactory());
   }
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.client;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodRetryHandler;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.NoHttpResponseException;
+import org.apache.commons.httpclient.URIException;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
+import org.apache.xmlrpc.client.XmlRpcCommonsTransportFactory;
+import org.ros.exception.RosRuntimeException;
+import org.ros.internal.node.xmlrpc.XmlRpcClientFactory;
+import org.ros.internal.node.xmlrpc.XmlRpcEndpoint;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A process-wide cache of XML-RPC endpoints. All endpoints share one pool of
+ * persistent HTTP/1.1 connections so that repeated calls to the same
+ * {@link URI} do not pay for connection setup and teardown.
+ * 
+ * <p>
+ * Endpoints that perform calls on their own {@link Executor} share the
+ * connections but are not cached.
+ */
+public final class XmlRpcClientCache {
+
+  private static final int DEFAULT_MAXIMUM_CONNECTIONS_PER_HOST = 8;
+  private static final int DEFAULT_MAXIMUM_TOTAL_CONNECTIONS = 256;
+
+  /**
+   * The number of endpoints to keep. The least recently used endpoint is
+   * evicted first.
+   */
+  private static final int MAXIMUM_CACHED_ENDPOINTS = 1024;
+
+  /**
+   * The time in milliseconds after which idle connections are closed. This
+   * must be shorter than the time after which an XML-RPC server drops an idle
+   * connection (30 seconds) so that stale connections are not reused.
+   */
+  private static final long IDLE_CONNECTION_TIMEOUT = 10 * 1000; // 10 seconds
+
+  /**
+   * The time in milliseconds to wait for a connection if the caller did not
+   * specify one.
+   */
+  private static final int CONNECTION_TIMEOUT = 60 * 1000; // 60 seconds
+
+  /**
+   * The time in milliseconds to wait for a pooled connection to become
+   * available once all connections to a host are in use.
+   */
+  private static final long CONNECTION_MANAGER_TIMEOUT = 10 * 1000; // 10 seconds
+
+  private static final PooledConnectionManager connectionManager;
+  private static final HttpClient httpClient;
+  private static final Map<EndpointKey, XmlRpcEndpoint> endpoints;
+
+  static {
+    connectionManager = new PooledConnectionManager();
+    HttpConnectionManagerParams params = connectionManager.getParams();
+    params.setDefaultMaxConnectionsPerHost(DEFAULT_MAXIMUM_CONNECTIONS_PER_HOST);
+    params.setMaxTotalConnections(DEFAULT_MAXIMUM_TOTAL_CONNECTIONS);
+    params.setConnectionTimeout(CONNECTION_TIMEOUT);
+    params.setTcpNoDelay(true);
+    // Checking for stale connections blocks each request for up to 1 ms.
+    // Idle connections are closed before servers drop them instead and servers
+    // announce when they are about to close a connection. Connections that go
+    // stale anyway (e.g. because the server was restarted) are handled by
+    // StaleConnectionRetryHandler.
+    params.setStaleCheckingEnabled(false);
+    httpClient = new HttpClient(connectionManager);
+    httpClient.getParams().setConnectionManagerTimeout(CONNECTION_MANAGER_TIMEOUT);
+    httpClient.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
+        new StaleConnectionRetryHandler());
+    // The thread is a daemon and lives as long as the process.
+    IdleConnectionTimeoutThread idleConnectionTimeoutThread = new IdleConnectionTimeoutThread();
+    idleConnectionTimeoutThread.setName("XmlRpcClientCache idle connection timeout");
+    idleConnectionTimeoutThread.addConnectionManager(connectionManager);
+    idleConnectionTimeoutThread.setConnectionTimeout(IDLE_CONNECTION_TIMEOUT);
+    idleConnectionTimeoutThread.setTimeoutInterval(IDLE_CONNECTION_TIMEOUT / 2);
+    idleConnectionTimeoutThread.start();
+    endpoints = new LinkedHashMap<EndpointKey, XmlRpcEndpoint>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<EndpointKey, XmlRpcEndpoint> eldest) {
+        return size() > MAXIMUM_CACHED_ENDPOINTS;
+      }
+    };
+  }
+
+  /**
+   * Applies the connection timeout of each request and checks the connections
+   * to hosts that recently dropped a pooled connection for staleness before
+   * they are reused.
+   */
+  private static final class PooledConnectionManager extends MultiThreadedHttpConnectionManager {
+
+    /**
+     * Maps hosts whose idle connections may be stale to the time in
+     * milliseconds until which their connections are checked. Connections that
+     * are idle for longer than {@link #IDLE_CONNECTION_TIMEOUT} are closed
+     * anyway.
+     */
+    private final ConcurrentMap<HostConfiguration, Long> staleHosts =
+        new ConcurrentHashMap<HostConfiguration, Long>();
+
+    public void markStale(HostConfiguration hostConfiguration) {
+      staleHosts.put(hostConfiguration, System.currentTimeMillis() + IDLE_CONNECTION_TIMEOUT);
+    }
+
+    private boolean isStale(HostConfiguration hostConfiguration) {
+      Long deadline = staleHosts.get(hostConfiguration);
+      if (deadline == null) {
+        return false;
+      }
+      if (deadline < System.currentTimeMillis()) {
+        staleHosts.remove(hostConfiguration, deadline);
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration,
+        long timeout) throws ConnectionPoolTimeoutException {
+      HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+      // Connections are checked out by one request at a time, so their
+      // parameters can be changed for the request about to use them.
+      HttpConnectionParams connectionParams = connection.getParams();
+      connectionParams.setConnectionTimeout(hostConfiguration.getParams().getIntParameter(
+          HttpConnectionParams.CONNECTION_TIMEOUT, getParams().getConnectionTimeout()));
+      connectionParams.setStaleCheckingEnabled(isStale(hostConfiguration));
+      return connection;
+    }
+  }
+
+  /**
+   * Retries a request once if it failed because the pooled connection it was
+   * sent on had been closed by the server. The other pooled connections to
+   * that server are then checked for staleness before they are reused.
+   * <p>
+   * Other failures, e.g. a refused connection to a node that is no longer
+   * running, are reported to the caller immediately and leave the pool alone.
+   */
+  private static final class StaleConnectionRetryHandler implements HttpMethodRetryHandler {
+    @Override
+    public boolean retryMethod(HttpMethod method, IOException exception, int executionCount) {
+      if (!isStaleConnection(method, exception)) {
+        return false;
+      }
+      try {
+        HostConfiguration hostConfiguration = new HostConfiguration();
+        hostConfiguration.setHost(method.getURI());
+        connectionManager.markStale(hostConfiguration);
+      } catch (URIException e) {
+        // The request could not have been sent without a valid URI.
+        throw new RosRuntimeException(e);
+      }
+      return executionCount == 1;
+    }
+
+    private boolean isStaleConnection(HttpMethod method, IOException exception) {
+      if (exception instanceof NoHttpResponseException) {
+        // The server closed the connection without reading the request.
+        return true;
+      }
+      return exception instanceof SocketException && !(exception instanceof ConnectException)
+          && !(exception instanceof NoRouteToHostException) && !method.isRequestSent();
+    }
+  }
+
+  private static final class EndpointKey {
+
+    private final URI uri;
+    private final Class<?> interfaceClass;
+    private final int connectionTimeout;
+    private final int replyTimeout;
+    private final int xmlRpcTimeout;
+
+    public EndpointKey(URI uri, Class<?> interfaceClass, int connectionTimeout, int replyTimeout,
+        int xmlRpcTimeout) {
+      this.uri = uri;
+      this.interfaceClass = interfaceClass;
+      this.connectionTimeout = connectionTimeout;
+      this.replyTimeout = replyTimeout;
+      this.xmlRpcTimeout = xmlRpcTimeout;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = uri.hashCode();
+      result = 31 * result + interfaceClass.hashCode();
+      result = 31 * result + connectionTimeout;
+      result = 31 * result + replyTimeout;
+      result = 31 * result + xmlRpcTimeout;
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof EndpointKey)) {
+        return false;
+      }
+      EndpointKey other = (EndpointKey) obj;
+      return uri.equals(other.uri) && interfaceClass.equals(other.interfaceClass)
+          && connectionTimeout == other.connectionTimeout && replyTimeout == other.replyTimeout
+          && xmlRpcTimeout == other.xmlRpcTimeout;
+    }
+  }
+
+  private XmlRpcClientCache() {
+    // Utility class.
+  }
+
+  /**
+   * @param maximumConnectionsPerHost
+   *          the number of connections kept open to each host
+   */
+  public static void setMaximumConnectionsPerHost(int maximumConnectionsPerHost) {
+    Preconditions.checkArgument(maximumConnectionsPerHost > 0);
+    connectionManager.getParams().setDefaultMaxConnectionsPerHost(maximumConnectionsPerHost);
+  }
+
+  /**
+   * @param maximumTotalConnections
+   *          the number of connections kept open in total
+   */
+  public static void setMaximumTotalConnections(int maximumTotalConnections) {
+    Preconditions.checkArgument(maximumTotalConnections > 0);
+    connectionManager.getParams().setMaxTotalConnections(maximumTotalConnections);
+  }
+
+  /**
+   * @param uri
+   *          the {@link URI} to connect to
+   * @param interfaceClass
+   *          the class literal for the XML-RPC interface
+   * @param connectionTimeout
+   *          the time in milliseconds to wait for a connection
+   * @param replyTimeout
+   *          the time in milliseconds to wait for a reply
+   * @param xmlRpcTimeout
+   *          the time in milliseconds after which a call is abandoned
+   * @param executor
+   *          the {@link Executor} that performs calls or {@code null} to use
+   *          the pool shared by all {@link XmlRpcClient}s
+   * @return an endpoint for {@code uri} that may be shared with other callers
+   *         if {@code executor} is {@code null}
+   */
+  static <T extends XmlRpcEndpoint> T getEndpoint(URI uri, Class<T> interfaceClass,
+      int connectionTimeout, int replyTimeout, int xmlRpcTimeout, Executor executor) {
+    if (executor != null) {
+      // An executor usually belongs to a node. Caching its endpoints would
+      // keep the executor and the node reachable after the node has shut down.
+      // The endpoint still uses the shared connections.
+      return newEndpoint(uri, interfaceClass, connectionTimeout, replyTimeout, xmlRpcTimeout,
+          executor);
+    }
+    EndpointKey key =
+        new EndpointKey(uri, interfaceClass, connectionTimeout, replyTimeout, xmlRpcTimeout);
+    synchronized (endpoints) {
+      XmlRpcEndpoint endpoint = endpoints.get(key);
+      if (endpoint == null) {
+        endpoint =
+            newEndpoint(uri, interfaceClass, connectionTimeout, replyTimeout, xmlRpcTimeout,
+                null);
+        endpoints.put(key, endpoint);
+      }
+      return interfaceClass.cast(endpoint);
+    }
+  }
+
+  private static <T extends XmlRpcEndpoint> T newEndpoint(URI uri, Class<T> interfaceClass,
+      int connectionTimeout, int replyTimeout, int xmlRpcTimeout, Executor executor) {
+    XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+    try {
+      config.setServerURL(uri.toURL());
+    } catch (MalformedURLException e) {
+      throw new RosRuntimeException(e);
+    }
+    config.setConnectionTimeout(connectionTimeout);
+    config.setReplyTimeout(replyTimeout);
+
+    XmlRpcClient client = new XmlRpcClient();
+    XmlRpcCommonsTransportFactory transportFactory = new XmlRpcCommonsTransportFactory(client);
+    transportFactory.setHttpClient(httpClient);
+    client.setTransportFactory(transportFactory);
+    client.setConfig(config);
+    if (executor != null) {
+      client.setExecutor(executor);
+    }
+
+    XmlRpcClientFactory<T> factory = new XmlRpcClientFactory<T>(client);
+    return interfaceClass.cast(factory.newInstance(XmlRpcClientCache.class.getClassLoader(),
+        interfaceClass, "", xmlRpcTimeout));
+  }
+}
@@ -34,10 +34,17 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Provides access to the ROS {@link ParameterServer}.
  * 
+ * <p>
+ * In cached mode, the first read of a parameter subscribes to it and later
+ * reads are answered from the {@link ParameterManager}'s {@link ParameterCache}
+ * which the {@link ParameterServer} keeps up to date. Writes always go to the
+ * {@link ParameterServer}.
+ * 
  * @author kwc@willowgarage.com (Ken Conley)
  * @author damonkohler@google.com (Damon Kohler)
  */
@@ -46,23 +53,88 @@ public class DefaultParameterTree implements ParameterTree {
   private final ParameterClient parameterClient;
   private final ParameterManager parameterManager;
   private final NameResolver resolver;
+  private final ParameterCache cache;
 
   public static DefaultParameterTree newFromNodeIdentifier(NodeIdentifier nodeIdentifier,
       URI masterUri, NameResolver resolver, ParameterManager parameterManager) {
     ParameterClient client = new ParameterClient(nodeIdentifier, masterUri);
-    return new DefaultParameterTree(client, parameterManager, resolver);
+    return new DefaultParameterTree(client, parameterManager, resolver, false);
+  }
+
+  /**
+   * @param executor
+   *          the {@link Executor} that performs calls to the
+   *          {@link ParameterServer}
+   * @param cached
+   *          {@code true} if parameter values should be cached
+   */
+  public static DefaultParameterTree newFromNodeIdentifier(NodeIdentifier nodeIdentifier,
+      URI masterUri, NameResolver resolver, ParameterManager parameterManager,
+      Executor executor, boolean cached) {
+    ParameterClient client = new ParameterClient(nodeIdentifier, masterUri, executor);
+    return new DefaultParameterTree(client, parameterManager, resolver, cached);
   }
 
-  private DefaultParameterTree(ParameterClient parameterClient, ParameterManager parameterManager,
-      NameResolver resolver) {
+  DefaultParameterTree(ParameterClient parameterClient, ParameterManager parameterManager,
+      NameResolver resolver, boolean cached) {
     this.parameterClient = parameterClient;
     this.parameterManager = parameterManager;
     this.resolver = resolver;
+    cache = cached ? parameterManager.getCache() : null;
+  }
+
+  /**
+   * @param resolvedName
+   *          the resolved name of the parameter
+   * @return the value of the parameter or {@code null} if it is not set
+   */
+  private Object getValue(GraphName resolvedName) {
+    if (cache != null) {
+      Object value = cache.get(resolvedName);
+      if (value == null) {
+        long version = cache.subscribe(resolvedName);
+        value =
+            cache.fill(resolvedName, parameterClient.subscribeParam(resolvedName).getResult(),
+                version);
+      }
+      return value == ParameterCache.NOT_SET ? null : value;
+    }
+    Response<Object> response = parameterClient.getParam(resolvedName);
+    if (response.getStatusCode() == StatusCode.SUCCESS) {
+      return response.getResult();
+    }
+    return null;
+  }
+
+  /**
+   * Unsubscribes from all parameters that were subscribed to for caching so
+   * that the {@link ParameterServer} stops sending updates to this node.
+   */
+  public void shutdown() {
+    if (cache != null) {
+      for (GraphName resolvedName : cache.getSubscribedNames()) {
+        parameterClient.unsubscribeParam(resolvedName);
+      }
+    }
+  }
+
+  private void invalidate(GraphName resolvedName) {
+    if (cache != null) {
+      cache.invalidate(resolvedName);
+    }
   }
 
   @Override
   public boolean has(GraphName name) {
     GraphName resolvedName = resolver.resolve(name);
+    if (cache != null) {
+      // An empty namespace is cached as not set, so only a cached value is
+      // conclusive.
+      Object value = cache.get(resolvedName);
+      if (value != null && value != ParameterCache.NOT_SET) {
+        return true;
+      }
+    }
     return parameterClient.hasParam(resolvedName).getResult();
   }
 
@@ -75,6 +147,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void delete(GraphName name) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.deleteParam(resolvedName);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -84,8 +157,10 @@ public class DefaultParameterTree implements ParameterTree {
 
   @Override
   public GraphName search(GraphName name) {
-    GraphName resolvedName = resolver.resolve(name);
-    Response<GraphName> response = parameterClient.searchParam(resolvedName);
+    // Relative names are searched for by the master starting in the namespace
+    // of this node, so they must not be resolved here.
+    GraphName searchName = name.isRelative() ? name : resolver.resolve(name);
+    Response<GraphName> response = parameterClient.searchParam(searchName);
     if (response.getStatusCode() == StatusCode.SUCCESS) {
       return response.getResult();
     } else {
@@ -128,6 +203,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, boolean value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -139,6 +215,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, int value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -150,6 +227,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, double value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -161,6 +239,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, String value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -172,6 +251,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, List<?> value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -183,6 +263,7 @@ public class DefaultParameterTree implements ParameterTree {
   public void set(GraphName name, Map<?, ?> value) {
     GraphName resolvedName = resolver.resolve(name);
     parameterClient.setParam(resolvedName, value);
+    invalidate(resolvedName);
   }
 
   @Override
@@ -192,10 +273,10 @@ public class DefaultParameterTree implements ParameterTree {
 
   private <T> T get(GraphName name, Class<T> type) {
     GraphName resolvedName = resolver.resolve(name);
-    Response<Object> response = parameterClient.getParam(resolvedName);
+    Object value = getValue(resolvedName);
     try {
-      if (response.getStatusCode() == StatusCode.SUCCESS) {
-        return type.cast(response.getResult());
+      if (value != null) {
+        return type.cast(value);
       }
     } catch (ClassCastException e) {
       throw new ParameterClassCastException("Cannot cast parameter to: " + type.getName(), e);
@@ -207,10 +288,10 @@ public class DefaultParameterTree implements ParameterTree {
   private <T> T get(GraphName name, T defaultValue) {
     Preconditions.checkNotNull(defaultValue);
     GraphName resolvedName = resolver.resolve(name);
-    Response<Object> response = parameterClient.getParam(resolvedName);
-    if (response.getStatusCode() == StatusCode.SUCCESS) {
+    Object value = getValue(resolvedName);
+    if (value != null) {
       try {
-        return (T) defaultValue.getClass().cast(response.getResult());
+        return (T) defaultValue.getClass().cast(value);
       } catch (ClassCastException e) {
         throw new ParameterClassCastException("Cannot cast parameter to: "
             + defaultValue.getClass().getName(), e);
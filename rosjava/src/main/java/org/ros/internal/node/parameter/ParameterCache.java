@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.parameter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.ros.internal.node.server.ParameterServer;
+import org.ros.namespace.GraphName;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches parameter values locally so that repeated reads do not require a
+ * round trip to the {@link ParameterServer}.
+ * 
+ * <p>
+ * Every cached parameter is subscribed to on the {@link ParameterServer} which
+ * then pushes all changes to it, or to any of its ancestors or descendants,
+ * back to the {@link ParameterManager}. Subscriptions are kept until the node
+ * shuts down and unsubscribes from all of them.
+ * 
+ * <p>
+ * The {@link ParameterServer} uses empty maps to announce both unset and
+ * deleted parameters. They are cached as {@link #NOT_SET} so that reading an
+ * unset parameter does not require a round trip either. A push replaces it
+ * once the parameter is set.
+ * 
+ * <p>
+ * Each subscribed parameter has a version that changes with every push and
+ * every local invalidation. A value returned when subscribing is only cached if
+ * the version did not change in the meantime, so that it can not replace a
+ * newer value or resurrect a deleted parameter.
+ */
+class ParameterCache {
+
+  /**
+   * The cached value of a parameter that is not set.
+   */
+  static final Object NOT_SET = new Object();
+
+  private static final String SEPARATOR = "/";
+
+  private final ConcurrentMap<GraphName, Object> values;
+  private final ConcurrentMap<GraphName, Subscription> subscriptions;
+
+  /**
+   * The version of a subscribed parameter. Guarded by itself, which must also
+   * be held while changing the cached value of the parameter.
+   */
+  private static final class Subscription {
+
+    private long version;
+  }
+
+  public ParameterCache() {
+    values = Maps.newConcurrentMap();
+    subscriptions = Maps.newConcurrentMap();
+  }
+
+  /**
+   * @param name
+   *          the resolved name of the parameter
+   * @return the cached value of the parameter, {@link #NOT_SET} if it is
+   *         cached as not set or {@code null} if it is not cached
+   */
+  public Object get(GraphName name) {
+    return copyOf(values.get(name));
+  }
+
+  /**
+   * Marks the parameter as subscribed. This must be called before subscribing
+   * on the {@link ParameterServer} so that no updates are missed.
+   * 
+   * @param name
+   *          the resolved name of the parameter
+   * @return the current version of the parameter, to be passed to
+   *         {@link #fill(GraphName, Object, long)}
+   */
+  public long subscribe(GraphName name) {
+    Subscription subscription = subscriptions.get(name);
+    if (subscription == null) {
+      subscriptions.putIfAbsent(name, new Subscription());
+      subscription = subscriptions.get(name);
+    }
+    synchronized (subscription) {
+      return subscription.version;
+    }
+  }
+
+  /**
+   * @return the resolved names of all subscribed parameters
+   */
+  public Collection<GraphName> getSubscribedNames() {
+    return Lists.newArrayList(subscriptions.keySet());
+  }
+
+  /**
+   * Caches the value that was returned when subscribing to the parameter. A
+   * value or deletion that was pushed in the meantime is newer and takes
+   * precedence. If the parameter was invalidated in the meantime, the value is
+   * returned but not cached.
+   * 
+   * @param name
+   *          the resolved name of the parameter
+   * @param value
+   *          the value returned by the {@link ParameterServer}
+   * @param version
+   *          the version returned by {@link #subscribe(GraphName)}
+   * @return the value of the parameter or {@link #NOT_SET} if it is not set
+   */
+  public Object fill(GraphName name, Object value, long version) {
+    Subscription subscription = subscriptions.get(name);
+    synchronized (subscription) {
+      value = normalize(value);
+      if (subscription.version == version) {
+        values.put(name, value);
+        return copyOf(value);
+      }
+      Object pushedValue = values.get(name);
+      if (pushedValue != null) {
+        return copyOf(pushedValue);
+      }
+      // The parameter was invalidated by a local write. The returned value was
+      // current when it was read but must not be cached.
+      return copyOf(value);
+    }
+  }
+
+  /**
+   * @param name
+   *          the resolved name of the parameter
+   * @param value
+   *          the new value of the parameter pushed by the
+   *          {@link ParameterServer}
+   * @return {@code true} if the parameter is subscribed to
+   */
+  public boolean update(GraphName name, Object value) {
+    Subscription subscription = subscriptions.get(name);
+    if (subscription == null) {
+      return false;
+    }
+    synchronized (subscription) {
+      subscription.version++;
+      values.put(name, normalize(value));
+    }
+    return true;
+  }
+
+  /**
+   * Removes the parameter and all of its cached ancestors and descendants from
+   * the cache. They will be retrieved from the {@link ParameterServer} again on
+   * the next read.
+   * 
+   * @param name
+   *          the resolved name of the parameter
+   */
+  public void invalidate(GraphName name) {
+    for (Map.Entry<GraphName, Subscription> entry : subscriptions.entrySet()) {
+      if (isRelated(name, entry.getKey())) {
+        Subscription subscription = entry.getValue();
+        synchronized (subscription) {
+          subscription.version++;
+          values.remove(entry.getKey());
+        }
+      }
+    }
+  }
+
+  private static boolean isRelated(GraphName name, GraphName otherName) {
+    return name.equals(otherName) || isAncestor(name, otherName) || isAncestor(otherName, name);
+  }
+
+  private static boolean isAncestor(GraphName ancestor, GraphName name) {
+    String prefix = ancestor.toString();
+    if (!prefix.endsWith(SEPARATOR)) {
+      prefix += SEPARATOR;
+    }
+    return name.toString().startsWith(prefix);
+  }
+
+  /**
+   * Unset parameters are stored as {@link #NOT_SET} and lists are stored as
+   * arrays to match the values returned by the {@link ParameterServer}.
+   */
+  private static Object normalize(Object value) {
+    if (value == null || (value instanceof Map && ((Map<?, ?>) value).isEmpty())) {
+      return NOT_SET;
+    }
+    if (value instanceof List) {
+      return ((List<?>) value).toArray();
+    }
+    return value;
+  }
+
+  /**
+   * Arrays and maps are copied so that callers can not modify the cache.
+   */
+  private static Object copyOf(Object value) {
+    if (value instanceof Object[]) {
+      return ((Object[]) value).clone();
+    }
+    if (value instanceof Map) {
+      return Maps.newHashMap((Map<?, ?>) value);
+    }
+    return value;
+  }
+}
@@ -33,10 +33,20 @@ public class ParameterManager {
 
   private final ExecutorService executorService;
   private final Map<GraphName, ListenerCollection<ParameterListener>> listeners;
+  private final ParameterCache cache;
 
   public ParameterManager(ExecutorService executorService) {
     this.executorService = executorService;
     listeners = Maps.newHashMap();
+    cache = new ParameterCache();
+  }
+
+  /**
+   * @return the {@link ParameterCache} that is kept up to date by this
+   *         {@link ParameterManager}
+   */
+  ParameterCache getCache() {
+    return cache;
   }
 
   public void addListener(GraphName parameterName, ParameterListener listener) {
@@ -64,14 +74,18 @@ public class ParameterManager {
   /**
    * @param parameterName
    * @param value
-   * @return the number of listeners called with the new value
+   * @return the number of listeners called with the new value, including the
+   *         {@link ParameterCache}
    */
   public int updateParameter(GraphName parameterName, final Object value) {
     int numberOfListeners = 0;
+    if (cache.update(parameterName, value)) {
+      numberOfListeners++;
+    }
     synchronized (listeners) {
       if (listeners.containsKey(parameterName)) {
         ListenerCollection<ParameterListener> listenerCollection = listeners.get(parameterName);
-        numberOfListeners = listenerCollection.size();
+        numberOfListeners += listenerCollection.size();
         listenerCollection.signal(new SignalRunnable<ParameterListener>() {
           @Override
           public void run(ParameterListener listener) {
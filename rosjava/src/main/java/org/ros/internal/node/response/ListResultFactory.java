@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.response;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * A {@link ResultFactory} that turns an XML-RPC array, including any nested
+ * arrays, into a {@link List}.
+ */
+public class ListResultFactory implements ResultFactory<List<Object>> {
+
+  @Override
+  public List<Object> newFromValue(Object value) {
+    List<Object> list = Lists.newArrayList();
+    for (Object element : (Object[]) value) {
+      if (element instanceof Object[]) {
+        list.add(newFromValue(element));
+      } else {
+        list.add(element);
+      }
+    }
+    return list;
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.server;
+
+import static org.jboss.netty.channel.Channels.pipeline;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.common.ServerStreamConnection;
+import org.apache.xmlrpc.common.XmlRpcHttpRequestConfigImpl;
+import org.apache.xmlrpc.server.XmlRpcHttpServer;
+import org.apache.xmlrpc.server.XmlRpcHttpServerConfig;
+import org.apache.xmlrpc.server.XmlRpcStreamServer;
+import org.apache.xmlrpc.util.HttpUtil;
+import org.apache.xmlrpc.webserver.WebServer;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelException;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+import org.jboss.netty.handler.timeout.IdleStateAwareChannelUpstreamHandler;
+import org.jboss.netty.handler.timeout.IdleStateEvent;
+import org.jboss.netty.handler.timeout.IdleStateHandler;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.CharsetUtil;
+import org.jboss.netty.util.Timer;
+import org.ros.internal.transport.ConnectionTrackingHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebServer} that serves XML-RPC requests from the Netty event loop
+ * instead of dedicating a thread to each connection.
+ * 
+ * <p>
+ * HTTP requests are decoded and aggregated by Netty and then dispatched to the
+ * usual {@link XmlRpcStreamServer} processing on a fixed size pool of request
+ * threads. Requests on the same connection are processed in order. Idle
+ * keep-alive connections do not consume any threads, so the number of threads
+ * stays constant regardless of the number of connected clients. Connections
+ * that see no traffic for {@link #DEFAULT_IDLE_CONNECTION_TIMEOUT_SECONDS} are
+ * closed so that half-open connections of crashed clients do not accumulate.
+ * 
+ * <p>
+ * Client address filtering (i.e. {@link #setParanoid(boolean)}) is not
+ * supported.
+ */
+public class NettyWebServer extends WebServer {
+
+  private static final boolean DEBUG = false;
+  private static final Log log = LogFactory.getLog(NettyWebServer.class);
+
+  /**
+   * The maximum number of threads used to process requests.
+   */
+  private static final int REQUEST_THREADS = 16;
+
+  /**
+   * The maximum size of a request body in bytes.
+   */
+  private static final int MAXIMUM_CONTENT_LENGTH = 64 * 1024 * 1024;
+
+  /**
+   * The time after which connections without any reads or writes are closed.
+   * This is longer than the time clients keep idle connections open.
+   */
+  private static final long DEFAULT_IDLE_CONNECTION_TIMEOUT_SECONDS = 60;
+
+  private static final String SERVER_NAME = "Apache XML-RPC 1.0";
+  private static final String CONTENT_TYPE = "text/xml";
+
+  private final InetSocketAddress bindAddress;
+  private final AtomicInteger threadCount;
+
+  private long idleConnectionTimeoutMillis;
+  private ChannelFactory channelFactory;
+  private Timer idleTimer;
+  private ExecutorService requestExecutor;
+  private ChannelGroup incomingChannelGroup;
+  private Channel outgoingChannel;
+
+  /**
+   * @param port
+   *          port number; 0 for a random port chosen by the operating system
+   * @param address
+   *          local IP address; {@code null} for all available IP addresses
+   */
+  public NettyWebServer(int port, InetAddress address) {
+    super(port, address);
+    bindAddress = new InetSocketAddress(address, port);
+    threadCount = new AtomicInteger();
+    idleConnectionTimeoutMillis =
+        TimeUnit.SECONDS.toMillis(DEFAULT_IDLE_CONNECTION_TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Creates all threads of the server and keeps count of the running ones.
+   */
+  private final class ServerThreadFactory implements ThreadFactory {
+
+    private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      return threadFactory.newThread(new Runnable() {
+        @Override
+        public void run() {
+          threadCount.incrementAndGet();
+          try {
+            runnable.run();
+          } finally {
+            threadCount.decrementAndGet();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Must be called before {@link #start()}.
+   * 
+   * @param timeout
+   *          the time after which connections without any reads or writes are
+   *          closed
+   */
+  @VisibleForTesting
+  synchronized void setIdleConnectionTimeout(long timeout, TimeUnit unit) {
+    Preconditions.checkState(outgoingChannel == null);
+    idleConnectionTimeoutMillis = unit.toMillis(timeout);
+  }
+
+  /**
+   * @return the number of running threads created by this server
+   */
+  @VisibleForTesting
+  int getThreadCount() {
+    return threadCount.get();
+  }
+
+  @Override
+  protected XmlRpcStreamServer newXmlRpcStreamServer() {
+    return new StreamServer();
+  }
+
+  @Override
+  public synchronized void start() throws IOException {
+    Preconditions.checkState(outgoingChannel == null);
+    ThreadFactory threadFactory = new ServerThreadFactory();
+    channelFactory =
+        new NioServerSocketChannelFactory(Executors.newCachedThreadPool(threadFactory),
+            Executors.newCachedThreadPool(threadFactory));
+    requestExecutor =
+        new OrderedMemoryAwareThreadPoolExecutor(REQUEST_THREADS, 0, 0, 30, TimeUnit.SECONDS,
+            threadFactory);
+    idleTimer = new HashedWheelTimer(threadFactory);
+    final long idleConnectionTimeoutMillis = this.idleConnectionTimeoutMillis;
+    final ExecutionHandler executionHandler = new ExecutionHandler(requestExecutor);
+    final RequestHandler requestHandler = new RequestHandler();
+    incomingChannelGroup = new DefaultChannelGroup();
+    final ConnectionTrackingHandler connectionTrackingHandler =
+        new ConnectionTrackingHandler(incomingChannelGroup);
+    ServerBootstrap bootstrap = new ServerBootstrap(channelFactory);
+    bootstrap.setOption("reuseAddress", true);
+    bootstrap.setOption("child.tcpNoDelay", true);
+    bootstrap.setOption("child.keepAlive", true);
+    bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() {
+        ChannelPipeline pipeline = pipeline();
+        pipeline.addLast("ConnectionTrackingHandler", connectionTrackingHandler);
+        pipeline.addLast("IdleStateHandler", new IdleStateHandler(idleTimer, 0, 0,
+            idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS));
+        pipeline.addLast("HttpRequestDecoder", new HttpRequestDecoder());
+        pipeline.addLast("HttpChunkAggregator", new HttpChunkAggregator(MAXIMUM_CONTENT_LENGTH));
+        pipeline.addLast("HttpResponseEncoder", new HttpResponseEncoder());
+        pipeline.addLast("ExecutionHandler", executionHandler);
+        pipeline.addLast("RequestHandler", requestHandler);
+        return pipeline;
+      }
+    });
+    try {
+      outgoingChannel = bootstrap.bind(bindAddress);
+    } catch (ChannelException e) {
+      requestExecutor.shutdown();
+      idleTimer.stop();
+      channelFactory.releaseExternalResources();
+      throw new IOException("Failed to bind to " + bindAddress, e);
+    }
+    if (DEBUG) {
+      log.info("Bound to: " + outgoingChannel.getLocalAddress());
+    }
+  }
+
+  /**
+   * Closes the server socket and all open connections.
+   * 
+   * <p>
+   * Calling this method more than once has no effect.
+   */
+  @Override
+  public synchronized void shutdown() {
+    if (outgoingChannel == null) {
+      return;
+    }
+    outgoingChannel.close().awaitUninterruptibly();
+    incomingChannelGroup.close().awaitUninterruptibly();
+    // The request executor is not awaited because shutdown may be requested
+    // from a request thread.
+    requestExecutor.shutdown();
+    idleTimer.stop();
+    channelFactory.releaseExternalResources();
+    outgoingChannel = null;
+  }
+
+  @Override
+  public synchronized int getPort() {
+    Preconditions.checkState(outgoingChannel != null, "Not started.");
+    return ((InetSocketAddress) outgoingChannel.getLocalAddress()).getPort();
+  }
+
+  private XmlRpcHttpRequestConfigImpl newRequestConfig(HttpRequest request) {
+    XmlRpcHttpServerConfig serverConfig = (XmlRpcHttpServerConfig) server.getConfig();
+    XmlRpcHttpRequestConfigImpl requestConfig = new XmlRpcHttpRequestConfigImpl();
+    requestConfig.setBasicEncoding(serverConfig.getBasicEncoding());
+    requestConfig.setContentLengthOptional(serverConfig.isContentLengthOptional());
+    requestConfig.setEnabledForExtensions(serverConfig.isEnabledForExtensions());
+    requestConfig.setEnabledForExceptions(serverConfig.isEnabledForExceptions());
+    HttpUtil.parseAuthorization(requestConfig, request.getHeader(HttpHeaders.Names.AUTHORIZATION));
+    return requestConfig;
+  }
+
+  /**
+   * Decodes XML-RPC calls from aggregated {@link HttpRequest}s and writes back
+   * the corresponding {@link HttpResponse}s.
+   */
+  private class RequestHandler extends IdleStateAwareChannelUpstreamHandler {
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+      HttpRequest request = (HttpRequest) e.getMessage();
+      XmlRpcHttpServerConfig serverConfig = (XmlRpcHttpServerConfig) server.getConfig();
+      boolean keepAlive = serverConfig.isKeepAliveEnabled() && HttpHeaders.isKeepAlive(request);
+      HttpResponse response;
+      if (request.getMethod().equals(HttpMethod.POST)) {
+        StreamConnection connection = new StreamConnection(request.getContent());
+        try {
+          server.execute(newRequestConfig(request), connection);
+        } catch (XmlRpcException ex) {
+          // Only failing to write the response ends up here.
+          log.error("Failed to process XML-RPC request.", ex);
+          e.getChannel().close();
+          return;
+        }
+        response = new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.OK);
+        response.setHeader(HttpHeaders.Names.CONTENT_TYPE, CONTENT_TYPE);
+        for (Map.Entry<String, String> header : connection.getResponseHeaders().entrySet()) {
+          response.setHeader(header.getKey(), header.getValue());
+        }
+        response.setContent(connection.getResponseContent());
+      } else {
+        response =
+            new DefaultHttpResponse(request.getProtocolVersion(), HttpResponseStatus.BAD_REQUEST);
+        response.setContent(ChannelBuffers.copiedBuffer("Method " + request.getMethod()
+            + " not implemented (try POST)\r\n", CharsetUtil.US_ASCII));
+        keepAlive = false;
+      }
+      response.setHeader(HttpHeaders.Names.SERVER, SERVER_NAME);
+      HttpHeaders.setContentLength(response, response.getContent().readableBytes());
+      HttpHeaders.setKeepAlive(response, keepAlive);
+      ChannelFuture future = e.getChannel().write(response);
+      if (!keepAlive) {
+        future.addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+
+    @Override
+    public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e) throws Exception {
+      if (DEBUG) {
+        log.info("Closing idle channel: " + ctx.getChannel());
+      }
+      ctx.getChannel().close();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+      // Exceptions such as a connection reset by the peer or a malformed
+      // request only affect this connection and are not fatal to the server.
+      if (DEBUG) {
+        log.error("Channel exception: " + ctx.getChannel(), e.getCause());
+      }
+      ctx.getChannel().close();
+    }
+  }
+
+  /**
+   * Exposes the body of a single request and collects its response.
+   */
+  private static class StreamConnection implements ServerStreamConnection {
+
+    private final ChannelBuffer requestContent;
+    private final ChannelBuffer responseContent;
+    private final Map<String, String> responseHeaders;
+
+    public StreamConnection(ChannelBuffer requestContent) {
+      this.requestContent = requestContent;
+      responseContent = ChannelBuffers.dynamicBuffer();
+      responseHeaders = Maps.newHashMap();
+    }
+
+    @Override
+    public InputStream newInputStream() {
+      return new ChannelBufferInputStream(requestContent);
+    }
+
+    @Override
+    public OutputStream newOutputStream() {
+      return new ChannelBufferOutputStream(responseContent);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public void setResponseHeader(String header, String value) {
+      responseHeaders.put(header, value);
+    }
+
+    public Map<String, String> getResponseHeaders() {
+      return responseHeaders;
+    }
+
+    public ChannelBuffer getResponseContent() {
+      return responseContent;
+    }
+  }
+
+  private static class StreamServer extends XmlRpcHttpServer {
+    @Override
+    protected void setResponseHeader(ServerStreamConnection connection, String header,
+        String value) {
+      ((StreamConnection) connection).setResponseHeader(header, value);
+    }
+  }
+}
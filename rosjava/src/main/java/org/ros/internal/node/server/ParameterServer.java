@@ -16,213 +16,736 @@
 
 package org.ros.internal.node.server;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.ros.internal.node.client.SlaveClient;
 import org.ros.namespace.GraphName;
 
-import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A ROS parameter server.
  * 
+ * <p>
+ * Parameters are stored in an immutable trie keyed by the segments of their
+ * {@link GraphName}s. Writes copy the path from the root to the changed node
+ * and publish a new {@link Snapshot}, so reads never block and always see a
+ * consistent tree. Subscribers are indexed by the same segments so that a write
+ * only notifies subscribers of the changed parameter, its ancestors and its
+ * descendants.
+ * 
+ * <p>
+ * Subscribers are notified asynchronously so that a slow subscriber does not
+ * delay writes or the notification of other subscribers.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class ParameterServer {
 
   private static final Log log = LogFactory.getLog(ParameterServer.class);
 
-  private final Map<String, Object> tree;
-  private final Multimap<GraphName, NodeIdentifier> subscribers;
+  private static final String SEPARATOR = "/";
+
+  /**
+   * The number of threads used to contact subscribers.
+   */
+  private static final int SUBSCRIBER_NOTIFICATION_THREADS = 8;
+
+  /**
+   * The time in milliseconds to wait for a connection to a subscriber and for
+   * each part of its reply.
+   */
+  private static final int SUBSCRIBER_NOTIFICATION_TIMEOUT = 5 * 1000; // 5 seconds
+
   private final GraphName masterName;
 
-  public ParameterServer() {
-    tree = Maps.newConcurrentMap();
-    subscribers = Multimaps.synchronizedMultimap(HashMultimap.<GraphName, NodeIdentifier>create());
-    masterName = new GraphName("/master");
-  }
+  /**
+   * Serializes writes to the tree and all access to the subscriber index.
+   */
+  private final Object mutex;
 
-  public void subscribe(GraphName name, NodeIdentifier nodeIdentifier) {
-    subscribers.put(name, nodeIdentifier);
-  }
+  /**
+   * Contacts subscribers so that writes never wait on a remote node.
+   */
+  private final ThreadPoolExecutor notificationExecutor;
+
+  /**
+   * The latest values that have yet to be sent to each subscriber, in the
+   * order in which the parameters were first changed. Guarded by itself.
+   */
+  private final Map<NodeIdentifier, Map<GraphName, Object>> pendingParamUpdates;
+
+  /**
+   * The subscribers that a {@link ParamUpdateTask} is currently scheduled or
+   * running for. Guarded by {@link #pendingParamUpdates}.
+   */
+  private final Set<NodeIdentifier> scheduledParamUpdates;
+
+  private final SubscriberNode subscribers;
+
+  /**
+   * The latest {@link NodeIdentifier} that subscribed under each node name.
+   * Guarded by {@link #mutex}.
+   */
+  private final Map<GraphName, NodeIdentifier> subscriberNodeIdentifiers;
+
+  private volatile Snapshot snapshot;
 
-  private Stack<String> getGraphNameParts(GraphName name) {
-    Stack<String> parts = new Stack<String>();
-    GraphName tip = name;
-    while (!tip.isRoot()) {
-      parts.add(tip.getBasename().toString());
-      tip = tip.getParent();
+  /**
+   * An immutable node in the parameter tree. A node either holds a value or is
+   * a namespace with (possibly no) children.
+   */
+  private static final class Node {
+
+    private static final Node EMPTY_NAMESPACE = new Node(null, null);
+
+    private final Object value;
+    private final Children children;
+
+    private Node(Object value, Children children) {
+      this.value = value;
+      this.children = children;
+    }
+
+    public static Node newValue(Object value) {
+      if (value instanceof Map) {
+        Children children = null;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          children = Children.put(children, entry.getKey().toString(), newValue(entry.getValue()));
+        }
+        return new Node(null, children);
+      }
+      return new Node(value, null);
+    }
+
+    public boolean isNamespace() {
+      return value == null;
+    }
+
+    public Node getChild(String segment) {
+      return isNamespace() ? Children.get(children, segment) : null;
+    }
+
+    public Node withChild(String segment, Node child) {
+      Children base = isNamespace() ? children : null;
+      return new Node(null, Children.put(base, segment, child));
+    }
+
+    public Node withoutChild(String segment) {
+      return new Node(null, Children.remove(children, segment));
+    }
+
+    /**
+     * @return the value of this node, namespaces are returned as {@link Map}s
+     */
+    public Object toValue() {
+      if (!isNamespace()) {
+        return value;
+      }
+      final Map<String, Object> map = new HashMap<String, Object>();
+      Children.forEach(children, new Children.Visitor() {
+        @Override
+        public void visit(String segment, Node child) {
+          map.put(segment, child.toValue());
+        }
+      });
+      return map;
+    }
+
+    public void addNames(final GraphName name, final Collection<GraphName> names) {
+      if (!isNamespace()) {
+        names.add(name);
+        return;
+      }
+      Children.forEach(children, new Children.Visitor() {
+        @Override
+        public void visit(String segment, Node child) {
+          child.addNames(name.join(new GraphName(segment)), names);
+        }
+      });
     }
-    return parts;
   }
 
-  @SuppressWarnings("unchecked")
-  public Object get(GraphName name) {
-    Preconditions.checkArgument(name.isGlobal());
-    Stack<String> parts = getGraphNameParts(name);
-    Object possibleSubtree = tree;
-    while (!parts.empty() && possibleSubtree != null) {
-      if (!(possibleSubtree instanceof Map)) {
+  /**
+   * A persistent map from name segments to {@link Node}s. It is a treap whose
+   * priorities are derived from the segments' hash codes, so its shape does
+   * not depend on the order of insertion. Updates copy O(log n) entries.
+   * {@code null} is the empty map.
+   */
+  private static final class Children {
+
+    public interface Visitor {
+      void visit(String segment, Node child);
+    }
+
+    private final String segment;
+    private final Node child;
+    private final int priority;
+    private final Children left;
+    private final Children right;
+
+    private Children(String segment, Node child, int priority, Children left, Children right) {
+      this.segment = segment;
+      this.child = child;
+      this.priority = priority;
+      this.left = left;
+      this.right = right;
+    }
+
+    private Children with(Children left, Children right) {
+      return new Children(segment, child, priority, left, right);
+    }
+
+    private static int priorityOf(String segment) {
+      // Spread the bits of the hash code.
+      int h = segment.hashCode() * 0x9e3779b9;
+      return h ^ (h >>> 16);
+    }
+
+    public static Node get(Children children, String segment) {
+      Children current = children;
+      while (current != null) {
+        int comparison = segment.compareTo(current.segment);
+        if (comparison == 0) {
+          return current.child;
+        }
+        current = comparison < 0 ? current.left : current.right;
+      }
+      return null;
+    }
+
+    public static Children put(Children children, String segment, Node child) {
+      if (children == null) {
+        return new Children(segment, child, priorityOf(segment), null, null);
+      }
+      int comparison = segment.compareTo(children.segment);
+      if (comparison == 0) {
+        return new Children(segment, child, children.priority, children.left, children.right);
+      }
+      if (comparison < 0) {
+        Children left = put(children.left, segment, child);
+        if (left.priority > children.priority) {
+          return left.with(left.left, children.with(left.right, children.right));
+        }
+        return children.with(left, children.right);
+      }
+      Children right = put(children.right, segment, child);
+      if (right.priority > children.priority) {
+        return right.with(children.with(children.left, right.left), right.right);
+      }
+      return children.with(children.left, right);
+    }
+
+    public static Children remove(Children children, String segment) {
+      if (children == null) {
         return null;
       }
-      possibleSubtree = ((Map<String, Object>) possibleSubtree).get(parts.pop());
+      int comparison = segment.compareTo(children.segment);
+      if (comparison == 0) {
+        return merge(children.left, children.right);
+      }
+      if (comparison < 0) {
+        return children.with(remove(children.left, segment), children.right);
+      }
+      return children.with(children.left, remove(children.right, segment));
     }
-    return possibleSubtree;
-  }
 
-  @SuppressWarnings("unchecked")
-  private void setValue(GraphName name, Object value) {
-    Preconditions.checkArgument(name.isGlobal());
-    Stack<String> parts = getGraphNameParts(name);
-    Map<String, Object> subtree = tree;
-    while (!parts.empty()) {
-      String part = parts.pop();
-      if (parts.empty()) {
-        subtree.put(part, value);
-      } else if (subtree.containsKey(part) && subtree.get(part) instanceof Map) {
-        subtree = (Map<String, Object>) subtree.get(part);
-      } else {
-        Map<String, Object> newSubtree = Maps.newHashMap();
-        subtree.put(part, newSubtree);
-        subtree = newSubtree;
+    /**
+     * Merges two treaps where all segments in {@code left} precede those in
+     * {@code right}.
+     */
+    private static Children merge(Children left, Children right) {
+      if (left == null) {
+        return right;
       }
+      if (right == null) {
+        return left;
+      }
+      if (left.priority > right.priority) {
+        return left.with(left.left, merge(left.right, right));
+      }
+      return right.with(merge(left, right.left), right.right);
+    }
+
+    public static void forEach(Children children, Visitor visitor) {
+      if (children == null) {
+        return;
+      }
+      forEach(children.left, visitor);
+      visitor.visit(children.segment, children.child);
+      forEach(children.right, visitor);
     }
   }
 
-  private interface Updater {
-    void update(SlaveClient client);
+  /**
+   * An immutable version of the parameter tree.
+   */
+  private static final class Snapshot {
+
+    private final Node root;
+
+    /**
+     * The names of all parameters, computed on first use.
+     */
+    private volatile Collection<GraphName> names;
+
+    public Snapshot(Node root) {
+      this.root = root;
+    }
+
+    public Node getNode(List<String> segments) {
+      Node node = root;
+      for (int i = 0; i < segments.size() && node != null; i++) {
+        node = node.getChild(segments.get(i));
+      }
+      return node;
+    }
+
+    public Collection<GraphName> getNames() {
+      Collection<GraphName> result = names;
+      if (result == null) {
+        List<GraphName> allNames = Lists.newArrayList();
+        root.addNames(GraphName.newRoot(), allNames);
+        result = Collections.unmodifiableList(allNames);
+        names = result;
+      }
+      return result;
+    }
   }
 
-  private <T> void update(GraphName name, T value, Updater updater) {
-    setValue(name, value);
-    synchronized (subscribers) {
-      for (NodeIdentifier nodeIdentifier : subscribers.get(name)) {
-        SlaveClient client = new SlaveClient(masterName, nodeIdentifier.getUri());
-        try {
-          updater.update(client);
-        } catch (Exception e) {
-          log.error(e);
+  /**
+   * A mutable node in the subscriber index. Guarded by {@link #mutex}.
+   */
+  private static final class SubscriberNode {
+
+    private final Map<String, SubscriberNode> children = Maps.newHashMap();
+    private final Set<NodeIdentifier> subscribers = Sets.newHashSet();
+
+    public void collect(GraphName name, Map<GraphName, Set<NodeIdentifier>> result) {
+      if (!subscribers.isEmpty()) {
+        result.put(name, subscribers);
+      }
+      for (Map.Entry<String, SubscriberNode> entry : children.entrySet()) {
+        entry.getValue().collect(name.join(new GraphName(entry.getKey())), result);
+      }
+    }
+
+    public boolean isEmpty() {
+      return subscribers.isEmpty() && children.isEmpty();
+    }
+
+    /**
+     * Removes a subscriber from this node and all of its descendants and
+     * prunes the descendants that are left empty.
+     */
+    public void removeAll(NodeIdentifier nodeIdentifier) {
+      subscribers.remove(nodeIdentifier);
+      Iterator<SubscriberNode> iterator = children.values().iterator();
+      while (iterator.hasNext()) {
+        SubscriberNode child = iterator.next();
+        child.removeAll(nodeIdentifier);
+        if (child.isEmpty()) {
+          iterator.remove();
         }
       }
     }
   }
 
-  public void set(final GraphName name, final boolean value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
+  /**
+   * Sends the pending parameter updates for one subscriber until none are
+   * left. A parameter that changes again before its update is sent is only
+   * sent once with its newest value. Since there is at most one task per
+   * subscriber, its updates are never reordered.
+   */
+  private final class ParamUpdateTask implements Runnable {
+
+    private final NodeIdentifier subscriber;
+
+    public ParamUpdateTask(NodeIdentifier subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Map<GraphName, Object> updates;
+        synchronized (pendingParamUpdates) {
+          updates = pendingParamUpdates.remove(subscriber);
+          if (updates == null) {
+            scheduledParamUpdates.remove(subscriber);
+            return;
+          }
+        }
+        for (Map.Entry<GraphName, Object> update : updates.entrySet()) {
+          try {
+            contactSubscriberForParamUpdate(subscriber, update.getKey(), update.getValue());
+          } catch (RuntimeException e) {
+            log.error(String.format("Failed to send parameter update for %s to %s.",
+                update.getKey(), subscriber.getUri()), e);
+          }
+        }
       }
-    });
+    }
   }
 
-  public void set(final GraphName name, final int value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
-      }
-    });
+  public ParameterServer() {
+    masterName = new GraphName("/master");
+    mutex = new Object();
+    // Coalescing bounds the queue by the number of subscribers.
+    notificationExecutor =
+        new ThreadPoolExecutor(SUBSCRIBER_NOTIFICATION_THREADS, SUBSCRIBER_NOTIFICATION_THREADS,
+            10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    notificationExecutor.allowCoreThreadTimeOut(true);
+    pendingParamUpdates = Maps.newHashMap();
+    scheduledParamUpdates = Sets.newHashSet();
+    subscribers = new SubscriberNode();
+    subscriberNodeIdentifiers = Maps.newHashMap();
+    snapshot = new Snapshot(Node.EMPTY_NAMESPACE);
   }
 
-  public void set(final GraphName name, final double value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
+  private static List<String> getSegments(GraphName name) {
+    Preconditions.checkArgument(name.isGlobal());
+    List<String> segments = Lists.newArrayList();
+    for (String segment : name.toString().split(SEPARATOR)) {
+      if (segment.length() > 0) {
+        segments.add(segment);
       }
-    });
+    }
+    return segments;
   }
 
-  public void set(final GraphName name, final String value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
+  /**
+   * Subscribes a node to changes of a parameter, its ancestors and its
+   * descendants.
+   * 
+   * <p>
+   * A node that subscribes under the name of a previously subscribed node but
+   * with a different URI replaces it, like a restarted node does. All
+   * subscriptions of the replaced node are removed.
+   * 
+   * @param name
+   *          the name of the parameter
+   * @param nodeIdentifier
+   *          the node to notify
+   */
+  public void subscribe(GraphName name, NodeIdentifier nodeIdentifier) {
+    List<String> segments = getSegments(name);
+    synchronized (mutex) {
+      if (nodeIdentifier.getName() != null) {
+        NodeIdentifier replacedNodeIdentifier =
+            subscriberNodeIdentifiers.put(nodeIdentifier.getName(), nodeIdentifier);
+        if (replacedNodeIdentifier != null && !replacedNodeIdentifier.equals(nodeIdentifier)) {
+          subscribers.removeAll(replacedNodeIdentifier);
+        }
+      }
+      SubscriberNode node = subscribers;
+      for (String segment : segments) {
+        SubscriberNode child = node.children.get(segment);
+        if (child == null) {
+          child = new SubscriberNode();
+          node.children.put(segment, child);
+        }
+        node = child;
       }
-    });
+      node.subscribers.add(nodeIdentifier);
+    }
   }
 
-  public void set(final GraphName name, final List<?> value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
+  /**
+   * Unsubscribes a node from a parameter. Subscriptions to ancestors and
+   * descendants of the parameter are kept.
+   * 
+   * @param name
+   *          the name of the parameter
+   * @param nodeIdentifier
+   *          the node that subscribed
+   * @return {@code true} if the node was subscribed to the parameter
+   */
+  public boolean unsubscribe(GraphName name, NodeIdentifier nodeIdentifier) {
+    List<String> segments = getSegments(name);
+    synchronized (mutex) {
+      List<SubscriberNode> path = Lists.newArrayList();
+      SubscriberNode node = subscribers;
+      for (String segment : segments) {
+        path.add(node);
+        node = node.children.get(segment);
+        if (node == null) {
+          return false;
+        }
+      }
+      if (!node.subscribers.remove(nodeIdentifier)) {
+        return false;
       }
-    });
+      // Prune the nodes that are left empty, starting with the deepest one.
+      for (int i = segments.size() - 1; i >= 0 && node.isEmpty(); i--) {
+        SubscriberNode parent = path.get(i);
+        parent.children.remove(segments.get(i));
+        node = parent;
+      }
+      return true;
+    }
   }
 
-  public void set(final GraphName name, final Map<?, ?> value) {
-    update(name, value, new Updater() {
-      @Override
-      public void update(SlaveClient client) {
-        client.paramUpdate(name, value);
+  public Object get(GraphName name) {
+    Node node = snapshot.getNode(getSegments(name));
+    return node == null ? null : node.toValue();
+  }
+
+  /**
+   * Replaces the node at the end of {@code segments}, creating namespaces as
+   * necessary.
+   */
+  private static Node with(Node node, List<String> segments, int index, Node newNode) {
+    if (index == segments.size()) {
+      return newNode;
+    }
+    String segment = segments.get(index);
+    Node child = node.getChild(segment);
+    if (child == null) {
+      child = Node.EMPTY_NAMESPACE;
+    }
+    return node.withChild(segment, with(child, segments, index + 1, newNode));
+  }
+
+  /**
+   * Removes the node at the end of {@code segments}.
+   * 
+   * @return the new node or {@code null} if nothing was removed
+   */
+  private static Node without(Node node, List<String> segments, int index) {
+    String segment = segments.get(index);
+    if (index == segments.size() - 1) {
+      return node.getChild(segment) == null ? null : node.withoutChild(segment);
+    }
+    Node child = node.getChild(segment);
+    if (child == null) {
+      return null;
+    }
+    Node newChild = without(child, segments, index + 1);
+    return newChild == null ? null : node.withChild(segment, newChild);
+  }
+
+  /**
+   * Must be called while holding {@link #mutex}.
+   * 
+   * @return the subscribers of the parameter, its ancestors and its
+   *         descendants together with their new values
+   */
+  private Map<GraphName, Object> collectUpdates(GraphName name, List<String> segments,
+      Map<GraphName, Set<NodeIdentifier>> affectedSubscribers) {
+    SubscriberNode node = subscribers;
+    for (int i = 0; node != null && i < segments.size(); i++) {
+      if (!node.subscribers.isEmpty()) {
+        affectedSubscribers.put(toGraphName(segments.subList(0, i)),
+            Sets.newHashSet(node.subscribers));
       }
-    });
+      node = node.children.get(segments.get(i));
+    }
+    if (node != null) {
+      Map<GraphName, Set<NodeIdentifier>> descendants = Maps.newHashMap();
+      node.collect(name, descendants);
+      for (Map.Entry<GraphName, Set<NodeIdentifier>> entry : descendants.entrySet()) {
+        affectedSubscribers.put(entry.getKey(), Sets.newHashSet(entry.getValue()));
+      }
+    }
+    Map<GraphName, Object> values = Maps.newHashMap();
+    for (GraphName subscribedName : affectedSubscribers.keySet()) {
+      values.put(subscribedName, get(subscribedName));
+    }
+    return values;
   }
 
-  @SuppressWarnings("unchecked")
-  public void delete(GraphName name) {
-    Preconditions.checkArgument(name.isGlobal());
-    Stack<String> parts = getGraphNameParts(name);
-    Map<String, Object> subtree = tree;
-    while (!parts.empty() && subtree.containsKey(parts.peek())) {
-      String part = parts.pop();
-      if (parts.empty()) {
-        subtree.remove(part);
+  private void update(GraphName name, Node newNode) {
+    List<String> segments = getSegments(name);
+    synchronized (mutex) {
+      Node root;
+      if (newNode != null) {
+        root = with(snapshot.root, segments, 0, newNode);
+      } else if (segments.isEmpty()) {
+        root = Node.EMPTY_NAMESPACE;
       } else {
-        subtree = (Map<String, Object>) subtree.get(part);
+        root = without(snapshot.root, segments, 0);
+      }
+      if (root != null) {
+        snapshot = new Snapshot(root);
+      }
+      Map<GraphName, Set<NodeIdentifier>> affectedSubscribers = Maps.newHashMap();
+      Map<GraphName, Object> values = collectUpdates(name, segments, affectedSubscribers);
+      // Scheduled while holding the mutex so that updates are queued in the
+      // order of the writes that caused them.
+      for (Map.Entry<GraphName, Set<NodeIdentifier>> entry : affectedSubscribers.entrySet()) {
+        for (NodeIdentifier nodeIdentifier : entry.getValue()) {
+          scheduleParamUpdate(nodeIdentifier, entry.getKey(), values.get(entry.getKey()));
+        }
       }
     }
   }
 
-  public Object search(GraphName name) {
-    throw new UnsupportedOperationException();
+  private void scheduleParamUpdate(NodeIdentifier subscriber, GraphName name, Object value) {
+    synchronized (pendingParamUpdates) {
+      Map<GraphName, Object> updates = pendingParamUpdates.get(subscriber);
+      if (updates == null) {
+        updates = new LinkedHashMap<GraphName, Object>();
+        pendingParamUpdates.put(subscriber, updates);
+      }
+      updates.put(name, value);
+      if (scheduledParamUpdates.add(subscriber)) {
+        try {
+          notificationExecutor.execute(new ParamUpdateTask(subscriber));
+        } catch (RejectedExecutionException e) {
+          // The parameter server is shutting down.
+          scheduledParamUpdates.remove(subscriber);
+          pendingParamUpdates.remove(subscriber);
+        }
+      }
+    }
   }
 
-  @SuppressWarnings("unchecked")
-  public boolean has(GraphName name) {
-    Preconditions.checkArgument(name.isGlobal());
-    Stack<String> parts = getGraphNameParts(name);
-    Map<String, Object> subtree = tree;
-    while (!parts.empty() && subtree.containsKey(parts.peek())) {
-      String part = parts.pop();
-      if (!parts.empty()) {
-        subtree = (Map<String, Object>) subtree.get(part);
-      }
+  /**
+   * Contacts a subscriber and sends it the new value of a parameter.
+   * 
+   * @param subscriber
+   *          the subscriber to contact
+   * @param name
+   *          the subscribed name of the parameter
+   * @param value
+   *          the new value of the parameter or {@code null} if it was deleted
+   */
+  @VisibleForTesting
+  protected void contactSubscriberForParamUpdate(NodeIdentifier subscriber, GraphName name,
+      Object value) {
+    // The call is made on the notification thread so that it cannot outlive
+    // its timeouts and overlap with the next update for the same subscriber.
+    SlaveClient client =
+        new SlaveClient(masterName, subscriber.getUri(), SUBSCRIBER_NOTIFICATION_TIMEOUT,
+            MoreExecutors.sameThreadExecutor());
+    paramUpdate(client, name, value);
+  }
+
+  /**
+   * Stops notifying subscribers. Pending notifications are dropped.
+   */
+  public void shutdown() {
+    notificationExecutor.shutdownNow();
+  }
+
+  private void paramUpdate(SlaveClient client, GraphName name, Object value) {
+    if (value == null) {
+      client.paramUpdate(name, new HashMap<String, Object>());
+    } else if (value instanceof Boolean) {
+      client.paramUpdate(name, (Boolean) value);
+    } else if (value instanceof Integer) {
+      client.paramUpdate(name, (Integer) value);
+    } else if (value instanceof Double) {
+      client.paramUpdate(name, (Double) value);
+    } else if (value instanceof String) {
+      client.paramUpdate(name, (String) value);
+    } else if (value instanceof List) {
+      client.paramUpdate(name, (List<?>) value);
+    } else if (value instanceof Object[]) {
+      client.paramUpdate(name, Arrays.asList((Object[]) value));
+    } else if (value instanceof Map) {
+      client.paramUpdate(name, (Map<?, ?>) value);
+    } else {
+      log.error("Unsupported parameter type: " + value.getClass().getName());
     }
-    return parts.empty();
   }
 
-  @SuppressWarnings("unchecked")
-  private Set<GraphName> getSubtreeNames(GraphName parent, Map<String, Object> subtree,
-      Set<GraphName> names) {
-    for (String name : subtree.keySet()) {
-      Object possibleSubtree = subtree.get(name);
-      if (possibleSubtree instanceof Map) {
-        names.addAll(getSubtreeNames(parent.join(new GraphName(name)),
-            (Map<String, Object>) possibleSubtree, names));
-      } else {
-        names.add(parent.join(new GraphName(name)));
+  public void set(GraphName name, boolean value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void set(GraphName name, int value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void set(GraphName name, double value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void set(GraphName name, String value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void set(GraphName name, List<?> value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void set(GraphName name, Map<?, ?> value) {
+    update(name, Node.newValue(value));
+  }
+
+  public void delete(GraphName name) {
+    update(name, null);
+  }
+
+  /**
+   * Searches for a parameter starting in the namespace of the caller and
+   * proceeding upwards towards the root namespace.
+   * 
+   * @param namespace
+   *          the namespace to start searching in, typically the name of the
+   *          calling node
+   * @param name
+   *          the name of the parameter to search for
+   * @return the global name of the closest matching parameter or {@code null}
+   *         if no parameter matches
+   */
+  public GraphName search(GraphName namespace, GraphName name) {
+    if (name.isGlobal()) {
+      return has(name) ? name : null;
+    }
+    Snapshot currentSnapshot = snapshot;
+    List<String> nameSegments = getSegments(GraphName.newRoot().join(name));
+    List<String> namespaceSegments = getSegments(namespace.toGlobal());
+    for (int i = namespaceSegments.size(); i >= 0; i--) {
+      // Only the first segment needs to match, the rest of the name is
+      // appended to the matching namespace.
+      List<String> candidate = Lists.newArrayList(namespaceSegments.subList(0, i));
+      candidate.add(nameSegments.get(0));
+      if (currentSnapshot.getNode(candidate) != null) {
+        candidate.addAll(nameSegments.subList(1, nameSegments.size()));
+        return toGraphName(candidate);
       }
     }
-    return names;
+    return null;
   }
 
-  public Collection<GraphName> getNames() {
-    Set<GraphName> names = Sets.newHashSet();
-    return getSubtreeNames(GraphName.newRoot(), tree, names);
+  private static GraphName toGraphName(List<String> segments) {
+    if (segments.isEmpty()) {
+      return GraphName.newRoot();
+    }
+    StringBuilder builder = new StringBuilder();
+    for (String segment : segments) {
+      builder.append(SEPARATOR).append(segment);
+    }
+    return new GraphName(builder.toString());
   }
 
+  public boolean has(GraphName name) {
+    return snapshot.getNode(getSegments(name)) != null;
+  }
+
+  public Collection<GraphName> getNames() {
+    return snapshot.getNames();
+  }
 }
@@ -18,6 +18,8 @@ package org.ros.internal.node.server;
 
 import com.google.common.collect.Lists;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.ros.address.AdvertiseAddress;
 import org.ros.address.BindAddress;
 import org.ros.internal.node.client.MasterClient;
@@ -28,18 +30,27 @@ import org.ros.internal.node.topic.DefaultSubscriber;
 import org.ros.internal.node.topic.PublisherIdentifier;
 import org.ros.internal.node.topic.SubscriberIdentifier;
 import org.ros.internal.node.topic.TopicDeclaration;
+import org.ros.internal.node.topic.TopicIdentifier;
 import org.ros.internal.node.topic.TopicParticipantManager;
 import org.ros.internal.node.xmlrpc.SlaveXmlRpcEndpointImpl;
 import org.ros.internal.system.Process;
+import org.ros.internal.transport.ConnectionHeader;
+import org.ros.internal.transport.ConnectionHeaderFields;
+import org.ros.internal.transport.ConnectionStatistics;
 import org.ros.internal.transport.ProtocolDescription;
 import org.ros.internal.transport.ProtocolNames;
+import org.ros.internal.transport.intraprocess.IntraProcessProtocolDescription;
 import org.ros.internal.transport.tcp.TcpRosProtocolDescription;
 import org.ros.internal.transport.tcp.TcpRosServer;
+import org.ros.internal.transport.udp.UdpRosProtocolDescription;
+import org.ros.internal.transport.udp.UdpRosTopicRequest;
 import org.ros.namespace.GraphName;
 
 import java.net.URI;
+import java.nio.ByteOrder;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -90,51 +101,79 @@ public class SlaveServer extends XmlRpcServer {
     tcpRosServer.shutdown();
   }
 
+  /**
+   * @return the transport statistics of all topic connections in the format of
+   *         the {@code getBusStats} slave API
+   * @see org.ros.internal.node.xmlrpc.SlaveXmlRpcEndpoint#getBusStats(String)
+   */
   public List<Object> getBusStats(String callerId) {
-    throw new UnsupportedOperationException();
+    List<Object> publishStats = Lists.newArrayList();
+    for (DefaultPublisher<?> publisher : getPublications()) {
+      long messageDataSent = 0;
+      List<Object> connectionData = Lists.newArrayList();
+      for (ConnectionStatistics statistics : publisher.getConnectionStatistics()) {
+        messageDataSent += statistics.getByteCount();
+        connectionData.add(Lists.<Object>newArrayList(statistics.getId(),
+            toXmlRpcInteger(statistics.getByteCount()),
+            toXmlRpcInteger(statistics.getMessageCount()), statistics.isConnected()));
+      }
+      publishStats.add(Lists.<Object>newArrayList(publisher.getTopicName().toString(),
+          toXmlRpcInteger(messageDataSent), connectionData));
+    }
+    List<Object> subscribeStats = Lists.newArrayList();
+    for (DefaultSubscriber<?> subscriber : getSubscriptions()) {
+      // Messages are dropped by the queue that all connections share. The drops
+      // are reported on the first connection only so that summing the
+      // estimates over all connections yields the topic's drop count.
+      int dropEstimate = toXmlRpcInteger(subscriber.getDroppedMessageCount());
+      List<Object> connectionData = Lists.newArrayList();
+      for (ConnectionStatistics statistics : subscriber.getConnectionStatistics()) {
+        connectionData.add(Lists.<Object>newArrayList(statistics.getId(),
+            toXmlRpcInteger(statistics.getByteCount()),
+            toXmlRpcInteger(statistics.getMessageCount()), dropEstimate,
+            statistics.isConnected()));
+        dropEstimate = 0;
+      }
+      subscribeStats.add(Lists.<Object>newArrayList(subscriber.getTopicName().toString(),
+          connectionData));
+    }
+    List<Object> serviceStats = Lists.newArrayList();
+    return Lists.<Object>newArrayList(publishStats, subscribeStats, serviceStats);
+  }
+
+  /**
+   * XML-RPC only supports 32-bit integers without extensions.
+   */
+  private static int toXmlRpcInteger(long value) {
+    return (int) Math.min(value, Integer.MAX_VALUE);
   }
 
+  /**
+   * @return information about all topic connections in the format of the
+   *         {@code getBusInfo} slave API
+   * @see org.ros.internal.node.xmlrpc.SlaveXmlRpcEndpoint#getBusInfo(String)
+   */
   public List<Object> getBusInfo(String callerId) {
     List<Object> busInfo = Lists.newArrayList();
-    // The connection ID field is opaque to the user. A monotonically increasing
-    // integer for now is sufficient.
-    int id = 0;
     for (DefaultPublisher<?> publisher : getPublications()) {
-      for (SubscriberIdentifier subscriberIdentifier : topicParticipantManager
-          .getPublisherConnections(publisher)) {
-        List<String> publisherBusInfo = Lists.newArrayList();
-        publisherBusInfo.add(Integer.toString(id));
-        publisherBusInfo.add(subscriberIdentifier.getNodeIdentifier().getName().toString());
-        // TODO(damonkohler): Pull out BusInfo constants.
-        publisherBusInfo.add("o");
-        // TODO(damonkohler): Add getter for protocol to topic participants.
-        publisherBusInfo.add(ProtocolNames.TCPROS);
-        publisherBusInfo.add(publisher.getTopicName().toString());
-        busInfo.add(publisherBusInfo);
-        id++;
+      for (ConnectionStatistics statistics : publisher.getConnectionStatistics()) {
+        busInfo.add(newBusInfo(statistics, publisher.getTopicName()));
       }
     }
     for (DefaultSubscriber<?> subscriber : getSubscriptions()) {
-      for (PublisherIdentifier publisherIdentifer : topicParticipantManager
-          .getSubscriberConnections(subscriber)) {
-        List<String> subscriberBusInfo = Lists.newArrayList();
-        subscriberBusInfo.add(Integer.toString(id));
-        // Subscriber connection PublisherIdentifiers are populated with node
-        // URIs instead of names. As a result, the only identifier information
-        // available is the URI.
-        subscriberBusInfo.add(publisherIdentifer.getNodeIdentifier().getUri().toString());
-        // TODO(damonkohler): Pull out BusInfo constants.
-        subscriberBusInfo.add("i");
-        // TODO(damonkohler): Add getter for protocol to topic participants.
-        subscriberBusInfo.add(ProtocolNames.TCPROS);
-        subscriberBusInfo.add(publisherIdentifer.getTopicName().toString());
-        busInfo.add(subscriberBusInfo);
-        id++;
+      for (ConnectionStatistics statistics : subscriber.getConnectionStatistics()) {
+        busInfo.add(newBusInfo(statistics, subscriber.getTopicName()));
       }
     }
     return busInfo;
   }
 
+  private List<Object> newBusInfo(ConnectionStatistics statistics, GraphName topicName) {
+    return Lists.<Object>newArrayList(statistics.getId(), statistics.getDestinationId(),
+        statistics.getDirection().getCode(), statistics.getTransport(), topicName.toString(),
+        statistics.isConnected());
+  }
+
   public URI getMasterUri() {
     return masterClient.getRemoteUri();
   }
@@ -178,11 +217,39 @@ public class SlaveServer extends XmlRpcServer {
 
   public ProtocolDescription requestTopic(String topicName, Collection<String> protocols)
       throws ServerException {
+    return requestTopic(topicName, protocols, null);
+  }
+
+  /**
+   * @param udpRosTopicRequest
+   *          the parameters of a UDPROS request or {@code null} if the
+   *          subscriber did not offer UDPROS
+   */
+  public ProtocolDescription requestTopic(String topicName, Collection<String> protocols,
+      UdpRosTopicRequest udpRosTopicRequest) throws ServerException {
     // Canonicalize topic name.
     GraphName graphName = new GraphName(topicName).toGlobal();
     if (!topicParticipantManager.hasPublisher(graphName)) {
       throw new ServerException("No publishers for topic: " + graphName);
     }
+    // Subscribers only offer the intra-process protocol when they share a JVM
+    // with this node, so prefer it over anything else that was offered.
+    if (protocols.contains(ProtocolNames.INTRAPROCESS)) {
+      try {
+        return new IntraProcessProtocolDescription(tcpRosServer.getAdvertiseAddress());
+      } catch (Exception e) {
+        throw new ServerException(e);
+      }
+    }
+    // Subscribers only offer UDPROS when asked to, so prefer it over TCPROS.
+    if (udpRosTopicRequest != null) {
+      try {
+        return newUdpRosProtocolDescription(topicParticipantManager.getPublisher(graphName),
+            udpRosTopicRequest);
+      } catch (Exception e) {
+        throw new ServerException(e);
+      }
+    }
     for (String protocol : protocols) {
       if (protocol.equals(ProtocolNames.TCPROS)) {
         try {
@@ -195,6 +262,23 @@ public class SlaveServer extends XmlRpcServer {
     throw new ServerException("No supported protocols specified.");
   }
 
+  private UdpRosProtocolDescription newUdpRosProtocolDescription(DefaultPublisher<?> publisher,
+      UdpRosTopicRequest udpRosTopicRequest) {
+    Map<String, String> incomingHeader =
+        ConnectionHeader.decode(ChannelBuffers.wrappedBuffer(ByteOrder.LITTLE_ENDIAN,
+            udpRosTopicRequest.getHeader()));
+    ChannelBuffer outgoingHeader = publisher.finishHandshake(incomingHeader);
+    byte[] outgoingHeaderBytes = new byte[outgoingHeader.readableBytes()];
+    outgoingHeader.readBytes(outgoingHeaderBytes);
+    String nodeName = incomingHeader.get(ConnectionHeaderFields.CALLER_ID);
+    int connectionId =
+        publisher.addUdpRosSubscriber(new SubscriberIdentifier(NodeIdentifier.forName(nodeName),
+            new TopicIdentifier(publisher.getTopicName())), udpRosTopicRequest.getAddress(),
+            udpRosTopicRequest.getMaximumDatagramSize());
+    return new UdpRosProtocolDescription(tcpRosServer.getAdvertiseAddress(), connectionId,
+        udpRosTopicRequest.getMaximumDatagramSize(), outgoingHeaderBytes);
+  }
+
   /**
    * @return a {@link NodeIdentifier} for this {@link SlaveServer}
    */
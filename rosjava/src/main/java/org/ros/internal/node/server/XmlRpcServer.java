@@ -16,6 +16,8 @@
 
 package org.ros.internal.node.server;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.xmlrpc.XmlRpcException;
@@ -49,8 +51,22 @@ public class XmlRpcServer {
   private final CountDownLatch startLatch;
 
   public XmlRpcServer(BindAddress bindAddress, AdvertiseAddress advertiseAddress) {
+    this(bindAddress, advertiseAddress, false);
+  }
+
+  /**
+   * @param nio
+   *          {@code true} to serve requests from a fixed number of threads
+   *          using a {@link NettyWebServer}, {@code false} to dedicate a thread
+   *          to each connection
+   */
+  public XmlRpcServer(BindAddress bindAddress, AdvertiseAddress advertiseAddress, boolean nio) {
     InetSocketAddress address = bindAddress.toInetSocketAddress();
-    server = new WebServer(address.getPort(), address.getAddress());
+    if (nio) {
+      server = new NettyWebServer(address.getPort(), address.getAddress());
+    } else {
+      server = new WebServer(address.getPort(), address.getAddress());
+    }
     this.advertiseAddress = advertiseAddress;
     this.advertiseAddress.setPortCallable(new Callable<Integer>() {
       @Override
@@ -84,6 +100,8 @@ public class XmlRpcServer {
     XmlRpcServerConfigImpl serverConfig = (XmlRpcServerConfigImpl) xmlRpcServer.getConfig();
     serverConfig.setEnabledForExtensions(false);
     serverConfig.setContentLengthOptional(false);
+    // Clients keep their connections open between calls.
+    serverConfig.setKeepAliveEnabled(true);
     try {
       server.start();
     } catch (IOException e) {
@@ -113,6 +131,11 @@ public class XmlRpcServer {
     return advertiseAddress.toInetSocketAddress();
   }
 
+  @VisibleForTesting
+  WebServer getWebServer() {
+    return server;
+  }
+
   public AdvertiseAddress getAdvertiseAddress() {
     return advertiseAddress;
   }
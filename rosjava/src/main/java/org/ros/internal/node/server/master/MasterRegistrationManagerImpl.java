@@ -34,7 +34,8 @@ import com.google.common.collect.Maps;
  * Manages all registration logic for the {@link MasterServer}.
  * 
  * <p>
- * This class is not thread-safe.
+ * Registration changes must be serialized by the caller. The node, topic and
+ * service lookups may be called concurrently with them.
  * 
  * @author khughes@google.com (Keith M. Hughes)
  */
@@ -66,9 +67,9 @@ public class MasterRegistrationManagerImpl {
 
   public MasterRegistrationManagerImpl(MasterRegistrationListener listener) {
     this.listener = listener;
-    nodes = Maps.newHashMap();
+    nodes = Maps.newConcurrentMap();
     services = Maps.newConcurrentMap();
-    topics = Maps.newHashMap();
+    topics = Maps.newConcurrentMap();
   }
 
   /**
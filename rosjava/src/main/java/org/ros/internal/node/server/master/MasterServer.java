@@ -17,7 +17,11 @@
 package org.ros.internal.node.server.master;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -25,6 +29,7 @@ import org.ros.address.AdvertiseAddress;
 import org.ros.address.BindAddress;
 import org.ros.internal.node.client.SlaveClient;
 import org.ros.internal.node.server.NodeIdentifier;
+import org.ros.internal.node.server.ParameterServer;
 import org.ros.internal.node.server.SlaveServer;
 import org.ros.internal.node.server.XmlRpcServer;
 import org.ros.internal.node.topic.TopicParticipant;
@@ -39,6 +44,12 @@ import org.ros.node.topic.Subscriber;
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link MasterServer} provides naming and registration services to the
@@ -79,14 +90,149 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    */
   private static final GraphName MASTER_NODE_NAME = new GraphName("/master");
 
+  /**
+   * The number of threads used to contact {@link SlaveServer}s.
+   */
+  private static final int SLAVE_NOTIFICATION_THREADS = 8;
+
+  /**
+   * The time in milliseconds to wait for a connection to a {@link SlaveServer}
+   * and for each part of its reply. Notifications are sent by the notification
+   * threads themselves, so a call never outlives this timeout.
+   */
+  private static final int SLAVE_NOTIFICATION_TIMEOUT = 5 * 1000; // 5 seconds
+
   /**
    * The manager for handling master registration information.
    */
   private final MasterRegistrationManagerImpl masterRegistrationManager;
 
+  /**
+   * The {@link ParameterServer} served alongside the master.
+   */
+  private final ParameterServer parameterServer;
+
+  /**
+   * The results of the read-only introspection calls for the current
+   * registrations, or {@code null} if they have changed since the results were
+   * last computed.
+   */
+  private volatile RegistrationSnapshot registrationSnapshot;
+
+  /**
+   * Contacts {@link SlaveServer}s so that registration calls never wait on a
+   * remote {@link Node}.
+   */
+  private final ThreadPoolExecutor slaveNotificationExecutor;
+
+  /**
+   * The latest publisher {@link URI}s that have yet to be sent for each
+   * subscriber and topic. Guarded by itself.
+   */
+  private final Map<PublisherUpdateKey, List<URI>> pendingPublisherUpdates;
+
+  /**
+   * The subscribers and topics that a {@link PublisherUpdateTask} is currently
+   * scheduled or running for. Guarded by {@link #pendingPublisherUpdates}.
+   */
+  private final Set<PublisherUpdateKey> scheduledPublisherUpdates;
+
+  private static final class PublisherUpdateKey {
+
+    private final URI subscriberSlaveUri;
+    private final GraphName topicName;
+
+    public PublisherUpdateKey(URI subscriberSlaveUri, GraphName topicName) {
+      this.subscriberSlaveUri = subscriberSlaveUri;
+      this.topicName = topicName;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * subscriberSlaveUri.hashCode() + topicName.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof PublisherUpdateKey)) {
+        return false;
+      }
+      PublisherUpdateKey other = (PublisherUpdateKey) obj;
+      return subscriberSlaveUri.equals(other.subscriberSlaveUri)
+          && topicName.equals(other.topicName);
+    }
+  }
+
+  /**
+   * The precomputed results of {@link MasterServer#getTopicTypes(GraphName)},
+   * {@link MasterServer#getPublishedTopics(GraphName, GraphName)} and
+   * {@link MasterServer#getSystemState()}. These are shared between callers and
+   * are immutable all the way down.
+   */
+  private static final class RegistrationSnapshot {
+
+    private final ImmutableList<List<String>> topicTypes;
+    private final ImmutableList<Object> publishedTopics;
+    private final ImmutableList<Object> systemState;
+
+    public RegistrationSnapshot(ImmutableList<List<String>> topicTypes,
+        ImmutableList<Object> publishedTopics, ImmutableList<Object> systemState) {
+      this.topicTypes = topicTypes;
+      this.publishedTopics = publishedTopics;
+      this.systemState = systemState;
+    }
+  }
+
+  /**
+   * Sends the latest publisher update for one subscriber and topic until none
+   * are left. Updates that arrive while one is being sent replace each other so
+   * that only the newest list of publishers goes out. Since there is at most
+   * one task per subscriber and topic and it waits for each call to complete,
+   * at most one update per subscriber and topic is in flight and updates are
+   * never reordered.
+   */
+  private final class PublisherUpdateTask implements Runnable {
+
+    private final PublisherUpdateKey key;
+
+    public PublisherUpdateTask(PublisherUpdateKey key) {
+      this.key = key;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        List<URI> publisherUris;
+        synchronized (pendingPublisherUpdates) {
+          publisherUris = pendingPublisherUpdates.remove(key);
+          if (publisherUris == null) {
+            scheduledPublisherUpdates.remove(key);
+            return;
+          }
+        }
+        try {
+          contactSubscriberForPublisherUpdate(key.subscriberSlaveUri, key.topicName,
+              publisherUris);
+        } catch (RuntimeException e) {
+          log.error(String.format("Failed to send publisher update for %s to %s.",
+              key.topicName, key.subscriberSlaveUri), e);
+        }
+      }
+    }
+  }
+
   public MasterServer(BindAddress bindAddress, AdvertiseAddress advertiseAddress) {
-    super(bindAddress, advertiseAddress);
+    // Every node in the graph keeps a connection to the master open.
+    super(bindAddress, advertiseAddress, true);
     masterRegistrationManager = new MasterRegistrationManagerImpl(this);
+    parameterServer = new ParameterServer();
+    // Coalescing bounds the queue by the number of subscribers and topics.
+    slaveNotificationExecutor =
+        new ThreadPoolExecutor(SLAVE_NOTIFICATION_THREADS, SLAVE_NOTIFICATION_THREADS, 10,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    slaveNotificationExecutor.allowCoreThreadTimeOut(true);
+    pendingPublisherUpdates = Maps.newHashMap();
+    scheduledPublisherUpdates = Sets.newHashSet();
   }
 
   /**
@@ -96,7 +242,8 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
     if (DEBUG) {
       log.info("Starting master server.");
     }
-    super.start(MasterXmlRpcEndpointImpl.class, new MasterXmlRpcEndpointImpl(this));
+    super.start(MasterXmlRpcEndpointImpl.class,
+        new MasterXmlRpcEndpointImpl(this, parameterServer));
   }
 
   /**
@@ -115,6 +262,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
       URI serviceUri) {
     synchronized (masterRegistrationManager) {
       masterRegistrationManager.registerService(nodeName, nodeSlaveUri, serviceName, serviceUri);
+      registrationSnapshot = null;
     }
   }
 
@@ -131,6 +279,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    */
   public boolean unregisterService(GraphName nodeName, GraphName serviceName, URI serviceUri) {
     synchronized (masterRegistrationManager) {
+      registrationSnapshot = null;
       return masterRegistrationManager.unregisterService(nodeName, serviceName, serviceUri);
     }
   }
@@ -163,6 +312,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
       TopicRegistrationInfo topicInfo =
           masterRegistrationManager.registerSubscriber(nodeName, nodeSlaveUri, topicName,
               topicMessageType);
+      registrationSnapshot = null;
       List<URI> publisherUris = Lists.newArrayList();
       for (NodeRegistrationInfo publisherNodeInfo : topicInfo.getPublishers()) {
         publisherUris.add(publisherNodeInfo.getNodeSlaveUri());
@@ -185,6 +335,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
       log.info(String.format("Unregistering subscriber for %s on node %s.", topicName, nodeName));
     }
     synchronized (masterRegistrationManager) {
+      registrationSnapshot = null;
       return masterRegistrationManager.unregisterSubscriber(nodeName, topicName);
     }
   }
@@ -216,6 +367,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
       TopicRegistrationInfo topicInfo =
           masterRegistrationManager.registerPublisher(nodeName, nodeSlaveUri, topicName,
               topicMessageType);
+      registrationSnapshot = null;
 
       List<URI> subscriberSlaveUris = Lists.newArrayList();
       for (NodeRegistrationInfo publisherNodeInfo : topicInfo.getSubscribers()) {
@@ -229,8 +381,11 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
   }
 
   /**
-   * Something has happened to the publishers for a topic. Tell every subscriber
-   * about the current set of publishers.
+   * Something has happened to the publishers for a topic. Schedule telling
+   * every subscriber about the current set of publishers.
+   * <p>
+   * The subscribers are contacted asynchronously so that this may be called
+   * while holding the registration lock.
    * 
    * @param topicInfo
    *          the topic information for the update
@@ -247,11 +402,36 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
     }
 
     GraphName topicName = topicInfo.getTopicName();
-    for (URI subscriberSlaveUri : subscriberSlaveUris) {
-      contactSubscriberForPublisherUpdate(subscriberSlaveUri, topicName, publisherUris);
+    synchronized (pendingPublisherUpdates) {
+      for (URI subscriberSlaveUri : subscriberSlaveUris) {
+        PublisherUpdateKey key = new PublisherUpdateKey(subscriberSlaveUri, topicName);
+        pendingPublisherUpdates.put(key, publisherUris);
+        if (scheduledPublisherUpdates.add(key)) {
+          executeSlaveNotification(new PublisherUpdateTask(key));
+        }
+      }
+    }
+  }
+
+  private void executeSlaveNotification(Runnable notification) {
+    try {
+      slaveNotificationExecutor.execute(notification);
+    } catch (RejectedExecutionException e) {
+      // The master is shutting down.
+      if (DEBUG) {
+        log.info("Dropping slave notification: " + e);
+      }
     }
   }
 
+  /**
+   * @return a {@link SlaveClient} that makes its calls in the calling thread
+   */
+  private SlaveClient newSlaveNotificationClient(URI slaveUri) {
+    return new SlaveClient(MASTER_NODE_NAME, slaveUri, SLAVE_NOTIFICATION_TIMEOUT,
+        MoreExecutors.sameThreadExecutor());
+  }
+
   /**
    * Contact a subscriber and send it a publisher update.
    * 
@@ -265,7 +445,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
   @VisibleForTesting
   protected void contactSubscriberForPublisherUpdate(URI subscriberSlaveUri, GraphName topicName,
       List<URI> publisherUris) {
-    SlaveClient client = new SlaveClient(MASTER_NODE_NAME, subscriberSlaveUri);
+    SlaveClient client = newSlaveNotificationClient(subscriberSlaveUri);
     client.publisherUpdate(topicName, publisherUris);
   }
 
@@ -283,10 +463,31 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
       log.info(String.format("Unregistering publisher for %s on %s.", topicName, nodeName));
     }
     synchronized (masterRegistrationManager) {
-      return masterRegistrationManager.unregisterPublisher(nodeName, topicName);
+      registrationSnapshot = null;
+      if (!masterRegistrationManager.unregisterPublisher(nodeName, topicName)) {
+        return false;
+      }
+      // Let the remaining subscribers drop the publisher.
+      TopicRegistrationInfo topicInfo =
+          masterRegistrationManager.getTopicRegistrationInfo(topicName);
+      if (topicInfo != null) {
+        List<URI> subscriberSlaveUris = Lists.newArrayList();
+        for (NodeRegistrationInfo subscriberNodeInfo : topicInfo.getSubscribers()) {
+          subscriberSlaveUris.add(subscriberNodeInfo.getNodeSlaveUri());
+        }
+        publisherUpdate(topicInfo, subscriberSlaveUris);
+      }
+      return true;
     }
   }
 
+  @Override
+  public void shutdown() {
+    slaveNotificationExecutor.shutdownNow();
+    parameterServer.shutdown();
+    super.shutdown();
+  }
+
   /**
    * Returns a {@link NodeIdentifier} for the {@link Node} with the given name.
    * This API is for looking information about {@link Publisher}s and
@@ -300,13 +501,43 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         name
    */
   public URI lookupNode(GraphName nodeName) {
+    // Lookups do not need the registration lock.
+    NodeRegistrationInfo node = masterRegistrationManager.getNodeRegistrationInfo(nodeName);
+    if (node != null) {
+      return node.getNodeSlaveUri();
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return the {@link RegistrationSnapshot} for the current registrations
+   */
+  private RegistrationSnapshot getRegistrationSnapshot() {
+    RegistrationSnapshot snapshot = registrationSnapshot;
+    if (snapshot != null) {
+      return snapshot;
+    }
     synchronized (masterRegistrationManager) {
-      NodeRegistrationInfo node = masterRegistrationManager.getNodeRegistrationInfo(nodeName);
-      if (node != null) {
-        return node.getNodeSlaveUri();
-      } else {
-        return null;
+      if (registrationSnapshot == null) {
+        Collection<TopicRegistrationInfo> topics = masterRegistrationManager.getAllTopics();
+        ImmutableList.Builder<List<String>> topicTypes = ImmutableList.builder();
+        ImmutableList.Builder<Object> publishedTopics = ImmutableList.builder();
+        for (TopicRegistrationInfo topic : topics) {
+          List<String> topicType =
+              ImmutableList.of(topic.getTopicName().toString(), topic.getMessageType());
+          topicTypes.add(topicType);
+          if (topic.hasPublishers()) {
+            publishedTopics.add(topicType);
+          }
+        }
+        ImmutableList<Object> systemState =
+            ImmutableList.<Object>of(getSystemStatePublishers(topics),
+                getSystemStateSubscribers(topics), getSystemStateServices());
+        registrationSnapshot =
+            new RegistrationSnapshot(topicTypes.build(), publishedTopics.build(), systemState);
       }
+      return registrationSnapshot;
     }
   }
 
@@ -319,13 +550,7 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         name, topic 2 message type], ...]
    */
   public List<List<String>> getTopicTypes(GraphName calledId) {
-    synchronized (masterRegistrationManager) {
-      List<List<String>> result = Lists.newArrayList();
-      for (TopicRegistrationInfo topic : masterRegistrationManager.getAllTopics()) {
-        result.add(Lists.newArrayList(topic.getTopicName().toString(), topic.getMessageType()));
-      }
-      return result;
-    }
+    return getRegistrationSnapshot().topicTypes;
   }
 
   /**
@@ -333,19 +558,13 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    * 
    * <p>
    * This includes information about publishers, subscribers, and services.
+   * The result is computed once after each change to the registrations and
+   * must not be modified.
    * 
    * @return TODO(keith): Fill in.
    */
   public List<Object> getSystemState() {
-    synchronized (masterRegistrationManager) {
-      List<Object> result = Lists.newArrayList();
-
-      Collection<TopicRegistrationInfo> topics = masterRegistrationManager.getAllTopics();
-      result.add(getSystemStatePublishers(topics));
-      result.add(getSystemStateSubscribers(topics));
-      result.add(getSystemStateServices());
-      return result;
-    }
+    return getRegistrationSnapshot().systemState;
   }
 
   /**
@@ -359,22 +578,17 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         topicPublisherI instances are {@link Node} names
    */
   private List<Object> getSystemStatePublishers(Collection<TopicRegistrationInfo> topics) {
-    List<Object> result = Lists.newArrayList();
+    ImmutableList.Builder<Object> result = ImmutableList.builder();
     for (TopicRegistrationInfo topic : topics) {
       if (topic.hasPublishers()) {
-        List<Object> topicInfo = Lists.newArrayList();
-        topicInfo.add(topic.getTopicName().toString());
-
-        List<String> publist = Lists.newArrayList();
+        ImmutableList.Builder<String> publist = ImmutableList.builder();
         for (NodeRegistrationInfo node : topic.getPublishers()) {
           publist.add(node.getNodeName().toString());
         }
-        topicInfo.add(publist);
-
-        result.add(topicInfo);
+        result.add(ImmutableList.<Object>of(topic.getTopicName().toString(), publist.build()));
       }
     }
-    return result;
+    return result.build();
   }
 
   /**
@@ -388,22 +602,17 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         topicSubscriberI instances are {@link Node} names
    */
   private List<Object> getSystemStateSubscribers(Collection<TopicRegistrationInfo> topics) {
-    List<Object> result = Lists.newArrayList();
+    ImmutableList.Builder<Object> result = ImmutableList.builder();
     for (TopicRegistrationInfo topic : topics) {
       if (topic.hasSubscribers()) {
-        List<Object> topicInfo = Lists.newArrayList();
-        topicInfo.add(topic.getTopicName().toString());
-
-        List<Object> sublist = Lists.newArrayList();
+        ImmutableList.Builder<String> sublist = ImmutableList.builder();
         for (NodeRegistrationInfo node : topic.getSubscribers()) {
           sublist.add(node.getNodeName().toString());
         }
-        topicInfo.add(sublist);
-
-        result.add(topicInfo);
+        result.add(ImmutableList.<Object>of(topic.getTopicName().toString(), sublist.build()));
       }
     }
-    return result;
+    return result.build();
   }
 
   /**
@@ -414,17 +623,12 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         serviceProviderI instances are {@link Node} names
    */
   private List<Object> getSystemStateServices() {
-    List<Object> result = Lists.newArrayList();
-
+    ImmutableList.Builder<Object> result = ImmutableList.builder();
     for (ServiceRegistrationInfo service : masterRegistrationManager.getAllServices()) {
-      List<Object> topicInfo = Lists.newArrayList();
-      topicInfo.add(service.getServiceName().toString());
-      topicInfo.add(Lists.newArrayList(service.getServiceName().toString()));
-
-      result.add(topicInfo);
+      String serviceName = service.getServiceName().toString();
+      result.add(ImmutableList.<Object>of(serviceName, ImmutableList.of(serviceName)));
     }
-
-    return result;
+    return result.build();
   }
 
   /**
@@ -436,14 +640,13 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         {@code null} if there is no such service.
    */
   public URI lookupService(GraphName serviceName) {
-    synchronized (masterRegistrationManager) {
-      ServiceRegistrationInfo service =
-          masterRegistrationManager.getServiceRegistrationInfo(serviceName);
-      if (service != null) {
-        return service.getServiceUri();
-      } else {
-        return null;
-      }
+    // Lookups do not need the registration lock.
+    ServiceRegistrationInfo service =
+        masterRegistrationManager.getServiceRegistrationInfo(serviceName);
+    if (service != null) {
+      return service.getServiceUri();
+    } else {
+      return null;
     }
   }
 
@@ -460,16 +663,8 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
    *         {@link TopicSystemState} message type
    */
   public List<Object> getPublishedTopics(GraphName caller, GraphName subgraph) {
-    synchronized (masterRegistrationManager) {
-      // TODO(keith): Filter topics according to subgraph.
-      List<Object> result = Lists.newArrayList();
-      for (TopicRegistrationInfo topic : masterRegistrationManager.getAllTopics()) {
-        if (topic.hasPublishers()) {
-          result.add(Lists.newArrayList(topic.getTopicName().toString(), topic.getMessageType()));
-        }
-      }
-      return result;
-    }
+    // TODO(keith): Filter topics according to subgraph.
+    return getRegistrationSnapshot().publishedTopics;
   }
 
   @Override
@@ -481,7 +676,18 @@ public class MasterServer extends XmlRpcServer implements MasterRegistrationList
           nodeInfo.getNodeName(), nodeInfo.getNodeSlaveUri()));
     }
 
-    SlaveClient client = new SlaveClient(MASTER_NODE_NAME, nodeInfo.getNodeSlaveUri());
-    client.shutdown("Replaced by new slave");
+    // This is called while holding the registration lock.
+    final URI nodeSlaveUri = nodeInfo.getNodeSlaveUri();
+    executeSlaveNotification(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SlaveClient client = newSlaveNotificationClient(nodeSlaveUri);
+          client.shutdown("Replaced by new slave");
+        } catch (RuntimeException e) {
+          log.error("Failed to shut down replaced node at " + nodeSlaveUri, e);
+        }
+      }
+    });
   }
 }
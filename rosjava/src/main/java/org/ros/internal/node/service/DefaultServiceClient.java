@@ -18,10 +18,13 @@ package org.ros.internal.node.service;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFactory;
+import org.ros.exception.RemoteException;
 import org.ros.exception.RosRuntimeException;
 import org.ros.internal.transport.ConnectionHeaderFields;
 import org.ros.internal.transport.tcp.TcpClientConnection;
@@ -32,44 +35,146 @@ import org.ros.message.MessageSerializer;
 import org.ros.namespace.GraphName;
 import org.ros.node.service.ServiceClient;
 import org.ros.node.service.ServiceResponseListener;
+import org.ros.node.service.ServiceServer;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Default implementation of a {@link ServiceClient}.
+ * 
+ * <p>
+ * Requests are pipelined over a pool of persistent connections to the
+ * {@link ServiceServer}. Each call is sent over the connection with the fewest
+ * outstanding requests. Additional connections are only opened, up to the
+ * configured maximum, when all existing connections are busy. They are opened
+ * in the background, one at a time, so that calls never wait for a connection
+ * to be established.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class DefaultServiceClient<T, S> implements ServiceClient<T, S> {
 
+  private static final Log log = LogFactory.getLog(DefaultServiceClient.class);
+
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
   private final ServiceDeclaration serviceDeclaration;
   private final MessageSerializer<T> serializer;
   private final MessageDeserializer<S> deserializer;
   private final MessageFactory messageFactory;
   private final ScheduledExecutorService executorService;
-  private final Queue<ServiceResponseListener<S>> responseListeners;
   private final ImmutableMap<String, String> header;
   private final TcpClientConnectionManager tcpClientConnectionManager;
+  private final int maximumConnections;
+  private final List<ServiceConnection> connections;
+
+  /**
+   * {@code true} while an additional connection is being opened. Guarded by
+   * {@link #connections}.
+   */
+  private boolean connecting;
+
+  /**
+   * Guarded by {@link #connections}.
+   */
+  private boolean shutdown;
+
+  /**
+   * The address of the {@link ServiceServer} or {@code null} if not yet
+   * connected.
+   */
+  private volatile InetSocketAddress address;
+
+  /**
+   * A persistent connection to the {@link ServiceServer}. Responses arrive in
+   * the order that requests were sent and are matched to their
+   * {@link ServiceResponseListener}s by that order.
+   */
+  private final class ServiceConnection {
 
-  private TcpClientConnection tcpClientConnection;
+    private final TcpClientConnection tcpClientConnection;
+    private final Queue<ServiceResponseListener<S>> responseListeners;
+    private final AtomicInteger outstandingRequests;
 
+    public ServiceConnection(TcpClientConnection tcpClientConnection,
+        Queue<ServiceResponseListener<S>> responseListeners) {
+      this.tcpClientConnection = tcpClientConnection;
+      this.responseListeners = responseListeners;
+      outstandingRequests = new AtomicInteger();
+    }
+
+    public int getOutstandingRequests() {
+      return outstandingRequests.get();
+    }
+
+    public void call(ChannelBuffer buffer, final ServiceResponseListener<S> listener) {
+      ServiceResponseListener<S> countingListener = new ServiceResponseListener<S>() {
+        @Override
+        public void onSuccess(S response) {
+          outstandingRequests.decrementAndGet();
+          listener.onSuccess(response);
+        }
+
+        @Override
+        public void onFailure(RemoteException e) {
+          outstandingRequests.decrementAndGet();
+          listener.onFailure(e);
+        }
+      };
+      outstandingRequests.incrementAndGet();
+      // The listener must be queued in the same order as the request is
+      // written.
+      synchronized (this) {
+        responseListeners.add(countingListener);
+        try {
+          tcpClientConnection.write(buffer);
+        } catch (RuntimeException e) {
+          responseListeners.remove(countingListener);
+          outstandingRequests.decrementAndGet();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * @param maximumConnections
+   *          the maximum number of persistent connections to open to the
+   *          {@link ServiceServer}
+   */
   public static <S, T> DefaultServiceClient<S, T> newDefault(GraphName nodeName,
       ServiceDeclaration serviceDeclaration, MessageSerializer<S> serializer,
-      MessageDeserializer<T> deserializer, MessageFactory messageFactory, ScheduledExecutorService executorService) {
+      MessageDeserializer<T> deserializer, MessageFactory messageFactory,
+      ScheduledExecutorService executorService, ChannelFactory channelFactory,
+      int maximumConnections) {
     return new DefaultServiceClient<S, T>(nodeName, serviceDeclaration, serializer, deserializer,
-        messageFactory, executorService);
+        messageFactory, executorService, channelFactory, maximumConnections);
   }
 
   private DefaultServiceClient(GraphName nodeName, ServiceDeclaration serviceDeclaration,
       MessageSerializer<T> serializer, MessageDeserializer<S> deserializer,
-      MessageFactory messageFactory, ScheduledExecutorService executorService) {
+      MessageFactory messageFactory, ScheduledExecutorService executorService,
+      ChannelFactory channelFactory, int maximumConnections) {
+    Preconditions.checkArgument(maximumConnections > 0);
     this.serviceDeclaration = serviceDeclaration;
     this.serializer = serializer;
     this.deserializer = deserializer;
     this.messageFactory = messageFactory;
     this.executorService = executorService;
-    responseListeners = Lists.newLinkedList();
+    this.maximumConnections = maximumConnections;
+    connections = new CopyOnWriteArrayList<ServiceConnection>();
+    connecting = false;
+    shutdown = false;
     header =
         ImmutableMap.<String, String>builder()
             .put(ConnectionHeaderFields.CALLER_ID, nodeName.toString())
@@ -77,41 +182,125 @@ public class DefaultServiceClient<T, S> implements ServiceClient<T, S> {
             .put(ConnectionHeaderFields.PERSISTENT, "1")
             .putAll(serviceDeclaration.toConnectionHeader())
             .build();
-    tcpClientConnectionManager = new TcpClientConnectionManager(executorService);
+    tcpClientConnectionManager = new TcpClientConnectionManager(channelFactory, executorService);
   }
 
+  /**
+   * Connects to the {@link ServiceServer} and blocks until the handshake has
+   * completed.
+   */
   @Override
   public void connect(URI uri) {
     Preconditions.checkNotNull(uri, "URI must be specified.");
     Preconditions.checkArgument(uri.getScheme().equals("rosrpc"), "Invalid service URI.");
-    Preconditions.checkState(tcpClientConnection == null, "Already connected once.");
-    InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort());
+    synchronized (connections) {
+      Preconditions.checkState(address == null, "Already connected once.");
+      InetSocketAddress serverAddress = new InetSocketAddress(uri.getHost(), uri.getPort());
+      connections.add(newConnection(serverAddress));
+      address = serverAddress;
+    }
+  }
+
+  private ServiceConnection newConnection(InetSocketAddress serverAddress) {
+    Queue<ServiceResponseListener<S>> responseListeners =
+        new ConcurrentLinkedQueue<ServiceResponseListener<S>>();
     ServiceClientHandshakeHandler<T, S> handler =
         new ServiceClientHandshakeHandler<T, S>(header, responseListeners, deserializer,
             executorService);
-    tcpClientConnection =
-        tcpClientConnectionManager.connect(toString(), address, handler,
+    TcpClientConnection tcpClientConnection =
+        tcpClientConnectionManager.connect(toString(), serverAddress, handler,
             "ServiceClientHandshakeHandler");
-    // TODO(damonkohler): Remove this once blocking on handshakes is supported.
-    // See issue 75.
     try {
-      Thread.sleep(500);
+      handler.getHandshakeFuture().get(HANDSHAKE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      tcpClientConnectionManager.close(tcpClientConnection);
+      throw new RosRuntimeException(e.getCause());
+    } catch (TimeoutException e) {
+      tcpClientConnectionManager.close(tcpClientConnection);
+      throw new RosRuntimeException("Service handshake timed out: " + this, e);
     } catch (InterruptedException e) {
+      tcpClientConnectionManager.close(tcpClientConnection);
       throw new RosRuntimeException(e);
     }
+    return new ServiceConnection(tcpClientConnection, responseListeners);
+  }
+
+  /**
+   * @return the connection with the fewest outstanding requests
+   */
+  private ServiceConnection selectConnection() {
+    Preconditions.checkNotNull(address, "Not connected.");
+    ServiceConnection selected = null;
+    for (ServiceConnection connection : connections) {
+      if (selected == null
+          || connection.getOutstandingRequests() < selected.getOutstandingRequests()) {
+        selected = connection;
+      }
+    }
+    if (selected.getOutstandingRequests() > 0 && connections.size() < maximumConnections) {
+      openConnectionInBackground();
+    }
+    return selected;
+  }
+
+  /**
+   * Opens an additional connection unless one is already being opened or the
+   * pool is full.
+   */
+  private void openConnectionInBackground() {
+    synchronized (connections) {
+      if (connecting || shutdown || connections.size() >= maximumConnections) {
+        return;
+      }
+      connecting = true;
+    }
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        ServiceConnection connection = null;
+        try {
+          connection = newConnection(address);
+        } catch (RosRuntimeException e) {
+          log.error("Failed to open additional service connection: " + DefaultServiceClient.this,
+              e);
+        }
+        boolean closeConnection;
+        synchronized (connections) {
+          connecting = false;
+          closeConnection = shutdown;
+          if (connection != null && !shutdown) {
+            connections.add(connection);
+          }
+        }
+        if (connection != null && closeConnection) {
+          // The client was shut down while the connection was being opened.
+          tcpClientConnectionManager.shutdown();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the number of persistent connections currently open to the
+   *         {@link ServiceServer}
+   */
+  public int getConnectionCount() {
+    return connections.size();
   }
 
   @Override
   public void shutdown() {
-    Preconditions.checkNotNull(tcpClientConnection, "Not connected.");
+    Preconditions.checkNotNull(address, "Not connected.");
+    synchronized (connections) {
+      shutdown = true;
+    }
     tcpClientConnectionManager.shutdown();
   }
 
   @Override
   public void call(T request, ServiceResponseListener<S> listener) {
     ChannelBuffer wrappedBuffer = ChannelBuffers.wrappedBuffer(serializer.serialize(request));
-    responseListeners.add(listener);
-    tcpClientConnection.write(wrappedBuffer).awaitUninterruptibly();
+    selectConnection().call(wrappedBuffer, listener);
   }
 
   @Override
@@ -58,20 +58,21 @@ public class DefaultServiceServer<T, S> implements ServiceServer<T, S> {
   private final MessageDeserializer<T> messageDeserializer;
   private final MessageSerializer<S> messageSerializer;
   private final MessageFactory messageFactory;
-  private final ScheduledExecutorService scheduledExecutorService;
+  private final ServiceRequestExecutor requestExecutor;
   private final ListenerCollection<ServiceServerListener<T, S>> listenerCollection;
 
   public DefaultServiceServer(ServiceDeclaration serviceDeclaration,
       ServiceResponseBuilder<T, S> serviceResponseBuilder, AdvertiseAddress advertiseAddress,
       MessageDeserializer<T> messageDeserializer, MessageSerializer<S> messageSerializer,
-      MessageFactory messageFactory, ScheduledExecutorService scheduledExecutorService) {
+      MessageFactory messageFactory, ScheduledExecutorService scheduledExecutorService,
+      ServiceRequestExecutor requestExecutor) {
     this.serviceDeclaration = serviceDeclaration;
     this.serviceResponseBuilder = serviceResponseBuilder;
     this.advertiseAddress = advertiseAddress;
     this.messageDeserializer = messageDeserializer;
     this.messageSerializer = messageSerializer;
     this.messageFactory = messageFactory;
-    this.scheduledExecutorService = scheduledExecutorService;
+    this.requestExecutor = requestExecutor;
     listenerCollection =
         new ListenerCollection<ServiceServerListener<T, S>>(scheduledExecutorService);
     listenerCollection.add(new DefaultServiceServerListener<T, S>() {
@@ -135,7 +136,16 @@ public class DefaultServiceServer<T, S> implements ServiceServer<T, S> {
 
   public ChannelHandler newRequestHandler() {
     return new ServiceRequestHandler<T, S>(serviceDeclaration, serviceResponseBuilder,
-        messageDeserializer, messageSerializer, messageFactory, scheduledExecutorService);
+        messageDeserializer, messageSerializer, messageFactory, requestExecutor);
+  }
+
+  /**
+   * @return the {@link ServiceRequestExecutor} that processes the requests of
+   *         this {@link ServiceServer}, which allows inspecting its load and
+   *         adjusting its limits at runtime
+   */
+  public ServiceRequestExecutor getRequestExecutor() {
+    return requestExecutor;
   }
 
   /**
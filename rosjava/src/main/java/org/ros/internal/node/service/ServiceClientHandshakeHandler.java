@@ -16,8 +16,8 @@
 
 package org.ros.internal.node.service;
 
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ValueFuture;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,6 +27,7 @@ import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
+import org.ros.exception.RosRuntimeException;
 import org.ros.internal.transport.ConnectionHeader;
 import org.ros.internal.transport.ConnectionHeaderFields;
 import org.ros.internal.transport.tcp.TcpClientPipelineFactory;
@@ -36,6 +37,7 @@ import org.ros.node.service.ServiceServer;
 
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -57,6 +59,7 @@ class ServiceClientHandshakeHandler<T, S> extends SimpleChannelHandler {
   private final Queue<ServiceResponseListener<S>> responseListeners;
   private final MessageDeserializer<S> deserializer;
   private final ScheduledExecutorService executorService;
+  private final ValueFuture<Void> handshakeFuture;
 
   public ServiceClientHandshakeHandler(ImmutableMap<String, String> header,
       Queue<ServiceResponseListener<S>> responseListeners,
@@ -65,6 +68,16 @@ class ServiceClientHandshakeHandler<T, S> extends SimpleChannelHandler {
     this.responseListeners = responseListeners;
     this.deserializer = deserializer;
     this.executorService = executorService;
+    handshakeFuture = ValueFuture.create();
+  }
+
+  /**
+   * @return a {@link Future} that completes once the first handshake has
+   *         finished and fails with a {@link RosRuntimeException} if the
+   *         {@link ServiceServer} rejected it
+   */
+  public Future<Void> getHandshakeFuture() {
+    return handshakeFuture;
   }
 
   @Override
@@ -76,26 +89,43 @@ class ServiceClientHandshakeHandler<T, S> extends SimpleChannelHandler {
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
     ChannelBuffer incomingBuffer = (ChannelBuffer) e.getMessage();
-    // TODO(damonkohler): Handle handshake errors.
-    handshake(incomingBuffer);
+    String error = handshake(incomingBuffer);
+    if (error != null) {
+      handshakeFuture.setException(new RosRuntimeException("Service handshake failed: " + error));
+      e.getChannel().close();
+      return;
+    }
     ChannelPipeline pipeline = e.getChannel().getPipeline();
     pipeline.remove(TcpClientPipelineFactory.LENGTH_FIELD_BASED_FRAME_DECODER);
     pipeline.remove(this);
     pipeline.addLast("ResponseDecoder", new ServiceResponseDecoder<S>());
     pipeline.addLast("ResponseHandler", new ServiceResponseHandler<S>(responseListeners,
         deserializer, executorService));
+    handshakeFuture.set(null);
     super.messageReceived(ctx, e);
   }
 
-  private void handshake(ChannelBuffer buffer) {
+  /**
+   * @return a description of why the handshake failed or {@code null} if it
+   *         succeeded
+   */
+  private String handshake(ChannelBuffer buffer) {
     Map<String, String> incomingHeader = ConnectionHeader.decode(buffer);
     if (DEBUG) {
       log.info("Incoming handshake header: " + incomingHeader);
       log.info("Expected handshake header: " + header);
     }
-    Preconditions.checkState(incomingHeader.get(ConnectionHeaderFields.TYPE).equals(
-        header.get(ConnectionHeaderFields.TYPE)));
-    Preconditions.checkState(incomingHeader.get(ConnectionHeaderFields.MD5_CHECKSUM).equals(
-        header.get(ConnectionHeaderFields.MD5_CHECKSUM)));
+    if (incomingHeader.containsKey(ConnectionHeaderFields.ERROR)) {
+      return incomingHeader.get(ConnectionHeaderFields.ERROR);
+    }
+    String type = incomingHeader.get(ConnectionHeaderFields.TYPE);
+    if (!header.get(ConnectionHeaderFields.TYPE).equals(type)) {
+      return "Unexpected type " + type;
+    }
+    String md5Checksum = incomingHeader.get(ConnectionHeaderFields.MD5_CHECKSUM);
+    if (!header.get(ConnectionHeaderFields.MD5_CHECKSUM).equals(md5Checksum)) {
+      return "Unexpected MD5 checksum " + md5Checksum;
+    }
+    return null;
   }
-}
\ No newline at end of file
+}
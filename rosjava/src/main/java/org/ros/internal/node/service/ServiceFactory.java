@@ -18,6 +18,7 @@ package org.ros.internal.node.service;
 
 import com.google.common.base.Preconditions;
 
+import org.jboss.netty.channel.ChannelFactory;
 import org.ros.exception.DuplicateServiceException;
 import org.ros.internal.message.service.ServiceDescription;
 import org.ros.internal.node.server.SlaveServer;
@@ -42,13 +43,36 @@ public class ServiceFactory {
   private final SlaveServer slaveServer;
   private final ServiceManager serviceManager;
   private final ScheduledExecutorService executorService;
+  private final ChannelFactory channelFactory;
+  private final int clientConnectionCount;
+  private final int serverWorkerCount;
+  private final int serverMaximumQueuedRequests;
 
+  /**
+   * @param channelFactory
+   *          the {@link ChannelFactory} that all {@link ServiceClient}s created
+   *          by this factory connect to their servers with
+   * @param clientConnectionCount
+   *          the maximum number of persistent connections each
+   *          {@link ServiceClient} opens to its server
+   * @param serverWorkerCount
+   *          the maximum number of requests each {@link ServiceServer} created
+   *          by this factory processes concurrently
+   * @param serverMaximumQueuedRequests
+   *          the maximum number of requests each {@link ServiceServer} created
+   *          by this factory queues before rejecting further requests
+   */
   public ServiceFactory(GraphName nodeName, SlaveServer slaveServer, ServiceManager serviceManager,
-      ScheduledExecutorService executorService) {
+      ScheduledExecutorService executorService, ChannelFactory channelFactory,
+      int clientConnectionCount, int serverWorkerCount, int serverMaximumQueuedRequests) {
     this.nodeName = nodeName;
     this.slaveServer = slaveServer;
     this.serviceManager = serviceManager;
     this.executorService = executorService;
+    this.channelFactory = channelFactory;
+    this.clientConnectionCount = clientConnectionCount;
+    this.serverWorkerCount = serverWorkerCount;
+    this.serverMaximumQueuedRequests = serverMaximumQueuedRequests;
   }
 
   /**
@@ -77,10 +101,13 @@ public class ServiceFactory {
       if (serviceManager.hasServer(name)) {
         throw new DuplicateServiceException(String.format("ServiceServer %s already exists.", name));
       } else {
+        ServiceRequestExecutor requestExecutor =
+            new ServiceRequestExecutor(name.toString(), serverWorkerCount,
+                serverMaximumQueuedRequests);
         serviceServer =
             new DefaultServiceServer<T, S>(serviceDeclaration, responseBuilder,
                 slaveServer.getTcpRosAdvertiseAddress(), deserializer, serializer, messageFactory,
-                executorService);
+                executorService, requestExecutor);
         serviceManager.addServer(serviceServer);
       }
     }
@@ -132,7 +159,7 @@ public class ServiceFactory {
       } else {
         serviceClient =
             DefaultServiceClient.newDefault(nodeName, serviceDeclaration, serializer, deserializer,
-                messageFactory, executorService);
+                messageFactory, executorService, channelFactory, clientConnectionCount);
         serviceManager.addClient(serviceClient);
         createdNewClient = true;
       }
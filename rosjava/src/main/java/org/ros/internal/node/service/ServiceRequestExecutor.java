@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.service;
+
+import com.google.common.base.Preconditions;
+
+import org.ros.node.service.ServiceServer;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes the requests of a single {@link ServiceServer} on a bounded pool of
+ * worker threads.
+ * 
+ * <p>
+ * Requests are admitted until the configured number of requests is waiting for
+ * a worker. Further requests are rejected so that the latency of admitted
+ * requests stays bounded while the service is overloaded.
+ */
+public class ServiceRequestExecutor {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final ThreadPoolExecutor threadPoolExecutor;
+  private final AtomicInteger queuedRequests;
+  private final AtomicInteger activeRequests;
+  private final AtomicLong rejectedRequests;
+  private final AtomicLong completedRequests;
+  private final AtomicLong totalHandlerNanos;
+  private final AtomicLong maximumHandlerNanos;
+
+  private volatile int maximumQueuedRequests;
+
+  /**
+   * @param name
+   *          the name used for worker threads
+   * @param workerCount
+   *          the maximum number of requests processed concurrently
+   * @param maximumQueuedRequests
+   *          the maximum number of admitted requests waiting for a worker
+   */
+  public ServiceRequestExecutor(final String name, int workerCount, int maximumQueuedRequests) {
+    Preconditions.checkArgument(workerCount > 0);
+    Preconditions.checkArgument(maximumQueuedRequests >= 0);
+    this.maximumQueuedRequests = maximumQueuedRequests;
+    // Admission control bounds the number of requests, the queue only ever
+    // holds one task per connection.
+    threadPoolExecutor =
+        new ThreadPoolExecutor(workerCount, workerCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+              private final AtomicInteger threadCount = new AtomicInteger();
+
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread =
+                    new Thread(runnable, name + " worker " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    // Idle services must not hold on to threads.
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    queuedRequests = new AtomicInteger();
+    activeRequests = new AtomicInteger();
+    rejectedRequests = new AtomicLong();
+    completedRequests = new AtomicLong();
+    totalHandlerNanos = new AtomicLong();
+    maximumHandlerNanos = new AtomicLong();
+  }
+
+  /**
+   * Admits a request if fewer than the maximum number of requests are waiting
+   * for a worker. Every admitted request must eventually be passed to
+   * {@link #run(Runnable)}.
+   * 
+   * @return {@code true} if the request was admitted, {@code false} if it must
+   *         be rejected
+   */
+  boolean admit() {
+    if (queuedRequests.incrementAndGet() > maximumQueuedRequests + getWorkerCount()
+        - activeRequests.get()) {
+      queuedRequests.decrementAndGet();
+      rejectedRequests.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Runs an admitted request on the calling worker thread and records its
+   * latency.
+   */
+  void run(Runnable request) {
+    queuedRequests.decrementAndGet();
+    activeRequests.incrementAndGet();
+    long startTime = System.nanoTime();
+    try {
+      request.run();
+    } finally {
+      long handlerNanos = System.nanoTime() - startTime;
+      activeRequests.decrementAndGet();
+      completedRequests.incrementAndGet();
+      totalHandlerNanos.addAndGet(handlerNanos);
+      long maximum = maximumHandlerNanos.get();
+      while (handlerNanos > maximum && !maximumHandlerNanos.compareAndSet(maximum, handlerNanos)) {
+        maximum = maximumHandlerNanos.get();
+      }
+    }
+  }
+
+  /**
+   * Executes a task on a worker thread.
+   */
+  void execute(Runnable task) {
+    threadPoolExecutor.execute(task);
+  }
+
+  /**
+   * @param workerCount
+   *          the maximum number of requests processed concurrently
+   */
+  public void setWorkerCount(int workerCount) {
+    Preconditions.checkArgument(workerCount > 0);
+    synchronized (threadPoolExecutor) {
+      if (workerCount > threadPoolExecutor.getMaximumPoolSize()) {
+        threadPoolExecutor.setMaximumPoolSize(workerCount);
+        threadPoolExecutor.setCorePoolSize(workerCount);
+      } else {
+        threadPoolExecutor.setCorePoolSize(workerCount);
+        threadPoolExecutor.setMaximumPoolSize(workerCount);
+      }
+    }
+  }
+
+  /**
+   * @return the maximum number of requests processed concurrently
+   */
+  public int getWorkerCount() {
+    return threadPoolExecutor.getMaximumPoolSize();
+  }
+
+  /**
+   * @param maximumQueuedRequests
+   *          the maximum number of admitted requests waiting for a worker
+   */
+  public void setMaximumQueuedRequests(int maximumQueuedRequests) {
+    Preconditions.checkArgument(maximumQueuedRequests >= 0);
+    this.maximumQueuedRequests = maximumQueuedRequests;
+  }
+
+  /**
+   * @return the maximum number of admitted requests waiting for a worker
+   */
+  public int getMaximumQueuedRequests() {
+    return maximumQueuedRequests;
+  }
+
+  /**
+   * @return the number of admitted requests that have not yet started
+   */
+  public int getQueuedRequestCount() {
+    return queuedRequests.get();
+  }
+
+  /**
+   * @return the number of requests currently being processed
+   */
+  public int getActiveRequestCount() {
+    return activeRequests.get();
+  }
+
+  /**
+   * @return the number of requests rejected because the service was
+   *         overloaded
+   */
+  public long getRejectedRequestCount() {
+    return rejectedRequests.get();
+  }
+
+  /**
+   * @return the number of requests that have been processed
+   */
+  public long getCompletedRequestCount() {
+    return completedRequests.get();
+  }
+
+  /**
+   * @return the average time spent processing a request in nanoseconds
+   */
+  public long getAverageHandlerNanos() {
+    long completed = completedRequests.get();
+    return completed == 0 ? 0 : totalHandlerNanos.get() / completed;
+  }
+
+  /**
+   * @return the longest time spent processing a request in nanoseconds
+   */
+  public long getMaximumHandlerNanos() {
+    return maximumHandlerNanos.get();
+  }
+}
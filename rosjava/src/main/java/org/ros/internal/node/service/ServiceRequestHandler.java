@@ -16,6 +16,8 @@
 
 package org.ros.internal.node.service;
 
+import com.google.common.collect.Lists;
+
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -29,30 +31,96 @@ import org.ros.node.service.ServiceResponseBuilder;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
 
 /**
+ * Handles the requests of a single service connection.
+ * 
+ * <p>
+ * Requests are processed one at a time and in the order they arrive so that
+ * clients may pipeline requests and match responses by order. Requests that
+ * the {@link ServiceRequestExecutor} does not admit are answered with an error
+ * right away, without being decoded.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 class ServiceRequestHandler<T, S> extends SimpleChannelHandler {
 
+  private static final String OVERLOADED_MESSAGE = "Service overloaded.";
+
   private final ServiceDeclaration serviceDeclaration;
   private final ServiceResponseBuilder<T, S> responseBuilder;
   private final MessageDeserializer<T> deserializer;
   private final MessageSerializer<S> serializer;
   private final MessageFactory messageFactory;
-  private final ExecutorService executorService;
+  private final ServiceRequestExecutor requestExecutor;
+  private final Queue<Runnable> requests;
+
+  /**
+   * {@code true} while a request of this connection is being processed.
+   */
+  private boolean processing;
 
   public ServiceRequestHandler(ServiceDeclaration serviceDeclaration,
       ServiceResponseBuilder<T, S> responseBuilder, MessageDeserializer<T> deserializer,
       MessageSerializer<S> serializer, MessageFactory messageFactory,
-      ExecutorService executorService) {
+      ServiceRequestExecutor requestExecutor) {
     this.serviceDeclaration = serviceDeclaration;
     this.deserializer = deserializer;
     this.serializer = serializer;
     this.responseBuilder = responseBuilder;
     this.messageFactory = messageFactory;
-    this.executorService = executorService;
+    this.requestExecutor = requestExecutor;
+    requests = Lists.newLinkedList();
+    processing = false;
+  }
+
+  private void process(Runnable request) {
+    synchronized (requests) {
+      requests.add(request);
+      if (processing) {
+        return;
+      }
+      processing = true;
+    }
+    requestExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        while (true) {
+          Runnable nextRequest;
+          synchronized (requests) {
+            nextRequest = requests.poll();
+            if (nextRequest == null) {
+              processing = false;
+              return;
+            }
+          }
+          nextRequest.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Answers a request that was not admitted with an error. The error is
+   * written immediately unless responses to earlier requests of this
+   * connection are still pending, in which case it is written right after
+   * them.
+   */
+  private void reject(final ChannelHandlerContext ctx) {
+    Runnable rejection = new Runnable() {
+      @Override
+      public void run() {
+        handleError(ctx, new ServiceServerResponse(), OVERLOADED_MESSAGE);
+      }
+    };
+    synchronized (requests) {
+      if (processing) {
+        requests.add(rejection);
+        return;
+      }
+    }
+    rejection.run();
   }
 
   private ByteBuffer handleRequest(ByteBuffer buffer) throws ServiceException {
@@ -81,11 +149,15 @@ class ServiceRequestHandler<T, S> extends SimpleChannelHandler {
 
   @Override
   public void messageReceived(final ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-    // Although the ChannelHandlerContext is explicitly documented as being safe
-    // to keep for later use, the MessageEvent is not. So, we make a defensive
-    // copy of the ChannelBuffer.
-    final ChannelBuffer requestBuffer = ((ChannelBuffer) e.getMessage()).copy();
-    executorService.execute(new Runnable() {
+    if (!requestExecutor.admit()) {
+      reject(ctx);
+      super.messageReceived(ctx, e);
+      return;
+    }
+    // The frame decoder allocates a new buffer for every frame, so it is safe
+    // to decode the request from it later without making a copy.
+    final ChannelBuffer requestBuffer = (ChannelBuffer) e.getMessage();
+    final Runnable request = new Runnable() {
       @Override
       public void run() {
         ServiceServerResponse response = new ServiceServerResponse();
@@ -96,9 +168,20 @@ class ServiceRequestHandler<T, S> extends SimpleChannelHandler {
         } catch (ServiceException ex) {
           handleError(ctx, response, ex.getMessage());
           return;
+        } catch (RuntimeException ex) {
+          // Every request must be answered or pipelined responses would be
+          // matched to the wrong requests.
+          handleError(ctx, response, "Service failed: " + ex);
+          return;
         }
         handleSuccess(ctx, response, responseBuffer);
       }
+    };
+    process(new Runnable() {
+      @Override
+      public void run() {
+        requestExecutor.run(request);
+      }
     });
     super.messageReceived(ctx, e);
   }
@@ -19,6 +19,7 @@ package org.ros.internal.node.service;
 import com.google.common.base.Preconditions;
 
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.ros.exception.RemoteException;
@@ -29,6 +30,7 @@ import org.ros.node.service.ServiceResponseListener;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -68,4 +70,31 @@ class ServiceResponseHandler<ResponseType> extends SimpleChannelHandler {
     });
     super.messageReceived(ctx, e);
   }
+
+  /**
+   * Fails all requests that were sent over the closed connection since their
+   * responses will never arrive.
+   */
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    final RemoteException exception =
+        new RemoteException(StatusCode.ERROR, "Service connection closed.");
+    ServiceResponseListener<ResponseType> listener;
+    while ((listener = responseListeners.poll()) != null) {
+      final ServiceResponseListener<ResponseType> pendingListener = listener;
+      Runnable runnable = new Runnable() {
+        @Override
+        public void run() {
+          pendingListener.onFailure(exception);
+        }
+      };
+      try {
+        executorService.execute(runnable);
+      } catch (RejectedExecutionException ex) {
+        // The node is shutting down.
+        runnable.run();
+      }
+    }
+    super.channelClosed(ctx, e);
+  }
 }
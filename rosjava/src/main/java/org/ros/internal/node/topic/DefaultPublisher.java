@@ -24,12 +24,18 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
 import org.ros.concurrent.ListenerCollection;
 import org.ros.concurrent.ListenerCollection.SignalRunnable;
 import org.ros.internal.node.server.NodeIdentifier;
 import org.ros.internal.transport.ConnectionHeader;
 import org.ros.internal.transport.ConnectionHeaderFields;
+import org.ros.internal.transport.ConnectionStatistics;
+import org.ros.internal.transport.IncomingMessageQueue;
+import org.ros.internal.transport.MessageBufferPool;
 import org.ros.internal.transport.OutgoingMessageQueue;
+import org.ros.internal.transport.ProtocolNames;
+import org.ros.internal.transport.udp.UdpRosConnection;
 import org.ros.message.MessageFactory;
 import org.ros.message.MessageSerializer;
 import org.ros.node.topic.DefaultPublisherListener;
@@ -37,9 +43,12 @@ import org.ros.node.topic.Publisher;
 import org.ros.node.topic.PublisherListener;
 import org.ros.node.topic.Subscriber;
 
+import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default implementation of a {@link Publisher}.
@@ -66,14 +75,24 @@ public class DefaultPublisher<T> extends DefaultTopicParticipant implements Publ
   private final ListenerCollection<PublisherListener<T>> listeners;
   private final NodeIdentifier nodeIdentifier;
   private final MessageFactory messageFactory;
+  private final DatagramChannelFactory datagramChannelFactory;
+
+  /**
+   * The ID of the next UDPROS connection.
+   */
+  private final AtomicInteger nextConnectionId;
 
   public DefaultPublisher(NodeIdentifier nodeIdentifier, TopicDeclaration topicDeclaration,
       MessageSerializer<T> serializer, MessageFactory messageFactory,
-      ScheduledExecutorService executorService) {
+      ScheduledExecutorService executorService, DatagramChannelFactory datagramChannelFactory,
+      MessageBufferPool messageBufferPool) {
     super(topicDeclaration);
     this.nodeIdentifier = nodeIdentifier;
     this.messageFactory = messageFactory;
-    outgoingMessageQueue = new OutgoingMessageQueue<T>(serializer, executorService);
+    this.datagramChannelFactory = datagramChannelFactory;
+    nextConnectionId = new AtomicInteger();
+    outgoingMessageQueue =
+        new OutgoingMessageQueue<T>(serializer, executorService, messageBufferPool);
     listeners = new ListenerCollection<PublisherListener<T>>(executorService);
     listeners.add(new DefaultPublisherListener<T>() {
       @Override
@@ -129,12 +148,14 @@ public class DefaultPublisher<T> extends DefaultTopicParticipant implements Publ
 
   @Override
   public boolean hasSubscribers() {
-    return outgoingMessageQueue.getNumberOfChannels() > 0;
+    return getNumberOfSubscribers() > 0;
   }
 
   @Override
   public int getNumberOfSubscribers() {
-    return outgoingMessageQueue.getNumberOfChannels();
+    return outgoingMessageQueue.getNumberOfChannels()
+        + outgoingMessageQueue.getNumberOfIntraProcessQueues()
+        + outgoingMessageQueue.getNumberOfUdpRosConnections();
   }
 
   @Override
@@ -198,8 +219,91 @@ public class DefaultPublisher<T> extends DefaultTopicParticipant implements Publ
     if (DEBUG) {
       log.info("Adding subscriber: " + subscriberIdentifer);
     }
-    outgoingMessageQueue.addChannel(channel);
+    outgoingMessageQueue.addChannel(channel, newConnectionStatistics(subscriberIdentifer,
+        ProtocolNames.TCPROS));
+    signalOnNewSubscriber(subscriberIdentifer);
+  }
+
+  /**
+   * Add a {@link Subscriber} that receives messages over UDPROS to this
+   * {@link Publisher}. The handshake must already have been completed with
+   * {@link #finishHandshake(Map)}.
+   * 
+   * @param subscriberIdentifer
+   *          the {@link SubscriberIdentifier} of the new subscriber
+   * @param address
+   *          the address the {@link Subscriber} receives datagrams on
+   * @param maximumDatagramSize
+   *          the maximum datagram size the {@link Subscriber} accepts
+   * @return the ID of the new connection
+   */
+  public int addUdpRosSubscriber(SubscriberIdentifier subscriberIdentifer,
+      InetSocketAddress address, int maximumDatagramSize) {
+    if (DEBUG) {
+      log.info("Adding UDPROS subscriber: " + subscriberIdentifer);
+    }
+    int connectionId = nextConnectionId.getAndIncrement();
+    outgoingMessageQueue.addUdpRosConnection(UdpRosConnection.newConnected(
+        datagramChannelFactory, address, connectionId, maximumDatagramSize),
+        newConnectionStatistics(subscriberIdentifer, ProtocolNames.UDPROS));
     signalOnNewSubscriber(subscriberIdentifer);
+    return connectionId;
+  }
+
+  /**
+   * Add a {@link Subscriber} in this process to this {@link Publisher}.
+   * Published messages are handed to the {@link Subscriber}'s
+   * {@link IncomingMessageQueue} without being serialized.
+   * 
+   * @param subscriberIdentifer
+   *          the {@link SubscriberIdentifier} of the new subscriber
+   * @param incomingMessageQueue
+   *          the {@link IncomingMessageQueue} of the {@link Subscriber}
+   * @param incomingStatistics
+   *          the {@link Subscriber}'s {@link ConnectionStatistics} for the
+   *          connection
+   */
+  public void addIntraProcessSubscriber(SubscriberIdentifier subscriberIdentifer,
+      IncomingMessageQueue<T> incomingMessageQueue, ConnectionStatistics incomingStatistics) {
+    if (DEBUG) {
+      log.info("Adding intra-process subscriber: " + subscriberIdentifer);
+    }
+    incomingMessageQueue.setLatchMode(getLatchMode());
+    outgoingMessageQueue.addIntraProcessQueue(incomingMessageQueue,
+        newConnectionStatistics(subscriberIdentifer, ProtocolNames.INTRAPROCESS),
+        incomingStatistics);
+    signalOnNewSubscriber(subscriberIdentifer);
+  }
+
+  /**
+   * Remove a {@link Subscriber} in this process from this {@link Publisher}.
+   * 
+   * @param incomingMessageQueue
+   *          the {@link IncomingMessageQueue} of the {@link Subscriber}
+   */
+  public void removeIntraProcessSubscriber(IncomingMessageQueue<T> incomingMessageQueue) {
+    outgoingMessageQueue.removeIntraProcessQueue(incomingMessageQueue);
+  }
+
+  private ConnectionStatistics newConnectionStatistics(SubscriberIdentifier subscriberIdentifier,
+      String transport) {
+    return new ConnectionStatistics(subscriberIdentifier.getNodeIdentifier().getName().toString(),
+        ConnectionStatistics.Direction.OUT, transport);
+  }
+
+  @Override
+  public int getQueueSize() {
+    return outgoingMessageQueue.getSize();
+  }
+
+  @Override
+  public long getDroppedMessageCount() {
+    return outgoingMessageQueue.getDroppedCount();
+  }
+
+  @Override
+  public List<ConnectionStatistics> getConnectionStatistics() {
+    return outgoingMessageQueue.getConnectionStatistics();
   }
 
   @Override
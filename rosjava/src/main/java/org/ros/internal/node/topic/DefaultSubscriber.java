@@ -17,26 +17,47 @@
 package org.ros.internal.node.topic;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
 import org.ros.concurrent.ListenerCollection;
 import org.ros.concurrent.ListenerCollection.SignalRunnable;
 import org.ros.internal.node.server.NodeIdentifier;
+import org.ros.internal.transport.ConnectionHeader;
+import org.ros.internal.transport.ConnectionHeaderFields;
+import org.ros.internal.transport.ConnectionStatistics;
 import org.ros.internal.transport.IncomingMessageQueue;
 import org.ros.internal.transport.ProtocolNames;
+import org.ros.internal.transport.tcp.DefaultTcpClientConnectionListener;
+import org.ros.internal.transport.tcp.TcpClientConnection;
+import org.ros.internal.transport.tcp.TcpClientConnectionListener;
 import org.ros.internal.transport.tcp.TcpClientConnectionManager;
+import org.ros.internal.transport.udp.UdpRosProtocolDescription;
+import org.ros.internal.transport.udp.UdpRosReceiver;
+import org.ros.internal.transport.udp.UdpRosTopicRequest;
 import org.ros.message.MessageDeserializer;
 import org.ros.message.MessageListener;
 import org.ros.node.topic.DefaultSubscriberListener;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 import org.ros.node.topic.SubscriberListener;
+import org.ros.node.topic.TransportHints;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteOrder;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -63,25 +84,83 @@ public class DefaultSubscriber<T> extends DefaultTopicParticipant implements Sub
   private final Set<PublisherIdentifier> knownPublishers;
   private final TcpClientConnectionManager tcpClientConnectionManager;
 
+  /**
+   * The {@link Publisher}s that each TCPROS connection is connected to.
+   */
+  private final Map<TcpClientConnection, PublisherIdentifier> tcpClientConnections;
+
+  /**
+   * {@link Publisher}s in this process that hand messages directly to the
+   * {@link IncomingMessageQueue}.
+   */
+  private final Set<DefaultPublisher<T>> intraProcessPublishers;
+
+  /**
+   * The {@link ConnectionStatistics} of the TCPROS and intra-process
+   * connection to each {@link Publisher}.
+   */
+  private final Map<PublisherIdentifier, ConnectionStatistics> connectionStatistics;
+
+  private final DatagramChannelFactory datagramChannelFactory;
+  private final TransportHints transportHints;
+
+  /**
+   * Receives UDPROS datagrams for this {@link Subscriber}. Started the first
+   * time UDPROS is requested from a {@link Publisher}.
+   */
+  private UdpRosReceiver udpRosReceiver;
+
+  /**
+   * Datagrams from all UDPROS {@link Publisher}s arrive on the same socket and
+   * are recorded together.
+   */
+  private volatile ConnectionStatistics udpRosConnectionStatistics;
+
   /**
    * Manages the {@link SubscriberListener}s for this {@link Subscriber}.
    */
   private final ListenerCollection<SubscriberListener<T>> subscriberListeners;
 
+  /**
+   * @param channelFactory
+   *          the {@link ChannelFactory} shared by all outgoing connections of
+   *          the node
+   * @param datagramChannelFactory
+   *          the {@link DatagramChannelFactory} shared by all UDPROS sockets of
+   *          the node
+   * @param transportHints
+   *          the {@link TransportHints} used when connecting to
+   *          {@link Publisher}s
+   */
   public static <S> DefaultSubscriber<S> newDefault(NodeIdentifier nodeIdentifier,
       TopicDeclaration description, ScheduledExecutorService executorService,
-      MessageDeserializer<S> deserializer) {
-    return new DefaultSubscriber<S>(nodeIdentifier, description, deserializer, executorService);
+      ChannelFactory channelFactory, DatagramChannelFactory datagramChannelFactory,
+      TransportHints transportHints, MessageDeserializer<S> deserializer) {
+    return new DefaultSubscriber<S>(nodeIdentifier, description, deserializer, executorService,
+        channelFactory, datagramChannelFactory, transportHints);
   }
 
   private DefaultSubscriber(NodeIdentifier nodeIdentifier, TopicDeclaration topicDeclaration,
-      MessageDeserializer<T> deserializer, ScheduledExecutorService executorService) {
+      MessageDeserializer<T> deserializer, ScheduledExecutorService executorService,
+      ChannelFactory channelFactory, DatagramChannelFactory datagramChannelFactory,
+      TransportHints transportHints) {
     super(topicDeclaration);
     this.nodeIdentifier = nodeIdentifier;
     this.executorService = executorService;
+    this.datagramChannelFactory = datagramChannelFactory;
+    this.transportHints = transportHints;
     incomingMessageQueue = new IncomingMessageQueue<T>(deserializer, executorService);
     knownPublishers = Sets.newHashSet();
-    tcpClientConnectionManager = new TcpClientConnectionManager(executorService);
+    tcpClientConnectionManager = new TcpClientConnectionManager(channelFactory, executorService);
+    tcpClientConnections = Maps.newHashMap();
+    tcpClientConnectionManager.addListener(new DefaultTcpClientConnectionListener() {
+      @Override
+      public void onDefunct(TcpClientConnection tcpClientConnection, Throwable cause) {
+        removeDefunctPublisher(tcpClientConnection);
+      }
+    });
+    intraProcessPublishers = Sets.newHashSet();
+    connectionStatistics = new ConcurrentHashMap<PublisherIdentifier, ConnectionStatistics>();
     subscriberListeners = new ListenerCollection<SubscriberListener<T>>(executorService);
     subscriberListeners.add(new DefaultSubscriberListener<T>() {
       @Override
@@ -136,19 +215,165 @@ public class DefaultSubscriber<T> extends DefaultTopicParticipant implements Sub
   @VisibleForTesting
   public synchronized void addPublisher(PublisherIdentifier publisherIdentifier,
       InetSocketAddress address) {
-    // TODO(damonkohler): If the connection is dropped, knownPublishers should
-    // be updated.
     if (knownPublishers.contains(publisherIdentifier)) {
       return;
     }
-    tcpClientConnectionManager.connect(toString(), address, new SubscriberHandshakeHandler<T>(
-        toDefinition().toConnectionHeader(), incomingMessageQueue), "SubscriberHandshakeHandler");
+    ConnectionStatistics statistics =
+        newConnectionStatistics(publisherIdentifier, ProtocolNames.TCPROS);
+    TcpClientConnection tcpClientConnection =
+        tcpClientConnectionManager.connect(toString(), address, new SubscriberHandshakeHandler<T>(
+            toDefinition().toConnectionHeader(), incomingMessageQueue, statistics),
+            "SubscriberHandshakeHandler");
+    tcpClientConnections.put(tcpClientConnection, publisherIdentifier);
+    connectionStatistics.put(publisherIdentifier, statistics);
     // TODO(damonkohler): knownPublishers is duplicate information that is
     // already available to the TopicParticipantManager.
     knownPublishers.add(publisherIdentifier);
     signalOnNewPublisher(publisherIdentifier);
   }
 
+  /**
+   * Forgets a {@link Publisher} that could not be reconnected to so that it
+   * will be connected to again if the master announces it in a later update.
+   */
+  private synchronized void removeDefunctPublisher(TcpClientConnection tcpClientConnection) {
+    PublisherIdentifier publisherIdentifier = tcpClientConnections.remove(tcpClientConnection);
+    if (publisherIdentifier != null) {
+      knownPublishers.remove(publisherIdentifier);
+      connectionStatistics.remove(publisherIdentifier);
+    }
+  }
+
+  /**
+   * @param listener
+   *          the {@link TcpClientConnectionListener} to notify when a TCPROS
+   *          connection to a {@link Publisher} is lost, reconnected or given
+   *          up on
+   */
+  public void addTcpClientConnectionListener(TcpClientConnectionListener listener) {
+    tcpClientConnectionManager.addListener(listener);
+  }
+
+  /**
+   * @param listener
+   *          the {@link TcpClientConnectionListener} to remove
+   */
+  public void removeTcpClientConnectionListener(TcpClientConnectionListener listener) {
+    tcpClientConnectionManager.removeListener(listener);
+  }
+
+  /**
+   * @return the {@link TransportHints} used when connecting to
+   *         {@link Publisher}s
+   */
+  public TransportHints getTransportHints() {
+    return transportHints;
+  }
+
+  /**
+   * Starts receiving UDPROS datagrams if necessary.
+   * 
+   * @return the parameters to offer UDPROS with in a topic request
+   */
+  public synchronized UdpRosTopicRequest newUdpRosTopicRequest() {
+    if (udpRosReceiver == null) {
+      udpRosConnectionStatistics =
+          new ConnectionStatistics("*", ConnectionStatistics.Direction.IN, ProtocolNames.UDPROS);
+      udpRosReceiver =
+          new UdpRosReceiver(datagramChannelFactory, transportHints.getMaximumDatagramSize(),
+              incomingMessageQueue.newChannelHandler(udpRosConnectionStatistics));
+      // Datagrams are received on the host this node advertises.
+      udpRosReceiver.start(new InetSocketAddress(nodeIdentifier.getUri().getHost(), 0));
+    }
+    ChannelBuffer header = ConnectionHeader.encode(toDefinition().toConnectionHeader());
+    byte[] headerBytes = new byte[header.readableBytes()];
+    header.readBytes(headerBytes);
+    return new UdpRosTopicRequest(headerBytes, nodeIdentifier.getUri().getHost(), udpRosReceiver
+        .getAddress().getPort(), udpRosReceiver.getMaximumDatagramSize());
+  }
+
+  /**
+   * Accepts a {@link Publisher} that agreed to send messages over UDPROS in
+   * response to {@link #newUdpRosTopicRequest()}.
+   * 
+   * @param publisherIdentifier
+   *          the {@link PublisherIdentifier} of the {@link Publisher}
+   * @param protocolDescription
+   *          the {@link Publisher}'s response to the topic request
+   */
+  public synchronized void addUdpRosPublisher(PublisherIdentifier publisherIdentifier,
+      UdpRosProtocolDescription protocolDescription) {
+    if (knownPublishers.contains(publisherIdentifier)) {
+      return;
+    }
+    Map<String, String> header =
+        ConnectionHeader.decode(ChannelBuffers.wrappedBuffer(ByteOrder.LITTLE_ENDIAN,
+            protocolDescription.getHeader()));
+    if ("1".equals(header.get(ConnectionHeaderFields.LATCHING))) {
+      incomingMessageQueue.setLatchMode(true);
+    }
+    knownPublishers.add(publisherIdentifier);
+    signalOnNewPublisher(publisherIdentifier);
+  }
+
+  /**
+   * Connects to a {@link Publisher} that lives in this process. Messages are
+   * handed over by reference and bypass serialization entirely.
+   * 
+   * @param publisherIdentifier
+   *          the {@link PublisherIdentifier} of the {@link Publisher}
+   * @param publisher
+   *          the {@link Publisher} to connect to
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized void addIntraProcessPublisher(PublisherIdentifier publisherIdentifier,
+      DefaultPublisher<?> publisher) {
+    if (knownPublishers.contains(publisherIdentifier)) {
+      return;
+    }
+    String incomingType = publisher.getTopicMessageType();
+    String expectedType = getTopicMessageType();
+    Preconditions.checkState(
+        incomingType.equals(expectedType) || expectedType.equals(TOPIC_MESSAGE_TYPE_WILDCARD),
+        "Unexpected message type " + incomingType + " != " + expectedType);
+    DefaultPublisher<T> intraProcessPublisher = (DefaultPublisher<T>) publisher;
+    ConnectionStatistics statistics =
+        newConnectionStatistics(publisherIdentifier, ProtocolNames.INTRAPROCESS);
+    intraProcessPublisher.addIntraProcessSubscriber(toIdentifier(), incomingMessageQueue,
+        statistics);
+    connectionStatistics.put(publisherIdentifier, statistics);
+    intraProcessPublishers.add(intraProcessPublisher);
+    knownPublishers.add(publisherIdentifier);
+    signalOnNewPublisher(publisherIdentifier);
+  }
+
+  private ConnectionStatistics newConnectionStatistics(PublisherIdentifier publisherIdentifier,
+      String transport) {
+    // Publishers are only known by the URIs of their nodes.
+    return new ConnectionStatistics(publisherIdentifier.getNodeIdentifier().getUri().toString(),
+        ConnectionStatistics.Direction.IN, transport);
+  }
+
+  @Override
+  public int getQueueSize() {
+    return incomingMessageQueue.getSize();
+  }
+
+  @Override
+  public long getDroppedMessageCount() {
+    return incomingMessageQueue.getDroppedCount();
+  }
+
+  @Override
+  public List<ConnectionStatistics> getConnectionStatistics() {
+    List<ConnectionStatistics> statistics = Lists.newArrayList(connectionStatistics.values());
+    ConnectionStatistics udpRosStatistics = udpRosConnectionStatistics;
+    if (udpRosStatistics != null) {
+      statistics.add(udpRosStatistics);
+    }
+    return statistics;
+  }
+
   /**
    * Updates the list of {@link Publisher}s for the topic that this
    * {@link Subscriber} is interested in.
@@ -160,13 +385,24 @@ public class DefaultSubscriber<T> extends DefaultTopicParticipant implements Sub
   public void updatePublishers(Collection<PublisherIdentifier> publisherIdentifiers) {
     for (final PublisherIdentifier publisherIdentifier : publisherIdentifiers) {
       executorService.execute(new UpdatePublisherRunnable<T>(this, this.nodeIdentifier,
-          publisherIdentifier));
+          publisherIdentifier, executorService));
     }
   }
 
   @Override
   public void shutdown(long timeout, TimeUnit unit) {
     signalOnShutdown(timeout, unit);
+    synchronized (this) {
+      for (DefaultPublisher<T> publisher : intraProcessPublishers) {
+        publisher.removeIntraProcessSubscriber(incomingMessageQueue);
+      }
+      intraProcessPublishers.clear();
+    }
+    synchronized (this) {
+      if (udpRosReceiver != null) {
+        udpRosReceiver.shutdown();
+      }
+    }
     incomingMessageQueue.shutdown();
     tcpClientConnectionManager.shutdown();
   }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.topic;
+
+import com.google.common.collect.Maps;
+
+import org.ros.internal.node.server.NodeIdentifier;
+import org.ros.node.topic.Publisher;
+import org.ros.node.topic.Subscriber;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A JVM wide registry of {@link Publisher}s.
+ * <p>
+ * Each node has its own {@link TopicParticipantManager}, so a
+ * {@link Subscriber} can only discover a {@link Publisher} that lives in the
+ * same process (e.g. a node started by the same
+ * {@link org.ros.node.NodeMainExecutor}) by looking it up here.
+ */
+final class IntraProcessPublishers {
+
+  /**
+   * A mapping from {@link PublisherIdentifier} to {@link Publisher} for all
+   * {@link Publisher}s in this process. Keys only contain the node URI since
+   * that is all the master tells {@link Subscriber}s about.
+   */
+  private static final ConcurrentMap<PublisherIdentifier, DefaultPublisher<?>> publishers =
+      Maps.newConcurrentMap();
+
+  private IntraProcessPublishers() {
+    // Utility class.
+  }
+
+  public static void add(DefaultPublisher<?> publisher) {
+    publishers.put(newKey(publisher.getIdentifier()), publisher);
+  }
+
+  public static void remove(DefaultPublisher<?> publisher) {
+    publishers.remove(newKey(publisher.getIdentifier()), publisher);
+  }
+
+  /**
+   * @param publisherIdentifier
+   *          the {@link PublisherIdentifier} advertised by the master
+   * @return the {@link Publisher} in this process identified by
+   *         {@code publisherIdentifier} or {@code null} if the
+   *         {@link Publisher} lives in another process
+   */
+  public static DefaultPublisher<?> get(PublisherIdentifier publisherIdentifier) {
+    return publishers.get(newKey(publisherIdentifier));
+  }
+
+  private static PublisherIdentifier newKey(PublisherIdentifier publisherIdentifier) {
+    return new PublisherIdentifier(new NodeIdentifier(null, publisherIdentifier.getNodeUri()),
+        publisherIdentifier.getTopicIdentifier());
+  }
+}
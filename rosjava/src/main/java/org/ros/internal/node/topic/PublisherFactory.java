@@ -16,7 +16,9 @@
 
 package org.ros.internal.node.topic;
 
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
 import org.ros.internal.node.server.NodeIdentifier;
+import org.ros.internal.transport.MessageBufferPool;
 import org.ros.message.MessageFactory;
 import org.ros.message.MessageSerializer;
 import org.ros.namespace.GraphName;
@@ -36,14 +38,27 @@ public class PublisherFactory {
   private final MessageFactory messageFactory;
   private final ScheduledExecutorService executorService;
   private final NodeIdentifier nodeIdentifier;
+  private final DatagramChannelFactory datagramChannelFactory;
+  private final MessageBufferPool messageBufferPool;
 
+  /**
+   * @param datagramChannelFactory
+   *          the {@link DatagramChannelFactory} that all {@link Publisher}s
+   *          created by this factory open UDPROS connections with
+   * @param messageBufferPool
+   *          the {@link MessageBufferPool} that all {@link Publisher}s created
+   *          by this factory serialize messages into
+   */
   public PublisherFactory(NodeIdentifier nodeIdentifier,
       TopicParticipantManager topicParticipantManager, MessageFactory messageFactory,
-      ScheduledExecutorService executorService) {
+      ScheduledExecutorService executorService, DatagramChannelFactory datagramChannelFactory,
+      MessageBufferPool messageBufferPool) {
     this.nodeIdentifier = nodeIdentifier;
     this.topicParticipantManager = topicParticipantManager;
     this.messageFactory = messageFactory;
     this.executorService = executorService;
+    this.datagramChannelFactory = datagramChannelFactory;
+    this.messageBufferPool = messageBufferPool;
   }
 
   /**
@@ -70,7 +85,7 @@ public class PublisherFactory {
       } else {
         DefaultPublisher<T> publisher =
             new DefaultPublisher<T>(nodeIdentifier, topicDeclaration, messageSerializer,
-                messageFactory, executorService);
+                messageFactory, executorService, datagramChannelFactory, messageBufferPool);
         publisher.addListener(new DefaultPublisherListener<T>() {
           @Override
           public void onNewSubscriber(Publisher<T> publisher,
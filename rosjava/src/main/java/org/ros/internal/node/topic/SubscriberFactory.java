@@ -16,11 +16,14 @@
 
 package org.ros.internal.node.topic;
 
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
 import org.ros.internal.node.server.NodeIdentifier;
 import org.ros.message.MessageDeserializer;
 import org.ros.namespace.GraphName;
 import org.ros.node.topic.DefaultSubscriberListener;
 import org.ros.node.topic.Subscriber;
+import org.ros.node.topic.TransportHints;
 
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -34,12 +37,25 @@ public class SubscriberFactory {
   private final NodeIdentifier nodeIdentifier;
   private final TopicParticipantManager topicParticipantManager;
   private final ScheduledExecutorService executorService;
+  private final ChannelFactory channelFactory;
+  private final DatagramChannelFactory datagramChannelFactory;
 
+  /**
+   * @param channelFactory
+   *          the {@link ChannelFactory} that all {@link Subscriber}s created by
+   *          this factory connect to their publishers with
+   * @param datagramChannelFactory
+   *          the {@link DatagramChannelFactory} that {@link Subscriber}s
+   *          created by this factory receive UDPROS datagrams with
+   */
   public SubscriberFactory(NodeIdentifier nodeIdentifier,
-      TopicParticipantManager topicParticipantManager, ScheduledExecutorService executorService) {
+      TopicParticipantManager topicParticipantManager, ScheduledExecutorService executorService,
+      ChannelFactory channelFactory, DatagramChannelFactory datagramChannelFactory) {
     this.nodeIdentifier = nodeIdentifier;
     this.topicParticipantManager = topicParticipantManager;
     this.executorService = executorService;
+    this.channelFactory = channelFactory;
+    this.datagramChannelFactory = datagramChannelFactory;
   }
 
   /**
@@ -53,11 +69,13 @@ public class SubscriberFactory {
    *          {@link TopicDeclaration} that is subscribed to
    * @param messageDeserializer
    *          the {@link MessageDeserializer} to use for incoming messages
+   * @param transportHints
+   *          the {@link TransportHints} for a new {@link Subscriber}
    * @return a new or cached {@link Subscriber} instance
    */
   @SuppressWarnings("unchecked")
   public <T> Subscriber<T> newOrExisting(TopicDeclaration topicDeclaration,
-      MessageDeserializer<T> messageDeserializer) {
+      MessageDeserializer<T> messageDeserializer, TransportHints transportHints) {
     GraphName topicName = topicDeclaration.getName();
 
     synchronized (topicParticipantManager) {
@@ -66,7 +84,7 @@ public class SubscriberFactory {
       } else {
         DefaultSubscriber<T> subscriber =
             DefaultSubscriber.newDefault(nodeIdentifier, topicDeclaration, executorService,
-                messageDeserializer);
+                channelFactory, datagramChannelFactory, transportHints, messageDeserializer);
         subscriber.addSubscriberListener(new DefaultSubscriberListener<T>() {
           @Override
           public void onNewPublisher(Subscriber<T> subscriber,
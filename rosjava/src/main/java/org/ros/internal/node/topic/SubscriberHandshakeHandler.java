@@ -26,6 +26,7 @@ import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.ros.internal.transport.ConnectionHeader;
 import org.ros.internal.transport.ConnectionHeaderFields;
+import org.ros.internal.transport.ConnectionStatistics;
 import org.ros.internal.transport.IncomingMessageQueue;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
@@ -47,11 +48,18 @@ class SubscriberHandshakeHandler<T> extends SimpleChannelHandler {
 
   private final IncomingMessageQueue<T> incomingMessageQueue;
   private final SubscriberHandshake subscriberHandshake;
+  private final ConnectionStatistics connectionStatistics;
 
+  /**
+   * @param connectionStatistics
+   *          the {@link ConnectionStatistics} to record messages received from
+   *          the {@link Publisher} in
+   */
   public SubscriberHandshakeHandler(Map<String, String> outgoingHeader,
-      IncomingMessageQueue<T> incomingMessageQueue) {
+      IncomingMessageQueue<T> incomingMessageQueue, ConnectionStatistics connectionStatistics) {
     subscriberHandshake = new SubscriberHandshake(outgoingHeader);
     this.incomingMessageQueue = incomingMessageQueue;
+    this.connectionStatistics = connectionStatistics;
   }
 
   @Override
@@ -67,7 +75,9 @@ class SubscriberHandshakeHandler<T> extends SimpleChannelHandler {
     if (subscriberHandshake.handshake(incomingHeader)) {
       ChannelPipeline pipeline = e.getChannel().getPipeline();
       pipeline.remove(this);
-      pipeline.addLast("MessageHandler", incomingMessageQueue.newChannelHandler());
+      pipeline.addLast("MessageHandler",
+          incomingMessageQueue.newChannelHandler(connectionStatistics));
+      connectionStatistics.setConnected();
       String latching = incomingHeader.get(ConnectionHeaderFields.LATCHING);
       if (latching != null && latching.equals("1")) {
         incomingMessageQueue.setLatchMode(true);
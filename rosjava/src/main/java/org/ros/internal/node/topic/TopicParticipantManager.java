@@ -90,6 +90,7 @@ public class TopicParticipantManager {
 
   public void addPublisher(DefaultPublisher<?> publisher) {
     publishers.put(publisher.getTopicName(), publisher);
+    IntraProcessPublishers.add(publisher);
     if (listener != null) {
       listener.onPublisherAdded(publisher);
     }
@@ -97,6 +98,7 @@ public class TopicParticipantManager {
 
   public void removePublisher(DefaultPublisher<?> publisher) {
     publishers.remove(publisher.getTopicName());
+    IntraProcessPublishers.remove(publisher);
     if (listener != null) {
       listener.onPublisherRemoved(publisher);
     }
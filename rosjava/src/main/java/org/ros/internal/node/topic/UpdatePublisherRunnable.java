@@ -16,6 +16,8 @@
 
 package org.ros.internal.node.topic;
 
+import com.google.common.collect.Lists;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.ros.exception.RemoteException;
@@ -26,9 +28,13 @@ import org.ros.internal.node.server.SlaveServer;
 import org.ros.internal.node.xmlrpc.XmlRpcTimeoutException;
 import org.ros.internal.transport.ProtocolDescription;
 import org.ros.internal.transport.ProtocolNames;
+import org.ros.internal.transport.udp.UdpRosProtocolDescription;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
 /**
  * A {@link Runnable} which is used whenever new publishers are being added to a
  * {@link DefaultSubscriber}. It takes care of registration between the {@link Subscriber}
@@ -43,6 +49,7 @@ class UpdatePublisherRunnable<MessageType> implements Runnable {
   private final DefaultSubscriber<MessageType> subscriber;
   private final PublisherIdentifier publisherIdentifier;
   private final NodeIdentifier nodeIdentifier;
+  private final Executor executor;
 
   /**
    * @param subscriber
@@ -51,25 +58,54 @@ class UpdatePublisherRunnable<MessageType> implements Runnable {
    *          {@link SlaveServer}
    * @param publisherIdentifier
    *          {@link PublisherIdentifier} of the new {@link Publisher}
+   * @param executor
+   *          the {@link Executor} that performs calls to the {@link Publisher}
+   *          's {@link SlaveServer}
    */
   public UpdatePublisherRunnable(DefaultSubscriber<MessageType> subscriber,
-      NodeIdentifier nodeIdentifier, PublisherIdentifier publisherIdentifier) {
+      NodeIdentifier nodeIdentifier, PublisherIdentifier publisherIdentifier, Executor executor) {
     this.subscriber = subscriber;
     this.nodeIdentifier = nodeIdentifier;
     this.publisherIdentifier = publisherIdentifier;
+    this.executor = executor;
   }
 
   @Override
   public void run() {
     SlaveClient slaveClient;
     try {
-      slaveClient = new SlaveClient(nodeIdentifier.getName(), publisherIdentifier.getNodeUri());
-      Response<ProtocolDescription> response =
-          slaveClient.requestTopic(subscriber.getTopicName(), ProtocolNames.SUPPORTED);
+      slaveClient =
+          new SlaveClient(nodeIdentifier.getName(), publisherIdentifier.getNodeUri(), executor);
+      // A publisher in this process is offered the intra-process protocol in
+      // addition to the usual ones.
+      DefaultPublisher<?> intraProcessPublisher = null;
+      if (subscriber.getTransportHints().getAllowIntraProcess()) {
+        intraProcessPublisher = IntraProcessPublishers.get(publisherIdentifier);
+      }
+      Collection<String> protocols = ProtocolNames.SUPPORTED;
+      if (intraProcessPublisher != null) {
+        protocols = Lists.newArrayList(ProtocolNames.INTRAPROCESS);
+        protocols.addAll(ProtocolNames.SUPPORTED);
+      }
+      Response<ProtocolDescription> response;
+      if (intraProcessPublisher == null && subscriber.getTransportHints().getPreferUdp()) {
+        // UDPROS is offered first and falls back to the other protocols if the
+        // publisher does not support it.
+        response =
+            slaveClient.requestTopic(subscriber.getTopicName(),
+                subscriber.newUdpRosTopicRequest(), protocols);
+      } else {
+        response = slaveClient.requestTopic(subscriber.getTopicName(), protocols);
+      }
       // TODO(kwc): all of this logic really belongs in a protocol handler
       // registry.
       ProtocolDescription selected = response.getResult();
-      if (ProtocolNames.SUPPORTED.contains(selected.getName())) {
+      if (intraProcessPublisher != null
+          && selected.getName().equals(ProtocolNames.INTRAPROCESS)) {
+        subscriber.addIntraProcessPublisher(publisherIdentifier, intraProcessPublisher);
+      } else if (selected instanceof UdpRosProtocolDescription) {
+        subscriber.addUdpRosPublisher(publisherIdentifier, (UdpRosProtocolDescription) selected);
+      } else if (ProtocolNames.SUPPORTED.contains(selected.getName())) {
         subscriber.addPublisher(publisherIdentifier, selected.getAddress());
       } else {
         log.error("Publisher returned unsupported protocol selection: " + response);
@@ -44,8 +44,12 @@ public class MasterXmlRpcEndpointImpl implements MasterXmlRpcEndpoint,
   private final ParameterServer parameterServer;
 
   public MasterXmlRpcEndpointImpl(MasterServer master) {
+    this(master, new ParameterServer());
+  }
+
+  public MasterXmlRpcEndpointImpl(MasterServer master, ParameterServer parameterServer) {
     this.master = master;
-    parameterServer = new ParameterServer();
+    this.parameterServer = parameterServer;
   }
 
   @Override
@@ -214,7 +218,11 @@ public class MasterXmlRpcEndpointImpl implements MasterXmlRpcEndpoint,
 
   @Override
   public List<Object> searchParam(String callerId, String key) {
-    throw new UnsupportedOperationException();
+    GraphName name = parameterServer.search(new GraphName(callerId), new GraphName(key));
+    if (name == null) {
+      return Response.newError("Parameter \"" + key + "\" not found.", "").toList();
+    }
+    return Response.newSuccess("Success", name.toString()).toList();
   }
 
   @Override
@@ -231,7 +239,10 @@ public class MasterXmlRpcEndpointImpl implements MasterXmlRpcEndpoint,
 
   @Override
   public List<Object> unsubscribeParam(String callerId, String callerSlaveUri, String key) {
-    throw new UnsupportedOperationException();
+    boolean result =
+        parameterServer.unsubscribe(new GraphName(key),
+            NodeIdentifier.forNameAndUri(callerId, callerSlaveUri));
+    return Response.newSuccess("Success", result ? 1 : 0).toList();
   }
 
   @Override
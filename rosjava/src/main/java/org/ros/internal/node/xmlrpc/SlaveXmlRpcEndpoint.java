@@ -40,9 +40,14 @@ public interface SlaveXmlRpcEndpoint extends XmlRpcEndpoint {
    *         serviceStats: (proposed) [numRequests, bytesReceived, bytesSent] <br>
    * 
    *         pubConnectionData: [connectionId, bytesSent, numSent, connected] <br>
-   *         subConnectionData: [connectionId, bytesReceived, dropEstimate,
-   *         connected] <br>
-   *         dropEstimate: -1 if no estimate.
+   *         subConnectionData: [connectionId, bytesReceived, numReceived,
+   *         dropEstimate, connected] <br>
+   *         dropEstimate: -1 if no estimate. Messages are dropped by the
+   *         queue that all connections of a topic share, so the topic's drops
+   *         are reported on its first connection and the others report 0.
+   *         <p>
+   *         numReceived is not part of the documented API but is included by
+   *         both roscpp and rospy.
    */
   public List<Object> getBusStats(String callerId);
 
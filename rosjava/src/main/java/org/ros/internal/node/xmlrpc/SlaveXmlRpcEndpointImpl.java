@@ -28,6 +28,7 @@ import org.ros.internal.node.server.SlaveServer;
 import org.ros.internal.node.topic.DefaultPublisher;
 import org.ros.internal.node.topic.DefaultSubscriber;
 import org.ros.internal.transport.ProtocolDescription;
+import org.ros.internal.transport.udp.UdpRosTopicRequest;
 import org.ros.namespace.GraphName;
 
 import java.net.URI;
@@ -55,7 +56,8 @@ public class SlaveXmlRpcEndpointImpl implements SlaveXmlRpcEndpoint {
 
   @Override
   public List<Object> getBusStats(String callerId) {
-    return slave.getBusStats(callerId);
+    List<Object> busStats = slave.getBusStats(callerId);
+    return Response.newSuccess("bus stats", busStats).toList();
   }
 
   @Override
@@ -186,12 +188,21 @@ public class SlaveXmlRpcEndpointImpl implements SlaveXmlRpcEndpoint {
   @Override
   public List<Object> requestTopic(String callerId, String topic, Object[] protocols) {
     Set<String> requestedProtocols = Sets.newHashSet();
+    UdpRosTopicRequest udpRosTopicRequest = null;
     for (int i = 0; i < protocols.length; i++) {
-      requestedProtocols.add((String) ((Object[]) protocols[i])[0]);
+      Object[] protocol = (Object[]) protocols[i];
+      requestedProtocols.add((String) protocol[0]);
+      if (udpRosTopicRequest == null) {
+        udpRosTopicRequest = UdpRosTopicRequest.newFromArray(protocol);
+      }
     }
     ProtocolDescription protocol;
     try {
-      protocol = slave.requestTopic(topic, requestedProtocols);
+      if (udpRosTopicRequest != null) {
+        protocol = slave.requestTopic(topic, requestedProtocols, udpRosTopicRequest);
+      } else {
+        protocol = slave.requestTopic(topic, requestedProtocols);
+      }
     } catch (ServerException e) {
       return Response.newError(e.getMessage(), null).toList();
     }
@@ -18,42 +18,177 @@ package org.ros.internal.transport;
 
 import com.google.common.base.Preconditions;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * A {@link BlockingQueue} that removes the old elements when the number of
- * elements exceeds the limit.
+ * A queue that removes the oldest elements when the number of elements exceeds
+ * the limit.
+ * <p>
+ * Elements are stored in a preallocated ring buffer that is safe to use from
+ * multiple producers without locking. {@link #take()} must only be called by a
+ * single consumer thread at a time.
  * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class CircularBlockingQueue<T> {
 
+  /**
+   * Determines what the consumer does while it waits in {@link #take()} for the
+   * queue to become non-empty.
+   */
+  public enum WaitStrategy {
+    /**
+     * Park the consumer until a producer wakes it up.
+     */
+    PARK,
+
+    /**
+     * Poll the queue for a short while before parking. This reduces latency
+     * for busy queues at the cost of CPU time.
+     */
+    SPIN_THEN_PARK
+  }
+
+  /**
+   * The number of times the queue is polled before parking with
+   * {@link WaitStrategy#SPIN_THEN_PARK}.
+   */
+  private static final int SPIN_TRIES = 1000;
+
   private final int capacity;
-  private final LinkedBlockingQueue<T> queue;
+  private final WaitStrategy waitStrategy;
+  private final int mask;
+  private final AtomicReferenceArray<T> elements;
+
+  /**
+   * The sequence number of each slot in the ring buffer. A slot is free for
+   * the element at position {@code p} when its sequence is {@code p} and holds
+   * that element when its sequence is {@code p + 1}.
+   */
+  private final AtomicIntegerArray sequences;
+
+  /**
+   * The position of the next element to remove.
+   */
+  private final AtomicLong head;
+
+  /**
+   * The position of the next element to add.
+   */
+  private final AtomicLong tail;
+
+  /**
+   * The consumer that is parked in {@link #take()}, if any. The first producer
+   * to see it clears it so that the consumer is only woken up once.
+   */
+  private final AtomicReference<Thread> waiter;
+
+  /**
+   * The number of elements removed to make room for newer ones. Only updated
+   * when an element is dropped, so it does not slow down the common case.
+   */
+  private final AtomicLong droppedCount;
 
   /**
    * The number of elements allowed in the queue at one time. Unlike
    * {@link #capacity}, this can be changed at runtime.
    */
-  private int limit;
+  private volatile int limit;
 
   /**
    * @param capacity
    *          the maximum number of elements allowed in the queue
    */
   public CircularBlockingQueue(int capacity) {
-    queue = new LinkedBlockingQueue<T>(capacity);
+    this(capacity, WaitStrategy.PARK);
+  }
+
+  /**
+   * @param capacity
+   *          the maximum number of elements allowed in the queue
+   * @param waitStrategy
+   *          the {@link WaitStrategy} used by {@link #take()}
+   */
+  public CircularBlockingQueue(int capacity, WaitStrategy waitStrategy) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+    Preconditions.checkArgument(capacity <= 1 << 30, "Capacity is too large.");
     this.capacity = capacity;
-    this.limit = capacity - 1;
+    this.waitStrategy = waitStrategy;
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    elements = new AtomicReferenceArray<T>(size);
+    sequences = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    head = new AtomicLong();
+    tail = new AtomicLong();
+    waiter = new AtomicReference<Thread>();
+    droppedCount = new AtomicLong();
+    limit = capacity - 1;
+  }
+
+  /**
+   * @return {@code true} if {@code element} was added, {@code false} if the
+   *         ring buffer is full
+   */
+  private boolean offer(T element) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) position & mask;
+      int difference = sequences.get(index) - (int) position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.set(index, element);
+          sequences.set(index, (int) position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest element. Producers call this as well to drop elements
+   * that exceed the limit.
+   * 
+   * @return the oldest element or {@code null} if the queue is empty
+   */
+  private T poll() {
+    while (true) {
+      long position = head.get();
+      int index = (int) position & mask;
+      int difference = sequences.get(index) - ((int) position + 1);
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          T element = elements.get(index);
+          elements.set(index, null);
+          sequences.set(index, (int) position + mask + 1);
+          return element;
+        }
+      } else if (difference < 0) {
+        return null;
+      }
+    }
   }
 
   /**
    * Remove elements until the size of the queue is lower than the limit.
    */
   private void shrink() {
-    while (queue.size() > limit) {
-      queue.remove();
+    while (getSize() > limit) {
+      if (poll() == null) {
+        break;
+      }
+      droppedCount.incrementAndGet();
     }
   }
 
@@ -81,29 +216,72 @@ public class CircularBlockingQueue<T> {
    * @return the number of elements in the queue
    */
   public int getSize() {
-    return queue.size();
+    // Read the head first so that a concurrent take cannot make the size
+    // negative.
+    long position = head.get();
+    return (int) Math.max(0, tail.get() - position);
+  }
+
+  /**
+   * @return the number of elements that were removed without being taken
+   *         because the queue exceeded its limit
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
   }
 
   public void put(T entry) throws InterruptedException {
-    synchronized (queue) {
-      try {
-        queue.put(entry);
-      } finally {
-        shrink();
+    if (limit <= 0) {
+      // The element would be removed again immediately.
+      droppedCount.incrementAndGet();
+      return;
+    }
+    while (!offer(entry)) {
+      if (poll() != null) {
+        droppedCount.incrementAndGet();
+      }
+    }
+    shrink();
+    if (waiter.get() != null) {
+      Thread consumer = waiter.getAndSet(null);
+      if (consumer != null) {
+        LockSupport.unpark(consumer);
       }
-      queue.notify();
     }
   }
 
+  /**
+   * Removes the oldest element, waiting for one to be added if necessary.
+   * 
+   * @return the oldest element
+   * @throws InterruptedException
+   *           if the consumer is interrupted while waiting
+   */
   public T take() throws InterruptedException {
-    T element = null;
-    synchronized (queue) {
-      while (true) {
-        element = queue.poll();
+    int spins = waitStrategy == WaitStrategy.SPIN_THEN_PARK ? SPIN_TRIES : 0;
+    while (true) {
+      T element = poll();
+      if (element != null) {
+        return element;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (spins > 0) {
+        spins--;
+        continue;
+      }
+      // Producers check for a waiter after adding an element, so check the
+      // queue again once the waiter is published to avoid a lost wakeup.
+      waiter.set(Thread.currentThread());
+      try {
+        element = poll();
         if (element != null) {
           return element;
         }
-        queue.wait();
+        LockSupport.park(this);
+      } finally {
+        waiter.lazySet(null);
       }
     }
   }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport counters of a single connection between a
+ * {@link org.ros.node.topic.Publisher} and a
+ * {@link org.ros.node.topic.Subscriber}.
+ * 
+ * <p>
+ * Each connection is written to by a single thread at a time (the publisher's
+ * writer or the subscriber's I/O thread), so the counters are never contended
+ * and updating them costs no more than an uncontended atomic add.
+ */
+public class ConnectionStatistics {
+
+  /**
+   * The direction messages flow in on a connection, as reported by the
+   * {@code getBusInfo} slave API.
+   */
+  public enum Direction {
+    IN("i"), OUT("o");
+
+    private final String code;
+
+    private Direction(String code) {
+      this.code = code;
+    }
+
+    /**
+     * @return the code used for this direction by the slave API
+     */
+    public String getCode() {
+      return code;
+    }
+  }
+
+  /**
+   * Connection IDs are opaque to users but must be unique within a node so that
+   * {@code getBusStats} and {@code getBusInfo} can be correlated.
+   */
+  private static final AtomicInteger nextId = new AtomicInteger();
+
+  private final int id;
+  private final String destinationId;
+  private final Direction direction;
+  private final String transport;
+  private final AtomicLong messageCount;
+  private final AtomicLong byteCount;
+
+  private volatile long connectedTimeMillis;
+  private volatile boolean connected;
+
+  /**
+   * @param destinationId
+   *          identifies the other end of the connection (i.e. the node name of
+   *          a subscriber or the slave URI of a publisher)
+   * @param direction
+   *          the {@link Direction} messages flow in
+   * @param transport
+   *          the name of the transport protocol (e.g.
+   *          {@link ProtocolNames#TCPROS})
+   */
+  public ConnectionStatistics(String destinationId, Direction direction, String transport) {
+    this.destinationId = destinationId;
+    this.direction = direction;
+    this.transport = transport;
+    id = nextId.getAndIncrement();
+    messageCount = new AtomicLong();
+    byteCount = new AtomicLong();
+    connectedTimeMillis = System.currentTimeMillis();
+    connected = true;
+  }
+
+  /**
+   * Records a message that was sent or received on this connection.
+   * 
+   * @param bytes
+   *          the size of the serialized message, 0 if it was not serialized
+   */
+  public void recordMessage(int bytes) {
+    messageCount.incrementAndGet();
+    if (bytes > 0) {
+      byteCount.addAndGet(bytes);
+    }
+  }
+
+  /**
+   * Marks the connection as established. The age of the connection is
+   * measured from the last call to this method.
+   */
+  public void setConnected() {
+    connectedTimeMillis = System.currentTimeMillis();
+    connected = true;
+  }
+
+  /**
+   * Marks the connection as lost.
+   */
+  public void setDisconnected() {
+    connected = false;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getDestinationId() {
+    return destinationId;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public String getTransport() {
+    return transport;
+  }
+
+  /**
+   * @return the number of messages sent or received on this connection
+   */
+  public long getMessageCount() {
+    return messageCount.get();
+  }
+
+  /**
+   * @return the number of message bytes sent or received on this connection,
+   *         not including framing
+   */
+  public long getByteCount() {
+    return byteCount.get();
+  }
+
+  /**
+   * @return {@code true} if the connection is currently established
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /**
+   * @return the time in milliseconds since the connection was last
+   *         established
+   */
+  public long getAgeMillis() {
+    return System.currentTimeMillis() - connectedTimeMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionStatistics<" + id + ", " + destinationId + ", " + direction + ", "
+        + transport + ", messages=" + getMessageCount() + ", bytes=" + getByteCount()
+        + ", connected=" + connected + ">";
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+
+/**
+ * Records the messages passing through a channel in its
+ * {@link ConnectionStatistics}. Must be added behind the frame decoder so that
+ * each {@link ChannelBuffer} is one message.
+ */
+public class ConnectionStatisticsHandler extends SimpleChannelHandler {
+
+  private final ConnectionStatistics connectionStatistics;
+
+  public ConnectionStatisticsHandler(ConnectionStatistics connectionStatistics) {
+    this.connectionStatistics = connectionStatistics;
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    Object message = e.getMessage();
+    if (message instanceof ChannelBuffer) {
+      connectionStatistics.recordMessage(((ChannelBuffer) message).readableBytes());
+    }
+    super.messageReceived(ctx, e);
+  }
+
+  @Override
+  public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    Object message = e.getMessage();
+    if (message instanceof ChannelBuffer) {
+      connectionStatistics.recordMessage(((ChannelBuffer) message).readableBytes());
+    }
+    super.writeRequested(ctx, e);
+  }
+
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    connectionStatistics.setDisconnected();
+    super.channelClosed(ctx, e);
+  }
+}
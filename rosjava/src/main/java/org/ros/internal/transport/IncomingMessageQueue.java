@@ -21,6 +21,7 @@ import org.apache.commons.logging.LogFactory;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
 import org.ros.concurrent.CancellableLoop;
@@ -51,9 +52,19 @@ public class IncomingMessageQueue<T> {
   private T latchedMessage;
 
   private final class Receiver extends SimpleChannelHandler {
+
+    private final ConnectionStatistics connectionStatistics;
+
+    public Receiver(ConnectionStatistics connectionStatistics) {
+      this.connectionStatistics = connectionStatistics;
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
       ChannelBuffer buffer = (ChannelBuffer) e.getMessage();
+      if (connectionStatistics != null) {
+        connectionStatistics.recordMessage(buffer.readableBytes());
+      }
       T message = deserializer.deserialize(buffer.toByteBuffer());
       messages.put(message);
       if (DEBUG) {
@@ -61,6 +72,14 @@ public class IncomingMessageQueue<T> {
       }
       super.messageReceived(ctx, e);
     }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+      if (connectionStatistics != null) {
+        connectionStatistics.setDisconnected();
+      }
+      super.channelClosed(ctx, e);
+    }
   }
 
   private final class Dispatcher extends CancellableLoop {
@@ -126,6 +145,24 @@ public class IncomingMessageQueue<T> {
     dispatcher.cancel();
   }
 
+  /**
+   * Adds a message that was published in this process directly to the queue,
+   * bypassing deserialization.
+   * <p>
+   * The message is not copied. The same instance is shared with the
+   * {@link org.ros.node.topic.Publisher} and all other intra-process
+   * subscribers and must not be modified.
+   * 
+   * @param message
+   *          the message to add to the queue
+   */
+  public void put(T message) throws InterruptedException {
+    messages.put(message);
+    if (DEBUG) {
+      log.info("Received intra-process message: " + message);
+    }
+  }
+
   /**
    * @see CircularBlockingQueue#setLimit(int)
    */
@@ -140,11 +177,36 @@ public class IncomingMessageQueue<T> {
     return messages.getLimit();
   }
 
+  /**
+   * @return the number of messages waiting to be dispatched
+   */
+  public int getSize() {
+    return messages.getSize();
+  }
+
+  /**
+   * @return the number of messages dropped because the queue exceeded its
+   *         limit
+   */
+  public long getDroppedCount() {
+    return messages.getDroppedCount();
+  }
+
   /**
    * @return a new {@link ChannelHandler} that will receive messages and add
    *         them to the queue
    */
   public ChannelHandler newChannelHandler() {
-    return new Receiver();
+    return new Receiver(null);
+  }
+
+  /**
+   * @param connectionStatistics
+   *          the {@link ConnectionStatistics} to record received messages in
+   * @return a new {@link ChannelHandler} that will receive messages and add
+   *         them to the queue
+   */
+  public ChannelHandler newChannelHandler(ConnectionStatistics connectionStatistics) {
+    return new Receiver(connectionStatistics);
   }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer}s for serializing outgoing messages.
+ * 
+ * <p>
+ * One pool is shared by all {@link org.ros.node.topic.Publisher}s of a node.
+ * Buffers are grouped into size classes by powers of two up to 1 MiB. Requests
+ * larger than the largest size class are served by heap buffers that are not
+ * pooled. The total capacity of the released buffers kept by the pool is
+ * bounded, and {@link #shutdown()} drops all of them.
+ */
+public class MessageBufferPool {
+
+  private static final int MINIMUM_CAPACITY_SHIFT = 8;
+  private static final int MAXIMUM_CAPACITY_SHIFT = 20;
+  private static final long DEFAULT_MAXIMUM_POOLED_BYTES = 8 * 1024 * 1024;
+
+  private final long maximumPooledBytes;
+  private final List<Queue<ByteBuffer>> sizeClasses;
+  private final AtomicLong pooledBytes;
+
+  private volatile boolean shutdown;
+
+  public MessageBufferPool() {
+    this(DEFAULT_MAXIMUM_POOLED_BYTES);
+  }
+
+  /**
+   * @param maximumPooledBytes
+   *          the maximum total capacity of the released buffers kept for
+   *          reuse
+   */
+  public MessageBufferPool(long maximumPooledBytes) {
+    Preconditions.checkArgument(maximumPooledBytes >= 0);
+    this.maximumPooledBytes = maximumPooledBytes;
+    sizeClasses = Lists.newArrayList();
+    for (int i = MINIMUM_CAPACITY_SHIFT; i <= MAXIMUM_CAPACITY_SHIFT; i++) {
+      sizeClasses.add(new ConcurrentLinkedQueue<ByteBuffer>());
+    }
+    pooledBytes = new AtomicLong();
+    shutdown = false;
+  }
+
+  /**
+   * @return the index of the smallest size class that holds {@code size} bytes
+   *         or -1 if {@code size} is too large to be pooled
+   */
+  private static int getSizeClass(int size) {
+    if (size <= 1 << MINIMUM_CAPACITY_SHIFT) {
+      return 0;
+    }
+    int shift = Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+    return shift > MAXIMUM_CAPACITY_SHIFT ? -1 : shift - MINIMUM_CAPACITY_SHIFT;
+  }
+
+  /**
+   * @param size
+   *          the number of bytes required
+   * @return a little-endian buffer with its position at zero and its limit at
+   *         {@code size}
+   */
+  public ByteBuffer acquire(int size) {
+    Preconditions.checkArgument(size >= 0);
+    int sizeClass = getSizeClass(size);
+    if (sizeClass < 0) {
+      return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    ByteBuffer buffer = sizeClasses.get(sizeClass).poll();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MINIMUM_CAPACITY_SHIFT));
+    } else {
+      pooledBytes.addAndGet(-buffer.capacity());
+    }
+    buffer.clear();
+    buffer.limit(size);
+    return buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Returns a buffer to the pool. The buffer must not be used afterwards.
+   * 
+   * @param buffer
+   *          a buffer previously returned by {@link #acquire(int)}
+   */
+  public void release(ByteBuffer buffer) {
+    if (!buffer.isDirect() || shutdown) {
+      return;
+    }
+    int sizeClass = getSizeClass(buffer.capacity());
+    Preconditions.checkArgument(sizeClass >= 0
+        && buffer.capacity() == 1 << (sizeClass + MINIMUM_CAPACITY_SHIFT));
+    if (pooledBytes.addAndGet(buffer.capacity()) > maximumPooledBytes) {
+      pooledBytes.addAndGet(-buffer.capacity());
+      return;
+    }
+    sizeClasses.get(sizeClass).add(buffer);
+    if (shutdown) {
+      // The pool was shut down while the buffer was being released.
+      shutdown();
+    }
+  }
+
+  /**
+   * @return the total capacity of the buffers currently kept for reuse
+   */
+  public long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  /**
+   * Drops all pooled buffers so that their memory can be reclaimed. Buffers
+   * released afterwards are not pooled.
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (Queue<ByteBuffer> sizeClass : sizeClasses) {
+      ByteBuffer buffer;
+      while ((buffer = sizeClass.poll()) != null) {
+        pooledBytes.addAndGet(-buffer.capacity());
+      }
+    }
+  }
+}
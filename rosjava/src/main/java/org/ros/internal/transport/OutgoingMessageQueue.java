@@ -17,20 +17,33 @@
 package org.ros.internal.transport;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.ChannelGroupFuture;
+import org.jboss.netty.channel.group.ChannelGroupFutureListener;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.ros.concurrent.CancellableLoop;
 import org.ros.exception.RosRuntimeException;
+import org.ros.internal.message.MessageBufferSerializer;
+import org.ros.internal.transport.udp.UdpRosConnection;
 import org.ros.message.MessageSerializer;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -46,23 +59,83 @@ public class OutgoingMessageQueue<T> {
   private final CircularBlockingQueue<T> messages;
   private final ChannelGroup channelGroup;
   private final Writer writer;
+  private final MessageBufferPool messageBufferPool;
+
+  /**
+   * Connections to subscribers in this process. Messages are handed to their
+   * {@link IncomingMessageQueue}s by reference and never serialized.
+   */
+  private final Collection<IntraProcessConnection<T>> intraProcessConnections;
+
+  /**
+   * UDPROS connections to subscribers and their {@link ConnectionStatistics}.
+   * Unlike {@link Channel}s in the {@link ChannelGroup}, each one frames
+   * messages itself.
+   */
+  private final Map<UdpRosConnection, ConnectionStatistics> udpRosConnections;
+
+  /**
+   * The {@link ConnectionStatistics} of each open {@link Channel}.
+   */
+  private final Collection<ConnectionStatistics> channelStatistics;
 
   private boolean latchMode;
   private T latchedMessage;
 
+  private static final class IntraProcessConnection<T> {
+
+    private final IncomingMessageQueue<T> incomingMessageQueue;
+    private final ConnectionStatistics outgoingStatistics;
+    private final ConnectionStatistics incomingStatistics;
+
+    public IntraProcessConnection(IncomingMessageQueue<T> incomingMessageQueue,
+        ConnectionStatistics outgoingStatistics, ConnectionStatistics incomingStatistics) {
+      this.incomingMessageQueue = incomingMessageQueue;
+      this.outgoingStatistics = outgoingStatistics;
+      this.incomingStatistics = incomingStatistics;
+    }
+
+    public void put(T message) throws InterruptedException {
+      outgoingStatistics.recordMessage(0);
+      incomingStatistics.recordMessage(0);
+      incomingMessageQueue.put(message);
+    }
+  }
+
   private final class Writer extends CancellableLoop {
     @Override
     public void loop() throws InterruptedException {
-      writeMessageToChannel(messages.take());
+      T message = messages.take();
+      for (IntraProcessConnection<T> intraProcessConnection : intraProcessConnections) {
+        intraProcessConnection.put(message);
+      }
+      // Only pay for serialization if there is a remote subscriber.
+      if (channelGroup.size() > 0 || !udpRosConnections.isEmpty()) {
+        writeMessageToChannel(message);
+      }
     }
   }
 
   public OutgoingMessageQueue(MessageSerializer<T> serializer,
       ScheduledExecutorService executorService) {
+    this(serializer, executorService, new MessageBufferPool());
+  }
+
+  /**
+   * @param messageBufferPool
+   *          the {@link MessageBufferPool} to serialize messages into, usually
+   *          shared by all publishers of a node
+   */
+  public OutgoingMessageQueue(MessageSerializer<T> serializer,
+      ScheduledExecutorService executorService, MessageBufferPool messageBufferPool) {
     this.serializer = serializer;
+    this.messageBufferPool = messageBufferPool;
     messages = new CircularBlockingQueue<T>(MESSAGE_BUFFER_CAPACITY);
     channelGroup = new DefaultChannelGroup();
     writer = new Writer();
+    intraProcessConnections = new CopyOnWriteArrayList<IntraProcessConnection<T>>();
+    udpRosConnections = new ConcurrentHashMap<UdpRosConnection, ConnectionStatistics>();
+    channelStatistics = new CopyOnWriteArrayList<ConnectionStatistics>();
     latchMode = false;
     executorService.execute(writer);
   }
@@ -76,14 +149,67 @@ public class OutgoingMessageQueue<T> {
   }
 
   private void writeMessageToChannel(T message) {
-    ByteBuffer serializedMessage = serializer.serialize(message);
-    ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(serializedMessage);
     if (DEBUG) {
       // TODO(damonkohler): Add a utility method for a better
       // ChannelBuffer.toString() method.
       log.info("Writing message: " + message);
     }
-    channelGroup.write(buffer);
+    if (!(serializer instanceof MessageBufferSerializer)) {
+      ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(serializer.serialize(message));
+      channelGroup.write(buffer);
+      writeMessageToUdpRosConnections(buffer);
+      return;
+    }
+    // Serialize into a pooled buffer that is recycled once it has been
+    // written to all channels and UDPROS connections.
+    MessageBufferSerializer<T> bufferSerializer = (MessageBufferSerializer<T>) serializer;
+    final ByteBuffer serializedMessage =
+        messageBufferPool.acquire(bufferSerializer.getSerializedSize(message));
+    bufferSerializer.serialize(message, serializedMessage);
+    serializedMessage.flip();
+    ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(serializedMessage);
+    List<ChannelFuture> udpRosFutures = writeMessageToUdpRosConnections(buffer);
+    final AtomicInteger pendingWrites = new AtomicInteger(udpRosFutures.size() + 1);
+    ChannelFutureListener udpRosListener = new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        if (pendingWrites.decrementAndGet() == 0) {
+          messageBufferPool.release(serializedMessage);
+        }
+      }
+    };
+    for (ChannelFuture future : udpRosFutures) {
+      future.addListener(udpRosListener);
+    }
+    channelGroup.write(buffer).addListener(new ChannelGroupFutureListener() {
+      @Override
+      public void operationComplete(ChannelGroupFuture future) throws Exception {
+        if (pendingWrites.decrementAndGet() == 0) {
+          messageBufferPool.release(serializedMessage);
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the {@link ChannelFuture}s of the last datagram written to each
+   *         {@link UdpRosConnection}
+   */
+  private List<ChannelFuture> writeMessageToUdpRosConnections(ChannelBuffer buffer) {
+    List<ChannelFuture> futures = Lists.newArrayList();
+    for (Map.Entry<UdpRosConnection, ConnectionStatistics> entry : udpRosConnections.entrySet()) {
+      UdpRosConnection udpRosConnection = entry.getKey();
+      if (!udpRosConnection.isOpen()) {
+        udpRosConnections.remove(udpRosConnection);
+        continue;
+      }
+      ChannelFuture future = udpRosConnection.write(buffer);
+      if (future != null) {
+        futures.add(future);
+      }
+      entry.getValue().recordMessage(buffer.readableBytes());
+    }
+    return futures;
   }
 
   /**
@@ -104,6 +230,11 @@ public class OutgoingMessageQueue<T> {
    */
   public void shutdown() {
     writer.cancel();
+    intraProcessConnections.clear();
+    for (UdpRosConnection udpRosConnection : udpRosConnections.keySet()) {
+      udpRosConnection.close();
+    }
+    udpRosConnections.clear();
     channelGroup.close().awaitUninterruptibly();
   }
 
@@ -121,11 +252,51 @@ public class OutgoingMessageQueue<T> {
     return messages.getLimit();
   }
 
+  /**
+   * @return the number of messages waiting to be written
+   */
+  public int getSize() {
+    return messages.getSize();
+  }
+
+  /**
+   * @return the number of messages dropped because the queue exceeded its
+   *         limit
+   */
+  public long getDroppedCount() {
+    return messages.getDroppedCount();
+  }
+
+  /**
+   * @return the {@link ConnectionStatistics} of all connections which have
+   *         been added to this queue and are still open
+   */
+  public List<ConnectionStatistics> getConnectionStatistics() {
+    List<ConnectionStatistics> connectionStatistics = Lists.newArrayList(channelStatistics);
+    connectionStatistics.addAll(udpRosConnections.values());
+    for (IntraProcessConnection<T> intraProcessConnection : intraProcessConnections) {
+      connectionStatistics.add(intraProcessConnection.outgoingStatistics);
+    }
+    return connectionStatistics;
+  }
+
   /**
    * @param channel
    *          added to this {@link OutgoingMessageQueue}'s {@link ChannelGroup}
    */
   public void addChannel(Channel channel) {
+    addChannel(channel, new ConnectionStatistics(String.valueOf(channel.getRemoteAddress()),
+        ConnectionStatistics.Direction.OUT, ProtocolNames.TCPROS));
+  }
+
+  /**
+   * @param channel
+   *          added to this {@link OutgoingMessageQueue}'s {@link ChannelGroup}
+   * @param connectionStatistics
+   *          the {@link ConnectionStatistics} to record messages written to
+   *          the {@link Channel} in
+   */
+  public void addChannel(Channel channel, final ConnectionStatistics connectionStatistics) {
     if (!writer.isRunning()) {
       log.warn("Failed to add channel. Cannot add channels after shutdown.");
       return;
@@ -133,13 +304,116 @@ public class OutgoingMessageQueue<T> {
     if (DEBUG) {
       log.info("Adding channel: " + channel);
     }
+    channel.getPipeline().addLast("ConnectionStatisticsHandler",
+        new ConnectionStatisticsHandler(connectionStatistics));
+    channelStatistics.add(connectionStatistics);
+    channel.getCloseFuture().addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        channelStatistics.remove(connectionStatistics);
+      }
+    });
+    // The latched message is written before the channel joins the group so
+    // that it cannot overtake newer messages. It only goes to the new channel
+    // since all other connections have received it already.
+    if (latchMode && latchedMessage != null) {
+      if (DEBUG) {
+        log.info("Writing latched message: " + latchedMessage);
+      }
+      channel.write(ChannelBuffers.wrappedBuffer(serializer.serialize(latchedMessage)));
+    }
     channelGroup.add(channel);
+  }
+
+  /**
+   * @param incomingMessageQueue
+   *          the {@link IncomingMessageQueue} of a subscriber in this process
+   *          that published messages will be handed to directly
+   * @param outgoingStatistics
+   *          the publisher's {@link ConnectionStatistics} for the connection
+   * @param incomingStatistics
+   *          the subscriber's {@link ConnectionStatistics} for the connection
+   */
+  public void addIntraProcessQueue(IncomingMessageQueue<T> incomingMessageQueue,
+      ConnectionStatistics outgoingStatistics, ConnectionStatistics incomingStatistics) {
+    if (!writer.isRunning()) {
+      log.warn("Failed to add intra-process queue. Cannot add queues after shutdown.");
+      return;
+    }
+    intraProcessConnections.add(new IntraProcessConnection<T>(incomingMessageQueue,
+        outgoingStatistics, incomingStatistics));
+    if (latchMode && latchedMessage != null) {
+      if (DEBUG) {
+        log.info("Handing over latched message: " + latchedMessage);
+      }
+      try {
+        incomingMessageQueue.put(latchedMessage);
+      } catch (InterruptedException e) {
+        throw new RosRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * @param incomingMessageQueue
+   *          the {@link IncomingMessageQueue} to stop handing messages to
+   */
+  public void removeIntraProcessQueue(IncomingMessageQueue<T> incomingMessageQueue) {
+    for (IntraProcessConnection<T> intraProcessConnection : intraProcessConnections) {
+      if (intraProcessConnection.incomingMessageQueue == incomingMessageQueue) {
+        intraProcessConnections.remove(intraProcessConnection);
+        intraProcessConnection.outgoingStatistics.setDisconnected();
+        intraProcessConnection.incomingStatistics.setDisconnected();
+      }
+    }
+  }
+
+  /**
+   * @param udpRosConnection
+   *          a {@link UdpRosConnection} to a subscriber that all published
+   *          messages will be written to
+   * @param connectionStatistics
+   *          the {@link ConnectionStatistics} to record messages written to
+   *          the {@link UdpRosConnection} in
+   */
+  public void addUdpRosConnection(UdpRosConnection udpRosConnection,
+      ConnectionStatistics connectionStatistics) {
+    if (!writer.isRunning()) {
+      log.warn("Failed to add UDPROS connection. Cannot add connections after shutdown.");
+      udpRosConnection.close();
+      return;
+    }
     if (latchMode && latchedMessage != null) {
       if (DEBUG) {
         log.info("Writing latched message: " + latchedMessage);
       }
-      writeMessageToChannel(latchedMessage);
+      ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(serializer.serialize(latchedMessage));
+      udpRosConnection.write(buffer);
+      connectionStatistics.recordMessage(buffer.readableBytes());
+    }
+    udpRosConnections.put(udpRosConnection, connectionStatistics);
+  }
+
+  /**
+   * @return the number of open {@link UdpRosConnection}s which have been added
+   *         to this queue
+   */
+  public int getNumberOfUdpRosConnections() {
+    int numberOfUdpRosConnections = 0;
+    for (UdpRosConnection udpRosConnection : udpRosConnections.keySet()) {
+      if (udpRosConnection.isOpen()) {
+        numberOfUdpRosConnections++;
+      }
     }
+    return numberOfUdpRosConnections;
+  }
+
+  /**
+   * @return the number of intra-process {@link IncomingMessageQueue}s which
+   *         have been added to this queue
+   */
+  public int getNumberOfIntraProcessQueues() {
+    return intraProcessConnections.size();
   }
 
   /**
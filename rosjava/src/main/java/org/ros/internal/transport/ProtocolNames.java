@@ -27,6 +27,13 @@ public interface ProtocolNames {
   
   public static final String TCPROS = "TCPROS";
   public static final String UDPROS = "UDPROS";
+
+  /**
+   * Hands message references directly from a {@link org.ros.node.topic.Publisher}
+   * to a {@link org.ros.node.topic.Subscriber} in the same JVM. Only requested
+   * by subscribers that have found the publisher in the local process.
+   */
+  public static final String INTRAPROCESS = "INTRAPROCESS";
   public static final Collection<String> SUPPORTED = Sets.newHashSet(TCPROS);
   
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.intraprocess;
+
+import org.ros.address.AdvertiseAddress;
+import org.ros.internal.transport.ProtocolDescription;
+import org.ros.internal.transport.ProtocolNames;
+
+public class IntraProcessProtocolDescription extends ProtocolDescription {
+
+  /**
+   * @param address
+   *          the TCPROS address of the publishing node, advertised so that the
+   *          description remains well formed on the wire
+   */
+  public IntraProcessProtocolDescription(AdvertiseAddress address) {
+    super(ProtocolNames.INTRAPROCESS, address);
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.tcp;
+
+/**
+ * A {@link TcpClientConnectionListener} which provides empty defaults for all
+ * signals.
+ */
+public class DefaultTcpClientConnectionListener implements TcpClientConnectionListener {
+
+  @Override
+  public void onDisconnect(TcpClientConnection tcpClientConnection) {
+  }
+
+  @Override
+  public void onReconnectFailure(TcpClientConnection tcpClientConnection, int attempts,
+      Throwable cause) {
+  }
+
+  @Override
+  public void onReconnect(TcpClientConnection tcpClientConnection, int attempts) {
+  }
+
+  @Override
+  public void onDefunct(TcpClientConnection tcpClientConnection, Throwable cause) {
+  }
+}
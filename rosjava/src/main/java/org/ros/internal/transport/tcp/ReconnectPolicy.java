@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.tcp;
+
+import com.google.common.base.Preconditions;
+
+import java.net.UnknownHostException;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.Random;
+
+/**
+ * Decides when and whether a {@link TcpClientConnection} should reconnect
+ * after it has been disconnected.
+ * 
+ * <p>
+ * Delays grow exponentially from the initial delay up to the maximum delay.
+ * Each delay is randomly shortened by up to the jitter fraction so that many
+ * connections that were dropped at the same time (e.g. because the remote
+ * host rebooted) do not reconnect in lockstep.
+ */
+public class ReconnectPolicy {
+
+  private static final long DEFAULT_INITIAL_DELAY_MILLIS = 500;
+  private static final long DEFAULT_MAXIMUM_DELAY_MILLIS = 30 * 1000;
+  private static final double DEFAULT_MULTIPLIER = 2;
+  private static final double DEFAULT_JITTER = 0.5;
+  private static final int DEFAULT_MAXIMUM_ATTEMPTS = 10;
+
+  private final long initialDelayMillis;
+  private final long maximumDelayMillis;
+  private final double multiplier;
+  private final double jitter;
+  private final int maximumAttempts;
+  private final Random random;
+
+  /**
+   * @return a {@link ReconnectPolicy} that retries 10 times starting at 500 ms
+   *         and backing off to at most 30 s between attempts
+   */
+  public static ReconnectPolicy newDefault() {
+    return new ReconnectPolicy(DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAXIMUM_DELAY_MILLIS,
+        DEFAULT_MULTIPLIER, DEFAULT_JITTER, DEFAULT_MAXIMUM_ATTEMPTS);
+  }
+
+  /**
+   * @param initialDelayMillis
+   *          the delay before the first reconnection attempt
+   * @param maximumDelayMillis
+   *          the upper bound for the delay between attempts
+   * @param multiplier
+   *          the factor by which the delay grows after each failed attempt
+   * @param jitter
+   *          the fraction, between 0 and 1, by which each delay may be
+   *          randomly shortened
+   * @param maximumAttempts
+   *          the number of attempts after which the connection is considered
+   *          defunct, 0 to retry forever
+   */
+  public ReconnectPolicy(long initialDelayMillis, long maximumDelayMillis, double multiplier,
+      double jitter, int maximumAttempts) {
+    Preconditions.checkArgument(initialDelayMillis > 0);
+    Preconditions.checkArgument(maximumDelayMillis >= initialDelayMillis);
+    Preconditions.checkArgument(multiplier >= 1);
+    Preconditions.checkArgument(jitter >= 0 && jitter <= 1);
+    Preconditions.checkArgument(maximumAttempts >= 0);
+    this.initialDelayMillis = initialDelayMillis;
+    this.maximumDelayMillis = maximumDelayMillis;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.maximumAttempts = maximumAttempts;
+    random = new Random();
+  }
+
+  /**
+   * @param attempt
+   *          the number of the upcoming attempt, starting at 1
+   * @return the number of milliseconds to wait before making the attempt
+   */
+  public long getDelayMillis(int attempt) {
+    Preconditions.checkArgument(attempt > 0);
+    double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+    delay = Math.min(delay, maximumDelayMillis);
+    delay -= delay * jitter * random.nextDouble();
+    return Math.max(1, (long) delay);
+  }
+
+  /**
+   * @param attempts
+   *          the number of attempts that have failed so far
+   * @return {@code true} if no further attempts should be made
+   */
+  public boolean isExhausted(int attempts) {
+    return maximumAttempts > 0 && attempts >= maximumAttempts;
+  }
+
+  /**
+   * Classifies the cause of a failed connection attempt.
+   * 
+   * <p>
+   * Addresses that cannot be resolved or used will not start working by
+   * waiting, so retrying them is pointless. All other failures (e.g. refused
+   * connections while the remote node restarts, timeouts and unreachable
+   * hosts) are considered transient.
+   * 
+   * @param cause
+   *          the cause of the failed attempt, may be {@code null}
+   * @return {@code true} if another attempt may succeed
+   */
+  public boolean isRetryable(Throwable cause) {
+    return !(cause instanceof UnresolvedAddressException
+        || cause instanceof UnsupportedAddressTypeException
+        || cause instanceof UnknownHostException
+        || cause instanceof SecurityException);
+  }
+
+  public int getMaximumAttempts() {
+    return maximumAttempts;
+  }
+}
@@ -20,19 +20,25 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+import org.ros.concurrent.ListenerCollection.SignalRunnable;
 
-import java.net.ConnectException;
-import java.net.SocketAddress;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Automatically reconnects when a {@link Channel} is closed.
  * 
+ * <p>
+ * Reconnection attempts are scheduled on the {@link TcpClientConnection}'s
+ * shared timer according to its {@link ReconnectPolicy} and never block the
+ * timer or I/O threads.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class RetryingConnectionHandler extends SimpleChannelHandler {
@@ -40,74 +46,146 @@ public class RetryingConnectionHandler extends SimpleChannelHandler {
   private static final boolean DEBUG = false;
   private static final Log log = LogFactory.getLog(RetryingConnectionHandler.class);
 
-  private static final String CONNECTION_REFUSED = "Connection refused";
-
-  // TODO(damonkohler): Allow the TcpClientConnection to alter the
-  // reconnect strategy (e.g. binary backoff, faster retries for tests, etc.)
-  private static final long RECONNECT_DELAY = 1000;
-
   private final TcpClientConnection tcpClientConnection;
-  private final Timer timer;
+
+  /**
+   * {@code true} if this handler's {@link Channel} was connected. A new handler
+   * is created for every connection attempt and channels of failed attempts
+   * are closed without ever having been connected.
+   */
+  private volatile boolean connected;
 
   public RetryingConnectionHandler(TcpClientConnection tcpClientConnection) {
     this.tcpClientConnection = tcpClientConnection;
-    this.timer = new Timer();
+    connected = false;
+  }
+
+  @Override
+  public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    connected = true;
+    super.channelConnected(ctx, e);
   }
 
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-    tcpClientConnection.setChannel(null);
-    if (DEBUG) {
-      if (tcpClientConnection.isDefunct()) {
-        log.info("Connection defunct: " + tcpClientConnection.getName());
-      }
-    }
-    if (tcpClientConnection.isPersistent() && !tcpClientConnection.isDefunct()) {
+    if (connected) {
+      tcpClientConnection.setChannel(null);
       if (DEBUG) {
-        log.info("Connection closed, will reconnect: " + tcpClientConnection.getName());
+        if (tcpClientConnection.isDefunct()) {
+          log.info("Connection defunct: " + tcpClientConnection.getName());
+        }
       }
-      timer.schedule(new TimerTask() {
-        @Override
-        public void run() {
-          SocketAddress remoteAddress = tcpClientConnection.getRemoteAddress();
-          if (DEBUG) {
-            log.info("Reconnecting: " + tcpClientConnection.getName());
-          }
-          ChannelFuture future =
-              tcpClientConnection.getBootstrap().connect(remoteAddress).awaitUninterruptibly();
-          if (future.isSuccess()) {
-            tcpClientConnection.setChannel(future.getChannel());
-            if (DEBUG) {
-              log.info("Reconnect successful: " + tcpClientConnection.getName());
-            }
-          } else {
-            if (DEBUG) {
-              log.error("Reconnect failed: " + tcpClientConnection.getName(), future.getCause());
-            }
-            // TODO(damonkohler): Is there a better way to check for connection
-            // refused?
-            if (future.getCause() instanceof ConnectException
-                && future.getCause().getMessage().equals(CONNECTION_REFUSED)) {
-              if (DEBUG) {
-                log.error(
-                    "Connection refused, marking as defunct: " + tcpClientConnection.getName(),
-                    future.getCause());
-              }
-              // TODO(damonkohler): Add a listener so that publishers and
-              // subscribers can be notified when they lose a connection.
-              tcpClientConnection.setDefunct(true);
-            }
+      if (tcpClientConnection.isPersistent() && !tcpClientConnection.isDefunct()) {
+        if (DEBUG) {
+          log.info("Connection closed, will reconnect: " + tcpClientConnection.getName());
+        }
+        tcpClientConnection.setReconnectAttempts(0);
+        tcpClientConnection.signal(new SignalRunnable<TcpClientConnectionListener>() {
+          @Override
+          public void run(TcpClientConnectionListener listener) {
+            listener.onDisconnect(tcpClientConnection);
           }
+        });
+        scheduleReconnect(tcpClientConnection);
+      } else {
+        if (DEBUG) {
+          log.info("Connection closed, will not reconnect: " + tcpClientConnection.getName());
         }
-      }, RECONNECT_DELAY);
-    } else {
-      if (DEBUG) {
-        log.info("Connection closed, will not reconnect: " + tcpClientConnection.getName());
       }
     }
     super.channelClosed(ctx, e);
   }
 
+  private static void scheduleReconnect(final TcpClientConnection tcpClientConnection) {
+    int attempt = tcpClientConnection.getReconnectAttempts() + 1;
+    long delay = tcpClientConnection.getReconnectPolicy().getDelayMillis(attempt);
+    if (DEBUG) {
+      log.info(String.format("Reconnect attempt %d in %d ms: %s", attempt, delay,
+          tcpClientConnection.getName()));
+    }
+    Timeout timeout = tcpClientConnection.getTimer().newTimeout(new TimerTask() {
+      @Override
+      public void run(Timeout timeout) {
+        reconnect(tcpClientConnection);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+    tcpClientConnection.setReconnectTimeout(timeout);
+  }
+
+  private static void reconnect(final TcpClientConnection tcpClientConnection) {
+    if (!tcpClientConnection.isPersistent() || tcpClientConnection.isDefunct()) {
+      return;
+    }
+    if (DEBUG) {
+      log.info("Reconnecting: " + tcpClientConnection.getName());
+    }
+    ChannelFuture future =
+        tcpClientConnection.getBootstrap().connect(tcpClientConnection.getRemoteAddress());
+    future.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) {
+        if (future.isSuccess()) {
+          onReconnectSuccess(tcpClientConnection, future.getChannel());
+        } else {
+          onReconnectFailure(tcpClientConnection, future.getCause());
+        }
+      }
+    });
+  }
+
+  private static void onReconnectSuccess(final TcpClientConnection tcpClientConnection,
+      Channel channel) {
+    if (!tcpClientConnection.isPersistent()) {
+      // The connection was shut down while we were reconnecting.
+      channel.close();
+      return;
+    }
+    final int attempts = tcpClientConnection.getReconnectAttempts() + 1;
+    tcpClientConnection.setReconnectAttempts(0);
+    tcpClientConnection.setChannel(channel);
+    if (DEBUG) {
+      log.info("Reconnect successful: " + tcpClientConnection.getName());
+    }
+    tcpClientConnection.signal(new SignalRunnable<TcpClientConnectionListener>() {
+      @Override
+      public void run(TcpClientConnectionListener listener) {
+        listener.onReconnect(tcpClientConnection, attempts);
+      }
+    });
+  }
+
+  private static void onReconnectFailure(final TcpClientConnection tcpClientConnection,
+      final Throwable cause) {
+    if (DEBUG) {
+      log.error("Reconnect failed: " + tcpClientConnection.getName(), cause);
+    }
+    if (!tcpClientConnection.isPersistent()) {
+      return;
+    }
+    final int attempts = tcpClientConnection.getReconnectAttempts() + 1;
+    tcpClientConnection.setReconnectAttempts(attempts);
+    ReconnectPolicy reconnectPolicy = tcpClientConnection.getReconnectPolicy();
+    if (!reconnectPolicy.isRetryable(cause) || reconnectPolicy.isExhausted(attempts)) {
+      log.error("Giving up on reconnecting after " + attempts + " attempts: "
+          + tcpClientConnection.getName(), cause);
+      tcpClientConnection.setDefunct(true);
+      tcpClientConnection.signal(new SignalRunnable<TcpClientConnectionListener>() {
+        @Override
+        public void run(TcpClientConnectionListener listener) {
+          listener.onDefunct(tcpClientConnection, cause);
+        }
+      });
+      return;
+    }
+    tcpClientConnection.signal(new SignalRunnable<TcpClientConnectionListener>() {
+      @Override
+      public void run(TcpClientConnectionListener listener) {
+        listener.onReconnectFailure(tcpClientConnection, attempts, cause);
+      }
+    });
+    scheduleReconnect(tcpClientConnection);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
     if (DEBUG) {
@@ -22,6 +22,10 @@ import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.ros.concurrent.ListenerCollection;
+import org.ros.concurrent.ListenerCollection.SignalRunnable;
 
 import java.net.SocketAddress;
 
@@ -33,36 +37,62 @@ public class TcpClientConnection {
   private final String name;
   private final SocketAddress remoteAddress;
   private final ClientBootstrap bootstrap;
+  private final Timer timer;
+  private final ReconnectPolicy reconnectPolicy;
+  private final ListenerCollection<TcpClientConnectionListener> listeners;
 
   /**
    * {@code true} if this client connection should reconnect when disconnected.
    */
-  private boolean persistent;
+  private volatile boolean persistent;
 
   /**
-   * {@code true} if this connection is defunct (e.g. received a connection
-   * refused error)
+   * {@code true} if this connection is defunct (e.g. the
+   * {@link ReconnectPolicy} gave up on reconnecting)
    */
-  private boolean defunct;
+  private volatile boolean defunct;
+
+  /**
+   * The number of failed reconnection attempts since the connection was lost.
+   */
+  private volatile int reconnectAttempts;
+
+  /**
+   * The pending reconnection attempt, if any.
+   */
+  private volatile Timeout reconnectTimeout;
 
   /**
    * This connection's {@link Channel}. May be {@code null} if we're not
    * currently connected.
    */
-  private Channel channel;
+  private volatile Channel channel;
 
   /**
    * @param bootstrap
    *          the {@link ClientBootstrap} instance to use when reconnecting
    * @param remoteAddress
    *          the {@link SocketAddress} to reconnect to
+   * @param timer
+   *          the {@link Timer} used to schedule reconnection attempts
+   * @param reconnectPolicy
+   *          the {@link ReconnectPolicy} that decides when to reconnect
+   * @param listeners
+   *          the {@link TcpClientConnectionListener}s to notify when the state
+   *          of the connection changes
    */
-  TcpClientConnection(String name, ClientBootstrap bootstrap, SocketAddress remoteAddress) {
+  TcpClientConnection(String name, ClientBootstrap bootstrap, SocketAddress remoteAddress,
+      Timer timer, ReconnectPolicy reconnectPolicy,
+      ListenerCollection<TcpClientConnectionListener> listeners) {
     this.name = name;
     this.bootstrap = bootstrap;
     this.remoteAddress = remoteAddress;
+    this.timer = timer;
+    this.reconnectPolicy = reconnectPolicy;
+    this.listeners = listeners;
     persistent = true;
     defunct = false;
+    reconnectAttempts = 0;
   }
 
   /**
@@ -72,6 +102,50 @@ public class TcpClientConnection {
     return bootstrap;
   }
 
+  /**
+   * @return the {@link Timer} used to schedule reconnection attempts
+   */
+  Timer getTimer() {
+    return timer;
+  }
+
+  /**
+   * @return the {@link ReconnectPolicy} that decides when to reconnect
+   */
+  public ReconnectPolicy getReconnectPolicy() {
+    return reconnectPolicy;
+  }
+
+  /**
+   * @return the number of failed reconnection attempts since the connection
+   *         was lost
+   */
+  public int getReconnectAttempts() {
+    return reconnectAttempts;
+  }
+
+  void setReconnectAttempts(int reconnectAttempts) {
+    this.reconnectAttempts = reconnectAttempts;
+  }
+
+  void setReconnectTimeout(Timeout reconnectTimeout) {
+    this.reconnectTimeout = reconnectTimeout;
+  }
+
+  /**
+   * Cancels the pending reconnection attempt, if any.
+   */
+  void cancelReconnect() {
+    Timeout timeout = reconnectTimeout;
+    if (timeout != null) {
+      timeout.cancel();
+    }
+  }
+
+  void signal(SignalRunnable<TcpClientConnectionListener> signalRunnable) {
+    listeners.signal(signalRunnable);
+  }
+
   /**
    * @return the {@link SocketAddress} to reconnect to
    */
@@ -100,8 +174,9 @@ public class TcpClientConnection {
    * @see Channel#write
    */
   public ChannelFuture write(ChannelBuffer buffer) {
-    Preconditions.checkNotNull(channel, "Not connected.");
-    return channel.write(buffer);
+    Channel currentChannel = channel;
+    Preconditions.checkNotNull(currentChannel, "Not connected.");
+    return currentChannel.write(buffer);
   }
 
   /**
@@ -113,6 +188,19 @@ public class TcpClientConnection {
     this.channel = channel;
   }
 
+  /**
+   * Stops reconnecting and closes this connection's {@link Channel}, if any.
+   */
+  void close() {
+    persistent = false;
+    cancelReconnect();
+    Channel currentChannel = channel;
+    channel = null;
+    if (currentChannel != null) {
+      currentChannel.close();
+    }
+  }
+
   /**
    * @return the name of this connection (e.g. Subscriber</topic/foo>)
    */
@@ -121,8 +209,8 @@ public class TcpClientConnection {
   }
 
   /**
-   * @return {@code true} if this connection is defunct (e.g. received a
-   *         connection refused error)
+   * @return {@code true} if this connection is defunct (e.g. the
+   *         {@link ReconnectPolicy} gave up on reconnecting)
    */
   public boolean isDefunct() {
     return defunct;
@@ -130,8 +218,8 @@ public class TcpClientConnection {
 
   /**
    * @param defunct
-   *          {@code true} if this connection is defunct (e.g. received a
-   *          connection refused error)
+   *          {@code true} if this connection is defunct (e.g. the
+   *          {@link ReconnectPolicy} gave up on reconnecting)
    */
   public void setDefunct(boolean defunct) {
     this.defunct = defunct;
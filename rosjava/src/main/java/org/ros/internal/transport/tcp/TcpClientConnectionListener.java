@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.tcp;
+
+/**
+ * Receives notifications about the state of {@link TcpClientConnection}s.
+ */
+public interface TcpClientConnectionListener {
+
+  /**
+   * The connection was lost and will be reconnected.
+   * 
+   * @param tcpClientConnection
+   *          the {@link TcpClientConnection} that was disconnected
+   */
+  void onDisconnect(TcpClientConnection tcpClientConnection);
+
+  /**
+   * An attempt to reconnect failed and another attempt has been scheduled.
+   * 
+   * @param tcpClientConnection
+   *          the {@link TcpClientConnection} that failed to reconnect
+   * @param attempts
+   *          the number of attempts that have failed so far
+   * @param cause
+   *          the cause of the failure
+   */
+  void onReconnectFailure(TcpClientConnection tcpClientConnection, int attempts, Throwable cause);
+
+  /**
+   * The connection was reestablished.
+   * 
+   * @param tcpClientConnection
+   *          the {@link TcpClientConnection} that was reconnected
+   * @param attempts
+   *          the number of attempts it took to reconnect
+   */
+  void onReconnect(TcpClientConnection tcpClientConnection, int attempts);
+
+  /**
+   * The connection will not be reconnected because the cause of the last
+   * failure is permanent or the {@link ReconnectPolicy} has been exhausted.
+   * 
+   * @param tcpClientConnection
+   *          the defunct {@link TcpClientConnection}
+   * @param cause
+   *          the cause of the last failure
+   */
+  void onDefunct(TcpClientConnection tcpClientConnection, Throwable cause);
+}
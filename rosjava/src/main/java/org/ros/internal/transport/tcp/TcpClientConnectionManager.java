@@ -16,6 +16,7 @@
 
 package org.ros.internal.transport.tcp;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 
 import org.apache.commons.logging.Log;
@@ -31,12 +32,20 @@ import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.ros.concurrent.ListenerCollection;
 import org.ros.exception.RosRuntimeException;
 
 import java.net.SocketAddress;
 import java.nio.ByteOrder;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -48,16 +57,97 @@ public class TcpClientConnectionManager {
 
   private static final int CONNECTION_TIMEOUT_MILLIS = 5000;
 
+  private static final AtomicInteger reconnectTimerThreadCount = new AtomicInteger();
+
+  /**
+   * Schedules the reconnection attempts of all connections in the process on a
+   * single thread. Reconnection delays are long compared to the tick duration,
+   * so the coarse resolution of the wheel does not matter.
+   */
+  private static final Timer RECONNECT_TIMER = new HashedWheelTimer(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      reconnectTimerThreadCount.incrementAndGet();
+      Thread thread = new Thread(runnable, "TcpClientConnectionManager reconnect timer");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }, 50, TimeUnit.MILLISECONDS);
+
+  /**
+   * @return the number of threads the shared reconnect timer has created
+   */
+  @VisibleForTesting
+  static int getReconnectTimerThreadCount() {
+    return reconnectTimerThreadCount.get();
+  }
+
   private final ChannelFactory channelFactory;
   private final ChannelGroup channelGroup;
   private final ChannelBufferFactory channelBufferFactory;
+  /**
+   * Guarded by itself. Connections are added from any thread that connects,
+   * e.g. a service client opening connections in the background.
+   */
   private final Collection<TcpClientConnection> tcpClientConnections;
+  private final ListenerCollection<TcpClientConnectionListener> listeners;
+
+  private ReconnectPolicy reconnectPolicy;
+
+  /**
+   * {@code true} once {@link #shutdown()} was called. Guarded by
+   * {@link #tcpClientConnections}.
+   */
+  private boolean shutdown;
 
   public TcpClientConnectionManager(ScheduledExecutorService executorService) {
-    channelFactory = new NioClientSocketChannelFactory(executorService, executorService);
+    this(new NioClientSocketChannelFactory(executorService, executorService), executorService);
+  }
+
+  /**
+   * @param channelFactory
+   *          the {@link ChannelFactory} used for all connections, typically
+   *          shared with other {@link TcpClientConnectionManager}s so that
+   *          their connections are multiplexed over the same boss and worker
+   *          threads
+   * @param executorService
+   *          the {@link ExecutorService} used to notify
+   *          {@link TcpClientConnectionListener}s
+   */
+  public TcpClientConnectionManager(ChannelFactory channelFactory, ExecutorService executorService) {
+    this.channelFactory = channelFactory;
     channelGroup = new DefaultChannelGroup();
     channelBufferFactory = new HeapChannelBufferFactory(ByteOrder.LITTLE_ENDIAN);
     tcpClientConnections = Lists.newArrayList();
+    listeners = new ListenerCollection<TcpClientConnectionListener>(executorService);
+    reconnectPolicy = ReconnectPolicy.newDefault();
+  }
+
+  /**
+   * @param reconnectPolicy
+   *          the {@link ReconnectPolicy} used by connections created after this
+   *          call
+   */
+  public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+    this.reconnectPolicy = reconnectPolicy;
+  }
+
+  /**
+   * @param listener
+   *          the {@link TcpClientConnectionListener} to notify when the state
+   *          of any connection of this manager changes
+   */
+  public void addListener(TcpClientConnectionListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param listener
+   *          the {@link TcpClientConnectionListener} to remove
+   * @return {@code true} if the listener was removed
+   */
+  public boolean removeListener(TcpClientConnectionListener listener) {
+    return listeners.remove(listener);
   }
 
   /**
@@ -92,7 +182,14 @@ public class TcpClientConnectionManager {
     ChannelFuture future = bootstrap.connect(address).awaitUninterruptibly();
     if (future.isSuccess()) {
       Channel channel = future.getChannel();
-      tcpClientConnection.setChannel(channel);
+      synchronized (tcpClientConnections) {
+        if (shutdown) {
+          // The channel may have been opened after all channels were closed.
+          channel.close();
+          throw new RosRuntimeException("Shut down while connecting: " + address);
+        }
+        tcpClientConnection.setChannel(channel);
+      }
       if (DEBUG) {
         log.info("Connected to: " + address);
       }
@@ -105,22 +202,49 @@ public class TcpClientConnectionManager {
 
   private TcpClientConnection newTcpClient(String name, ClientBootstrap bootstrap,
       SocketAddress address) {
-    TcpClientConnection tcpClientConnection = new TcpClientConnection(name, bootstrap, address);
-    tcpClientConnections.add(tcpClientConnection);
+    TcpClientConnection tcpClientConnection =
+        new TcpClientConnection(name, bootstrap, address, RECONNECT_TIMER, reconnectPolicy,
+            listeners);
+    synchronized (tcpClientConnections) {
+      if (shutdown) {
+        throw new RosRuntimeException("Shut down before connecting: " + address);
+      }
+      tcpClientConnections.add(tcpClientConnection);
+    }
     return tcpClientConnection;
   }
 
+  /**
+   * Stops reconnecting a {@link TcpClientConnection} of this manager and closes
+   * its {@link Channel}.
+   * 
+   * @param tcpClientConnection
+   *          the {@link TcpClientConnection} to close
+   */
+  public void close(TcpClientConnection tcpClientConnection) {
+    synchronized (tcpClientConnections) {
+      tcpClientConnections.remove(tcpClientConnection);
+    }
+    tcpClientConnection.close();
+  }
+
   /**
    * Sets all {@link TcpClientConnection}s as non-persistent and closes all open
-   * {@link Channel}s.
+   * {@link Channel}s. Later attempts to connect fail.
    */
   public void shutdown() {
-    for (TcpClientConnection tcpClientConnection : tcpClientConnections) {
+    List<TcpClientConnection> connections;
+    synchronized (tcpClientConnections) {
+      shutdown = true;
+      connections = Lists.newArrayList(tcpClientConnections);
+      tcpClientConnections.clear();
+    }
+    for (TcpClientConnection tcpClientConnection : connections) {
       tcpClientConnection.setPersistent(false);
+      tcpClientConnection.cancelReconnect();
       tcpClientConnection.setChannel(null);
     }
     channelGroup.close().awaitUninterruptibly();
-    tcpClientConnections.clear();
     // Not calling channelFactory.releaseExternalResources() or
     // bootstrap.releaseExternalResources() since only external resources are
     // the ExecutorService and control of that must remain with the overall
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.bootstrap.ConnectionlessBootstrap;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
+import org.ros.exception.RosRuntimeException;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * The publisher's end of a UDPROS connection to a single subscriber.
+ * <p>
+ * The underlying datagram socket is connected to the subscriber so that an
+ * unreachable subscriber closes the connection instead of silently receiving
+ * messages forever.
+ */
+public class UdpRosConnection {
+
+  private static final boolean DEBUG = false;
+  private static final Log log = LogFactory.getLog(UdpRosConnection.class);
+
+  private final Channel channel;
+  private final int connectionId;
+  private final int maximumDatagramSize;
+
+  private int messageId;
+
+  private static final class ExceptionHandler extends SimpleChannelHandler {
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
+      if (DEBUG) {
+        log.info("Closing UDPROS connection: " + e.getCause());
+      }
+      e.getChannel().close();
+    }
+  }
+
+  /**
+   * Connects a new datagram socket to a subscriber.
+   * 
+   * @param channelFactory
+   *          the {@link DatagramChannelFactory} to create the socket with
+   * @param address
+   *          the address the subscriber receives datagrams on
+   * @param connectionId
+   *          the ID included in every datagram of this connection
+   * @param maximumDatagramSize
+   *          the maximum datagram size, including the header
+   * @return a new {@link UdpRosConnection}
+   */
+  public static UdpRosConnection newConnected(DatagramChannelFactory channelFactory,
+      InetSocketAddress address, int connectionId, int maximumDatagramSize) {
+    ConnectionlessBootstrap bootstrap = new ConnectionlessBootstrap(channelFactory);
+    bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new ExceptionHandler());
+      }
+    });
+    Channel channel = bootstrap.bind(new InetSocketAddress(0));
+    ChannelFuture future = channel.connect(address).awaitUninterruptibly();
+    if (!future.isSuccess()) {
+      channel.close();
+      throw new RosRuntimeException("Connection exception: " + address, future.getCause());
+    }
+    return new UdpRosConnection(channel, connectionId, maximumDatagramSize);
+  }
+
+  private UdpRosConnection(Channel channel, int connectionId, int maximumDatagramSize) {
+    this.channel = channel;
+    this.connectionId = connectionId;
+    this.maximumDatagramSize = maximumDatagramSize;
+    messageId = 0;
+  }
+
+  /**
+   * Writes a message as one or more datagrams. This is not thread safe.
+   * 
+   * @param message
+   *          the serialized message without its length prefix
+   * @return the {@link ChannelFuture} of the last datagram, datagrams are
+   *         written in order
+   */
+  public ChannelFuture write(ChannelBuffer message) {
+    List<ChannelBuffer> datagrams =
+        UdpRosFragmenter.fragment(connectionId, messageId++, message, maximumDatagramSize);
+    ChannelFuture future = null;
+    for (ChannelBuffer datagram : datagrams) {
+      future = channel.write(datagram);
+    }
+    return future;
+  }
+
+  /**
+   * @return {@code false} if the connection was closed
+   */
+  public boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  public void close() {
+    channel.close().awaitUninterruptibly();
+  }
+
+  public int getConnectionId() {
+    return connectionId;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Splits serialized messages into UDPROS datagrams.
+ * <p>
+ * Every datagram starts with an 8 byte header: the connection ID (uint32), the
+ * opcode (uint8), the message ID (uint8) and the block number (uint16). The
+ * first datagram of a message ({@link #OPCODE_DATA0}) carries the total number
+ * of blocks in place of the block number. The payload of all blocks
+ * concatenated is the message prefixed with its length, just like on a TCPROS
+ * connection.
+ * 
+ * @see <a href="http://www.ros.org/wiki/ROS/UDPROS">UDPROS documentation</a>
+ */
+public class UdpRosFragmenter {
+
+  public static final int HEADER_SIZE = 8;
+  public static final byte OPCODE_DATA0 = 0;
+  public static final byte OPCODE_DATAN = 1;
+
+  private static final int MAXIMUM_BLOCKS = 0xffff;
+
+  private UdpRosFragmenter() {
+    // Utility class.
+  }
+
+  /**
+   * The returned datagrams share content with {@code message} and do not
+   * modify its indices.
+   * 
+   * @param connectionId
+   *          the ID that the subscriber was given for this connection
+   * @param messageId
+   *          the ID of this message, only the least significant byte is used
+   * @param message
+   *          the little endian serialized message without its length prefix
+   * @param maximumDatagramSize
+   *          the maximum size of a datagram including its header
+   * @return the datagrams for {@code message} in the order they must be sent
+   */
+  public static List<ChannelBuffer> fragment(int connectionId, int messageId,
+      ChannelBuffer message, int maximumDatagramSize) {
+    int blockSize = maximumDatagramSize - HEADER_SIZE;
+    Preconditions.checkArgument(blockSize > 0, "Datagrams are too small.");
+    Preconditions.checkArgument(message.order() == ByteOrder.LITTLE_ENDIAN,
+        "Messages must be little endian.");
+    ChannelBuffer lengthPrefix = ChannelBuffers.buffer(ByteOrder.LITTLE_ENDIAN, 4);
+    lengthPrefix.writeInt(message.readableBytes());
+    ChannelBuffer payload = ChannelBuffers.wrappedBuffer(lengthPrefix, message.duplicate());
+    int payloadSize = payload.readableBytes();
+    int numberOfBlocks = (payloadSize + blockSize - 1) / blockSize;
+    Preconditions.checkArgument(numberOfBlocks <= MAXIMUM_BLOCKS, "Message is too large: "
+        + message.readableBytes() + " bytes.");
+    List<ChannelBuffer> datagrams = Lists.newArrayListWithCapacity(numberOfBlocks);
+    for (int block = 0; block < numberOfBlocks; block++) {
+      ChannelBuffer header = ChannelBuffers.buffer(ByteOrder.LITTLE_ENDIAN, HEADER_SIZE);
+      header.writeInt(connectionId);
+      header.writeByte(block == 0 ? OPCODE_DATA0 : OPCODE_DATAN);
+      header.writeByte(messageId);
+      header.writeShort(block == 0 ? numberOfBlocks : block);
+      int offset = block * blockSize;
+      int length = Math.min(blockSize, payloadSize - offset);
+      datagrams.add(ChannelBuffers.wrappedBuffer(header, payload.slice(offset, length)));
+    }
+    return datagrams;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import org.ros.address.AdvertiseAddress;
+import org.ros.internal.transport.ProtocolDescription;
+import org.ros.internal.transport.ProtocolNames;
+
+import java.util.List;
+
+/**
+ * The publisher's response to a UDPROS topic request.
+ */
+public class UdpRosProtocolDescription extends ProtocolDescription {
+
+  private final int connectionId;
+  private final int maximumDatagramSize;
+  private final byte[] header;
+
+  /**
+   * @param address
+   *          the address of the publishing node
+   * @param connectionId
+   *          the ID the publisher will use in all datagrams of this connection
+   * @param maximumDatagramSize
+   *          the maximum datagram size the publisher will use
+   * @param header
+   *          the publisher's encoded connection header
+   */
+  public UdpRosProtocolDescription(AdvertiseAddress address, int connectionId,
+      int maximumDatagramSize, byte[] header) {
+    super(ProtocolNames.UDPROS, address);
+    this.connectionId = connectionId;
+    this.maximumDatagramSize = maximumDatagramSize;
+    this.header = header;
+  }
+
+  public int getConnectionId() {
+    return connectionId;
+  }
+
+  public int getMaximumDatagramSize() {
+    return maximumDatagramSize;
+  }
+
+  public byte[] getHeader() {
+    return header;
+  }
+
+  @Override
+  public List<Object> toList() {
+    List<Object> list = super.toList();
+    list.add(connectionId);
+    list.add(maximumDatagramSize);
+    list.add(header);
+    return list;
+  }
+}
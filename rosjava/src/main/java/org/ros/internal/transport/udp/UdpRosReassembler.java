@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reassembles messages from UDPROS datagrams (see {@link UdpRosFragmenter})
+ * and passes each complete message, without its length prefix, upstream.
+ * <p>
+ * UDPROS is lossy. A message is dropped as soon as one of its blocks is
+ * missing or arrives out of order. Reassembly state is kept per sender and
+ * connection ID.
+ */
+public class UdpRosReassembler extends SimpleChannelUpstreamHandler {
+
+  private static final boolean DEBUG = false;
+  private static final Log log = LogFactory.getLog(UdpRosReassembler.class);
+
+  private final Map<Connection, PartialMessage> partialMessages;
+
+  private static final class Connection {
+
+    private final SocketAddress sender;
+    private final int connectionId;
+
+    public Connection(SocketAddress sender, int connectionId) {
+      this.sender = sender;
+      this.connectionId = connectionId;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (sender == null ? 0 : sender.hashCode()) + connectionId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Connection)) {
+        return false;
+      }
+      Connection other = (Connection) obj;
+      return connectionId == other.connectionId
+          && (sender == null ? other.sender == null : sender.equals(other.sender));
+    }
+  }
+
+  private static final class PartialMessage {
+
+    private final int messageId;
+    private final int numberOfBlocks;
+    private final List<ChannelBuffer> blocks;
+
+    public PartialMessage(int messageId, int numberOfBlocks) {
+      this.messageId = messageId;
+      this.numberOfBlocks = numberOfBlocks;
+      blocks = Lists.newArrayListWithCapacity(numberOfBlocks);
+    }
+
+    public boolean isComplete() {
+      return blocks.size() == numberOfBlocks;
+    }
+  }
+
+  public UdpRosReassembler() {
+    partialMessages = Maps.newHashMap();
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    ChannelBuffer datagram = (ChannelBuffer) e.getMessage();
+    if (datagram.readableBytes() < UdpRosFragmenter.HEADER_SIZE) {
+      if (DEBUG) {
+        log.info("Dropping truncated datagram from: " + e.getRemoteAddress());
+      }
+      return;
+    }
+    int connectionId = datagram.readInt();
+    byte opcode = datagram.readByte();
+    int messageId = datagram.readUnsignedByte();
+    int block = datagram.readUnsignedShort();
+    Connection connection = new Connection(e.getRemoteAddress(), connectionId);
+    PartialMessage partialMessage;
+    if (opcode == UdpRosFragmenter.OPCODE_DATA0) {
+      // A new message always replaces an incomplete one.
+      partialMessage = new PartialMessage(messageId, block);
+      partialMessages.put(connection, partialMessage);
+    } else {
+      partialMessage = partialMessages.get(connection);
+      if (partialMessage == null || partialMessage.messageId != messageId
+          || partialMessage.blocks.size() != block) {
+        if (DEBUG) {
+          log.info("Dropping message " + messageId + " from connection " + connectionId);
+        }
+        partialMessages.remove(connection);
+        return;
+      }
+    }
+    partialMessage.blocks.add(datagram);
+    if (partialMessage.isComplete()) {
+      partialMessages.remove(connection);
+      ChannelBuffer payload =
+          ChannelBuffers.wrappedBuffer(partialMessage.blocks.toArray(new ChannelBuffer[0]));
+      int length = payload.readInt();
+      if (length != payload.readableBytes()) {
+        log.error("Dropping message with invalid length " + length + " from connection "
+            + connectionId);
+        return;
+      }
+      Channels.fireMessageReceived(ctx, payload, e.getRemoteAddress());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.bootstrap.ConnectionlessBootstrap;
+import org.jboss.netty.buffer.HeapChannelBufferFactory;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandler;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.FixedReceiveBufferSizePredictorFactory;
+import org.jboss.netty.channel.socket.DatagramChannelFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteOrder;
+
+/**
+ * The subscriber's end of UDPROS. Receives datagrams from any number of
+ * publishers and passes reassembled messages on to a {@link ChannelHandler}.
+ */
+public class UdpRosReceiver {
+
+  private static final boolean DEBUG = false;
+  private static final Log log = LogFactory.getLog(UdpRosReceiver.class);
+
+  private final DatagramChannelFactory channelFactory;
+  private final int maximumDatagramSize;
+  private final ChannelHandler messageHandler;
+
+  private Channel channel;
+
+  /**
+   * @param channelFactory
+   *          the {@link DatagramChannelFactory} to create the socket with
+   * @param maximumDatagramSize
+   *          the maximum datagram size that will be accepted
+   * @param messageHandler
+   *          the {@link ChannelHandler} that reassembled messages are passed
+   *          to (e.g. the subscriber's
+   *          {@link org.ros.internal.transport.IncomingMessageQueue})
+   */
+  public UdpRosReceiver(DatagramChannelFactory channelFactory, int maximumDatagramSize,
+      ChannelHandler messageHandler) {
+    this.channelFactory = channelFactory;
+    this.maximumDatagramSize = maximumDatagramSize;
+    this.messageHandler = messageHandler;
+  }
+
+  /**
+   * @param bindAddress
+   *          the address to receive datagrams on, a port of 0 picks any free
+   *          port
+   */
+  public void start(InetSocketAddress bindAddress) {
+    Preconditions.checkState(channel == null);
+    ConnectionlessBootstrap bootstrap = new ConnectionlessBootstrap(channelFactory);
+    bootstrap.setOption("bufferFactory", new HeapChannelBufferFactory(ByteOrder.LITTLE_ENDIAN));
+    // Netty sizes receive buffers for small datagrams by default and would
+    // truncate larger ones.
+    bootstrap.setOption("receiveBufferSizePredictorFactory",
+        new FixedReceiveBufferSizePredictorFactory(maximumDatagramSize));
+    bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new UdpRosReassembler(), messageHandler);
+      }
+    });
+    channel = bootstrap.bind(bindAddress);
+    if (DEBUG) {
+      log.info("Bound to: " + getAddress());
+    }
+  }
+
+  /**
+   * @return the address datagrams are received on
+   */
+  public InetSocketAddress getAddress() {
+    Preconditions.checkState(channel != null, "Not started.");
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
+  public int getMaximumDatagramSize() {
+    return maximumDatagramSize;
+  }
+
+  /**
+   * Calling this method more than once has no effect.
+   */
+  public void shutdown() {
+    if (channel != null) {
+      channel.close().awaitUninterruptibly();
+      channel = null;
+    }
+  }
+}
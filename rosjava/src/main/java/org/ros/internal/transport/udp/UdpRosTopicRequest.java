@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import org.ros.internal.transport.ProtocolNames;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * The parameters a subscriber sends along with UDPROS in a topic request.
+ */
+public class UdpRosTopicRequest {
+
+  private final byte[] header;
+  private final String host;
+  private final int port;
+  private final int maximumDatagramSize;
+
+  /**
+   * @param protocol
+   *          the requested protocol as it was received over XML-RPC
+   * @return the {@link UdpRosTopicRequest} described by {@code protocol} or
+   *         {@code null} if {@code protocol} is not a UDPROS request
+   */
+  public static UdpRosTopicRequest newFromArray(Object[] protocol) {
+    if (protocol.length != 5 || !protocol[0].equals(ProtocolNames.UDPROS)) {
+      return null;
+    }
+    return new UdpRosTopicRequest((byte[]) protocol[1], (String) protocol[2],
+        (Integer) protocol[3], (Integer) protocol[4]);
+  }
+
+  /**
+   * @param header
+   *          the subscriber's encoded connection header
+   * @param host
+   *          the host the subscriber receives datagrams on
+   * @param port
+   *          the port the subscriber receives datagrams on
+   * @param maximumDatagramSize
+   *          the maximum datagram size the subscriber accepts
+   */
+  public UdpRosTopicRequest(byte[] header, String host, int port, int maximumDatagramSize) {
+    Preconditions.checkArgument(maximumDatagramSize > UdpRosFragmenter.HEADER_SIZE);
+    this.header = header;
+    this.host = host;
+    this.port = port;
+    this.maximumDatagramSize = maximumDatagramSize;
+  }
+
+  public byte[] getHeader() {
+    return header;
+  }
+
+  public InetSocketAddress getAddress() {
+    return new InetSocketAddress(host, port);
+  }
+
+  public int getMaximumDatagramSize() {
+    return maximumDatagramSize;
+  }
+
+  public List<Object> toList() {
+    return Lists.newArrayList((Object) ProtocolNames.UDPROS, header, host, port,
+        maximumDatagramSize);
+  }
+}
@@ -16,6 +16,8 @@
 
 package org.ros.node;
 
+import com.google.common.base.Preconditions;
+
 import org.ros.address.AdvertiseAddress;
 import org.ros.address.AdvertiseAddressFactory;
 import org.ros.address.BindAddress;
@@ -60,6 +62,35 @@ public class NodeConfiguration {
    */
   public static final URI DEFAULT_MASTER_URI;
 
+  /**
+   * The default number of worker threads shared by all outgoing TCPROS
+   * connections (i.e. {@link org.ros.node.topic.Subscriber}s and
+   * {@link org.ros.node.service.ServiceClient}s) of a {@link Node}.
+   */
+  public static final int DEFAULT_TCPROS_CLIENT_WORKER_COUNT = Runtime.getRuntime()
+      .availableProcessors();
+
+  /**
+   * The default maximum number of persistent connections each
+   * {@link org.ros.node.service.ServiceClient} opens to its
+   * {@link org.ros.node.service.ServiceServer}. Connections beyond the first
+   * are only opened for concurrent calls.
+   */
+  public static final int DEFAULT_SERVICE_CLIENT_CONNECTION_COUNT = 4;
+
+  /**
+   * The default maximum number of requests each
+   * {@link org.ros.node.service.ServiceServer} processes concurrently.
+   */
+  public static final int DEFAULT_SERVICE_SERVER_WORKER_COUNT = 4;
+
+  /**
+   * The default maximum number of requests each
+   * {@link org.ros.node.service.ServiceServer} queues while all of its workers
+   * are busy. Further requests are answered with an error.
+   */
+  public static final int DEFAULT_SERVICE_SERVER_MAXIMUM_QUEUED_REQUESTS = 128;
+
   static {
     try {
       DEFAULT_MASTER_URI = new URI("http://localhost:11311/");
@@ -81,10 +112,15 @@ public class NodeConfiguration {
   private MessageSerializationFactory messageSerializationFactory;
   private BindAddress tcpRosBindAddress;
   private AdvertiseAddressFactory tcpRosAdvertiseAddressFactory;
+  private int tcpRosClientWorkerCount;
+  private int serviceClientConnectionCount;
+  private int serviceServerWorkerCount;
+  private int serviceServerMaximumQueuedRequests;
   private BindAddress xmlRpcBindAddress;
   private AdvertiseAddressFactory xmlRpcAdvertiseAddressFactory;
   private ScheduledExecutorService scheduledExecutorService;
   private TimeProvider timeProvider;
+  private boolean parameterCacheEnabled;
 
   /**
    * @param nodeConfiguration
@@ -106,10 +142,15 @@ public class NodeConfiguration {
     copy.messageSerializationFactory = nodeConfiguration.messageSerializationFactory;
     copy.tcpRosBindAddress = nodeConfiguration.tcpRosBindAddress;
     copy.tcpRosAdvertiseAddressFactory = nodeConfiguration.tcpRosAdvertiseAddressFactory;
+    copy.tcpRosClientWorkerCount = nodeConfiguration.tcpRosClientWorkerCount;
+    copy.serviceClientConnectionCount = nodeConfiguration.serviceClientConnectionCount;
+    copy.serviceServerWorkerCount = nodeConfiguration.serviceServerWorkerCount;
+    copy.serviceServerMaximumQueuedRequests = nodeConfiguration.serviceServerMaximumQueuedRequests;
     copy.xmlRpcBindAddress = nodeConfiguration.xmlRpcBindAddress;
     copy.xmlRpcAdvertiseAddressFactory = nodeConfiguration.xmlRpcAdvertiseAddressFactory;
     copy.scheduledExecutorService = nodeConfiguration.scheduledExecutorService;
     copy.timeProvider = nodeConfiguration.timeProvider;
+    copy.parameterCacheEnabled = nodeConfiguration.parameterCacheEnabled;
     return copy;
   }
 
@@ -187,6 +228,10 @@ public class NodeConfiguration {
     setMessageSerializationFactory(new DefaultMessageSerializationFactory(messageDefinitionProvider));
     setParentResolver(NameResolver.newRoot());
     setTimeProvider(new WallTimeProvider());
+    setTcpRosClientWorkerCount(DEFAULT_TCPROS_CLIENT_WORKER_COUNT);
+    setServiceClientConnectionCount(DEFAULT_SERVICE_CLIENT_CONNECTION_COUNT);
+    setServiceServerWorkerCount(DEFAULT_SERVICE_SERVER_WORKER_COUNT);
+    setServiceServerMaximumQueuedRequests(DEFAULT_SERVICE_SERVER_MAXIMUM_QUEUED_REQUESTS);
   }
 
   /**
@@ -483,6 +528,109 @@ public class NodeConfiguration {
     return tcpRosAdvertiseAddressFactory.newDefault();
   }
 
+  /**
+   * @return the number of worker threads that all outgoing TCPROS connections
+   *         of the {@link Node} are multiplexed over
+   */
+  public int getTcpRosClientWorkerCount() {
+    return tcpRosClientWorkerCount;
+  }
+
+  /**
+   * Sets the number of worker threads that all outgoing TCPROS connections of
+   * the {@link Node} are multiplexed over. By default,
+   * {@link #DEFAULT_TCPROS_CLIENT_WORKER_COUNT} is used.
+   * 
+   * @param tcpRosClientWorkerCount
+   *          the number of worker threads, must be greater than 0
+   * @return this {@link NodeConfiguration}
+   */
+  public NodeConfiguration setTcpRosClientWorkerCount(int tcpRosClientWorkerCount) {
+    Preconditions.checkArgument(tcpRosClientWorkerCount > 0);
+    this.tcpRosClientWorkerCount = tcpRosClientWorkerCount;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of persistent connections each
+   *         {@link org.ros.node.service.ServiceClient} of the {@link Node}
+   *         opens to its {@link org.ros.node.service.ServiceServer}
+   */
+  public int getServiceClientConnectionCount() {
+    return serviceClientConnectionCount;
+  }
+
+  /**
+   * Sets the maximum number of persistent connections each
+   * {@link org.ros.node.service.ServiceClient} of the {@link Node} opens to
+   * its {@link org.ros.node.service.ServiceServer}. Calls are pipelined over
+   * the connection with the fewest outstanding requests and additional
+   * connections are only opened while all existing ones are busy. By default,
+   * {@link #DEFAULT_SERVICE_CLIENT_CONNECTION_COUNT} is used.
+   * 
+   * @param serviceClientConnectionCount
+   *          the maximum number of connections, must be greater than 0
+   * @return this {@link NodeConfiguration}
+   */
+  public NodeConfiguration setServiceClientConnectionCount(int serviceClientConnectionCount) {
+    Preconditions.checkArgument(serviceClientConnectionCount > 0);
+    this.serviceClientConnectionCount = serviceClientConnectionCount;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of requests each
+   *         {@link org.ros.node.service.ServiceServer} of the {@link Node}
+   *         processes concurrently
+   */
+  public int getServiceServerWorkerCount() {
+    return serviceServerWorkerCount;
+  }
+
+  /**
+   * Sets the maximum number of requests each
+   * {@link org.ros.node.service.ServiceServer} of the {@link Node} processes
+   * concurrently. Requests arriving on the same connection are always
+   * processed one after the other. By default,
+   * {@link #DEFAULT_SERVICE_SERVER_WORKER_COUNT} is used.
+   * 
+   * @param serviceServerWorkerCount
+   *          the number of workers, must be greater than 0
+   * @return this {@link NodeConfiguration}
+   */
+  public NodeConfiguration setServiceServerWorkerCount(int serviceServerWorkerCount) {
+    Preconditions.checkArgument(serviceServerWorkerCount > 0);
+    this.serviceServerWorkerCount = serviceServerWorkerCount;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of requests each
+   *         {@link org.ros.node.service.ServiceServer} of the {@link Node}
+   *         queues while all of its workers are busy
+   */
+  public int getServiceServerMaximumQueuedRequests() {
+    return serviceServerMaximumQueuedRequests;
+  }
+
+  /**
+   * Sets the maximum number of requests each
+   * {@link org.ros.node.service.ServiceServer} of the {@link Node} queues
+   * while all of its workers are busy. Requests beyond this limit fail
+   * immediately with a "Service overloaded." error instead of waiting. By
+   * default, {@link #DEFAULT_SERVICE_SERVER_MAXIMUM_QUEUED_REQUESTS} is used.
+   * 
+   * @param serviceServerMaximumQueuedRequests
+   *          the maximum number of queued requests, must not be negative
+   * @return this {@link NodeConfiguration}
+   */
+  public NodeConfiguration setServiceServerMaximumQueuedRequests(
+      int serviceServerMaximumQueuedRequests) {
+    Preconditions.checkArgument(serviceServerMaximumQueuedRequests >= 0);
+    this.serviceServerMaximumQueuedRequests = serviceServerMaximumQueuedRequests;
+    return this;
+  }
+
   /**
    * @see <a href="http://www.ros.org/wiki/ROS/Technical%20Overview#Node">Node
    *      documentation</a>
@@ -558,4 +706,28 @@ public class NodeConfiguration {
     this.timeProvider = timeProvider;
     return this;
   }
+
+  /**
+   * @return {@code true} if the {@link Node}'s
+   *         {@link org.ros.node.parameter.ParameterTree} caches parameter
+   *         values
+   */
+  public boolean isParameterCacheEnabled() {
+    return parameterCacheEnabled;
+  }
+
+  /**
+   * Enables caching of parameter values in the {@link Node}'s
+   * {@link org.ros.node.parameter.ParameterTree}. Parameters are subscribed to
+   * when they are first read and later reads do not contact the master. By
+   * default, caching is disabled.
+   * 
+   * @param parameterCacheEnabled
+   *          {@code true} to cache parameter values
+   * @return this {@link NodeConfiguration}
+   */
+  public NodeConfiguration setParameterCacheEnabled(boolean parameterCacheEnabled) {
+    this.parameterCacheEnabled = parameterCacheEnabled;
+    return this;
+  }
 }
@@ -17,7 +17,9 @@
 package org.ros.node.topic;
 
 import org.ros.internal.node.topic.TopicParticipant;
+import org.ros.internal.transport.ConnectionStatistics;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,6 +62,10 @@ public interface Publisher<T> extends TopicParticipant {
   /**
    * Publishes a message. This message will be available on the topic that this
    * {@link Publisher} has been associated with.
+   * <p>
+   * The message is sent asynchronously and may be handed to subscribers in
+   * the same process by reference. It must not be modified after it was
+   * published. Publish a new message instead of reusing one.
    * 
    * @param message
    *          the message to publish
@@ -138,4 +144,21 @@ public interface Publisher<T> extends TopicParticipant {
    * @return the maximum number of messages to queue (i.e. buffer) for sending
    */
   int getQueueLimit();
+
+  /**
+   * @return the number of outgoing messages currently queued (i.e. buffered)
+   */
+  int getQueueSize();
+
+  /**
+   * @return the number of published messages that were dropped because the
+   *         queue limit was exceeded
+   */
+  long getDroppedMessageCount();
+
+  /**
+   * @return the {@link ConnectionStatistics} of each connection of this
+   *         {@link Publisher}
+   */
+  List<ConnectionStatistics> getConnectionStatistics();
 }
\ No newline at end of file
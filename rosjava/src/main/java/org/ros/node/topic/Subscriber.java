@@ -17,8 +17,10 @@
 package org.ros.node.topic;
 
 import org.ros.internal.node.topic.TopicParticipant;
+import org.ros.internal.transport.ConnectionStatistics;
 import org.ros.message.MessageListener;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -104,6 +106,23 @@ public interface Subscriber<T> extends TopicParticipant {
    */
   int getQueueLimit();
 
+  /**
+   * @return the number of incoming messages currently queued (i.e. buffered)
+   */
+  int getQueueSize();
+
+  /**
+   * @return the number of received messages that were dropped because the
+   *         queue limit was exceeded
+   */
+  long getDroppedMessageCount();
+
+  /**
+   * @return the {@link ConnectionStatistics} of each connection of this
+   *         {@link Subscriber}
+   */
+  List<ConnectionStatistics> getConnectionStatistics();
+
   /**
    * @return {@code true} if the {@link Publisher} of this {@link Subscriber}'s
    *         topic is latched, {@code false} otherwise
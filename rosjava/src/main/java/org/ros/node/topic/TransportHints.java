@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.node.topic;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes how a {@link Subscriber} would like to receive messages from its
+ * {@link Publisher}s.
+ * <p>
+ * Hints are only preferences. A {@link Publisher} that does not support the
+ * preferred transport falls back to TCPROS. {@link Publisher}s in the same
+ * process only hand over messages directly if that is allowed.
+ */
+public class TransportHints {
+
+  /**
+   * The default maximum size of UDPROS datagrams, including their header.
+   */
+  public static final int DEFAULT_MAXIMUM_DATAGRAM_SIZE = 1500;
+
+  private boolean preferUdp;
+  private int maximumDatagramSize;
+  private boolean allowIntraProcess;
+
+  public TransportHints() {
+    preferUdp = false;
+    maximumDatagramSize = DEFAULT_MAXIMUM_DATAGRAM_SIZE;
+    allowIntraProcess = false;
+  }
+
+  /**
+   * Prefer UDPROS over TCPROS. Messages may be dropped, but late messages will
+   * never hold up newer ones. This is useful for high rate topics where only
+   * the latest message matters.
+   * 
+   * @see <a href="http://www.ros.org/wiki/ROS/UDPROS">UDPROS documentation</a>
+   * 
+   * @param preferUdp
+   *          {@code true} if UDPROS should be preferred
+   * @return this {@link TransportHints}
+   */
+  public TransportHints setPreferUdp(boolean preferUdp) {
+    this.preferUdp = preferUdp;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if UDPROS should be preferred
+   */
+  public boolean getPreferUdp() {
+    return preferUdp;
+  }
+
+  /**
+   * @param maximumDatagramSize
+   *          the maximum size of UDPROS datagrams, including their 8 byte
+   *          header
+   * @return this {@link TransportHints}
+   */
+  public TransportHints setMaximumDatagramSize(int maximumDatagramSize) {
+    Preconditions.checkArgument(maximumDatagramSize > 8);
+    this.maximumDatagramSize = maximumDatagramSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum size of UDPROS datagrams, including their header
+   */
+  public int getMaximumDatagramSize() {
+    return maximumDatagramSize;
+  }
+
+  /**
+   * Allow {@link Publisher}s in the same process to hand over messages
+   * directly. This is disallowed by default.
+   * <p>
+   * Messages are handed over by reference, so the {@link Subscriber}'s
+   * listeners receive the instance that was published. Neither the
+   * {@link Publisher} nor any listener may modify a message after it was
+   * published.
+   * 
+   * @param allowIntraProcess
+   *          {@code true} if messages may be handed over directly
+   * @return this {@link TransportHints}
+   */
+  public TransportHints setAllowIntraProcess(boolean allowIntraProcess) {
+    this.allowIntraProcess = allowIntraProcess;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if {@link Publisher}s in the same process may hand
+   *         over messages directly
+   */
+  public boolean getAllowIntraProcess() {
+    return allowIntraProcess;
+  }
+}
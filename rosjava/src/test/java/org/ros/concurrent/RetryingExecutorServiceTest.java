@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.concurrent;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryingExecutorServiceTest {
+
+  private ScheduledExecutorService executorService;
+  private RetryingExecutorService retryingExecutorService;
+
+  @Before
+  public void setup() {
+    executorService = Executors.newScheduledThreadPool(4);
+    retryingExecutorService = new RetryingExecutorService(executorService);
+    retryingExecutorService.setRetryDelay(1, TimeUnit.MILLISECONDS);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    retryingExecutorService.shutdown(1, TimeUnit.SECONDS);
+    executorService.shutdown();
+  }
+
+  @Test
+  public void testCallablesThatCompleteImmediatelyAreRetried() throws InterruptedException {
+    // Callables that finish before submit() returns must not lose their
+    // retries.
+    final int callableCount = 1000;
+    final CountDownLatch completed = new CountDownLatch(callableCount);
+    for (int i = 0; i < callableCount; i++) {
+      final AtomicInteger attempts = new AtomicInteger();
+      retryingExecutorService.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          if (attempts.incrementAndGet() < 3) {
+            return true;
+          }
+          completed.countDown();
+          return false;
+        }
+      });
+    }
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+  }
+}
@@ -17,6 +17,7 @@
 package org.ros.internal.message;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import com.google.common.collect.Lists;
 
@@ -24,6 +25,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.ros.internal.message.topic.TopicDefinitionResourceProvider;
 import org.ros.message.Duration;
+import org.ros.message.MessageDeserializer;
+import org.ros.message.MessageSerializer;
 import org.ros.message.Time;
 
 import java.nio.ByteBuffer;
@@ -193,4 +196,65 @@ public class MessageSerializationTest {
     nestedListMessage.setData(Lists.<std_msgs.String>newArrayList(stringMessageA, stringMessageB));
     checkSerializeAndDeserialize(nestedListMessage);
   }
+
+  private <T extends Message> void checkGeneratedSerializeAndDeserialize(T message) {
+    String messageType = message.toRawMessage().getType();
+    DefaultMessageSerializationFactory messageSerializationFactory =
+        new DefaultMessageSerializationFactory(topicDefinitionResourceProvider);
+    MessageSerializer<T> serializer = messageSerializationFactory.newMessageSerializer(messageType);
+    MessageDeserializer<T> deserializer =
+        messageSerializationFactory.newMessageDeserializer(messageType);
+    assertFalse(serializer instanceof DefaultMessageSerializer);
+    assertFalse(deserializer instanceof DefaultMessageDeserializer);
+    ByteBuffer buffer = serializer.serialize(message);
+    assertEquals(message.toRawMessage().serialize(), buffer);
+    assertEquals(message, deserializer.deserialize(buffer));
+  }
+
+  @Test
+  public void testGeneratedSerializer() {
+    geometry_msgs.PoseStamped message =
+        defaultMessageFactory.newFromType(geometry_msgs.PoseStamped._TYPE);
+    message.getHeader().setFrameId("foo");
+    message.getHeader().setStamp(new Time(1, 2));
+    message.getPose().getPosition().setX(1);
+    message.getPose().getOrientation().setW(1);
+    checkGeneratedSerializeAndDeserialize(message);
+  }
+
+  @Test
+  public void testGeneratedSerializerPrimitiveArray() {
+    std_msgs.Float64MultiArray message =
+        defaultMessageFactory.newFromType(std_msgs.Float64MultiArray._TYPE);
+    std_msgs.MultiArrayDimension dimension =
+        defaultMessageFactory.newFromType(std_msgs.MultiArrayDimension._TYPE);
+    dimension.setLabel("foo");
+    dimension.setSize(3);
+    dimension.setStride(3);
+    message.getLayout().setDim(Lists.newArrayList(dimension));
+    message.setData(new double[] { 1, 2, 3 });
+    checkGeneratedSerializeAndDeserialize(message);
+  }
+
+  @Test
+  public void testMessageView() {
+    geometry_msgs.PoseStamped message =
+        defaultMessageFactory.newFromType(geometry_msgs.PoseStamped._TYPE);
+    message.getHeader().setFrameId("foo");
+    message.getPose().getPosition().setX(1);
+    MessageViewSerializationFactory messageSerializationFactory =
+        new MessageViewSerializationFactory(topicDefinitionResourceProvider);
+    MessageDeserializer<geometry_msgs.PoseStamped> deserializer =
+        messageSerializationFactory.newMessageDeserializer(geometry_msgs.PoseStamped._TYPE);
+    MessageSerializer<geometry_msgs.PoseStamped> serializer =
+        messageSerializationFactory.newMessageSerializer(geometry_msgs.PoseStamped._TYPE);
+    ByteBuffer buffer = message.toRawMessage().serialize();
+    geometry_msgs.PoseStamped view = deserializer.deserialize(buffer.duplicate());
+    assertEquals("foo", view.getHeader().getFrameId());
+    assertEquals(buffer, serializer.serialize(view));
+    view.getPose().getPosition().setX(2);
+    message.getPose().getPosition().setX(2);
+    assertEquals(message, view);
+    assertEquals(message.toRawMessage().serialize(), serializer.serialize(view));
+  }
 }
@@ -18,6 +18,10 @@ package org.ros.internal.node;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
 
 import org.junit.After;
 import org.junit.Before;
@@ -31,10 +35,14 @@ import org.ros.internal.node.response.Response;
 import org.ros.internal.node.server.SlaveServer;
 import org.ros.internal.node.server.master.MasterServer;
 import org.ros.internal.node.service.ServiceManager;
+import org.ros.internal.node.topic.DefaultSubscriber;
 import org.ros.internal.node.topic.TopicParticipantManager;
+import org.ros.internal.transport.ConnectionStatistics;
+import org.ros.internal.transport.ProtocolNames;
 import org.ros.namespace.GraphName;
 
 import java.net.URI;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -47,6 +55,7 @@ public class MasterSlaveIntegrationTest {
   private MasterClient masterClient;
   private SlaveServer slaveServer;
   private SlaveClient slaveClient;
+  private TopicParticipantManager topicParticipantManager;
   private ScheduledExecutorService executorService;
 
   @Before
@@ -55,7 +64,7 @@ public class MasterSlaveIntegrationTest {
     masterServer = new MasterServer(BindAddress.newPublic(), AdvertiseAddress.newPublic());
     masterServer.start();
     masterClient = new MasterClient(masterServer.getUri());
-    TopicParticipantManager topicParticipantManager = new TopicParticipantManager();
+    topicParticipantManager = new TopicParticipantManager();
     ServiceManager serviceManager = new ServiceManager();
     ParameterManager parameterManager = new ParameterManager(executorService);
     slaveServer =
@@ -83,4 +92,24 @@ public class MasterSlaveIntegrationTest {
     Response<Integer> response = slaveClient.getPid();
     assertTrue(response.getResult() > 0);
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testGetBusStatsReportsDropsOnce() {
+    DefaultSubscriber<Object> subscriber = mock(DefaultSubscriber.class);
+    when(subscriber.getTopicName()).thenReturn(new GraphName("/topic"));
+    when(subscriber.getDroppedMessageCount()).thenReturn(5L);
+    when(subscriber.getConnectionStatistics()).thenReturn(
+        Lists.newArrayList(
+            new ConnectionStatistics("/first", ConnectionStatistics.Direction.IN,
+                ProtocolNames.TCPROS),
+            new ConnectionStatistics("/second", ConnectionStatistics.Direction.IN,
+                ProtocolNames.TCPROS)));
+    topicParticipantManager.addSubscriber(subscriber);
+    List<Object> subscribeStats = (List<Object>) slaveServer.getBusStats("/bar").get(1);
+    List<Object> connectionData =
+        (List<Object>) ((List<Object>) subscribeStats.get(0)).get(1);
+    assertEquals(5, ((List<Object>) connectionData.get(0)).get(3));
+    assertEquals(0, ((List<Object>) connectionData.get(1)).get(3));
+  }
 }
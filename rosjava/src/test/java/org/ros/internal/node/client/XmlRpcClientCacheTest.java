@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.client;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.ros.internal.node.xmlrpc.SlaveXmlRpcEndpoint;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+public class XmlRpcClientCacheTest {
+
+  private static final URI SERVER_URI = URI.create("http://localhost:12345/");
+
+  private SlaveXmlRpcEndpoint getEndpoint(Executor executor) {
+    return XmlRpcClientCache.getEndpoint(SERVER_URI, SlaveXmlRpcEndpoint.class, 1000, 1000, 1000,
+        executor);
+  }
+
+  @Test
+  public void testEndpointsWithoutExecutorAreShared() {
+    assertSame(getEndpoint(null), getEndpoint(null));
+  }
+
+  @Test
+  public void testEndpointsWithExecutorAreNotCached() {
+    Executor executor = Executors.newSingleThreadExecutor();
+    assertNotSame(getEndpoint(executor), getEndpoint(executor));
+  }
+}
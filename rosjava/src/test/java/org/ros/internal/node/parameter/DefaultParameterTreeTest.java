@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.node.client.ParameterClient;
+import org.ros.internal.node.response.Response;
+import org.ros.namespace.GraphName;
+import org.ros.namespace.NameResolver;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DefaultParameterTreeTest {
+
+  private ExecutorService executorService;
+  private ParameterClient parameterClient;
+  private DefaultParameterTree parameterTree;
+
+  @Before
+  public void setup() {
+    executorService = Executors.newCachedThreadPool();
+    parameterClient = mock(ParameterClient.class);
+    parameterTree =
+        new DefaultParameterTree(parameterClient, new ParameterManager(executorService),
+            NameResolver.newRoot(), true);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdown();
+  }
+
+  @Test
+  public void testUnsetParameterIsCached() {
+    GraphName name = new GraphName("/foo");
+    when(parameterClient.subscribeParam(name)).thenReturn(
+        Response.<Object>newSuccess("Success", new HashMap<String, Object>()));
+    assertEquals(42, parameterTree.getInteger(name, 42));
+    assertEquals(42, parameterTree.getInteger(name, 42));
+    verify(parameterClient, times(1)).subscribeParam(name);
+    verify(parameterClient, never()).getParam(any(GraphName.class));
+  }
+}
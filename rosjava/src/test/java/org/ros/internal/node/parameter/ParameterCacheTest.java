@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.namespace.GraphName;
+
+import java.util.HashMap;
+
+public class ParameterCacheTest {
+
+  private ParameterCache cache;
+  private GraphName name;
+
+  @Before
+  public void setup() {
+    cache = new ParameterCache();
+    name = new GraphName("/foo/bar");
+  }
+
+  @Test
+  public void testFill() {
+    long version = cache.subscribe(name);
+    assertEquals(1, cache.fill(name, 1, version));
+    assertEquals(1, cache.get(name));
+  }
+
+  @Test
+  public void testUpdateOfUnsubscribedParameterIsIgnored() {
+    assertFalse(cache.update(name, 1));
+    assertNull(cache.get(name));
+  }
+
+  @Test
+  public void testDeletePushedBeforeFillWins() {
+    long version = cache.subscribe(name);
+    assertTrue(cache.update(name, new HashMap<String, Object>()));
+    assertSame(ParameterCache.NOT_SET, cache.fill(name, 1, version));
+    assertSame(ParameterCache.NOT_SET, cache.get(name));
+  }
+
+  @Test
+  public void testUnsetParameterIsCached() {
+    long version = cache.subscribe(name);
+    assertSame(ParameterCache.NOT_SET,
+        cache.fill(name, new HashMap<String, Object>(), version));
+    assertSame(ParameterCache.NOT_SET, cache.get(name));
+    assertTrue(cache.update(name, 1));
+    assertEquals(1, cache.get(name));
+  }
+
+  @Test
+  public void testSetPushedBeforeFillWins() {
+    long version = cache.subscribe(name);
+    assertTrue(cache.update(name, 2));
+    assertEquals(2, cache.fill(name, 1, version));
+    assertEquals(2, cache.get(name));
+  }
+
+  @Test
+  public void testFillAfterInvalidateIsNotCached() {
+    long version = cache.subscribe(name);
+    cache.invalidate(new GraphName("/foo"));
+    assertEquals(1, cache.fill(name, 1, version));
+    assertNull(cache.get(name));
+  }
+
+  @Test
+  public void testInvalidateRemovesAncestorsAndDescendants() {
+    GraphName parent = new GraphName("/foo");
+    GraphName child = new GraphName("/foo/bar/baz");
+    GraphName other = new GraphName("/foobar");
+    cache.fill(parent, 1, cache.subscribe(parent));
+    cache.fill(child, 2, cache.subscribe(child));
+    cache.fill(other, 3, cache.subscribe(other));
+    cache.invalidate(name);
+    assertNull(cache.get(parent));
+    assertNull(cache.get(child));
+    assertEquals(3, cache.get(other));
+  }
+}
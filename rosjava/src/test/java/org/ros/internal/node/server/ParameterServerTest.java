@@ -17,15 +17,24 @@
 package org.ros.internal.node.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.ros.namespace.GraphName;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -40,6 +49,11 @@ public class ParameterServerTest {
     server = new ParameterServer();
   }
 
+  @After
+  public void tearDown() {
+    server.shutdown();
+  }
+
   @Test
   public void testGetNonExistent() {
     assertEquals(null, server.get(new GraphName("/foo")));
@@ -128,4 +142,141 @@ public class ParameterServerTest {
     assertTrue(names.contains(name2));
   }
 
+  @Test
+  public void testSetMapReplacesSubtree() {
+    server.set(new GraphName("/foo/bar"), "bloop");
+    Map<String, Object> value = Maps.newHashMap();
+    value.put("baz", 42);
+    server.set(new GraphName("/foo"), value);
+    assertFalse(server.has(new GraphName("/foo/bar")));
+    assertEquals(42, server.get(new GraphName("/foo/baz")));
+    assertEquals(value, server.get(new GraphName("/foo")));
+  }
+
+  @Test
+  public void testGetNamesAfterDelete() {
+    server.set(new GraphName("/foo/bar"), "bloop");
+    server.set(new GraphName("/foo/baz"), "bleep");
+    assertEquals(2, server.getNames().size());
+    server.delete(new GraphName("/foo/bar"));
+    Collection<GraphName> names = server.getNames();
+    assertEquals(1, names.size());
+    assertTrue(names.contains(new GraphName("/foo/baz")));
+  }
+
+  @Test
+  public void testSearch() {
+    server.set(new GraphName("/foo"), "root");
+    server.set(new GraphName("/robot/foo/bar"), "robot");
+    assertEquals(new GraphName("/foo"),
+        server.search(new GraphName("/node"), new GraphName("foo")));
+    assertEquals(new GraphName("/robot/foo/bar"),
+        server.search(new GraphName("/robot/node"), new GraphName("foo/bar")));
+    assertEquals(new GraphName("/robot/foo/baz"),
+        server.search(new GraphName("/robot/arm/node"), new GraphName("foo/baz")));
+    assertEquals(new GraphName("/foo"),
+        server.search(new GraphName("/robot/node"), new GraphName("/foo")));
+    assertEquals(null, server.search(new GraphName("/robot/node"), new GraphName("bar")));
+    assertEquals(null, server.search(new GraphName("/robot/node"), new GraphName("/bar")));
+  }
+
+  @Test
+  public void testSlowSubscriberDoesNotDelayWrites() throws InterruptedException {
+    final NodeIdentifier slowSubscriber = NodeIdentifier.forNameAndUri("/slow", "http://slow:1");
+    final NodeIdentifier fastSubscriber = NodeIdentifier.forNameAndUri("/fast", "http://fast:1");
+    final List<Object> slowUpdates = Collections.synchronizedList(Lists.newArrayList());
+    final List<Object> fastUpdates = Collections.synchronizedList(Lists.newArrayList());
+    final CountDownLatch slowSubscriberBlocked = new CountDownLatch(1);
+    final CountDownLatch unblockSlowSubscriber = new CountDownLatch(1);
+    final CountDownLatch slowSubscriberUpdated = new CountDownLatch(1);
+    final CountDownLatch fastSubscriberUpdated = new CountDownLatch(1);
+    server.shutdown();
+    server = new ParameterServer() {
+      @Override
+      protected void contactSubscriberForParamUpdate(NodeIdentifier subscriber, GraphName name,
+          Object value) {
+        if (subscriber.equals(slowSubscriber)) {
+          slowUpdates.add(value);
+          slowSubscriberBlocked.countDown();
+          try {
+            unblockSlowSubscriber.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          if (value.equals(9)) {
+            slowSubscriberUpdated.countDown();
+          }
+        } else {
+          fastUpdates.add(value);
+          if (value.equals(9)) {
+            fastSubscriberUpdated.countDown();
+          }
+        }
+      }
+    };
+    GraphName name = new GraphName("/foo");
+    server.subscribe(name, slowSubscriber);
+    server.subscribe(name, fastSubscriber);
+    server.set(name, 0);
+    assertTrue(slowSubscriberBlocked.await(1, TimeUnit.SECONDS));
+    for (int i = 1; i < 10; i++) {
+      server.set(name, i);
+    }
+    assertTrue(fastSubscriberUpdated.await(1, TimeUnit.SECONDS));
+    unblockSlowSubscriber.countDown();
+    assertTrue(slowSubscriberUpdated.await(1, TimeUnit.SECONDS));
+    // The updates queued for the slow subscriber were coalesced.
+    assertEquals(Lists.<Object>newArrayList(0, 9), slowUpdates);
+    // Each subscriber sees the updates in the order of the writes.
+    for (int i = 1; i < fastUpdates.size(); i++) {
+      assertTrue((Integer) fastUpdates.get(i - 1) < (Integer) fastUpdates.get(i));
+    }
+  }
+
+  private BlockingQueue<NodeIdentifier> recordNotifiedSubscribers() {
+    final BlockingQueue<NodeIdentifier> notifiedSubscribers =
+        new LinkedBlockingQueue<NodeIdentifier>();
+    server.shutdown();
+    server = new ParameterServer() {
+      @Override
+      protected void contactSubscriberForParamUpdate(NodeIdentifier subscriber, GraphName name,
+          Object value) {
+        notifiedSubscribers.add(subscriber);
+      }
+    };
+    return notifiedSubscribers;
+  }
+
+  @Test
+  public void testUnsubscribe() throws InterruptedException {
+    BlockingQueue<NodeIdentifier> notifiedSubscribers = recordNotifiedSubscribers();
+    NodeIdentifier subscriber = NodeIdentifier.forNameAndUri("/node", "http://node:1");
+    NodeIdentifier otherSubscriber = NodeIdentifier.forNameAndUri("/other", "http://other:1");
+    GraphName name = new GraphName("/foo/bar");
+    server.subscribe(name, subscriber);
+    server.subscribe(name, otherSubscriber);
+    assertFalse(server.unsubscribe(new GraphName("/foo"), subscriber));
+    assertTrue(server.unsubscribe(name, subscriber));
+    assertFalse(server.unsubscribe(name, subscriber));
+    server.set(name, 1);
+    assertEquals(otherSubscriber, notifiedSubscribers.poll(1, TimeUnit.SECONDS));
+    assertEquals(null, notifiedSubscribers.poll(200, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testSubscribeReplacesRestartedNode() throws InterruptedException {
+    BlockingQueue<NodeIdentifier> notifiedSubscribers = recordNotifiedSubscribers();
+    NodeIdentifier oldSubscriber = NodeIdentifier.forNameAndUri("/node", "http://node:1");
+    NodeIdentifier newSubscriber = NodeIdentifier.forNameAndUri("/node", "http://node:2");
+    NodeIdentifier otherSubscriber = NodeIdentifier.forNameAndUri("/other", "http://other:1");
+    server.subscribe(new GraphName("/foo"), oldSubscriber);
+    server.subscribe(new GraphName("/bar"), oldSubscriber);
+    server.subscribe(new GraphName("/bar"), otherSubscriber);
+    server.subscribe(new GraphName("/foo"), newSubscriber);
+    server.set(new GraphName("/bar"), 1);
+    assertEquals(otherSubscriber, notifiedSubscribers.poll(1, TimeUnit.SECONDS));
+    server.set(new GraphName("/foo"), 1);
+    assertEquals(newSubscriber, notifiedSubscribers.poll(1, TimeUnit.SECONDS));
+    assertEquals(null, notifiedSubscribers.poll(200, TimeUnit.MILLISECONDS));
+  }
 }
@@ -20,7 +20,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.google.common.collect.Lists;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.ros.address.Address;
@@ -36,6 +46,12 @@ public class XmlRpcServerTest {
   class FakeNode implements XmlRpcEndpoint {
   }
 
+  public static class EchoNode implements XmlRpcEndpoint {
+    public String echo(String message) {
+      return message;
+    }
+  }
+
   @Test
   public void testGetPublicUri() {
     BindAddress bindAddress = BindAddress.newPublic();
@@ -71,4 +87,100 @@ public class XmlRpcServerTest {
 
     xmlRpcServer.shutdown();
   }
+
+  @Test
+  public void testNioServerThreadCountStaysFlatAsClientsGrow() throws IOException {
+    XmlRpcServer xmlRpcServer =
+        new XmlRpcServer(BindAddress.newPrivate(), AdvertiseAddress.newPrivate(), true);
+    NettyWebServer webServer = (NettyWebServer) xmlRpcServer.getWebServer();
+    xmlRpcServer.start(EchoNode.class, new EchoNode());
+    List<Socket> sockets = Lists.newArrayList();
+    try {
+      // Enough connections and requests to start every I/O and request thread.
+      connectAndEcho(xmlRpcServer.getAddress(),
+          2 * Runtime.getRuntime().availableProcessors() + 16, sockets);
+      int threadCount = webServer.getThreadCount();
+      connectAndEcho(xmlRpcServer.getAddress(), 200, sockets);
+      // All connections remain open and usable.
+      for (Socket socket : sockets) {
+        assertTrue(echo(socket, "bar").contains("bar"));
+      }
+      assertEquals(threadCount, webServer.getThreadCount());
+    } finally {
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+      xmlRpcServer.shutdown();
+    }
+  }
+
+  @Test
+  public void testNioServerClosesIdleConnections() throws IOException {
+    XmlRpcServer xmlRpcServer =
+        new XmlRpcServer(BindAddress.newPrivate(), AdvertiseAddress.newPrivate(), true);
+    ((NettyWebServer) xmlRpcServer.getWebServer()).setIdleConnectionTimeout(200,
+        TimeUnit.MILLISECONDS);
+    xmlRpcServer.start(EchoNode.class, new EchoNode());
+    InetSocketAddress address = xmlRpcServer.getAddress();
+    Socket socket = new Socket(address.getAddress(), address.getPort());
+    try {
+      assertTrue(echo(socket, "foo").contains("foo"));
+      // The client never sends anything again, as if it had crashed. The
+      // server closes the connection, which ends the stream.
+      socket.setSoTimeout(10000);
+      assertEquals(-1, socket.getInputStream().read());
+    } finally {
+      socket.close();
+      xmlRpcServer.shutdown();
+    }
+  }
+
+  private void connectAndEcho(InetSocketAddress address, int count, List<Socket> sockets)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      Socket socket = new Socket(address.getAddress(), address.getPort());
+      sockets.add(socket);
+      assertTrue(echo(socket, "foo" + i).contains("foo" + i));
+    }
+  }
+
+  private String echo(Socket socket, String message) throws IOException {
+    String body =
+        "<?xml version=\"1.0\"?><methodCall><methodName>echo</methodName><params>"
+            + "<param><value><string>" + message + "</string></value></param>"
+            + "</params></methodCall>";
+    OutputStream output = socket.getOutputStream();
+    output.write(("POST / HTTP/1.1\r\nContent-Type: text/xml\r\nContent-Length: "
+        + body.length() + "\r\n\r\n" + body).getBytes("US-ASCII"));
+    output.flush();
+    InputStream input = socket.getInputStream();
+    assertTrue(readLine(input).endsWith("200 OK"));
+    int contentLength = -1;
+    String line;
+    while ((line = readLine(input)).length() > 0) {
+      if (line.toLowerCase().startsWith("content-length:")) {
+        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+      }
+    }
+    assertTrue(contentLength > 0);
+    byte[] content = new byte[contentLength];
+    for (int offset = 0; offset < contentLength;) {
+      int read = input.read(content, offset, contentLength - offset);
+      assertTrue(read > 0);
+      offset += read;
+    }
+    return new String(content, "US-ASCII");
+  }
+
+  private String readLine(InputStream input) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int next;
+    while ((next = input.read()) != '\n') {
+      assertTrue(next >= 0);
+      if (next != '\r') {
+        line.write(next);
+      }
+    }
+    return line.toString("US-ASCII");
+  }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.node.server.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.address.AdvertiseAddress;
+import org.ros.address.BindAddress;
+import org.ros.namespace.GraphName;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MasterServerTest {
+
+  private static final int NUMBER_OF_PUBLISHERS = 300;
+
+  private static final GraphName TOPIC_NAME = new GraphName("/topic");
+  private static final String TOPIC_MESSAGE_TYPE = "std_msgs/String";
+
+  private CountDownLatch unblockSubscriber;
+  private List<List<URI>> publisherUpdates;
+  private MasterServer masterServer;
+
+  @Before
+  public void setup() {
+    unblockSubscriber = new CountDownLatch(1);
+    publisherUpdates = Lists.newArrayList();
+    masterServer = new MasterServer(BindAddress.newPrivate(), AdvertiseAddress.newPrivate()) {
+      @Override
+      protected void contactSubscriberForPublisherUpdate(URI subscriberSlaveUri,
+          GraphName topicName, List<URI> publisherUris) {
+        // Simulates a subscriber that does not respond until it is unblocked.
+        try {
+          unblockSubscriber.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        synchronized (publisherUpdates) {
+          publisherUpdates.add(publisherUris);
+          publisherUpdates.notifyAll();
+        }
+      }
+    };
+  }
+
+  @After
+  public void tearDown() {
+    unblockSubscriber.countDown();
+    masterServer.shutdown();
+  }
+
+  private URI newSlaveUri(int port) {
+    return URI.create("http://localhost:" + port + "/");
+  }
+
+  private List<URI> awaitLastPublisherUpdate(int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    synchronized (publisherUpdates) {
+      while (publisherUpdates.isEmpty()
+          || publisherUpdates.get(publisherUpdates.size() - 1).size() != size) {
+        long remaining = deadline - System.currentTimeMillis();
+        assertTrue(remaining > 0);
+        publisherUpdates.wait(remaining);
+      }
+      return publisherUpdates.get(publisherUpdates.size() - 1);
+    }
+  }
+
+  @Test
+  public void testRegistrationDoesNotWaitForSubscribers() throws InterruptedException {
+    masterServer.registerSubscriber(new GraphName("/subscriber"), newSlaveUri(1), TOPIC_NAME,
+        TOPIC_MESSAGE_TYPE);
+    long start = System.nanoTime();
+    for (int i = 0; i < NUMBER_OF_PUBLISHERS; i++) {
+      List<URI> subscriberUris =
+          masterServer.registerPublisher(new GraphName("/publisher" + i), newSlaveUri(i + 2),
+              TOPIC_NAME, TOPIC_MESSAGE_TYPE);
+      assertEquals(1, subscriberUris.size());
+    }
+    // Registering would take at least as long as the subscriber is blocked if
+    // it waited for publisher updates.
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    unblockSubscriber.countDown();
+    List<URI> publisherUris = awaitLastPublisherUpdate(NUMBER_OF_PUBLISHERS);
+    assertTrue(publisherUris.contains(newSlaveUri(NUMBER_OF_PUBLISHERS + 1)));
+    // Updates that queued up behind the blocked one were coalesced.
+    synchronized (publisherUpdates) {
+      assertTrue(publisherUpdates.size() <= 2);
+    }
+  }
+
+  @Test
+  public void testUnregisterPublisherUpdatesSubscribers() throws InterruptedException {
+    unblockSubscriber.countDown();
+    masterServer.registerSubscriber(new GraphName("/subscriber"), newSlaveUri(1), TOPIC_NAME,
+        TOPIC_MESSAGE_TYPE);
+    masterServer.registerPublisher(new GraphName("/publisher"), newSlaveUri(2), TOPIC_NAME,
+        TOPIC_MESSAGE_TYPE);
+    awaitLastPublisherUpdate(1);
+    assertTrue(masterServer.unregisterPublisher(new GraphName("/publisher"), TOPIC_NAME));
+    awaitLastPublisherUpdate(0);
+  }
+
+  @Test
+  public void testSystemStateIsCachedUntilRegistrationsChange() throws InterruptedException {
+    unblockSubscriber.countDown();
+    masterServer.registerPublisher(new GraphName("/publisher"), newSlaveUri(1), TOPIC_NAME,
+        TOPIC_MESSAGE_TYPE);
+    List<Object> systemState = masterServer.getSystemState();
+    assertSame(systemState, masterServer.getSystemState());
+    masterServer.registerSubscriber(new GraphName("/subscriber"), newSlaveUri(2), TOPIC_NAME,
+        TOPIC_MESSAGE_TYPE);
+    List<Object> newSystemState = masterServer.getSystemState();
+    assertNotSame(systemState, newSystemState);
+    assertEquals(1, ((List<?>) newSystemState.get(MasterServer.SYSTEM_STATE_SUBSCRIBERS)).size());
+    List<Object> publishedTopics = Lists.newArrayList();
+    publishedTopics.add(Lists.newArrayList(TOPIC_NAME.toString(), TOPIC_MESSAGE_TYPE));
+    assertEquals(publishedTopics,
+        masterServer.getPublishedTopics(new GraphName("/caller"), new GraphName("/")));
+  }
+
+  @Test
+  public void testConcurrentLookupsAndRegistrations() throws InterruptedException {
+    unblockSubscriber.countDown();
+    final int numberOfNodes = 200;
+    final AtomicBoolean failed = new AtomicBoolean();
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        while (!done.get()) {
+          for (int i = 0; i < numberOfNodes; i++) {
+            URI uri = masterServer.lookupNode(new GraphName("/node" + i));
+            if (uri != null && !uri.equals(newSlaveUri(i))) {
+              failed.set(true);
+            }
+            URI serviceUri = masterServer.lookupService(new GraphName("/service" + i));
+            if (serviceUri != null && !serviceUri.equals(newSlaveUri(i))) {
+              failed.set(true);
+            }
+          }
+          if (masterServer.getSystemState().size() != 3) {
+            failed.set(true);
+          }
+        }
+      }
+    };
+    reader.start();
+    for (int i = 0; i < numberOfNodes; i++) {
+      GraphName nodeName = new GraphName("/node" + i);
+      masterServer.registerService(nodeName, newSlaveUri(i), new GraphName("/service" + i),
+          newSlaveUri(i));
+      masterServer.registerPublisher(nodeName, newSlaveUri(i), TOPIC_NAME, TOPIC_MESSAGE_TYPE);
+    }
+    done.set(true);
+    reader.join();
+    assertFalse(failed.get());
+    for (int i = 0; i < numberOfNodes; i++) {
+      assertEquals(newSlaveUri(i), masterServer.lookupNode(new GraphName("/node" + i)));
+    }
+    List<?> publishers = (List<?>) masterServer.getSystemState().get(
+        MasterServer.SYSTEM_STATE_PUBLISHERS);
+    assertEquals(numberOfNodes, ((List<?>) ((List<?>) publishers.get(0)).get(1)).size());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ros.internal.transport.CircularBlockingQueue.WaitStrategy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class CircularBlockingQueueTest {
+
+  @Test
+  public void testDropsOldestElements() throws InterruptedException {
+    CircularBlockingQueue<Integer> queue = new CircularBlockingQueue<Integer>(4);
+    for (int i = 0; i < 10; i++) {
+      queue.put(i);
+    }
+    assertEquals(3, queue.getSize());
+    assertEquals(7, queue.getDroppedCount());
+    assertEquals(7, (int) queue.take());
+    assertEquals(8, (int) queue.take());
+    assertEquals(9, (int) queue.take());
+    assertEquals(0, queue.getSize());
+  }
+
+  @Test
+  public void testSetLimit() throws InterruptedException {
+    CircularBlockingQueue<Integer> queue = new CircularBlockingQueue<Integer>(8);
+    for (int i = 0; i < 5; i++) {
+      queue.put(i);
+    }
+    queue.setLimit(2);
+    assertEquals(2, queue.getLimit());
+    assertEquals(2, queue.getSize());
+    assertEquals(3, queue.getDroppedCount());
+    assertEquals(3, (int) queue.take());
+    queue.setLimit(0);
+    assertEquals(0, queue.getSize());
+    queue.put(5);
+    assertEquals(0, queue.getSize());
+    assertEquals(5, queue.getDroppedCount());
+    queue.setLimit(7);
+    queue.put(6);
+    assertEquals(6, (int) queue.take());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLimitMustBeLessThanCapacity() {
+    new CircularBlockingQueue<Integer>(8).setLimit(8);
+  }
+
+  private void checkTakeWaitsForPut(WaitStrategy waitStrategy) throws InterruptedException {
+    final CircularBlockingQueue<Integer> queue =
+        new CircularBlockingQueue<Integer>(8, waitStrategy);
+    final CountDownLatch latch = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (queue.take() == 42) {
+            latch.countDown();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Thread.sleep(100);
+    queue.put(42);
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    executorService.shutdown();
+  }
+
+  @Test
+  public void testTakeWaitsForPut() throws InterruptedException {
+    checkTakeWaitsForPut(WaitStrategy.PARK);
+    checkTakeWaitsForPut(WaitStrategy.SPIN_THEN_PARK);
+  }
+
+  @Test
+  public void testTakeIsInterruptible() throws InterruptedException {
+    final CircularBlockingQueue<Integer> queue = new CircularBlockingQueue<Integer>(8);
+    final CountDownLatch latch = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.take();
+        } catch (InterruptedException e) {
+          latch.countDown();
+        }
+      }
+    });
+    Thread.sleep(100);
+    executorService.shutdownNow();
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testMultipleProducers() throws InterruptedException {
+    final int producers = 4;
+    final int elementsPerProducer = 10000;
+    final CircularBlockingQueue<Integer> queue =
+        new CircularBlockingQueue<Integer>(producers * elementsPerProducer + 1);
+    ExecutorService executorService = Executors.newFixedThreadPool(producers);
+    for (int i = 0; i < producers; i++) {
+      executorService.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < elementsPerProducer; j++) {
+            try {
+              queue.put(j);
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+        }
+      });
+    }
+    // Nothing is dropped since the limit is never reached.
+    long sum = 0;
+    for (int i = 0; i < producers * elementsPerProducer; i++) {
+      sum += queue.take();
+    }
+    assertEquals(producers * (long) elementsPerProducer * (elementsPerProducer - 1) / 2, sum);
+    executorService.shutdown();
+  }
+}
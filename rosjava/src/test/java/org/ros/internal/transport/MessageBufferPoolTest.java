@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class MessageBufferPoolTest {
+
+  @Test
+  public void testAcquire() {
+    MessageBufferPool pool = new MessageBufferPool();
+    ByteBuffer buffer = pool.acquire(300);
+    assertTrue(buffer.isDirect());
+    assertEquals(512, buffer.capacity());
+    assertEquals(0, buffer.position());
+    assertEquals(300, buffer.limit());
+    assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+    assertEquals(256, pool.acquire(0).capacity());
+    assertEquals(256, pool.acquire(256).capacity());
+    assertEquals(512, pool.acquire(257).capacity());
+  }
+
+  @Test
+  public void testReleasedBuffersAreReused() {
+    MessageBufferPool pool = new MessageBufferPool();
+    ByteBuffer buffer = pool.acquire(300);
+    buffer.putInt(42);
+    pool.release(buffer);
+    ByteBuffer reused = pool.acquire(400);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(400, reused.limit());
+    assertNotSame(buffer, pool.acquire(400));
+  }
+
+  @Test
+  public void testPoolIsBoundedInBytes() {
+    MessageBufferPool pool = new MessageBufferPool(256);
+    ByteBuffer first = pool.acquire(10);
+    ByteBuffer second = pool.acquire(10);
+    ByteBuffer large = pool.acquire(300);
+    pool.release(first);
+    pool.release(second);
+    pool.release(large);
+    assertEquals(256, pool.getPooledBytes());
+    assertSame(first, pool.acquire(10));
+    assertNotSame(second, pool.acquire(10));
+    assertNotSame(large, pool.acquire(300));
+    assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  public void testLargeBuffersAreNotPooled() {
+    MessageBufferPool pool = new MessageBufferPool();
+    ByteBuffer buffer = pool.acquire((1 << 20) + 1);
+    assertFalse(buffer.isDirect());
+    pool.release(buffer);
+    assertNotSame(buffer, pool.acquire((1 << 20) + 1));
+  }
+
+  @Test
+  public void testShutdownDropsPooledBuffers() {
+    MessageBufferPool pool = new MessageBufferPool();
+    ByteBuffer first = pool.acquire(10);
+    ByteBuffer second = pool.acquire(10);
+    pool.release(first);
+    pool.shutdown();
+    assertEquals(0, pool.getPooledBytes());
+    pool.release(second);
+    assertEquals(0, pool.getPooledBytes());
+    ByteBuffer buffer = pool.acquire(10);
+    assertNotSame(first, buffer);
+    assertNotSame(second, buffer);
+  }
+}
@@ -33,6 +33,7 @@ import org.jboss.netty.channel.SimpleChannelHandler;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.ChannelGroupFuture;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioDatagramChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.junit.After;
 import org.junit.Before;
@@ -48,6 +49,8 @@ import org.ros.internal.node.topic.TopicParticipantManager;
 import org.ros.internal.transport.tcp.TcpClientConnection;
 import org.ros.internal.transport.tcp.TcpClientConnectionManager;
 import org.ros.internal.transport.tcp.TcpServerPipelineFactory;
+import org.ros.internal.transport.udp.UdpRosConnection;
+import org.ros.internal.transport.udp.UdpRosReceiver;
 import org.ros.message.MessageDefinitionProvider;
 import org.ros.message.MessageIdentifier;
 import org.ros.message.MessageListener;
@@ -209,6 +212,12 @@ public class MessageQueueIntegrationTest {
     connectIncomingMessageQueue(firstIncomingMessageQueue, serverChannel);
     connectIncomingMessageQueue(secondIncomingMessageQueue, serverChannel);
     expectMessages();
+    assertEquals(2, outgoingMessageQueue.getConnectionStatistics().size());
+    for (ConnectionStatistics statistics : outgoingMessageQueue.getConnectionStatistics()) {
+      assertEquals(ProtocolNames.TCPROS, statistics.getTransport());
+      assertTrue(statistics.getMessageCount() > 0);
+      assertTrue(statistics.getByteCount() > 0);
+    }
   }
 
   @Test
@@ -236,6 +245,66 @@ public class MessageQueueIntegrationTest {
     expectMessages();
   }
 
+  @Test
+  public void testLatchedMessageIsOnlyWrittenToNewConnections() throws InterruptedException {
+    outgoingMessageQueue.setLatchMode(true);
+    outgoingMessageQueue.setLimit(0);
+    outgoingMessageQueue.put(expectedMessage);
+    NioDatagramChannelFactory channelFactory = new NioDatagramChannelFactory(executorService);
+    UdpRosReceiver receiver =
+        new UdpRosReceiver(channelFactory, 1500, secondIncomingMessageQueue.newChannelHandler());
+    receiver.start(new InetSocketAddress("127.0.0.1", 0));
+    ConnectionStatistics udpRosStatistics =
+        new ConnectionStatistics("subscriber", ConnectionStatistics.Direction.OUT,
+            ProtocolNames.UDPROS);
+    CountDownLatch udpRosLatch = expectMessage(secondIncomingMessageQueue);
+    outgoingMessageQueue.addUdpRosConnection(UdpRosConnection.newConnected(channelFactory,
+        receiver.getAddress(), 0, receiver.getMaximumDatagramSize()), udpRosStatistics);
+    assertTrue(udpRosLatch.await(3, TimeUnit.SECONDS));
+    CountDownLatch tcpRosLatch = expectMessage(firstIncomingMessageQueue);
+    connectIncomingMessageQueue(firstIncomingMessageQueue, buildServerChannel());
+    assertTrue(tcpRosLatch.await(3, TimeUnit.SECONDS));
+    // The new TCPROS connection must not cause the latched message to be sent
+    // to the UDPROS connection again.
+    assertEquals(1, udpRosStatistics.getMessageCount());
+    receiver.shutdown();
+  }
+
+  @Test
+  public void testSendAndReceiveMessageOverUdpRos() throws InterruptedException {
+    NioDatagramChannelFactory channelFactory = new NioDatagramChannelFactory(executorService);
+    ConnectionStatistics incomingStatistics =
+        new ConnectionStatistics("publisher", ConnectionStatistics.Direction.IN,
+            ProtocolNames.UDPROS);
+    ConnectionStatistics outgoingStatistics =
+        new ConnectionStatistics("subscriber", ConnectionStatistics.Direction.OUT,
+            ProtocolNames.UDPROS);
+    UdpRosReceiver firstReceiver =
+        new UdpRosReceiver(channelFactory, 1500,
+            firstIncomingMessageQueue.newChannelHandler(incomingStatistics));
+    UdpRosReceiver secondReceiver =
+        new UdpRosReceiver(channelFactory, 64, secondIncomingMessageQueue.newChannelHandler());
+    firstReceiver.start(new InetSocketAddress("127.0.0.1", 0));
+    secondReceiver.start(new InetSocketAddress("127.0.0.1", 0));
+    outgoingMessageQueue.addUdpRosConnection(UdpRosConnection.newConnected(channelFactory,
+        firstReceiver.getAddress(), 0, firstReceiver.getMaximumDatagramSize()),
+        outgoingStatistics);
+    // The message does not fit in a single datagram of the second connection.
+    outgoingMessageQueue.addUdpRosConnection(UdpRosConnection.newConnected(channelFactory,
+        secondReceiver.getAddress(), 1, secondReceiver.getMaximumDatagramSize()),
+        new ConnectionStatistics("subscriber", ConnectionStatistics.Direction.OUT,
+            ProtocolNames.UDPROS));
+    startRepeatingPublisher();
+    expectMessages();
+    assertTrue(incomingStatistics.getMessageCount() > 0);
+    assertTrue(outgoingStatistics.getMessageCount() > 0);
+    assertTrue(incomingStatistics.getByteCount() > 0);
+    assertTrue(outgoingStatistics.getByteCount() > 0);
+    assertEquals(2, outgoingMessageQueue.getConnectionStatistics().size());
+    firstReceiver.shutdown();
+    secondReceiver.shutdown();
+  }
+
   @Test
   public void testSendAfterIncomingQueueShutdown() throws InterruptedException {
     startRepeatingPublisher();
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.exception.RosRuntimeException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TcpClientConnectionManagerTest {
+
+  private static final int CONNECTIONS = 50;
+  private static final int THREAD_POOL_SIZE = 10;
+  private static final int TIMEOUT_SECONDS = 30;
+
+  private AtomicInteger threadCount;
+  private ScheduledExecutorService executorService;
+  private TcpClientConnectionManager tcpClientConnectionManager;
+  private FlappingServer server;
+
+  /**
+   * Accepts connections until it is stopped, at which point it closes all
+   * accepted connections. It can then be restarted on the same port.
+   * <p>
+   * A client considers its connection established before the server accepted
+   * it. If the accept queue overflows, the server may even drop the
+   * connection without the client noticing. Tests must therefore wait for the
+   * server to accept all connections before stopping it, or idle clients
+   * might never see the disconnect.
+   */
+  private static class FlappingServer {
+
+    private final List<Socket> sockets = Lists.newArrayList();
+
+    private ServerSocket serverSocket;
+    private int port;
+
+    public synchronized void start() throws IOException {
+      serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress("localhost", port), CONNECTIONS);
+      port = serverSocket.getLocalPort();
+      final ServerSocket acceptingSocket = serverSocket;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            while (true) {
+              Socket socket = acceptingSocket.accept();
+              synchronized (FlappingServer.this) {
+                sockets.add(socket);
+                FlappingServer.this.notifyAll();
+              }
+            }
+          } catch (IOException e) {
+            // The server socket was closed.
+          }
+        }
+      }.start();
+    }
+
+    public synchronized void stop() throws IOException {
+      serverSocket.close();
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+      sockets.clear();
+    }
+
+    /**
+     * @return {@code true} if {@code count} connections were accepted since the
+     *         server was last started
+     */
+    public synchronized boolean awaitConnections(int count, long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (sockets.size() < count) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
+    }
+
+    public InetSocketAddress getAddress() {
+      return new InetSocketAddress("localhost", port);
+    }
+  }
+
+  /**
+   * Tracks the events of all connections during one stop and restart of the
+   * {@link FlappingServer}.
+   */
+  private static class Flap {
+
+    private final CountDownLatch disconnected = new CountDownLatch(CONNECTIONS);
+    private final CountDownLatch failed = new CountDownLatch(CONNECTIONS);
+    private final CountDownLatch reconnected = new CountDownLatch(CONNECTIONS);
+    private final Set<TcpClientConnection> failedConnections =
+        Collections.synchronizedSet(Sets.<TcpClientConnection>newHashSet());
+
+    public void onReconnectFailure(TcpClientConnection tcpClientConnection) {
+      if (failedConnections.add(tcpClientConnection)) {
+        failed.countDown();
+      }
+    }
+  }
+
+  @Before
+  public void setup() throws IOException {
+    threadCount = new AtomicInteger();
+    executorService = Executors.newScheduledThreadPool(THREAD_POOL_SIZE, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        threadCount.incrementAndGet();
+        return new Thread(runnable);
+      }
+    });
+    tcpClientConnectionManager = new TcpClientConnectionManager(executorService);
+    server = new FlappingServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    tcpClientConnectionManager.shutdown();
+    server.stop();
+    executorService.shutdown();
+  }
+
+  private TcpClientConnection connect() {
+    return tcpClientConnectionManager.connect("Foo", server.getAddress(),
+        new SimpleChannelHandler(), "Handler");
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    TcpClientConnection connection = connect();
+    assertTrue(server.awaitConnections(1, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    tcpClientConnectionManager.close(connection);
+    assertFalse(connection.isPersistent());
+    try {
+      connection.write(ChannelBuffers.EMPTY_BUFFER);
+      fail();
+    } catch (NullPointerException e) {
+      // The connection no longer has a channel.
+    }
+  }
+
+  @Test(expected = RosRuntimeException.class)
+  public void testConnectAfterShutdownFails() {
+    tcpClientConnectionManager.shutdown();
+    connect();
+  }
+
+  @Test
+  public void testReconnectStormAgainstFlappingServer() throws Exception {
+    tcpClientConnectionManager.setReconnectPolicy(new ReconnectPolicy(20, 200, 2, 0.5, 50));
+    final AtomicReference<Flap> flap = new AtomicReference<Flap>(new Flap());
+    final AtomicInteger defunct = new AtomicInteger();
+    tcpClientConnectionManager.addListener(new TcpClientConnectionListener() {
+      @Override
+      public void onDisconnect(TcpClientConnection tcpClientConnection) {
+        flap.get().disconnected.countDown();
+      }
+
+      @Override
+      public void onReconnectFailure(TcpClientConnection tcpClientConnection, int attempts,
+          Throwable cause) {
+        flap.get().onReconnectFailure(tcpClientConnection);
+      }
+
+      @Override
+      public void onReconnect(TcpClientConnection tcpClientConnection, int attempts) {
+        flap.get().reconnected.countDown();
+      }
+
+      @Override
+      public void onDefunct(TcpClientConnection tcpClientConnection, Throwable cause) {
+        defunct.incrementAndGet();
+      }
+    });
+    List<TcpClientConnection> connections = Lists.newArrayList();
+    for (int i = 0; i < CONNECTIONS; i++) {
+      connections.add(connect());
+    }
+    assertTrue(server.awaitConnections(CONNECTIONS, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+    for (int i = 0; i < 3; i++) {
+      Flap currentFlap = flap.get();
+      server.stop();
+      assertTrue(currentFlap.disconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      // Restart the server only after every connection failed to reconnect at
+      // least once.
+      assertTrue(currentFlap.failed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      server.start();
+      assertTrue(currentFlap.reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      assertTrue(server.awaitConnections(CONNECTIONS, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      flap.set(new Flap());
+    }
+
+    assertEquals(0, defunct.get());
+    for (TcpClientConnection connection : connections) {
+      assertFalse(connection.isDefunct());
+      assertEquals(0, connection.getReconnectAttempts());
+    }
+    // Reconnecting must not cost a thread per connection. All reconnects are
+    // scheduled on the process-wide timer, which has at most one thread.
+    assertTrue(TcpClientConnectionManager.getReconnectTimerThreadCount() <= 1);
+    assertTrue(threadCount.get() <= THREAD_POOL_SIZE);
+  }
+
+  @Test
+  public void testDefunctWhenReconnectPolicyExhausted() throws Exception {
+    tcpClientConnectionManager.setReconnectPolicy(new ReconnectPolicy(10, 20, 2, 0, 3));
+    final CountDownLatch defunctLatch = new CountDownLatch(1);
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicReference<Throwable> defunctCause = new AtomicReference<Throwable>();
+    tcpClientConnectionManager.addListener(new DefaultTcpClientConnectionListener() {
+      @Override
+      public void onReconnectFailure(TcpClientConnection tcpClientConnection, int attempts,
+          Throwable cause) {
+        failures.incrementAndGet();
+      }
+
+      @Override
+      public void onDefunct(TcpClientConnection tcpClientConnection, Throwable cause) {
+        defunctCause.set(cause);
+        defunctLatch.countDown();
+      }
+    });
+    TcpClientConnection connection = connect();
+    server.stop();
+    assertTrue(defunctLatch.await(5, TimeUnit.SECONDS));
+    assertTrue(connection.isDefunct());
+    assertEquals(3, connection.getReconnectAttempts());
+    assertEquals(2, failures.get());
+    assertTrue(defunctCause.get() instanceof ConnectException);
+    // Restart the server so that tearDown() can stop it again.
+    server.start();
+  }
+
+  @Test
+  public void testReconnectPolicy() {
+    ReconnectPolicy policy = new ReconnectPolicy(100, 1000, 2, 0.5, 5);
+    long expected = 100;
+    for (int attempt = 1; attempt < 10; attempt++) {
+      long delay = policy.getDelayMillis(attempt);
+      assertTrue(delay <= expected);
+      assertTrue(delay >= expected / 2);
+      expected = Math.min(1000, expected * 2);
+    }
+    assertFalse(policy.isExhausted(4));
+    assertTrue(policy.isExhausted(5));
+    assertFalse(new ReconnectPolicy(100, 1000, 2, 0.5, 0).isExhausted(Integer.MAX_VALUE));
+    assertTrue(policy.isRetryable(new ConnectException("Connection refused")));
+    assertFalse(policy.isRetryable(new UnresolvedAddressException()));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.transport.udp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.List;
+
+public class UdpRosFragmenterTest {
+
+  private static final int MAXIMUM_DATAGRAM_SIZE = 16;
+
+  private DecoderEmbedder<ChannelBuffer> embedder;
+
+  @Before
+  public void setup() {
+    embedder = new DecoderEmbedder<ChannelBuffer>(new UdpRosReassembler());
+  }
+
+  private ChannelBuffer newMessage(int size) {
+    ChannelBuffer message = ChannelBuffers.buffer(ByteOrder.LITTLE_ENDIAN, size);
+    for (int i = 0; i < size; i++) {
+      message.writeByte(i);
+    }
+    return message;
+  }
+
+  private void offer(List<ChannelBuffer> datagrams) {
+    for (ChannelBuffer datagram : datagrams) {
+      embedder.offer(datagram);
+    }
+  }
+
+  @Test
+  public void testSingleBlock() {
+    ChannelBuffer message = newMessage(4);
+    List<ChannelBuffer> datagrams = UdpRosFragmenter.fragment(42, 0, message, MAXIMUM_DATAGRAM_SIZE);
+    assertEquals(1, datagrams.size());
+    ChannelBuffer datagram = datagrams.get(0);
+    assertEquals(42, datagram.readInt());
+    assertEquals(UdpRosFragmenter.OPCODE_DATA0, datagram.readByte());
+    assertEquals(0, datagram.readByte());
+    assertEquals(1, datagram.readShort());
+    assertEquals(4, datagram.readInt());
+    assertEquals(message, datagram);
+  }
+
+  @Test
+  public void testMultipleBlocks() {
+    // 4 bytes of length prefix and 30 bytes of message in blocks of 8 bytes.
+    ChannelBuffer message = newMessage(30);
+    List<ChannelBuffer> datagrams = UdpRosFragmenter.fragment(42, 7, message, MAXIMUM_DATAGRAM_SIZE);
+    assertEquals(5, datagrams.size());
+    for (int i = 1; i < datagrams.size(); i++) {
+      ChannelBuffer header = datagrams.get(i).slice(0, UdpRosFragmenter.HEADER_SIZE);
+      assertEquals(UdpRosFragmenter.OPCODE_DATAN, header.getByte(4));
+      assertEquals(i, header.getShort(6));
+    }
+    // Fragmenting must not modify the message.
+    assertEquals(30, message.readableBytes());
+    offer(datagrams);
+    assertEquals(message, embedder.poll());
+    assertNull(embedder.poll());
+  }
+
+  @Test
+  public void testMissingBlockDropsMessage() {
+    List<ChannelBuffer> datagrams =
+        UdpRosFragmenter.fragment(42, 0, newMessage(30), MAXIMUM_DATAGRAM_SIZE);
+    datagrams.remove(2);
+    offer(datagrams);
+    assertNull(embedder.poll());
+    // The next message is received normally.
+    ChannelBuffer message = newMessage(30);
+    offer(UdpRosFragmenter.fragment(42, 1, message, MAXIMUM_DATAGRAM_SIZE));
+    assertEquals(message, embedder.poll());
+  }
+
+  @Test
+  public void testNewMessageReplacesIncompleteMessage() {
+    List<ChannelBuffer> datagrams =
+        UdpRosFragmenter.fragment(42, 0, newMessage(30), MAXIMUM_DATAGRAM_SIZE);
+    offer(datagrams.subList(0, 2));
+    ChannelBuffer message = newMessage(12);
+    offer(UdpRosFragmenter.fragment(42, 1, message, MAXIMUM_DATAGRAM_SIZE));
+    offer(datagrams.subList(2, datagrams.size()));
+    assertEquals(message, embedder.poll());
+    assertNull(embedder.poll());
+  }
+
+  @Test
+  public void testConnectionsAreReassembledIndependently() {
+    ChannelBuffer firstMessage = newMessage(30);
+    ChannelBuffer secondMessage = newMessage(20);
+    List<ChannelBuffer> first = UdpRosFragmenter.fragment(1, 0, firstMessage, MAXIMUM_DATAGRAM_SIZE);
+    List<ChannelBuffer> second =
+        UdpRosFragmenter.fragment(2, 0, secondMessage, MAXIMUM_DATAGRAM_SIZE);
+    for (int i = 0; i < first.size(); i++) {
+      embedder.offer(first.get(i));
+      if (i < second.size()) {
+        embedder.offer(second.get(i));
+      }
+    }
+    assertEquals(secondMessage, embedder.poll());
+    assertEquals(firstMessage, embedder.poll());
+  }
+}
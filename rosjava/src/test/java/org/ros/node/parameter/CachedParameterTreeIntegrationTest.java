@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.node.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.RosTest;
+import org.ros.exception.ParameterNotFoundException;
+import org.ros.namespace.GraphName;
+import org.ros.node.AbstractNodeMain;
+import org.ros.node.ConnectedNode;
+import org.ros.node.NodeConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a cached {@link ParameterTree} stays coherent with changes made
+ * by other nodes.
+ * <p>
+ * The master notifies subscribers asynchronously, so each write waits for the
+ * cached node to receive the resulting update before reading.
+ */
+public class CachedParameterTreeIntegrationTest extends RosTest {
+
+  private ParameterTree cachedParameters;
+  private ParameterTree remoteParameters;
+
+  private ParameterTree startNode(String nodeName, boolean cached) throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final ParameterTree[] parameters = new ParameterTree[1];
+    NodeConfiguration configuration =
+        NodeConfiguration.copyOf(nodeConfiguration).setParameterCacheEnabled(cached);
+    final GraphName defaultNodeName = new GraphName(nodeName);
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return defaultNodeName;
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        parameters[0] = connectedNode.getParameterTree();
+        latch.countDown();
+      }
+    }, configuration);
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    return parameters[0];
+  }
+
+  /**
+   * @return a latch that is released when the cached node receives the next
+   *         update of {@code name}
+   */
+  private CountDownLatch expectUpdate(String name) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    cachedParameters.addParameterListener(name, new ParameterListener() {
+      @Override
+      public void onNewValue(Object value) {
+        latch.countDown();
+      }
+    });
+    return latch;
+  }
+
+  private void awaitUpdate(CountDownLatch latch) throws InterruptedException {
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+  }
+
+  @Before
+  public void setup() throws InterruptedException {
+    cachedParameters = startNode("cached", true);
+    remoteParameters = startNode("remote", false);
+  }
+
+  @Test
+  public void testReadSeesRemoteSet() throws InterruptedException {
+    remoteParameters.set("/foo/bar", 1);
+    assertEquals(1, cachedParameters.getInteger("/foo/bar"));
+    CountDownLatch updated = expectUpdate("/foo/bar");
+    remoteParameters.set("/foo/bar", 2);
+    awaitUpdate(updated);
+    assertEquals(2, cachedParameters.getInteger("/foo/bar"));
+    updated = expectUpdate("/foo/bar");
+    remoteParameters.set("/foo/bar", "baz");
+    awaitUpdate(updated);
+    assertEquals("baz", cachedParameters.getString("/foo/bar"));
+  }
+
+  @Test
+  public void testReadOfUnsetParameterSeesRemoteSet() throws InterruptedException {
+    assertEquals(42, cachedParameters.getInteger("/foo", 42));
+    assertFalse(cachedParameters.has("/foo"));
+    CountDownLatch updated = expectUpdate("/foo");
+    remoteParameters.set("/foo", 1);
+    awaitUpdate(updated);
+    assertTrue(cachedParameters.has("/foo"));
+    assertEquals(1, cachedParameters.getInteger("/foo", 42));
+  }
+
+  @Test
+  public void testSubtreeSeesRemoteSetOfChild() throws InterruptedException {
+    remoteParameters.set("/foo/bar", 1);
+    Map<String, Object> expected = Maps.newHashMap();
+    expected.put("bar", 1);
+    assertEquals(expected, cachedParameters.getMap("/foo"));
+    CountDownLatch updated = expectUpdate("/foo");
+    remoteParameters.set("/foo/baz", 2);
+    awaitUpdate(updated);
+    expected.put("baz", 2);
+    assertEquals(expected, cachedParameters.getMap("/foo"));
+  }
+
+  @Test
+  public void testChildSeesRemoteSetAndDeleteOfParent() throws InterruptedException {
+    remoteParameters.set("/foo/bar", 1);
+    assertEquals(1, cachedParameters.getInteger("/foo/bar"));
+    Map<String, Object> subtree = Maps.newHashMap();
+    subtree.put("bar", 2);
+    CountDownLatch updated = expectUpdate("/foo/bar");
+    remoteParameters.set("/foo", subtree);
+    awaitUpdate(updated);
+    assertEquals(2, cachedParameters.getInteger("/foo/bar"));
+    updated = expectUpdate("/foo/bar");
+    remoteParameters.delete("/foo");
+    awaitUpdate(updated);
+    assertFalse(cachedParameters.has("/foo/bar"));
+    try {
+      cachedParameters.getInteger("/foo/bar");
+      fail();
+    } catch (ParameterNotFoundException e) {
+      // Thrown when a parameter does not exist.
+    }
+  }
+
+  @Test
+  public void testWritesGoThrough() throws InterruptedException {
+    cachedParameters.set("/foo/bar", 1);
+    assertEquals(1, cachedParameters.getInteger("/foo/bar"));
+    CountDownLatch updated = expectUpdate("/foo/bar");
+    cachedParameters.set("/foo/bar", 2);
+    awaitUpdate(updated);
+    assertEquals(2, cachedParameters.getInteger("/foo/bar"));
+    assertEquals(2, remoteParameters.getInteger("/foo/bar"));
+    List<String> expectedList = Lists.newArrayList("foo", "bar");
+    updated = expectUpdate("/foo/bar");
+    cachedParameters.set("/foo/bar", expectedList);
+    awaitUpdate(updated);
+    assertEquals(expectedList, cachedParameters.getList("/foo/bar"));
+    updated = expectUpdate("/foo/bar");
+    remoteParameters.set("/foo/bar", Lists.newArrayList("baz"));
+    awaitUpdate(updated);
+    assertEquals(Lists.newArrayList("baz"), cachedParameters.getList("/foo/bar"));
+    cachedParameters.delete("/foo/bar");
+    assertFalse(cachedParameters.has("/foo/bar"));
+  }
+}
@@ -155,6 +155,15 @@ public class ParameterTreeIntegrationTest extends RosTest {
     assertTrue(names.contains(new GraphName("/bloop")));
   }
 
+  @Test
+  public void testSearch() {
+    parameters.set("/foo/bar", "baz");
+    parameters.set("/node_name/foo/bar", "bloop");
+    assertEquals(new GraphName("/node_name/foo/bar"), parameters.search("foo/bar"));
+    assertEquals(new GraphName("/foo/bar"), parameters.search("/foo/bar"));
+    assertEquals(null, parameters.search("bloop"));
+  }
+
   @Test
   public void testParameterPubSub() throws InterruptedException {
     final CountDownLatch nodeLatch = new CountDownLatch(1);
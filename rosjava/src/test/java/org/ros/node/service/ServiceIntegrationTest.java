@@ -27,12 +27,18 @@ import org.ros.exception.RemoteException;
 import org.ros.exception.RosRuntimeException;
 import org.ros.exception.ServiceException;
 import org.ros.exception.ServiceNotFoundException;
+import org.ros.internal.node.service.DefaultServiceClient;
+import org.ros.internal.node.service.DefaultServiceServer;
+import org.ros.internal.node.service.ServiceRequestExecutor;
 import org.ros.namespace.GraphName;
 import org.ros.node.AbstractNodeMain;
 import org.ros.node.ConnectedNode;
+import org.ros.node.NodeConfiguration;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -182,4 +188,185 @@ public class ServiceIntegrationTest extends RosTest {
 
     assertTrue(latch.await(1, TimeUnit.SECONDS));
   }
+
+  @Test
+  public void testPipelinedCallsOverConnectionPool() throws Exception {
+    final int callCount = 100;
+    final int connectionCount = 4;
+    final CountDownServiceServerListener<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> countDownServiceServerListener =
+        CountDownServiceServerListener.newDefault();
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("server");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        ServiceServer<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceServer =
+            connectedNode
+                .newServiceServer(
+                    SERVICE_NAME,
+                    test_ros.AddTwoInts._TYPE,
+                    new ServiceResponseBuilder<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response>() {
+                      @Override
+                      public void build(test_ros.AddTwoInts.Request request,
+                          test_ros.AddTwoInts.Response response) {
+                        try {
+                          Thread.sleep(5);
+                        } catch (InterruptedException e) {
+                          throw new RuntimeException(e);
+                        }
+                        response.setSum(request.getA() + request.getB());
+                      }
+                    });
+        serviceServer.addListener(countDownServiceServerListener);
+      }
+    }, nodeConfiguration);
+
+    assertTrue(countDownServiceServerListener.awaitMasterRegistrationSuccess(1, TimeUnit.SECONDS));
+
+    final CountDownLatch latch = new CountDownLatch(callCount);
+    final AtomicInteger mismatches = new AtomicInteger();
+    final AtomicReference<ServiceClient<?, ?>> client = new AtomicReference<ServiceClient<?, ?>>();
+    NodeConfiguration clientConfiguration =
+        NodeConfiguration.copyOf(nodeConfiguration).setServiceClientConnectionCount(
+            connectionCount);
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("client");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        ServiceClient<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceClient;
+        try {
+          serviceClient = connectedNode.newServiceClient(SERVICE_NAME, test_ros.AddTwoInts._TYPE);
+        } catch (ServiceNotFoundException e) {
+          throw new RosRuntimeException(e);
+        }
+        client.set(serviceClient);
+        for (int i = 0; i < callCount; i++) {
+          test_ros.AddTwoInts.Request request = serviceClient.newMessage();
+          request.setA(i);
+          request.setB(i * 1000);
+          final long expectedSum = i * 1001;
+          serviceClient.call(request, new ServiceResponseListener<test_ros.AddTwoInts.Response>() {
+            @Override
+            public void onSuccess(test_ros.AddTwoInts.Response response) {
+              if (response.getSum() != expectedSum) {
+                mismatches.incrementAndGet();
+              }
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(RemoteException e) {
+              throw new RuntimeException(e);
+            }
+          });
+        }
+      }
+    }, clientConfiguration);
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(0, mismatches.get());
+    int openConnections = ((DefaultServiceClient<?, ?>) client.get()).getConnectionCount();
+    assertTrue(openConnections > 1);
+    assertTrue(openConnections <= connectionCount);
+  }
+
+  @Test
+  public void testOverloadedServerRejectsRequests() throws Exception {
+    final int callCount = 40;
+    final CountDownServiceServerListener<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> countDownServiceServerListener =
+        CountDownServiceServerListener.newDefault();
+    final AtomicReference<ServiceServer<?, ?>> server = new AtomicReference<ServiceServer<?, ?>>();
+    NodeConfiguration serverConfiguration =
+        NodeConfiguration.copyOf(nodeConfiguration).setServiceServerWorkerCount(1)
+            .setServiceServerMaximumQueuedRequests(2);
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("server");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        ServiceServer<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceServer =
+            connectedNode
+                .newServiceServer(
+                    SERVICE_NAME,
+                    test_ros.AddTwoInts._TYPE,
+                    new ServiceResponseBuilder<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response>() {
+                      @Override
+                      public void build(test_ros.AddTwoInts.Request request,
+                          test_ros.AddTwoInts.Response response) {
+                        try {
+                          Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                          throw new RuntimeException(e);
+                        }
+                        response.setSum(request.getA() + request.getB());
+                      }
+                    });
+        server.set(serviceServer);
+        serviceServer.addListener(countDownServiceServerListener);
+      }
+    }, serverConfiguration);
+
+    assertTrue(countDownServiceServerListener.awaitMasterRegistrationSuccess(1, TimeUnit.SECONDS));
+
+    final CountDownLatch latch = new CountDownLatch(callCount);
+    final AtomicInteger successes = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger();
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("client");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        ServiceClient<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceClient;
+        try {
+          serviceClient = connectedNode.newServiceClient(SERVICE_NAME, test_ros.AddTwoInts._TYPE);
+        } catch (ServiceNotFoundException e) {
+          throw new RosRuntimeException(e);
+        }
+        for (int i = 0; i < callCount; i++) {
+          test_ros.AddTwoInts.Request request = serviceClient.newMessage();
+          request.setA(i);
+          request.setB(i);
+          serviceClient.call(request, new ServiceResponseListener<test_ros.AddTwoInts.Response>() {
+            @Override
+            public void onSuccess(test_ros.AddTwoInts.Response response) {
+              successes.incrementAndGet();
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(RemoteException e) {
+              if (e.getMessage().equals("Service overloaded.")) {
+                failures.incrementAndGet();
+              }
+              latch.countDown();
+            }
+          });
+        }
+      }
+    }, nodeConfiguration);
+
+    // Rejected calls fail right away instead of waiting for the single worker.
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(successes.get() > 0);
+    assertTrue(failures.get() > 0);
+    ServiceRequestExecutor requestExecutor =
+        ((DefaultServiceServer<?, ?>) server.get()).getRequestExecutor();
+    assertEquals(failures.get(), requestExecutor.getRejectedRequestCount());
+    assertEquals(successes.get(), requestExecutor.getCompletedRequestCount());
+    assertEquals(0, requestExecutor.getQueuedRequestCount());
+    assertTrue(requestExecutor.getMaximumHandlerNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+  }
 }
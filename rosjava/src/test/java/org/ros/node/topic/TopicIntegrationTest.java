@@ -25,8 +25,11 @@ import org.ros.RosTest;
 import org.ros.concurrent.CancellableLoop;
 import org.ros.internal.message.MessageDefinitionReflectionProvider;
 import org.ros.internal.message.topic.TopicMessageFactory;
+import org.ros.internal.node.client.SlaveClient;
 import org.ros.internal.node.topic.DefaultSubscriber;
 import org.ros.internal.node.topic.PublisherIdentifier;
+import org.ros.internal.transport.ConnectionStatistics;
+import org.ros.internal.transport.ProtocolNames;
 import org.ros.message.MessageDefinitionProvider;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
@@ -34,8 +37,10 @@ import org.ros.node.AbstractNodeMain;
 import org.ros.node.ConnectedNode;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Make sure publishers can talk with subscribers over a network connection.
@@ -149,6 +154,181 @@ public class TopicIntegrationTest extends RosTest {
     assertTrue(messageReceived.await(10, TimeUnit.SECONDS));
   }
 
+  @Test
+  public void testIntraProcessPublisherHandsOverMessageReference() throws InterruptedException {
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("publisher");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        Publisher<std_msgs.String> publisher =
+            connectedNode.newPublisher("foo", std_msgs.String._TYPE);
+        publisher.setLatchMode(true);
+        publisher.publish(expectedMessage);
+      }
+    }, nodeConfiguration);
+
+    final CountDownLatch messageReceived = new CountDownLatch(1);
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("subscriber");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        Subscriber<std_msgs.String> subscriber =
+            connectedNode.newSubscriber("foo", std_msgs.String._TYPE,
+                new TransportHints().setAllowIntraProcess(true));
+        subscriber.addMessageListener(new MessageListener<std_msgs.String>() {
+          @Override
+          public void onNewMessage(std_msgs.String message) {
+            // The message was never serialized.
+            if (message == expectedMessage) {
+              messageReceived.countDown();
+            }
+          }
+        });
+      }
+    }, nodeConfiguration);
+
+    assertTrue(messageReceived.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testIntraProcessIsDisallowedByDefault() throws InterruptedException {
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("publisher");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        Publisher<std_msgs.String> publisher =
+            connectedNode.newPublisher("foo", std_msgs.String._TYPE);
+        publisher.setLatchMode(true);
+        publisher.publish(expectedMessage);
+      }
+    }, nodeConfiguration);
+
+    final CountDownLatch messageReceived = new CountDownLatch(1);
+    final AtomicReference<Subscriber<std_msgs.String>> subscriber =
+        new AtomicReference<Subscriber<std_msgs.String>>();
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("subscriber");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        subscriber.set(connectedNode.<std_msgs.String>newSubscriber("foo", std_msgs.String._TYPE));
+        subscriber.get().addMessageListener(new MessageListener<std_msgs.String>() {
+          @Override
+          public void onNewMessage(std_msgs.String message) {
+            // The message was serialized and sent over TCPROS.
+            if (message != expectedMessage && message.equals(expectedMessage)) {
+              messageReceived.countDown();
+            }
+          }
+        });
+      }
+    }, nodeConfiguration);
+
+    assertTrue(messageReceived.await(10, TimeUnit.SECONDS));
+    List<ConnectionStatistics> incomingStatistics = subscriber.get().getConnectionStatistics();
+    assertEquals(1, incomingStatistics.size());
+    assertEquals(ProtocolNames.TCPROS, incomingStatistics.get(0).getTransport());
+  }
+
+  @Test
+  public void testBusStatsAndBusInfo() throws InterruptedException {
+    final AtomicReference<ConnectedNode> publisherNode = new AtomicReference<ConnectedNode>();
+    final AtomicReference<Publisher<std_msgs.String>> publisher =
+        new AtomicReference<Publisher<std_msgs.String>>();
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("publisher");
+      }
+
+      @Override
+      public void onStart(final ConnectedNode connectedNode) {
+        publisher.set(connectedNode.<std_msgs.String>newPublisher("foo", std_msgs.String._TYPE));
+        publisherNode.set(connectedNode);
+        connectedNode.executeCancellableLoop(new CancellableLoop() {
+          @Override
+          protected void loop() throws InterruptedException {
+            publisher.get().publish(expectedMessage);
+            Thread.sleep(10);
+          }
+        });
+      }
+    }, nodeConfiguration);
+
+    final CountDownLatch messagesReceived = new CountDownLatch(10);
+    final AtomicReference<Subscriber<std_msgs.String>> subscriber =
+        new AtomicReference<Subscriber<std_msgs.String>>();
+    nodeMainExecutor.execute(new AbstractNodeMain() {
+      @Override
+      public GraphName getDefaultNodeName() {
+        return new GraphName("subscriber");
+      }
+
+      @Override
+      public void onStart(ConnectedNode connectedNode) {
+        subscriber.set(connectedNode.<std_msgs.String>newSubscriber("foo", std_msgs.String._TYPE));
+        subscriber.get().addMessageListener(new MessageListener<std_msgs.String>() {
+          @Override
+          public void onNewMessage(std_msgs.String message) {
+            messagesReceived.countDown();
+          }
+        });
+      }
+    }, nodeConfiguration);
+
+    assertTrue(messagesReceived.await(10, TimeUnit.SECONDS));
+
+    List<ConnectionStatistics> incomingStatistics = subscriber.get().getConnectionStatistics();
+    assertEquals(1, incomingStatistics.size());
+    assertEquals(ConnectionStatistics.Direction.IN, incomingStatistics.get(0).getDirection());
+    assertEquals(ProtocolNames.INTRAPROCESS, incomingStatistics.get(0).getTransport());
+    assertTrue(incomingStatistics.get(0).getMessageCount() >= 10);
+    assertEquals(0, subscriber.get().getDroppedMessageCount());
+
+    SlaveClient slaveClient =
+        new SlaveClient(new GraphName("/bus_stats"), publisherNode.get().getUri());
+    List<Object> busInfo = slaveClient.getBusInfo().getResult();
+    assertEquals(1, busInfo.size());
+    List<?> connectionInfo = (List<?>) busInfo.get(0);
+    assertEquals("/subscriber", connectionInfo.get(1));
+    assertEquals("o", connectionInfo.get(2));
+    assertEquals(ProtocolNames.INTRAPROCESS, connectionInfo.get(3));
+    assertEquals("/foo", connectionInfo.get(4));
+    assertEquals(true, connectionInfo.get(5));
+
+    List<Object> busStats = slaveClient.getBusStats().getResult();
+    assertEquals(3, busStats.size());
+    List<?> topicStats = null;
+    // The node also publishes to /rosout.
+    for (Object publishStats : (List<?>) busStats.get(0)) {
+      if (((List<?>) publishStats).get(0).equals("/foo")) {
+        topicStats = (List<?>) publishStats;
+      }
+    }
+    assertEquals(1, ((List<?>) topicStats.get(2)).size());
+    List<?> connectionData = (List<?>) ((List<?>) topicStats.get(2)).get(0);
+    // Both replies describe the same connection.
+    assertEquals(connectionInfo.get(0), connectionData.get(0));
+    assertTrue((Integer) connectionData.get(2) >= 10);
+    assertEquals(true, connectionData.get(3));
+    assertTrue(((List<?>) busStats.get(1)).isEmpty());
+  }
+
   @Test
   public void testAddDisconnectedPublisher() {
     nodeMainExecutor.execute(new AbstractNodeMain() {
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.message.DefaultMessageDeserializer;
+import org.ros.internal.message.DefaultMessageFactory;
+import org.ros.internal.message.DefaultMessageSerializationFactory;
+import org.ros.internal.message.DefaultMessageSerializer;
+import org.ros.internal.message.Message;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.message.MessageDefinitionProvider;
+import org.ros.message.MessageDeserializer;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+import org.ros.message.MessageSerializationFactory;
+import org.ros.message.MessageSerializer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization and deserialization of primitive array fields of
+ * 1 KB, 1 MB and 16 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayFieldBenchmark {
+
+  private static final String MESSAGE_TYPE = std_msgs.Float64MultiArray._TYPE;
+
+  /**
+   * The number of {@code float64} elements.
+   */
+  @Param({ "128", "131072", "2097152" })
+  public int length;
+
+  /**
+   * @see MessageSerializationBenchmark#serialization
+   */
+  @Param({ "reflective", "generated" })
+  public String serialization;
+
+  private std_msgs.Float64MultiArray message;
+  private MessageSerializer<Message> serializer;
+  private MessageDeserializer<Message> deserializer;
+  private ByteBuffer buffer;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setup() {
+    MessageDefinitionProvider messageDefinitionProvider = new MessageDefinitionReflectionProvider();
+    MessageFactory messageFactory = new DefaultMessageFactory(messageDefinitionProvider);
+    message = messageFactory.newFromType(MESSAGE_TYPE);
+    double[] data = new double[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = i;
+    }
+    message.setData(data);
+    if (serialization.equals("reflective")) {
+      serializer = new DefaultMessageSerializer();
+      deserializer =
+          new DefaultMessageDeserializer<Message>(MessageIdentifier.newFromType(MESSAGE_TYPE),
+              messageFactory);
+    } else {
+      MessageSerializationFactory messageSerializationFactory =
+          new DefaultMessageSerializationFactory(messageDefinitionProvider);
+      serializer = messageSerializationFactory.newMessageSerializer(MESSAGE_TYPE);
+      deserializer = messageSerializationFactory.newMessageDeserializer(MESSAGE_TYPE);
+    }
+    buffer = serializer.serialize(message);
+  }
+
+  @Benchmark
+  public ByteBuffer serialize() {
+    return serializer.serialize(message);
+  }
+
+  @Benchmark
+  public Message deserialize() {
+    return deserializer.deserialize(buffer.duplicate());
+  }
+}
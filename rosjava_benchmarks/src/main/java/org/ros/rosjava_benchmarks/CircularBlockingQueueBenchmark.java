@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.transport.CircularBlockingQueue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CircularBlockingQueue#put(Object)} and
+ * {@link CircularBlockingQueue#take()} on a single thread and with producers
+ * and a consumer on separate threads.
+ * 
+ * <p>
+ * In the {@code handoff} group, puts never block and {@code take} returns
+ * immediately when the queue is empty, so the raw operation rates measure
+ * neither. The {@code taken} counter reports the rate at which elements
+ * actually reach the consumer.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircularBlockingQueueBenchmark {
+
+  private static final int CAPACITY = 8192;
+  private static final Object ELEMENT = new Object();
+
+  @Param({ "PARK", "SPIN_THEN_PARK" })
+  public CircularBlockingQueue.WaitStrategy waitStrategy;
+
+  private CircularBlockingQueue<Object> queue;
+
+  @Setup
+  public void setup() {
+    queue = new CircularBlockingQueue<Object>(CAPACITY, waitStrategy);
+  }
+
+  @Benchmark
+  @Group("putTake")
+  public Object putTake() throws InterruptedException {
+    queue.put(ELEMENT);
+    return queue.take();
+  }
+
+  /**
+   * Counts the elements the consumer took and the times it found the queue
+   * empty.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class TakeCounters {
+
+    public long taken;
+    public long empty;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      taken = 0;
+      empty = 0;
+    }
+  }
+
+  @Benchmark
+  @Group("handoff")
+  @GroupThreads(2)
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void put() throws InterruptedException {
+    queue.put(ELEMENT);
+  }
+
+  /**
+   * Only takes elements that are already in the queue. Otherwise the consumer
+   * could block forever once the producers stop at the end of an iteration.
+   */
+  @Benchmark
+  @Group("handoff")
+  @GroupThreads(1)
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Object take(TakeCounters counters) throws InterruptedException {
+    if (queue.getSize() > 0) {
+      counters.taken++;
+      return queue.take();
+    }
+    counters.empty++;
+    return null;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.collect.Maps;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.internal.transport.ConnectionHeader;
+import org.ros.internal.transport.ConnectionHeaderFields;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding a typical subscriber
+ * {@link ConnectionHeader}, including the full message definition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionHeaderBenchmark {
+
+  private Map<String, String> header;
+  private ChannelBuffer buffer;
+
+  @Setup
+  public void setup() {
+    header = Maps.newHashMap();
+    header.put(ConnectionHeaderFields.CALLER_ID, "/listener");
+    header.put(ConnectionHeaderFields.TOPIC, "/odom");
+    header.put(ConnectionHeaderFields.TYPE, nav_msgs.Odometry._TYPE);
+    header.put(ConnectionHeaderFields.MD5_CHECKSUM, "cd5e73d190d741a2f92e81eda573aca7");
+    header.put(ConnectionHeaderFields.MESSAGE_DEFINITION,
+        new MessageDefinitionReflectionProvider().get(nav_msgs.Odometry._TYPE));
+    header.put(ConnectionHeaderFields.TCP_NODELAY, "1");
+    buffer = ConnectionHeader.encode(header);
+  }
+
+  @Benchmark
+  public ChannelBuffer encode() {
+    return ConnectionHeader.encode(header);
+  }
+
+  @Benchmark
+  public Map<String, String> decode() {
+    return ConnectionHeader.decode(buffer.duplicate());
+  }
+}
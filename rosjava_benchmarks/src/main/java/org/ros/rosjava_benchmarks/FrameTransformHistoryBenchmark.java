@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.message.DefaultMessageFactory;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.message.MessageFactory;
+import org.ros.message.Time;
+import org.ros.namespace.GraphName;
+import org.ros.rosjava_geometry.FrameTransform;
+import org.ros.rosjava_geometry.FrameTransformTree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up interpolated transforms in a {@link FrameTransformTree}
+ * while it is being updated.
+ * 
+ * <p>
+ * The tree is a binary tree of {@value #FRAME_COUNT} frames that are each
+ * updated at {@value #RATE} Hz of simulated time. The buffer of each frame is
+ * filled with {@link FrameTransformTree#DEFAULT_CACHE_DURATION} of transforms
+ * before the benchmark starts. Readers transform a random leaf frame to the
+ * root at a random time within the newer half of the buffered range.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameTransformHistoryBenchmark {
+
+  private static final int FRAME_COUNT = 100;
+  private static final int RATE = 100;
+  private static final long PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1) / RATE;
+
+  /**
+   * Readers stay this far behind the newest transforms so that every frame
+   * has a newer transform, even while a round of updates is in progress.
+   */
+  private static final long READER_DELAY_NANOS = 2 * PERIOD_NANOS;
+
+  /**
+   * The update benchmark advances simulated time much faster than real time.
+   * Readers only look up the newer half of the buffered range so that the
+   * transforms they look up are not discarded while they pick a time.
+   */
+  private static final long READABLE_NANOS =
+      FrameTransformTree.DEFAULT_CACHE_DURATION.totalNsecs() / 2;
+
+  private static final GraphName ROOT_FRAME = new GraphName(getFrameId(0));
+
+  private FrameTransformTree frameTransformTree;
+  private geometry_msgs.TransformStamped[] transforms;
+  private GraphName[] leafFrames;
+  private int nextFrame;
+  private long stamp;
+
+  /**
+   * The newest time at which all frames can be transformed.
+   */
+  private volatile long latestCompleteStamp;
+
+  @State(Scope.Thread)
+  public static class ReaderState {
+    public final Random random = new Random();
+  }
+
+  @Setup
+  public void setup() {
+    MessageFactory messageFactory =
+        new DefaultMessageFactory(new MessageDefinitionReflectionProvider());
+    frameTransformTree = new FrameTransformTree();
+    transforms = new geometry_msgs.TransformStamped[FRAME_COUNT];
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      geometry_msgs.TransformStamped transform =
+          messageFactory.newFromType(geometry_msgs.TransformStamped._TYPE);
+      transform.getHeader().setFrameId(getFrameId(i / 2));
+      transform.setChildFrameId(getFrameId(i + 1));
+      transform.getTransform().getTranslation().setX(1);
+      transform.getTransform().getRotation().setW(1);
+      transforms[i] = transform;
+    }
+    leafFrames = new GraphName[FRAME_COUNT / 2];
+    for (int i = 0; i < leafFrames.length; i++) {
+      leafFrames[i] = new GraphName(getFrameId(FRAME_COUNT - i));
+    }
+    nextFrame = 0;
+    stamp = TimeUnit.SECONDS.toNanos(1);
+    long cacheSize = FrameTransformTree.DEFAULT_CACHE_DURATION.totalNsecs() / PERIOD_NANOS;
+    for (long i = 0; i < cacheSize * FRAME_COUNT; i++) {
+      update();
+    }
+  }
+
+  private static String getFrameId(int index) {
+    return "/frame" + index;
+  }
+
+  /**
+   * Updates one frame at a time. Time advances by one period after all frames
+   * have been updated.
+   */
+  @Benchmark
+  @Group("updateAndLookup")
+  @GroupThreads(1)
+  public void update() {
+    geometry_msgs.TransformStamped transform = transforms[nextFrame];
+    transform.getHeader().setStamp(Time.fromNano(stamp));
+    transform.getTransform().getTranslation().setY(stamp % 1000);
+    frameTransformTree.updateTransform(transform);
+    nextFrame++;
+    if (nextFrame == FRAME_COUNT) {
+      latestCompleteStamp = stamp;
+      nextFrame = 0;
+      stamp += PERIOD_NANOS;
+    }
+  }
+
+  @Benchmark
+  @Group("updateAndLookup")
+  @GroupThreads(3)
+  public FrameTransform lookup(ReaderState readerState) {
+    GraphName leafFrame = leafFrames[readerState.random.nextInt(leafFrames.length)];
+    long time =
+        latestCompleteStamp - READER_DELAY_NANOS
+            - (long) (readerState.random.nextDouble() * READABLE_NANOS);
+    return frameTransformTree.newFrameTransform(leafFrame, ROOT_FRAME, Time.fromNano(time));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.message.DefaultMessageFactory;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.message.MessageFactory;
+import org.ros.message.Time;
+import org.ros.namespace.GraphName;
+import org.ros.rosjava_geometry.FrameTransform;
+import org.ros.rosjava_geometry.FrameTransformTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures updating and looking up transforms in a {@link FrameTransformTree}
+ * that is a chain of frames of the given depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameTransformTreeBenchmark {
+
+  @Param({ "1", "4", "16" })
+  public int depth;
+
+  private FrameTransformTree frameTransformTree;
+  private GraphName rootFrame;
+  private GraphName leafFrame;
+  private geometry_msgs.TransformStamped leafTransform;
+
+  @Setup
+  public void setup() {
+    MessageFactory messageFactory =
+        new DefaultMessageFactory(new MessageDefinitionReflectionProvider());
+    frameTransformTree = new FrameTransformTree();
+    for (int i = 1; i <= depth; i++) {
+      geometry_msgs.TransformStamped transform =
+          messageFactory.newFromType(geometry_msgs.TransformStamped._TYPE);
+      transform.getHeader().setFrameId(getFrameId(i - 1));
+      transform.getHeader().setStamp(new Time(1, 0));
+      transform.setChildFrameId(getFrameId(i));
+      transform.getTransform().getTranslation().setX(1);
+      transform.getTransform().getRotation().setW(1);
+      frameTransformTree.updateTransform(transform);
+      leafTransform = transform;
+    }
+    rootFrame = new GraphName(getFrameId(0));
+    leafFrame = new GraphName(getFrameId(depth));
+  }
+
+  private static String getFrameId(int index) {
+    return "/frame" + index;
+  }
+
+  @Benchmark
+  public void updateTransform() {
+    frameTransformTree.updateTransform(leafTransform);
+  }
+
+  @Benchmark
+  public boolean canTransform() {
+    return frameTransformTree.canTransform(leafFrame, rootFrame);
+  }
+
+  @Benchmark
+  public FrameTransform newFrameTransform() {
+    return frameTransformTree.newFrameTransform(leafFrame, rootFrame);
+  }
+}
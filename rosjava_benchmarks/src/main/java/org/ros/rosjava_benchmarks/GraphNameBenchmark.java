@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.collect.Maps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.namespace.GraphName;
+import org.ros.namespace.NameResolver;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures constructing {@link GraphName}s and resolving them with a
+ * {@link NameResolver}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphNameBenchmark {
+
+  private NameResolver nameResolver;
+  private GraphName namespace;
+  private GraphName relativeName;
+
+  @Setup
+  public void setup() {
+    Map<GraphName, GraphName> remappings = Maps.newHashMap();
+    remappings.put(new GraphName("cmd_vel"), new GraphName("/robot/base/cmd_vel"));
+    remappings.put(new GraphName("odom"), new GraphName("/robot/base/odom"));
+    nameResolver = new NameResolver(new GraphName("/robot"), remappings);
+    namespace = new GraphName("/robot/sensors");
+    relativeName = new GraphName("camera/image_raw");
+  }
+
+  @Benchmark
+  public GraphName newGlobal() {
+    return new GraphName("/robot/sensors/camera/image_raw");
+  }
+
+  @Benchmark
+  public GraphName newNonCanonical() {
+    return new GraphName("sensors/camera/image_raw/");
+  }
+
+  @Benchmark
+  public GraphName join() {
+    return namespace.join(relativeName);
+  }
+
+  @Benchmark
+  public GraphName resolve() {
+    return nameResolver.resolve("sensors/camera/image_raw");
+  }
+
+  @Benchmark
+  public GraphName resolveRemapped() {
+    return nameResolver.resolve("cmd_vel");
+  }
+}
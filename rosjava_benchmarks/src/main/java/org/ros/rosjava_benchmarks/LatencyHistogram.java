@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, e.g. latencies in nanoseconds, in the
+ * style of HdrHistogram.
+ * 
+ * <p>
+ * Values are counted in buckets whose width doubles every
+ * {@code SUB_BUCKET_COUNT / 2} buckets. Every value is therefore recorded with
+ * a relative error of less than {@code 2 / SUB_BUCKET_COUNT} (0.8%) no matter
+ * how large it is, while the histogram stays a fixed size. Values may be
+ * recorded concurrently without locking.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 8;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int BUCKET_COUNT = getIndex(Long.MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong maximum;
+  private final AtomicLong total;
+
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKET_COUNT);
+    maximum = new AtomicLong();
+    total = new AtomicLong();
+  }
+
+  private static int getShift(long value) {
+    return Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+  }
+
+  private static int getIndex(long value) {
+    int shift = getShift(value);
+    // Above the first bucket, the top bit of value >>> shift is always set, so
+    // the sub-bucket is in the upper half.
+    return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+  }
+
+  /**
+   * @return the largest value that is counted in the bucket at {@code index}
+   */
+  private static long getHighestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+    long subBucket = index - shift * SUB_BUCKET_HALF_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * @param value
+   *          the value to record, negative values are recorded as 0
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(getIndex(value));
+    total.addAndGet(value);
+    long currentMaximum = maximum.get();
+    while (value > currentMaximum && !maximum.compareAndSet(currentMaximum, value)) {
+      currentMaximum = maximum.get();
+    }
+  }
+
+  /**
+   * Adds the values recorded in another histogram to this one.
+   * 
+   * @param other
+   *          the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long count = other.counts.get(i);
+      if (count > 0) {
+        counts.addAndGet(i, count);
+      }
+    }
+    total.addAndGet(other.total.get());
+    long otherMaximum = other.maximum.get();
+    long currentMaximum = maximum.get();
+    while (otherMaximum > currentMaximum && !maximum.compareAndSet(currentMaximum, otherMaximum)) {
+      currentMaximum = maximum.get();
+    }
+  }
+
+  /**
+   * Moves all recorded values into a new histogram. Values recorded
+   * concurrently end up in either this histogram or the returned one.
+   * 
+   * @return a histogram holding the values recorded so far
+   */
+  public LatencyHistogram drain() {
+    LatencyHistogram result = new LatencyHistogram();
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (counts.get(i) > 0) {
+        result.counts.set(i, counts.getAndSet(i, 0));
+      }
+    }
+    result.total.set(total.getAndSet(0));
+    result.maximum.set(maximum.getAndSet(0));
+    return result;
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long getCount() {
+    long result = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      result += counts.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @return the largest recorded value, or 0 if nothing was recorded
+   */
+  public long getMaximum() {
+    return maximum.get();
+  }
+
+  /**
+   * @return the mean of the recorded values, or 0 if nothing was recorded
+   */
+  public double getMean() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) total.get() / count;
+  }
+
+  /**
+   * @param percentile
+   *          the percentile, between 0 and 100
+   * @return the value at or below which {@code percentile} percent of the
+   *         recorded values fall, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100);
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(getHighestValue(i), getMaximum());
+      }
+    }
+    return getMaximum();
+  }
+}
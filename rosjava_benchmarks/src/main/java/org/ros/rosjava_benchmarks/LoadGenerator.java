@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.ros.RosCore;
+import org.ros.exception.RosRuntimeException;
+import org.ros.internal.message.Message;
+import org.ros.message.MessageListener;
+import org.ros.message.Time;
+import org.ros.node.ConnectedNode;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+import org.ros.node.topic.Publisher;
+import org.ros.node.topic.Subscriber;
+import org.ros.node.topic.TransportHints;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures end-to-end throughput and latency of topics within one process.
+ * 
+ * <p>
+ * The load generator starts a private master, a node for each publisher and a
+ * node for each subscriber. Publishers and subscribers are spread round-robin
+ * over the topics. Every message is stamped with the time it was published,
+ * its sequence number and the index of its publisher in its
+ * {@code std_msgs/Header}. Subscribers record the time until the message
+ * reaches their listener and count gaps in the sequence numbers as lost
+ * messages. A subscriber may call its listener for consecutive messages
+ * concurrently, so a message that arrives after a later one is counted as out
+ * of order rather than lost.
+ * 
+ * <p>
+ * By default messages go through TCPROS, even though all nodes are in the
+ * same process. Each report shows throughput, lost and dropped messages,
+ * latency percentiles, garbage collections, the longest stall of a thread that
+ * sleeps for 1 ms at a time, and the number of threads. Run with
+ * {@code --duration 0} to soak test until the process is stopped; a summary is
+ * printed on shutdown.
+ */
+public class LoadGenerator {
+
+  private static final long START_TIMEOUT_SECONDS = 30;
+  private static final long STALL_DETECTOR_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * A publisher that falls further behind its rate than this skips messages
+   * instead of publishing a burst to catch up.
+   */
+  private static final long MAXIMUM_PUBLISHER_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final String ROW_FORMAT =
+      "%8s %9s %9s %7s %8s %9s %9s %9s %9s %5s %7s %8s %7s %7s%n";
+
+  private final LoadGeneratorConfiguration configuration;
+  private final long epochNanos;
+  private final long startNanos;
+  private final ConcurrentMap<Class<?>, Method> headerGetters;
+  private final List<Publisher<Message>> publishers;
+  private final List<Subscriber<Message>> subscribers;
+  private final LatencyHistogram latencies;
+  private final LatencyHistogram stalls;
+  private final AtomicLong sentCount;
+  private final AtomicLong receivedCount;
+  private final AtomicLong lostCount;
+  private final AtomicLong outOfOrderCount;
+
+  private volatile boolean running;
+
+  public static void main(String[] args) throws InterruptedException {
+    new LoadGenerator(LoadGeneratorConfiguration.newFromArgs(args)).run();
+    System.exit(0);
+  }
+
+  public LoadGenerator(LoadGeneratorConfiguration configuration) {
+    this.configuration = configuration;
+    epochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    startNanos = System.nanoTime();
+    headerGetters = Maps.newConcurrentMap();
+    publishers = Collections.synchronizedList(Lists.<Publisher<Message>>newArrayList());
+    subscribers = Collections.synchronizedList(Lists.<Subscriber<Message>>newArrayList());
+    latencies = new LatencyHistogram();
+    stalls = new LatencyHistogram();
+    sentCount = new AtomicLong();
+    receivedCount = new AtomicLong();
+    lostCount = new AtomicLong();
+    outOfOrderCount = new AtomicLong();
+  }
+
+  /**
+   * @return the wall clock time in nanoseconds, advanced by the monotonic
+   *         clock so that it never jumps while the load generator runs
+   */
+  private long currentTimeNanos() {
+    return epochNanos + System.nanoTime() - startNanos;
+  }
+
+  private String getTopicName(int index) {
+    return "/load/topic_" + index % configuration.getTopicCount();
+  }
+
+  private std_msgs.Header getHeader(Message message) {
+    if (message instanceof std_msgs.Header) {
+      return (std_msgs.Header) message;
+    }
+    Method headerGetter = headerGetters.get(message.getClass());
+    if (headerGetter == null) {
+      try {
+        headerGetter = message.getClass().getMethod("getHeader");
+      } catch (NoSuchMethodException e) {
+        throw new RosRuntimeException("Message type has no header: "
+            + configuration.getMessageType(), e);
+      }
+      headerGetters.put(message.getClass(), headerGetter);
+    }
+    try {
+      return (std_msgs.Header) headerGetter.invoke(message);
+    } catch (IllegalAccessException e) {
+      throw new RosRuntimeException(e);
+    } catch (InvocationTargetException e) {
+      throw new RosRuntimeException(e);
+    }
+  }
+
+  /**
+   * Records the latency of each message and counts the messages missing from
+   * each publisher's sequence.
+   * <p>
+   * A gap is counted as lost when a later message arrives. If a message from
+   * the gap arrives afterwards, it is counted as out of order and no longer as
+   * lost.
+   */
+  private class LatencyRecorder implements MessageListener<Message> {
+
+    private final int[] firstSequenceNumbers;
+    private final int[] lastSequenceNumbers;
+
+    public LatencyRecorder() {
+      firstSequenceNumbers = new int[configuration.getPublisherCount()];
+      lastSequenceNumbers = new int[configuration.getPublisherCount()];
+      for (int i = 0; i < lastSequenceNumbers.length; i++) {
+        lastSequenceNumbers[i] = -1;
+      }
+    }
+
+    @Override
+    public synchronized void onNewMessage(Message message) {
+      long now = currentTimeNanos();
+      std_msgs.Header header = getHeader(message);
+      latencies.record(now - header.getStamp().totalNsecs());
+      receivedCount.incrementAndGet();
+      int publisherIndex = Integer.parseInt(header.getFrameId());
+      int sequenceNumber = header.getSeq();
+      int lastSequenceNumber = lastSequenceNumbers[publisherIndex];
+      if (lastSequenceNumber < 0) {
+        firstSequenceNumbers[publisherIndex] = sequenceNumber;
+      } else if (sequenceNumber > lastSequenceNumber + 1) {
+        lostCount.addAndGet(sequenceNumber - lastSequenceNumber - 1);
+      } else if (sequenceNumber <= lastSequenceNumber) {
+        outOfOrderCount.incrementAndGet();
+        // Messages published before the first one received were never counted
+        // as lost.
+        if (sequenceNumber > firstSequenceNumbers[publisherIndex]) {
+          lostCount.decrementAndGet();
+        }
+      }
+      lastSequenceNumbers[publisherIndex] = Math.max(lastSequenceNumber, sequenceNumber);
+    }
+  }
+
+  /**
+   * Publishes stamped messages at the configured rate until the load
+   * generator stops.
+   */
+  private class PublishLoop implements Runnable {
+
+    private final int index;
+    private final Publisher<Message> publisher;
+    private final byte[] payload;
+
+    public PublishLoop(int index, Publisher<Message> publisher) {
+      this.index = index;
+      this.publisher = publisher;
+      payload = new byte[configuration.getPayloadSize()];
+    }
+
+    @Override
+    public void run() {
+      String frameId = Integer.toString(index);
+      long period = 0;
+      if (configuration.getRate() > 0) {
+        period = (long) (TimeUnit.SECONDS.toNanos(1) / configuration.getRate());
+      }
+      long nextPublishTime = System.nanoTime();
+      int sequenceNumber = 0;
+      while (running) {
+        Message message = publisher.newMessage();
+        if (payload.length > 0) {
+          message.toRawMessage().setInt8Array("data", payload);
+        }
+        std_msgs.Header header = getHeader(message);
+        header.setSeq(sequenceNumber++);
+        header.setFrameId(frameId);
+        header.setStamp(Time.fromNano(currentTimeNanos()));
+        publisher.publish(message);
+        sentCount.incrementAndGet();
+        if (period > 0) {
+          nextPublishTime += period;
+          long delay = nextPublishTime - System.nanoTime();
+          if (delay > 0) {
+            LockSupport.parkNanos(delay);
+          } else if (delay < -MAXIMUM_PUBLISHER_LAG_NANOS) {
+            nextPublishTime = System.nanoTime();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Records how much longer than requested a thread sleeps. This captures
+   * garbage collection pauses and scheduling delays that every other thread
+   * in the process suffers as well.
+   */
+  private class StallDetector implements Runnable {
+    @Override
+    public void run() {
+      while (running) {
+        long start = System.nanoTime();
+        LockSupport.parkNanos(STALL_DETECTOR_INTERVAL_NANOS);
+        stalls.record(System.nanoTime() - start - STALL_DETECTOR_INTERVAL_NANOS);
+      }
+    }
+  }
+
+  private void startDaemonThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void checkPayload(NodeConfiguration nodeConfiguration) {
+    Message message =
+        nodeConfiguration.getTopicMessageFactory().newFromType(configuration.getMessageType());
+    getHeader(message);
+    if (configuration.getPayloadSize() > 0) {
+      try {
+        message.toRawMessage().setInt8Array("data", new byte[0]);
+      } catch (RosRuntimeException e) {
+        throw new RosRuntimeException("Message type has no uint8[] data field for the payload: "
+            + configuration.getMessageType(), e);
+      }
+    }
+  }
+
+  private void startSubscribers(NodeMainExecutor nodeMainExecutor,
+      NodeConfiguration nodeConfiguration) throws InterruptedException {
+    TransportHints transportHints =
+        new TransportHints().setPreferUdp(configuration.getPreferUdp()).setAllowIntraProcess(
+            configuration.getAllowIntraProcess());
+    for (int i = 0; i < configuration.getSubscriberCount(); i++) {
+      StartedNodeMain nodeMain = new StartedNodeMain("load_subscriber_" + i);
+      nodeMainExecutor.execute(nodeMain, nodeConfiguration);
+      ConnectedNode connectedNode = nodeMain.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Subscriber<Message> subscriber =
+          connectedNode.newSubscriber(getTopicName(i), configuration.getMessageType(),
+              transportHints);
+      if (configuration.getSubscriberQueueLimit() >= 0) {
+        subscriber.setQueueLimit(configuration.getSubscriberQueueLimit());
+      }
+      subscriber.addMessageListener(new LatencyRecorder());
+      subscribers.add(subscriber);
+    }
+  }
+
+  private void startPublishers(NodeMainExecutor nodeMainExecutor,
+      NodeConfiguration nodeConfiguration) throws InterruptedException {
+    for (int i = 0; i < configuration.getPublisherCount(); i++) {
+      StartedNodeMain nodeMain = new StartedNodeMain("load_publisher_" + i);
+      nodeMainExecutor.execute(nodeMain, nodeConfiguration);
+      ConnectedNode connectedNode = nodeMain.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Publisher<Message> publisher =
+          connectedNode.newPublisher(getTopicName(i), configuration.getMessageType());
+      if (configuration.getPublisherQueueLimit() >= 0) {
+        publisher.setQueueLimit(configuration.getPublisherQueueLimit());
+      }
+      publishers.add(publisher);
+    }
+  }
+
+  /**
+   * Waits until every publisher is connected to every subscriber of its topic
+   * so that connection setup is not measured.
+   */
+  private void awaitConnections() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(START_TIMEOUT_SECONDS);
+    for (int i = 0; i < configuration.getPublisherCount(); i++) {
+      int topic = i % configuration.getTopicCount();
+      int expectedSubscriberCount = 0;
+      for (int j = 0; j < configuration.getSubscriberCount(); j++) {
+        if (j % configuration.getTopicCount() == topic) {
+          expectedSubscriberCount++;
+        }
+      }
+      while (publishers.get(i).getNumberOfSubscribers() < expectedSubscriberCount) {
+        if (System.nanoTime() > deadline) {
+          throw new RosRuntimeException("Timed out waiting for subscribers of "
+              + getTopicName(i));
+        }
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  private long getDroppedCount() {
+    long result = 0;
+    synchronized (publishers) {
+      for (Publisher<Message> publisher : publishers) {
+        result += publisher.getDroppedMessageCount();
+      }
+    }
+    synchronized (subscribers) {
+      for (Subscriber<Message> subscriber : subscribers) {
+        result += subscriber.getDroppedMessageCount();
+      }
+    }
+    return result;
+  }
+
+  private static long getGarbageCollectionCount() {
+    long result = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0, bean.getCollectionCount());
+    }
+    return result;
+  }
+
+  private static long getGarbageCollectionMillis() {
+    long result = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0, bean.getCollectionTime());
+    }
+    return result;
+  }
+
+  private static String toMicros(long nanos) {
+    return Long.toString(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format("%.1f", nanos / 1e6);
+  }
+
+  /**
+   * Runs the load generator until the configured duration has passed or the
+   * process is stopped.
+   */
+  public void run() throws InterruptedException {
+    RosCore rosCore = RosCore.newPrivate();
+    rosCore.start();
+    Preconditions.checkState(rosCore.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+        "Master did not start.");
+    NodeMainExecutor nodeMainExecutor = DefaultNodeMainExecutor.newDefault();
+    try {
+      NodeConfiguration nodeConfiguration = NodeConfiguration.newPrivate(rosCore.getUri());
+      checkPayload(nodeConfiguration);
+      System.out.println(configuration);
+      startSubscribers(nodeMainExecutor, nodeConfiguration);
+      startPublishers(nodeMainExecutor, nodeConfiguration);
+      awaitConnections();
+      running = true;
+      startDaemonThread(new StallDetector(), "stall_detector");
+      for (int i = 0; i < publishers.size(); i++) {
+        startDaemonThread(new PublishLoop(i, publishers.get(i)), "load_publisher_" + i);
+      }
+      Thread.sleep(TimeUnit.SECONDS.toMillis(configuration.getWarmUpSeconds()));
+      measure();
+    } finally {
+      running = false;
+      nodeMainExecutor.shutdown();
+      rosCore.shutdown();
+    }
+  }
+
+  private void measure() {
+    final Thread measuringThread = Thread.currentThread();
+    Thread shutdownHook = new Thread() {
+      @Override
+      public void run() {
+        // Stop measuring and give the summary a chance to be printed.
+        measuringThread.interrupt();
+        try {
+          measuringThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    LatencyHistogram totalLatencies = new LatencyHistogram();
+    LatencyHistogram totalStalls = new LatencyHistogram();
+    latencies.drain();
+    stalls.drain();
+    long startSent = sentCount.get();
+    long startReceived = receivedCount.get();
+    long startLost = lostCount.get();
+    long startOutOfOrder = outOfOrderCount.get();
+    long startDropped = getDroppedCount();
+    long startGarbageCollectionCount = getGarbageCollectionCount();
+    long startGarbageCollectionMillis = getGarbageCollectionMillis();
+    long startTime = System.nanoTime();
+
+    long lastSent = startSent;
+    long lastReceived = startReceived;
+    long lastLost = startLost;
+    long lastDropped = startDropped;
+    long lastGarbageCollectionCount = startGarbageCollectionCount;
+    long lastGarbageCollectionMillis = startGarbageCollectionMillis;
+    long lastTime = startTime;
+    long reportIntervalMillis = TimeUnit.SECONDS.toMillis(configuration.getReportIntervalSeconds());
+    long durationNanos = TimeUnit.SECONDS.toNanos(configuration.getDurationSeconds());
+
+    System.out.printf(ROW_FORMAT, "time_s", "sent/s", "recv/s", "lost", "dropped", "p50_us",
+        "p99_us", "p99.9_us", "max_us", "gcs", "gc_ms", "stall_ms", "threads", "heap_mb");
+    boolean done = false;
+    while (!done) {
+      try {
+        long remainingMillis = reportIntervalMillis;
+        if (durationNanos > 0) {
+          // Round up so that the last interval does not end just short of
+          // the deadline.
+          long remainingNanos = startTime + durationNanos - System.nanoTime() + 999999;
+          remainingMillis =
+              Math.min(remainingMillis, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+        }
+        Thread.sleep(Math.max(0, remainingMillis));
+      } catch (InterruptedException e) {
+        done = true;
+      }
+      long now = System.nanoTime();
+      if (durationNanos > 0 && now - startTime >= durationNanos) {
+        done = true;
+      }
+      double seconds = (now - lastTime) / 1e9;
+      long sent = sentCount.get();
+      long received = receivedCount.get();
+      long lost = lostCount.get();
+      long dropped = getDroppedCount();
+      long garbageCollectionCount = getGarbageCollectionCount();
+      long garbageCollectionMillis = getGarbageCollectionMillis();
+      LatencyHistogram intervalLatencies = latencies.drain();
+      LatencyHistogram intervalStalls = stalls.drain();
+      totalLatencies.add(intervalLatencies);
+      totalStalls.add(intervalStalls);
+      System.out.printf(ROW_FORMAT, String.format("%.0f", (now - startTime) / 1e9),
+          String.format("%.0f", (sent - lastSent) / seconds),
+          String.format("%.0f", (received - lastReceived) / seconds), lost - lastLost,
+          dropped - lastDropped, toMicros(intervalLatencies.getValueAtPercentile(50)),
+          toMicros(intervalLatencies.getValueAtPercentile(99)),
+          toMicros(intervalLatencies.getValueAtPercentile(99.9)),
+          toMicros(intervalLatencies.getMaximum()),
+          garbageCollectionCount - lastGarbageCollectionCount,
+          garbageCollectionMillis - lastGarbageCollectionMillis,
+          toMillis(intervalStalls.getMaximum()), threadMXBean.getThreadCount(),
+          ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20);
+      lastSent = sent;
+      lastReceived = received;
+      lastLost = lost;
+      lastDropped = dropped;
+      lastGarbageCollectionCount = garbageCollectionCount;
+      lastGarbageCollectionMillis = garbageCollectionMillis;
+      lastTime = now;
+    }
+
+    double seconds = (lastTime - startTime) / 1e9;
+    System.out.println();
+    System.out.printf("duration:     %.1f s%n", seconds);
+    System.out.printf("sent:         %d (%.0f/s)%n", lastSent - startSent,
+        (lastSent - startSent) / seconds);
+    System.out.printf("received:     %d (%.0f/s)%n", lastReceived - startReceived,
+        (lastReceived - startReceived) / seconds);
+    System.out.printf("lost:         %d%n", lastLost - startLost);
+    System.out.printf("out of order: %d%n", outOfOrderCount.get() - startOutOfOrder);
+    System.out.printf("dropped:      %d%n", lastDropped - startDropped);
+    System.out.printf("latency us:   p50=%s p90=%s p99=%s p99.9=%s p99.99=%s max=%s mean=%.0f%n",
+        toMicros(totalLatencies.getValueAtPercentile(50)),
+        toMicros(totalLatencies.getValueAtPercentile(90)),
+        toMicros(totalLatencies.getValueAtPercentile(99)),
+        toMicros(totalLatencies.getValueAtPercentile(99.9)),
+        toMicros(totalLatencies.getValueAtPercentile(99.99)),
+        toMicros(totalLatencies.getMaximum()), totalLatencies.getMean() / 1e3);
+    System.out.printf("stall ms:     p99=%s p99.9=%s max=%s%n",
+        toMillis(totalStalls.getValueAtPercentile(99)),
+        toMillis(totalStalls.getValueAtPercentile(99.9)), toMillis(totalStalls.getMaximum()));
+    System.out.printf("gc:           %d collections, %d ms%n",
+        lastGarbageCollectionCount - startGarbageCollectionCount,
+        lastGarbageCollectionMillis - startGarbageCollectionMillis);
+    System.out.printf("threads:      %d, peak %d%n", threadMXBean.getThreadCount(),
+        threadMXBean.getPeakThreadCount());
+    System.out.flush();
+
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // The process is already shutting down.
+    }
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import org.ros.exception.RosRuntimeException;
+
+/**
+ * Describes the load created by a {@link LoadGenerator}.
+ */
+public class LoadGeneratorConfiguration {
+
+  private int publisherCount;
+  private int subscriberCount;
+  private int topicCount;
+  private String messageType;
+  private int payloadSize;
+  private double rate;
+  private int publisherQueueLimit;
+  private int subscriberQueueLimit;
+  private boolean preferUdp;
+  private boolean allowIntraProcess;
+  private int warmUpSeconds;
+  private int durationSeconds;
+  private int reportIntervalSeconds;
+
+  public LoadGeneratorConfiguration() {
+    publisherCount = 1;
+    subscriberCount = 1;
+    topicCount = 1;
+    messageType = std_msgs.Header._TYPE;
+    payloadSize = 0;
+    rate = 100;
+    publisherQueueLimit = -1;
+    subscriberQueueLimit = -1;
+    preferUdp = false;
+    allowIntraProcess = false;
+    warmUpSeconds = 5;
+    durationSeconds = 60;
+    reportIntervalSeconds = 10;
+  }
+
+  /**
+   * Creates a configuration from command line arguments of the form
+   * {@code --name value}. Flags without a value (e.g. {@code --udp}) enable the
+   * corresponding option.
+   * 
+   * @param args
+   *          the command line arguments
+   * @return a new {@link LoadGeneratorConfiguration}
+   */
+  public static LoadGeneratorConfiguration newFromArgs(String[] args) {
+    LoadGeneratorConfiguration configuration = new LoadGeneratorConfiguration();
+    int i = 0;
+    while (i < args.length) {
+      String name = args[i++];
+      if (name.equals("--udp")) {
+        configuration.setPreferUdp(true);
+        continue;
+      }
+      if (name.equals("--intraprocess")) {
+        configuration.setAllowIntraProcess(true);
+        continue;
+      }
+      if (i == args.length) {
+        throw new RosRuntimeException("Missing value for option: " + name);
+      }
+      String value = args[i++];
+      try {
+        if (name.equals("--publishers")) {
+          configuration.setPublisherCount(Integer.parseInt(value));
+        } else if (name.equals("--subscribers")) {
+          configuration.setSubscriberCount(Integer.parseInt(value));
+        } else if (name.equals("--topics")) {
+          configuration.setTopicCount(Integer.parseInt(value));
+        } else if (name.equals("--type")) {
+          configuration.setMessageType(value);
+        } else if (name.equals("--size")) {
+          configuration.setPayloadSize(Integer.parseInt(value));
+        } else if (name.equals("--rate")) {
+          configuration.setRate(Double.parseDouble(value));
+        } else if (name.equals("--publisher-queue-limit")) {
+          configuration.setPublisherQueueLimit(Integer.parseInt(value));
+        } else if (name.equals("--subscriber-queue-limit")) {
+          configuration.setSubscriberQueueLimit(Integer.parseInt(value));
+        } else if (name.equals("--warm-up")) {
+          configuration.setWarmUpSeconds(Integer.parseInt(value));
+        } else if (name.equals("--duration")) {
+          configuration.setDurationSeconds(Integer.parseInt(value));
+        } else if (name.equals("--report-interval")) {
+          configuration.setReportIntervalSeconds(Integer.parseInt(value));
+        } else {
+          throw new RosRuntimeException("Unknown option: " + name);
+        }
+      } catch (NumberFormatException e) {
+        throw new RosRuntimeException("Invalid value for option " + name + ": " + value, e);
+      }
+    }
+    return configuration;
+  }
+
+  /**
+   * @return the number of publishers, each in its own node
+   */
+  public int getPublisherCount() {
+    return publisherCount;
+  }
+
+  public LoadGeneratorConfiguration setPublisherCount(int publisherCount) {
+    Preconditions.checkArgument(publisherCount > 0);
+    this.publisherCount = publisherCount;
+    return this;
+  }
+
+  /**
+   * @return the number of subscribers, each in its own node
+   */
+  public int getSubscriberCount() {
+    return subscriberCount;
+  }
+
+  public LoadGeneratorConfiguration setSubscriberCount(int subscriberCount) {
+    Preconditions.checkArgument(subscriberCount > 0);
+    this.subscriberCount = subscriberCount;
+    return this;
+  }
+
+  /**
+   * @return the number of topics that publishers and subscribers are spread
+   *         over
+   */
+  public int getTopicCount() {
+    return topicCount;
+  }
+
+  public LoadGeneratorConfiguration setTopicCount(int topicCount) {
+    Preconditions.checkArgument(topicCount > 0);
+    this.topicCount = topicCount;
+    return this;
+  }
+
+  /**
+   * @return the message type, which must either be {@code std_msgs/Header} or
+   *         have a {@code std_msgs/Header header} field
+   */
+  public String getMessageType() {
+    return messageType;
+  }
+
+  public LoadGeneratorConfiguration setMessageType(String messageType) {
+    Preconditions.checkNotNull(messageType);
+    this.messageType = messageType;
+    return this;
+  }
+
+  /**
+   * @return the number of bytes put into the {@code uint8[] data} field of
+   *         each message
+   */
+  public int getPayloadSize() {
+    return payloadSize;
+  }
+
+  public LoadGeneratorConfiguration setPayloadSize(int payloadSize) {
+    Preconditions.checkArgument(payloadSize >= 0);
+    this.payloadSize = payloadSize;
+    return this;
+  }
+
+  /**
+   * @return the number of messages each publisher publishes per second, or 0
+   *         to publish as fast as possible
+   */
+  public double getRate() {
+    return rate;
+  }
+
+  public LoadGeneratorConfiguration setRate(double rate) {
+    Preconditions.checkArgument(rate >= 0);
+    this.rate = rate;
+    return this;
+  }
+
+  /**
+   * @return the queue limit of each publisher, or -1 to keep the default
+   */
+  public int getPublisherQueueLimit() {
+    return publisherQueueLimit;
+  }
+
+  public LoadGeneratorConfiguration setPublisherQueueLimit(int publisherQueueLimit) {
+    this.publisherQueueLimit = publisherQueueLimit;
+    return this;
+  }
+
+  /**
+   * @return the queue limit of each subscriber, or -1 to keep the default
+   */
+  public int getSubscriberQueueLimit() {
+    return subscriberQueueLimit;
+  }
+
+  public LoadGeneratorConfiguration setSubscriberQueueLimit(int subscriberQueueLimit) {
+    this.subscriberQueueLimit = subscriberQueueLimit;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if subscribers prefer UDPROS over TCPROS
+   */
+  public boolean getPreferUdp() {
+    return preferUdp;
+  }
+
+  public LoadGeneratorConfiguration setPreferUdp(boolean preferUdp) {
+    this.preferUdp = preferUdp;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if messages may be handed over within the process
+   *         instead of going through the network transports
+   */
+  public boolean getAllowIntraProcess() {
+    return allowIntraProcess;
+  }
+
+  public LoadGeneratorConfiguration setAllowIntraProcess(boolean allowIntraProcess) {
+    this.allowIntraProcess = allowIntraProcess;
+    return this;
+  }
+
+  /**
+   * @return the number of seconds to publish before measuring
+   */
+  public int getWarmUpSeconds() {
+    return warmUpSeconds;
+  }
+
+  public LoadGeneratorConfiguration setWarmUpSeconds(int warmUpSeconds) {
+    Preconditions.checkArgument(warmUpSeconds >= 0);
+    this.warmUpSeconds = warmUpSeconds;
+    return this;
+  }
+
+  /**
+   * @return the number of seconds to measure, or 0 to run until the process is
+   *         stopped
+   */
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public LoadGeneratorConfiguration setDurationSeconds(int durationSeconds) {
+    Preconditions.checkArgument(durationSeconds >= 0);
+    this.durationSeconds = durationSeconds;
+    return this;
+  }
+
+  /**
+   * @return the number of seconds between reports
+   */
+  public int getReportIntervalSeconds() {
+    return reportIntervalSeconds;
+  }
+
+  public LoadGeneratorConfiguration setReportIntervalSeconds(int reportIntervalSeconds) {
+    Preconditions.checkArgument(reportIntervalSeconds > 0);
+    this.reportIntervalSeconds = reportIntervalSeconds;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("publishers=%d subscribers=%d topics=%d type=%s size=%d rate=%s "
+        + "publisher_queue_limit=%d subscriber_queue_limit=%d udp=%b intraprocess=%b",
+        publisherCount, subscriberCount, topicCount, messageType, payloadSize, rate,
+        publisherQueueLimit, subscriberQueueLimit, preferUdp, allowIntraProcess);
+  }
+}
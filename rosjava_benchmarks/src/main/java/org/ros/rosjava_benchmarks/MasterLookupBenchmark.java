@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.RosCore;
+import org.ros.internal.node.client.MasterClient;
+import org.ros.namespace.GraphName;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 10k sequential {@code lookupNode} calls against a master in the
+ * same process. Each invocation makes all calls, so the reported time is the
+ * average time of a single call including connection reuse.
+ * 
+ * <p>
+ * Run with {@code -prof gc} or watch the sockets in TIME_WAIT to see whether
+ * connections are reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MasterLookupBenchmark {
+
+  private static final int LOOKUP_COUNT = 10000;
+  private static final String NODE_NAME = "/lookup_target";
+  private static final long START_TIMEOUT_SECONDS = 10;
+
+  private RosCore rosCore;
+  private NodeMainExecutor nodeMainExecutor;
+  private MasterClient masterClient;
+  private GraphName callerName;
+
+  @Setup
+  public void setup() throws Exception {
+    rosCore = RosCore.newPrivate();
+    rosCore.start();
+    Preconditions.checkState(rosCore.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    nodeMainExecutor = DefaultNodeMainExecutor.newDefault();
+    StartedNodeMain target = new StartedNodeMain(NODE_NAME);
+    nodeMainExecutor.execute(target, NodeConfiguration.newPrivate(rosCore.getUri()));
+    target.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    masterClient = new MasterClient(rosCore.getUri());
+    callerName = new GraphName("/lookup_caller");
+  }
+
+  @TearDown
+  public void tearDown() {
+    nodeMainExecutor.shutdown();
+    rosCore.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUP_COUNT)
+  public URI lookupNode() {
+    URI uri = null;
+    for (int i = 0; i < LOOKUP_COUNT; i++) {
+      uri = masterClient.lookupNode(callerName, NODE_NAME).getResult();
+    }
+    return uri;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.address.AdvertiseAddress;
+import org.ros.address.BindAddress;
+import org.ros.internal.node.server.master.MasterServer;
+import org.ros.namespace.GraphName;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the read-only {@link MasterServer} calls while registrations
+ * change. Three threads call {@code lookupNode}, one calls
+ * {@code getSystemState} and one registers and unregisters publishers.
+ *
+ * <p>
+ * The master holds 500 subscriber nodes on 50 topics. Publisher updates are
+ * dropped instead of being sent to the subscribers, so only the master itself
+ * is measured. JMH reports each method of the group separately.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MasterRegistrationBenchmark {
+
+  private static final int NODE_COUNT = 500;
+  private static final int TOPIC_COUNT = 50;
+  private static final String TOPIC_MESSAGE_TYPE = "std_msgs/String";
+
+  private MasterServer masterServer;
+  private GraphName[] nodeNames;
+  private URI[] nodeSlaveUris;
+  private GraphName[] topicNames;
+  private int lookupIndex;
+  private int writeIndex;
+
+  @Setup
+  public void setup() {
+    masterServer = new MasterServer(BindAddress.newPrivate(), AdvertiseAddress.newPrivate()) {
+      @Override
+      protected void contactSubscriberForPublisherUpdate(URI subscriberSlaveUri,
+          GraphName topicName, List<URI> publisherUris) {
+      }
+    };
+    topicNames = new GraphName[TOPIC_COUNT];
+    for (int i = 0; i < TOPIC_COUNT; i++) {
+      topicNames[i] = new GraphName("/topic_" + i);
+    }
+    nodeNames = new GraphName[NODE_COUNT];
+    nodeSlaveUris = new URI[NODE_COUNT];
+    for (int i = 0; i < NODE_COUNT; i++) {
+      nodeNames[i] = new GraphName("/node_" + i);
+      nodeSlaveUris[i] = URI.create("http://localhost:" + (20000 + i) + "/");
+      masterServer.registerSubscriber(nodeNames[i], nodeSlaveUris[i],
+          topicNames[i % TOPIC_COUNT], TOPIC_MESSAGE_TYPE);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    masterServer.shutdown();
+  }
+
+  // The lookup threads share lookupIndex without synchronization. Lost
+  // updates only make the lookups less evenly spread.
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(3)
+  public URI lookupNode() {
+    int i = (lookupIndex + 1) % NODE_COUNT;
+    lookupIndex = i;
+    return masterServer.lookupNode(nodeNames[i]);
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public List<Object> getSystemState() {
+    return masterServer.getSystemState();
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public boolean registerAndUnregister() {
+    writeIndex = (writeIndex + 1) % NODE_COUNT;
+    GraphName topicName = topicNames[(writeIndex + 1) % TOPIC_COUNT];
+    masterServer.registerPublisher(nodeNames[writeIndex], nodeSlaveUris[writeIndex], topicName,
+        TOPIC_MESSAGE_TYPE);
+    return masterServer.unregisterPublisher(nodeNames[writeIndex], topicName);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.message.Md5Generator;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Md5Generator#generate(String)} for flat and nested message
+ * types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Md5GeneratorBenchmark {
+
+  @Param({ "std_msgs/String", "geometry_msgs/PoseStamped", "nav_msgs/Odometry" })
+  public String messageType;
+
+  private Md5Generator md5Generator;
+
+  @Setup
+  public void setup() {
+    md5Generator = new Md5Generator(new MessageDefinitionReflectionProvider());
+  }
+
+  @Benchmark
+  public String generate() {
+    return md5Generator.generate(messageType);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.exception.RosRuntimeException;
+import org.ros.internal.message.DefaultMessageDeserializer;
+import org.ros.internal.message.DefaultMessageFactory;
+import org.ros.internal.message.DefaultMessageSerializationFactory;
+import org.ros.internal.message.DefaultMessageSerializer;
+import org.ros.internal.message.Message;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.internal.message.MessageViewSerializationFactory;
+import org.ros.message.MessageDefinitionProvider;
+import org.ros.message.MessageDeserializer;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+import org.ros.message.MessageSerializationFactory;
+import org.ros.message.MessageSerializer;
+import org.ros.message.Time;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization and deserialization of small, medium and large
+ * messages with each of the available serialization strategies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+  private static final int POINT_CLOUD_POINTS = 65536;
+  private static final int POINT_CLOUD_POINT_STEP = 16;
+
+  @Param({ "std_msgs/Header", "nav_msgs/Odometry", "sensor_msgs/PointCloud2" })
+  public String messageType;
+
+  /**
+   * {@code reflective} walks the message's fields, {@code generated} uses the
+   * serializers generated per message type and {@code view} decodes fields
+   * lazily from the received buffer.
+   */
+  @Param({ "reflective", "generated", "view" })
+  public String serialization;
+
+  private Message message;
+  private MessageSerializer<Message> serializer;
+  private MessageDeserializer<Message> deserializer;
+  private ByteBuffer buffer;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setup() {
+    MessageDefinitionProvider messageDefinitionProvider = new MessageDefinitionReflectionProvider();
+    MessageFactory messageFactory = new DefaultMessageFactory(messageDefinitionProvider);
+    message = newMessage(messageFactory);
+    if (serialization.equals("reflective")) {
+      serializer = new DefaultMessageSerializer();
+      deserializer =
+          new DefaultMessageDeserializer<Message>(MessageIdentifier.newFromType(messageType),
+              messageFactory);
+    } else {
+      MessageSerializationFactory messageSerializationFactory;
+      if (serialization.equals("generated")) {
+        messageSerializationFactory =
+            new DefaultMessageSerializationFactory(messageDefinitionProvider);
+      } else if (serialization.equals("view")) {
+        messageSerializationFactory =
+            new MessageViewSerializationFactory(messageDefinitionProvider);
+      } else {
+        throw new RosRuntimeException("Unknown serialization: " + serialization);
+      }
+      serializer = messageSerializationFactory.newMessageSerializer(messageType);
+      deserializer = messageSerializationFactory.newMessageDeserializer(messageType);
+    }
+    buffer = serializer.serialize(message);
+  }
+
+  private Message newMessage(MessageFactory messageFactory) {
+    if (messageType.equals(std_msgs.Header._TYPE)) {
+      std_msgs.Header header = messageFactory.newFromType(messageType);
+      header.setFrameId("/base_link");
+      header.setStamp(new Time(1, 2));
+      return header;
+    }
+    if (messageType.equals(nav_msgs.Odometry._TYPE)) {
+      nav_msgs.Odometry odometry = messageFactory.newFromType(messageType);
+      odometry.getHeader().setFrameId("/odom");
+      odometry.setChildFrameId("/base_link");
+      odometry.getPose().getPose().getPosition().setX(1);
+      odometry.getPose().getPose().getOrientation().setW(1);
+      odometry.getTwist().getTwist().getLinear().setX(1);
+      return odometry;
+    }
+    if (messageType.equals(sensor_msgs.PointCloud2._TYPE)) {
+      sensor_msgs.PointCloud2 pointCloud = messageFactory.newFromType(messageType);
+      pointCloud.getHeader().setFrameId("/camera");
+      pointCloud.setHeight(1);
+      pointCloud.setWidth(POINT_CLOUD_POINTS);
+      pointCloud.setPointStep(POINT_CLOUD_POINT_STEP);
+      pointCloud.setRowStep(POINT_CLOUD_POINTS * POINT_CLOUD_POINT_STEP);
+      pointCloud.setData(new byte[POINT_CLOUD_POINTS * POINT_CLOUD_POINT_STEP]);
+      return pointCloud;
+    }
+    throw new RosRuntimeException("Unknown message type: " + messageType);
+  }
+
+  @Benchmark
+  public ByteBuffer serialize() {
+    return serializer.serialize(message);
+  }
+
+  @Benchmark
+  public Message deserialize() {
+    return deserializer.deserialize(buffer.duplicate());
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.internal.node.server.ParameterServer;
+import org.ros.namespace.GraphName;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the master's {@link ParameterServer} holding 50k parameters, about
+ * the size of a large robot description.
+ * 
+ * <p>
+ * Parameters are named {@code /robot/group_i/node_j/param_k}. {@code getNames}
+ * is computed once per snapshot, so {@code setAndGetNames} measures the cost
+ * of recomputing it after a write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterServerBenchmark {
+
+  private static final int GROUP_COUNT = 10;
+  private static final int NODES_PER_GROUP = 50;
+  private static final int PARAMETERS_PER_NODE = 100;
+  private static final int PARAMETER_COUNT = GROUP_COUNT * NODES_PER_GROUP
+      * PARAMETERS_PER_NODE;
+
+  private ParameterServer parameterServer;
+  private GraphName[] names;
+  private GraphName[] namespaces;
+  private GraphName[] relativeNames;
+  private int index;
+
+  @Setup
+  public void setup() {
+    names = new GraphName[PARAMETER_COUNT];
+    namespaces = new GraphName[PARAMETER_COUNT];
+    relativeNames = new GraphName[PARAMETER_COUNT];
+    int i = 0;
+    for (int group = 0; group < GROUP_COUNT; group++) {
+      for (int node = 0; node < NODES_PER_GROUP; node++) {
+        GraphName namespace = new GraphName("/robot/group_" + group + "/node_" + node);
+        for (int parameter = 0; parameter < PARAMETERS_PER_NODE; parameter++) {
+          GraphName relativeName = new GraphName("param_" + parameter);
+          namespaces[i] = namespace;
+          relativeNames[i] = relativeName;
+          names[i] = namespace.join(relativeName);
+          i++;
+        }
+      }
+    }
+    parameterServer = newParameterServer();
+  }
+
+  @TearDown
+  public void tearDown() {
+    parameterServer.shutdown();
+  }
+
+  private ParameterServer newParameterServer() {
+    ParameterServer parameterServer = new ParameterServer();
+    for (int i = 0; i < PARAMETER_COUNT; i++) {
+      parameterServer.set(names[i], i);
+    }
+    return parameterServer;
+  }
+
+  private int nextIndex() {
+    index = (index + 1) % PARAMETER_COUNT;
+    return index;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ParameterServer load() {
+    ParameterServer parameterServer = newParameterServer();
+    parameterServer.shutdown();
+    return parameterServer;
+  }
+
+  @Benchmark
+  public Object get() {
+    return parameterServer.get(names[nextIndex()]);
+  }
+
+  @Benchmark
+  public void set() {
+    int i = nextIndex();
+    parameterServer.set(names[i], i);
+  }
+
+  @Benchmark
+  public GraphName search() {
+    int i = nextIndex();
+    return parameterServer.search(namespaces[i], relativeNames[i]);
+  }
+
+  @Benchmark
+  public Collection<GraphName> getNames() {
+    return parameterServer.getNames();
+  }
+
+  @Benchmark
+  public Collection<GraphName> setAndGetNames() {
+    int i = nextIndex();
+    parameterServer.set(names[i], i);
+    return parameterServer.getNames();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.RosCore;
+import org.ros.node.ConnectedNode;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+import org.ros.node.parameter.ParameterTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of reading a parameter from a master in the same
+ * process, with and without the node's parameter cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterTreeBenchmark {
+
+  private static final String PARAMETER_NAME = "/controller/gain";
+  private static final long START_TIMEOUT_SECONDS = 10;
+
+  @Param({ "false", "true" })
+  public boolean cached;
+
+  private RosCore rosCore;
+  private NodeMainExecutor nodeMainExecutor;
+  private ParameterTree parameterTree;
+
+  @Setup
+  public void setup() throws Exception {
+    rosCore = RosCore.newPrivate();
+    rosCore.start();
+    Preconditions.checkState(rosCore.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    nodeMainExecutor = DefaultNodeMainExecutor.newDefault();
+    StartedNodeMain reader = new StartedNodeMain("reader");
+    nodeMainExecutor.execute(reader, NodeConfiguration.newPrivate(rosCore.getUri())
+        .setParameterCacheEnabled(cached));
+    ConnectedNode connectedNode = reader.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    parameterTree = connectedNode.getParameterTree();
+    parameterTree.set(PARAMETER_NAME, 0.5);
+  }
+
+  @TearDown
+  public void tearDown() {
+    nodeMainExecutor.shutdown();
+    rosCore.shutdown();
+  }
+
+  @Benchmark
+  public double getDouble() {
+    return parameterTree.getDouble(PARAMETER_NAME);
+  }
+}
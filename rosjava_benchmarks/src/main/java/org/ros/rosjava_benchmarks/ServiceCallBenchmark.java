@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.RosCore;
+import org.ros.exception.RemoteException;
+import org.ros.exception.RosRuntimeException;
+import org.ros.node.ConnectedNode;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+import org.ros.node.service.CountDownServiceServerListener;
+import org.ros.node.service.ServiceClient;
+import org.ros.node.service.ServiceResponseBuilder;
+import org.ros.node.service.ServiceResponseListener;
+import org.ros.node.service.ServiceServer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the throughput of concurrent service calls between two nodes in
+ * the same process over loopback TCPROS connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ServiceCallBenchmark {
+
+  private static final String SERVICE_NAME = "/add_two_ints";
+  private static final long START_TIMEOUT_SECONDS = 10;
+
+  /**
+   * The maximum number of connections the client opens to the server.
+   */
+  @Param({ "1", "4" })
+  public int connectionCount;
+
+  /**
+   * The time the server spends on each request.
+   */
+  @Param({ "0", "2" })
+  public int workMillis;
+
+  private RosCore rosCore;
+  private NodeMainExecutor nodeMainExecutor;
+  private ServiceClient<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceClient;
+
+  /**
+   * Adds two integers after simulating the given amount of work.
+   */
+  private static class AddTwoIntsResponseBuilder implements
+      ServiceResponseBuilder<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> {
+
+    private final int workMillis;
+
+    public AddTwoIntsResponseBuilder(int workMillis) {
+      this.workMillis = workMillis;
+    }
+
+    @Override
+    public void build(test_ros.AddTwoInts.Request request, test_ros.AddTwoInts.Response response) {
+      if (workMillis > 0) {
+        try {
+          Thread.sleep(workMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      response.setSum(request.getA() + request.getB());
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    rosCore = RosCore.newPrivate();
+    rosCore.start();
+    Preconditions.checkState(rosCore.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    nodeMainExecutor = DefaultNodeMainExecutor.newDefault();
+    NodeConfiguration nodeConfiguration = NodeConfiguration.newPrivate(rosCore.getUri());
+
+    StartedNodeMain server = new StartedNodeMain("server");
+    nodeMainExecutor.execute(server, nodeConfiguration);
+    ConnectedNode serverNode = server.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    ServiceServer<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response> serviceServer =
+        serverNode.newServiceServer(SERVICE_NAME, test_ros.AddTwoInts._TYPE,
+            new AddTwoIntsResponseBuilder(workMillis));
+    CountDownServiceServerListener<test_ros.AddTwoInts.Request, test_ros.AddTwoInts.Response>
+        serviceServerListener = CountDownServiceServerListener.newDefault();
+    serviceServer.addListener(serviceServerListener);
+    Preconditions.checkState(serviceServerListener.awaitMasterRegistrationSuccess(
+        START_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+    StartedNodeMain client = new StartedNodeMain("client");
+    nodeMainExecutor.execute(client, NodeConfiguration.copyOf(nodeConfiguration)
+        .setServiceClientConnectionCount(connectionCount));
+    ConnectedNode clientNode = client.awaitStart(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    serviceClient = clientNode.newServiceClient(SERVICE_NAME, test_ros.AddTwoInts._TYPE);
+  }
+
+  @TearDown
+  public void tearDown() {
+    nodeMainExecutor.shutdown();
+    rosCore.shutdown();
+  }
+
+  @Benchmark
+  public long call() throws InterruptedException {
+    final test_ros.AddTwoInts.Request request = serviceClient.newMessage();
+    request.setA(1);
+    request.setB(2);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<test_ros.AddTwoInts.Response> result =
+        new AtomicReference<test_ros.AddTwoInts.Response>();
+    serviceClient.call(request, new ServiceResponseListener<test_ros.AddTwoInts.Response>() {
+      @Override
+      public void onSuccess(test_ros.AddTwoInts.Response response) {
+        result.set(response);
+        latch.countDown();
+      }
+
+      @Override
+      public void onFailure(RemoteException e) {
+        latch.countDown();
+      }
+    });
+    latch.await();
+    if (result.get() == null) {
+      throw new RosRuntimeException("Service call failed.");
+    }
+    return result.get().getSum();
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import com.google.common.base.Preconditions;
+
+import org.ros.namespace.GraphName;
+import org.ros.node.AbstractNodeMain;
+import org.ros.node.ConnectedNode;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link AbstractNodeMain} that makes its {@link ConnectedNode} available
+ * once it has started.
+ */
+class StartedNodeMain extends AbstractNodeMain {
+
+  private final GraphName name;
+  private final CountDownLatch started;
+  private final AtomicReference<ConnectedNode> connectedNode;
+
+  public StartedNodeMain(String name) {
+    this.name = new GraphName(name);
+    started = new CountDownLatch(1);
+    connectedNode = new AtomicReference<ConnectedNode>();
+  }
+
+  @Override
+  public GraphName getDefaultNodeName() {
+    return name;
+  }
+
+  @Override
+  public void onStart(ConnectedNode connectedNode) {
+    this.connectedNode.set(connectedNode);
+    started.countDown();
+  }
+
+  /**
+   * @return the started {@link ConnectedNode}
+   * @throws IllegalStateException
+   *           if the node did not start in time
+   */
+  public ConnectedNode awaitStart(long timeout, TimeUnit unit) throws InterruptedException {
+    Preconditions.checkState(started.await(timeout, unit), "Node did not start: " + name);
+    return connectedNode.get();
+  }
+}
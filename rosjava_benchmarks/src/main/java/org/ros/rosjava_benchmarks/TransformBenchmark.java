@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ros.rosjava_geometry.Quaternion;
+import org.ros.rosjava_geometry.Transform;
+import org.ros.rosjava_geometry.Vector3;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the immutable {@link Transform} operations with their {@code Into}
+ * variants and with transforming packed point arrays in bulk.
+ * 
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate of each benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+  private static final int POINT_COUNT = 100000;
+
+  private Transform transform;
+  private Transform otherTransform;
+  private Transform resultTransform;
+  private Vector3 vector;
+  private Vector3 resultVector;
+  private float[] points;
+
+  @Setup
+  public void setup() {
+    transform =
+        new Transform(new Vector3(1, 2, 3), Quaternion.newFromAxisAngle(new Vector3(0, 0, 1),
+            0.5));
+    otherTransform =
+        new Transform(new Vector3(-1, 0, 2), Quaternion.newFromAxisAngle(new Vector3(1, 0, 0),
+            1.5));
+    resultTransform = Transform.newIdentityTransform();
+    vector = new Vector3(4, 5, 6);
+    resultVector = Vector3.newIdentityVector3();
+    Random random = new Random(0);
+    points = new float[POINT_COUNT * 3];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = random.nextFloat() * 10;
+    }
+  }
+
+  @Benchmark
+  public Transform multiply() {
+    return transform.multiply(otherTransform);
+  }
+
+  @Benchmark
+  public Transform multiplyInto() {
+    return transform.multiplyInto(otherTransform, resultTransform);
+  }
+
+  @Benchmark
+  public Vector3 transformVector() {
+    return transform.transformVector(vector);
+  }
+
+  @Benchmark
+  public Vector3 transformVectorInto() {
+    return transform.transformVectorInto(vector, resultVector);
+  }
+
+  /**
+   * Transforms a point cloud one {@link Vector3} at a time.
+   */
+  @Benchmark
+  public float[] transformPointCloud() {
+    for (int i = 0; i < points.length; i += 3) {
+      Vector3 point =
+          transform.transformVector(new Vector3(points[i], points[i + 1], points[i + 2]));
+      points[i] = (float) point.getX();
+      points[i + 1] = (float) point.getY();
+      points[i + 2] = (float) point.getZ();
+    }
+    return points;
+  }
+
+  /**
+   * Transforms a point cloud reusing a single {@link Vector3}.
+   */
+  @Benchmark
+  public float[] transformPointCloudInto() {
+    for (int i = 0; i < points.length; i += 3) {
+      transform.transformVectorInto(resultVector.set(points[i], points[i + 1], points[i + 2]),
+          resultVector);
+      points[i] = (float) resultVector.getX();
+      points[i + 1] = (float) resultVector.getY();
+      points[i + 2] = (float) resultVector.getZ();
+    }
+    return points;
+  }
+
+  @Benchmark
+  public float[] transformPointCloudInBulk() {
+    transform.transformPoints(points);
+    return points;
+  }
+}
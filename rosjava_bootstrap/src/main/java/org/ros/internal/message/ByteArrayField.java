@@ -55,18 +55,14 @@ public class ByteArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (byte v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.put(value);
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new byte[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Byte) type.deserialize(buffer);
-    }
+    buffer.get(value);
   }
 
   @Override
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A scalar {@link Field} that stores its value as a {@code byte} rather
+ * than boxing it.
+ */
+public class ByteValueField extends Field {
+
+  private byte value;
+
+  public static ByteValueField newVariable(FieldType type, String name) {
+    return new ByteValueField(type, name);
+  }
+
+  private ByteValueField(FieldType type, String name) {
+    super(type, name, false);
+  }
+
+  public byte getByte() {
+    return value;
+  }
+
+  public void setByte(byte value) {
+    this.value = value;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Byte getValue() {
+    return value;
+  }
+
+  @Override
+  public void setValue(Object value) {
+    this.value = (Byte) value;
+  }
+
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    buffer.put(value);
+  }
+
+  @Override
+  public void deserialize(ByteBuffer buffer) {
+    value = buffer.get();
+  }
+
+  @Override
+  public String getMd5String() {
+    return String.format("%s %s\n", type, name);
+  }
+
+  @Override
+  public int getSerializedSize() {
+    return type.getSerializedSize();
+  }
+
+  @Override
+  public String getJavaTypeName() {
+    return type.getJavaTypeName();
+  }
+
+  @Override
+  public String toString() {
+    return "ByteValueField<" + type + ", " + name + ">";
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = super.hashCode();
+    result = prime * result + value;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!super.equals(obj))
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    ByteValueField other = (ByteValueField) obj;
+    if (value != other.value)
+      return false;
+    return true;
+  }
+}
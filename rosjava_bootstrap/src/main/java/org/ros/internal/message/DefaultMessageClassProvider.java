@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.collect.Maps;
+
+import org.ros.message.MessageIdentifier;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads classes generated by {@link MessageClassBuilder} from the class path.
+ */
+public class DefaultMessageClassProvider implements MessageClassProvider {
+
+  private final Map<String, Constructor<?>> cache;
+  private final Set<String> missing;
+
+  public DefaultMessageClassProvider() {
+    cache = Maps.newConcurrentMap();
+    missing = Collections.newSetFromMap(Maps.<String, Boolean>newConcurrentMap());
+  }
+
+  @Override
+  public Constructor<?> getConstructor(String messageType) {
+    Constructor<?> constructor = cache.get(messageType);
+    if (constructor != null || missing.contains(messageType)) {
+      return constructor;
+    }
+    String className = MessageClassBuilder.getClassName(MessageIdentifier.newFromType(messageType));
+    try {
+      Class<?> messageClass = getClass().getClassLoader().loadClass(className);
+      constructor = messageClass.getConstructor(MessageImpl.class);
+      cache.put(messageType, constructor);
+    } catch (ClassNotFoundException e) {
+      missing.add(messageType);
+    } catch (NoSuchMethodException e) {
+      missing.add(messageType);
+    }
+    return constructor;
+  }
+}
@@ -35,15 +35,19 @@ public class DefaultMessageInterfaceClassProvider implements MessageInterfaceCla
   @SuppressWarnings("unchecked")
   @Override
   public <T> Class<T> get(String messageType) {
-    if (cache.containsKey(messageType)) {
-      return (Class<T>) cache.get(messageType);
+    Class<?> messageInterfaceClass = cache.get(messageType);
+    if (messageInterfaceClass != null) {
+      return (Class<T>) messageInterfaceClass;
     }
     try {
       String className = messageType.replace("/", ".");
-      Class<T> messageInterfaceClass = (Class<T>) getClass().getClassLoader().loadClass(className);
+      messageInterfaceClass = getClass().getClassLoader().loadClass(className);
       cache.put(messageType, messageInterfaceClass);
-      return messageInterfaceClass;
+      return (Class<T>) messageInterfaceClass;
     } catch (ClassNotFoundException e) {
+      // Remember the miss as well so that we don't pay for the failed lookup
+      // every time a message of this type is created.
+      cache.put(messageType, RawMessage.class);
       return (Class<T>) RawMessage.class;
     }
   }
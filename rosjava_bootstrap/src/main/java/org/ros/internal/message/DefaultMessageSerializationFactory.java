@@ -16,6 +16,7 @@
 
 package org.ros.internal.message;
 
+import org.ros.exception.RosRuntimeException;
 import org.ros.internal.message.service.ServiceRequestMessageFactory;
 import org.ros.internal.message.service.ServiceResponseMessageFactory;
 import org.ros.message.MessageDefinitionProvider;
@@ -25,7 +26,15 @@ import org.ros.message.MessageIdentifier;
 import org.ros.message.MessageSerializationFactory;
 import org.ros.message.MessageSerializer;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
 /**
+ * Topic messages are serialized by the classes generated by
+ * {@link MessageSerializationBuilder} when they are available on the class path
+ * and by {@link DefaultMessageSerializer} and
+ * {@link DefaultMessageDeserializer} otherwise.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class DefaultMessageSerializationFactory implements MessageSerializationFactory {
@@ -43,13 +52,56 @@ public class DefaultMessageSerializationFactory implements MessageSerializationF
   @SuppressWarnings("unchecked")
   @Override
   public <T> MessageSerializer<T> newMessageSerializer(String messageType) {
+    String className =
+        MessageSerializationBuilder.getSerializerClassName(MessageIdentifier
+            .newFromType(messageType));
+    Constructor<?> constructor = getGeneratedConstructor(className);
+    if (constructor != null) {
+      return newInstance(constructor);
+    }
     return (MessageSerializer<T>) new DefaultMessageSerializer();
   }
 
   @Override
   public <T> MessageDeserializer<T> newMessageDeserializer(String messageType) {
-    return new DefaultMessageDeserializer<T>(MessageIdentifier.newFromType(messageType),
-        topicMessageFactory);
+    MessageIdentifier messageIdentifier = MessageIdentifier.newFromType(messageType);
+    String className = MessageSerializationBuilder.getDeserializerClassName(messageIdentifier);
+    Constructor<?> constructor = getGeneratedConstructor(className, MessageFactory.class);
+    if (constructor != null) {
+      return newInstance(constructor, topicMessageFactory);
+    }
+    return new DefaultMessageDeserializer<T>(messageIdentifier, topicMessageFactory);
+  }
+
+  /**
+   * @param className
+   *          the name of a generated serializer or deserializer class
+   * @param parameterTypes
+   *          the parameter types of the constructor
+   * @return the constructor of the generated class or {@code null} if the
+   *         class was not generated
+   */
+  private Constructor<?> getGeneratedConstructor(String className, Class<?>... parameterTypes) {
+    try {
+      return getClass().getClassLoader().loadClass(className).getConstructor(parameterTypes);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T newInstance(Constructor<?> constructor, Object... arguments) {
+    try {
+      return (T) constructor.newInstance(arguments);
+    } catch (InstantiationException e) {
+      throw new RosRuntimeException(e);
+    } catch (IllegalAccessException e) {
+      throw new RosRuntimeException(e);
+    } catch (InvocationTargetException e) {
+      throw new RosRuntimeException(e);
+    }
   }
 
   @SuppressWarnings("unchecked")
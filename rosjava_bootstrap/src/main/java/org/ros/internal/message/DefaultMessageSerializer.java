@@ -16,17 +16,25 @@
 
 package org.ros.internal.message;
 
-import org.ros.message.MessageSerializer;
-
 import java.nio.ByteBuffer;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
  */
-public class DefaultMessageSerializer implements MessageSerializer<Message> {
+public class DefaultMessageSerializer implements MessageBufferSerializer<Message> {
 
   @Override
   public ByteBuffer serialize(Message message) {
     return message.toRawMessage().serialize();
   }
+
+  @Override
+  public int getSerializedSize(Message message) {
+    return message.toRawMessage().getSerializedSize();
+  }
+
+  @Override
+  public void serialize(Message message, ByteBuffer buffer) {
+    message.toRawMessage().serialize(buffer);
+  }
 }
@@ -56,18 +56,16 @@ public class DoubleArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (double v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.asDoubleBuffer().put(value);
+    buffer.position(buffer.position() + value.length * type.getSerializedSize());
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new double[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Double) type.deserialize(buffer);
-    }
+    buffer.asDoubleBuffer().get(value);
+    buffer.position(buffer.position() + size * type.getSerializedSize());
   }
 
   @Override
@@ -54,7 +54,7 @@ public abstract class Field {
     return isConstant;
   }
 
-  private String getJavaName() {
+  private static String getJavaName(String name) {
     String[] parts = name.split("_");
     StringBuilder fieldName = new StringBuilder();
     for (String part : parts) {
@@ -63,12 +63,30 @@ public abstract class Field {
     return fieldName.toString();
   }
 
+  /**
+   * @param name
+   *          the name of a field
+   * @return the name of the getter for the field with the given name
+   */
+  static String getGetterName(String name) {
+    return "get" + getJavaName(name);
+  }
+
+  /**
+   * @param name
+   *          the name of a field
+   * @return the name of the setter for the field with the given name
+   */
+  static String getSetterName(String name) {
+    return "set" + getJavaName(name);
+  }
+
   public String getGetterName() {
-    return "get" + getJavaName();
+    return getGetterName(name);
   }
 
   public String getSetterName() {
-    return "set" + getJavaName();
+    return getSetterName(name);
   }
 
   /**
@@ -84,8 +102,29 @@ public abstract class Field {
 
   public abstract int getSerializedSize();
 
+  /**
+   * Writes this field at the buffer's position and advances the position past
+   * it.
+   * 
+   * <p>
+   * Arrays of multi-byte primitives are copied in bulk through a view of the
+   * buffer (e.g. {@link ByteBuffer#asIntBuffer()}). A view shares the buffer's
+   * content and byte order but not its position, so the buffer's position must
+   * be advanced explicitly afterwards. {@link MessageSerializationBuilder}
+   * generates the same code.
+   * 
+   * @param buffer
+   *          the buffer to write to
+   */
   public abstract void serialize(ByteBuffer buffer);
 
+  /**
+   * Reads this field from the buffer's position and advances the position past
+   * it. See {@link #serialize(ByteBuffer)} for how arrays are copied.
+   * 
+   * @param buffer
+   *          the buffer to read from
+   */
   public abstract void deserialize(ByteBuffer buffer);
 
   public abstract <T> T getValue();
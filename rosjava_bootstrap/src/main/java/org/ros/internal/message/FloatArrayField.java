@@ -55,18 +55,16 @@ public class FloatArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (float v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.asFloatBuffer().put(value);
+    buffer.position(buffer.position() + value.length * type.getSerializedSize());
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new float[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Float) type.deserialize(buffer);
-    }
+    buffer.asFloatBuffer().get(value);
+    buffer.position(buffer.position() + size * type.getSerializedSize());
   }
 
   @Override
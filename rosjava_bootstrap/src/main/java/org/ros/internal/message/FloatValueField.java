@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A scalar {@link Field} that stores its value as a {@code float} rather
+ * than boxing it.
+ */
+public class FloatValueField extends Field {
+
+  private float value;
+
+  public static FloatValueField newVariable(FieldType type, String name) {
+    return new FloatValueField(type, name);
+  }
+
+  private FloatValueField(FieldType type, String name) {
+    super(type, name, false);
+  }
+
+  public float getFloat() {
+    return value;
+  }
+
+  public void setFloat(float value) {
+    this.value = value;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Float getValue() {
+    return value;
+  }
+
+  @Override
+  public void setValue(Object value) {
+    this.value = (Float) value;
+  }
+
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    buffer.putFloat(value);
+  }
+
+  @Override
+  public void deserialize(ByteBuffer buffer) {
+    value = buffer.getFloat();
+  }
+
+  @Override
+  public String getMd5String() {
+    return String.format("%s %s\n", type, name);
+  }
+
+  @Override
+  public int getSerializedSize() {
+    return type.getSerializedSize();
+  }
+
+  @Override
+  public String getJavaTypeName() {
+    return type.getJavaTypeName();
+  }
+
+  @Override
+  public String toString() {
+    return "FloatValueField<" + type + ", " + name + ">";
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = super.hashCode();
+    result = prime * result + Float.floatToIntBits(value);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!super.equals(obj))
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    FloatValueField other = (FloatValueField) obj;
+    if (Float.floatToIntBits(value) != Float.floatToIntBits(other.value))
+      return false;
+    return true;
+  }
+}
@@ -17,6 +17,7 @@
 package org.ros.internal.message;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.io.FileUtils;
@@ -32,6 +33,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -73,6 +76,7 @@ public class GenerateInterfaces {
         topicTypes.addAll(messageIdentifiers);
       }
     }
+    List<MessageDeclaration> messageDeclarations = Lists.newArrayList();
     for (MessageIdentifier topicType : topicTypes) {
       String definition = messageDefinitionProviderChain.get(topicType.getType());
       MessageDeclaration messageDeclaration = new MessageDeclaration(topicType, definition);
@@ -91,7 +95,93 @@ public class GenerateInterfaces {
       }
       File file = new File(outputDirectory, topicType.getType() + ".java");
       FileUtils.writeStringToFile(file, content);
+      messageDeclarations.add(messageDeclaration);
     }
+    writeTopicClasses(outputDirectory, messageDeclarations);
+  }
+
+  /**
+   * Writes the classes implementing the interfaces for the specified topic
+   * types. Topic types for which no class can be generated continue to be
+   * instantiated as proxies.
+   * 
+   * <p>
+   * Serializers and deserializers are nested in the generated classes. Since
+   * they call each other for nested messages, every class is written only after
+   * all of them were built.
+   * 
+   * @param outputDirectory
+   *          the directory to write the generated classes to
+   * @param messageDeclarations
+   *          the {@link MessageDeclaration}s of the topic types
+   * @throws IOException
+   */
+  private void writeTopicClasses(File outputDirectory,
+      Collection<MessageDeclaration> messageDeclarations) throws IOException {
+    Set<String> serializableTypes = Sets.newHashSet();
+    for (MessageDeclaration messageDeclaration : messageDeclarations) {
+      serializableTypes.add(messageDeclaration.getType());
+    }
+    Map<String, String> contents = buildTopicClasses(messageDeclarations, serializableTypes);
+    if (serializableTypes.size() < messageDeclarations.size()) {
+      // Serializers built before a failure may call the serializer of a topic
+      // type that is not generated after all.
+      List<MessageDeclaration> serializableDeclarations = Lists.newArrayList();
+      for (MessageDeclaration messageDeclaration : messageDeclarations) {
+        if (serializableTypes.contains(messageDeclaration.getType())) {
+          serializableDeclarations.add(messageDeclaration);
+        }
+      }
+      contents.putAll(buildTopicClasses(serializableDeclarations, serializableTypes));
+    }
+    for (Map.Entry<String, String> entry : contents.entrySet()) {
+      String className = MessageClassBuilder.getClassName(MessageIdentifier.newFromType(entry
+          .getKey()));
+      File file = new File(outputDirectory, className.replace(".", File.separator) + ".java");
+      FileUtils.writeStringToFile(file, entry.getValue());
+    }
+  }
+
+  /**
+   * Builds the classes for the specified topic types with their serializers
+   * and deserializers nested. A topic type whose serializer or class can not be
+   * generated is removed from {@code serializableTypes}. If only its serializer
+   * fails, its class is built without it.
+   * 
+   * @param messageDeclarations
+   *          the {@link MessageDeclaration}s of the topic types
+   * @param serializableTypes
+   *          the topic types whose serializers are assumed to be generated
+   * @return the source of each class that was built by topic type
+   */
+  private Map<String, String> buildTopicClasses(
+      Collection<MessageDeclaration> messageDeclarations, Set<String> serializableTypes) {
+    Map<String, String> contents = Maps.newHashMap();
+    for (MessageDeclaration messageDeclaration : messageDeclarations) {
+      String type = messageDeclaration.getType();
+      MessageClassBuilder builder = new MessageClassBuilder();
+      builder.setMessageDeclaration(messageDeclaration);
+      if (serializableTypes.contains(type)) {
+        MessageSerializationBuilder serializationBuilder = new MessageSerializationBuilder();
+        serializationBuilder.setMessageDeclaration(messageDeclaration);
+        serializationBuilder.setGeneratedTypes(serializableTypes);
+        try {
+          builder.setNestedContent(serializationBuilder.build(messageFactory));
+        } catch (Exception e) {
+          System.out.println(String.format("Failed to generate serializer for %s: %s", type,
+              e.getMessage()));
+          serializableTypes.remove(type);
+        }
+      }
+      try {
+        contents.put(type, builder.build(messageFactory));
+      } catch (Exception e) {
+        System.out.println(String.format("Failed to generate class for %s: %s", type,
+            e.getMessage()));
+        serializableTypes.remove(type);
+      }
+    }
+    return contents;
   }
 
   /**
@@ -17,9 +17,12 @@
 package org.ros.internal.message;
 
 /**
+ * Provides access to the {@link MessageImpl} behind a message proxy or
+ * generated message class.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
-interface GetInstance {
+public interface GetInstance {
 
   public Object getInstance();
 }
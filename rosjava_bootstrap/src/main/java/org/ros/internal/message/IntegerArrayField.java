@@ -57,18 +57,16 @@ public class IntegerArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (int v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.asIntBuffer().put(value);
+    buffer.position(buffer.position() + value.length * type.getSerializedSize());
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new int[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Integer) type.deserialize(buffer);
-    }
+    buffer.asIntBuffer().get(value);
+    buffer.position(buffer.position() + size * type.getSerializedSize());
   }
 
   @Override
@@ -57,18 +57,16 @@ public class LongArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (long v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.asLongBuffer().put(value);
+    buffer.position(buffer.position() + value.length * type.getSerializedSize());
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new long[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Long) type.deserialize(buffer);
-    }
+    buffer.asLongBuffer().get(value);
+    buffer.position(buffer.position() + size * type.getSerializedSize());
   }
 
   @Override
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import org.ros.message.MessageSerializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link MessageSerializer} that can serialize messages into a buffer
+ * provided by the caller (e.g. a pooled buffer).
+ * 
+ * @param <T>
+ *          the type of message that the {@link MessageBufferSerializer} can
+ *          serialize
+ */
+public interface MessageBufferSerializer<T> extends MessageSerializer<T> {
+
+  /**
+   * @param message
+   *          the message to serialize
+   * @return the number of bytes {@link #serialize(Object, ByteBuffer)} will
+   *         write for the message
+   */
+  int getSerializedSize(T message);
+
+  /**
+   * Writes the message in little-endian order starting at the buffer's current
+   * position.
+   * 
+   * @param message
+   *          the message to serialize
+   * @param buffer
+   *          the buffer to write to, it must have at least
+   *          {@link #getSerializedSize(Object)} bytes remaining
+   */
+  void serialize(T message, ByteBuffer buffer);
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import org.ros.exception.RosRuntimeException;
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+
+import java.util.Set;
+
+/**
+ * Builds the source of a class that implements a generated message interface
+ * with direct accessors for each field. Instances of the class wrap a
+ * {@link MessageImpl} which continues to provide the {@link RawMessage} API.
+ */
+public class MessageClassBuilder {
+
+  /**
+   * Generated classes are placed in this subpackage of the message package so
+   * that they may share the name of the interface they implement.
+   */
+  private static final String IMPLEMENTATION_PACKAGE = "impl";
+
+  private static final Set<String> PRIMITIVE_JAVA_TYPES = ImmutableSet.of("boolean", "byte",
+      "short", "int", "long", "float", "double");
+
+  /**
+   * Methods that are implemented by every generated class and must not be
+   * generated for a field.
+   */
+  private static final Set<String> RESERVED_METHODS = ImmutableSet.of("toRawMessage",
+      "getInstance", "getClass", "hashCode", "equals", "toString", "clone", "finalize",
+      "notify", "notifyAll", "wait");
+
+  private MessageDeclaration messageDeclaration;
+  private String nestedContent;
+
+  public MessageClassBuilder() {
+    nestedContent = "";
+  }
+
+  /**
+   * @param messageIdentifier
+   *          the {@link MessageIdentifier} of a message type
+   * @return the fully qualified name of the generated class for the message
+   *         type
+   */
+  public static String getClassName(MessageIdentifier messageIdentifier) {
+    return String.format("%s.%s.%s", messageIdentifier.getPackage(), IMPLEMENTATION_PACKAGE,
+        messageIdentifier.getName());
+  }
+
+  public MessageDeclaration getMessageDeclaration() {
+    return messageDeclaration;
+  }
+
+  public MessageClassBuilder setMessageDeclaration(MessageDeclaration messageDeclaration) {
+    Preconditions.checkNotNull(messageDeclaration);
+    this.messageDeclaration = messageDeclaration;
+    return this;
+  }
+
+  public String getNestedContent() {
+    return nestedContent;
+  }
+
+  /**
+   * @param nestedContent
+   *          source that is appended to the body of the generated class (e.g.
+   *          nested classes)
+   * @return this {@link MessageClassBuilder}
+   */
+  public MessageClassBuilder setNestedContent(String nestedContent) {
+    Preconditions.checkNotNull(nestedContent);
+    this.nestedContent = nestedContent;
+    return this;
+  }
+
+  /**
+   * @param messageFactory
+   *          the {@link MessageFactory} used to resolve nested message types
+   * @return the source of the generated class
+   * @throws RosRuntimeException
+   *           if the message contains a field whose accessors would conflict
+   *           with the methods every generated class implements
+   */
+  public String build(MessageFactory messageFactory) {
+    Preconditions.checkNotNull(messageDeclaration);
+    MessageContextFactory messageContextFactory = new MessageContextFactory(messageFactory);
+    MessageContext messageContext =
+        messageContextFactory.newFromMessageDeclaration(messageDeclaration);
+    MessageFields messageFields = new MessageFields(messageContext);
+    String interfaceName =
+        String.format("%s.%s", messageDeclaration.getPackage(), messageDeclaration.getName());
+
+    StringBuilder members = new StringBuilder();
+    StringBuilder initializers = new StringBuilder();
+    StringBuilder methods = new StringBuilder();
+    Set<String> getters = Sets.newHashSet();
+    Set<String> setters = Sets.newHashSet();
+    for (Field field : messageFields.getFields()) {
+      if (field.isConstant()) {
+        continue;
+      }
+      String getter = field.getGetterName();
+      String setter = field.getSetterName();
+      if (RESERVED_METHODS.contains(getter) || RESERVED_METHODS.contains(setter)) {
+        throw new RosRuntimeException(String.format(
+            "Field %s of %s conflicts with a reserved method name.", field.getName(),
+            messageDeclaration.getType()));
+      }
+      boolean addGetter = getters.add(getter);
+      boolean addSetter = setters.add(setter);
+      if (!addGetter && !addSetter) {
+        continue;
+      }
+      String type = field.getJavaTypeName();
+      String member = field.getName() + "Field";
+      boolean primitive = PRIMITIVE_JAVA_TYPES.contains(type);
+      String memberType = primitive ? field.getClass().getName() : Field.class.getName();
+      members.append(String.format("  private final %s %s;\n", memberType, member));
+      if (primitive) {
+        initializers.append(String.format("    %s = (%s) fields.getField(\"%s\");\n", member,
+            memberType, field.getName()));
+      } else {
+        initializers.append(String.format("    %s = fields.getField(\"%s\");\n", member,
+            field.getName()));
+      }
+      String accessor = type.substring(0, 1).toUpperCase() + type.substring(1);
+      if (addGetter) {
+        methods.append("\n  @Override\n");
+        methods.append(String.format("  public %s %s() {\n", type, getter));
+        if (primitive) {
+          methods.append(String.format("    return %s.get%s();\n", member, accessor));
+        } else {
+          methods.append(String.format("    return %s.<%s>getValue();\n", member, type));
+        }
+        methods.append("  }\n");
+      }
+      if (addSetter) {
+        methods.append("\n  @Override\n");
+        methods.append(String.format("  public void %s(%s value) {\n", setter, type));
+        if (primitive) {
+          methods.append(String.format("    %s.set%s(value);\n", member, accessor));
+        } else {
+          methods.append(String.format("    %s.setValue(value);\n", member));
+        }
+        methods.append("  }\n");
+      }
+    }
+
+    String messageImplName = MessageImpl.class.getName();
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("package %s.%s;\n\n", messageDeclaration.getPackage(),
+        IMPLEMENTATION_PACKAGE));
+    builder.append(String.format("public class %s implements %s, %s {\n\n",
+        messageDeclaration.getName(), interfaceName, GetInstance.class.getName()));
+    builder.append(String.format("  private final %s messageImpl;\n", messageImplName));
+    builder.append(members);
+    builder.append("\n");
+    builder.append(String.format("  public %s(%s messageImpl) {\n", messageDeclaration.getName(),
+        messageImplName));
+    builder.append("    this.messageImpl = messageImpl;\n");
+    if (initializers.length() > 0) {
+      builder.append(String.format("    %s fields = messageImpl.getMessageFields();\n",
+          MessageFields.class.getName()));
+      builder.append(initializers);
+    }
+    builder.append("  }\n");
+    builder.append(methods);
+    builder.append("\n  @Override\n");
+    builder.append(String.format("  public %s toRawMessage() {\n", RawMessage.class.getName()));
+    builder.append("    return messageImpl;\n");
+    builder.append("  }\n");
+    builder.append("\n  @Override\n");
+    builder.append("  public java.lang.Object getInstance() {\n");
+    builder.append("    return messageImpl;\n");
+    builder.append("  }\n");
+    builder.append("\n  @Override\n");
+    builder.append("  public int hashCode() {\n");
+    builder.append("    return messageImpl.hashCode();\n");
+    builder.append("  }\n");
+    builder.append("\n  @Override\n");
+    builder.append("  public boolean equals(java.lang.Object obj) {\n");
+    builder.append("    return messageImpl.equals(obj);\n");
+    builder.append("  }\n");
+    if (nestedContent.length() > 0) {
+      builder.append("\n");
+      builder.append(nestedContent);
+    }
+    builder.append("}\n");
+    return builder.toString();
+  }
+}
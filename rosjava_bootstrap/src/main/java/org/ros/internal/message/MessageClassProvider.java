@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import java.lang.reflect.Constructor;
+
+public interface MessageClassProvider {
+
+  /**
+   * @param messageType
+   *          the type of message to provide a generated class for
+   * @return the {@link Constructor} of the generated class for the specified
+   *         message type which accepts a {@link MessageImpl}, or {@code null}
+   *         if no class was generated for the message type
+   * @see MessageClassBuilder
+   */
+  Constructor<?> getConstructor(String messageType);
+}
@@ -27,13 +27,23 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * The parsed layout of a message type. A {@link MessageContext} is created
+ * once per {@link MessageDeclaration} and shared by all messages of that type.
+ * Per message values are held by {@link MessageFields}.
+ * 
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class MessageContext {
 
   private final MessageDeclaration messageDeclaration;
-  private final Map<String, Field> fields;
-  private final List<Field> orderedFields;
+  private final List<String> fieldNames;
+  private final List<FieldFactory> fieldFactories;
+  private final List<FieldType> fieldTypes;
+  private final List<Boolean> listFields;
+  private final List<Boolean> constantFields;
+  private final Map<String, Integer> fieldIndices;
+  private final Map<String, Integer> getterIndices;
+  private final Map<String, Integer> setterIndices;
 
   public static MessageContext newFromStrings(String type, String definition) {
     MessageIdentifier messageIdentifier = MessageIdentifier.newFromType(type);
@@ -43,8 +53,18 @@ public class MessageContext {
 
   public MessageContext(MessageDeclaration messageDeclaration) {
     this.messageDeclaration = messageDeclaration;
-    this.fields = Maps.newConcurrentMap();
-    this.orderedFields = Lists.newArrayList();
+    fieldNames = Lists.newArrayList();
+    fieldFactories = Lists.newArrayList();
+    fieldTypes = Lists.newArrayList();
+    listFields = Lists.newArrayList();
+    constantFields = Lists.newArrayList();
+    fieldIndices = Maps.newHashMap();
+    getterIndices = Maps.newHashMap();
+    setterIndices = Maps.newHashMap();
+  }
+
+  public MessageDeclaration getMessageDeclaration() {
+    return messageDeclaration;
   }
 
   public MessageIdentifier getMessageIdentifer() {
@@ -67,33 +87,147 @@ public class MessageContext {
     return messageDeclaration.getDefinition();
   }
 
-  public void addField(Field field) {
-    fields.put(field.getName(), field);
-    orderedFields.add(field);
+  private int add(String name, FieldType type, boolean list, boolean constant,
+      FieldFactory fieldFactory) {
+    int index = fieldNames.size();
+    fieldNames.add(name);
+    fieldFactories.add(fieldFactory);
+    fieldTypes.add(type);
+    listFields.add(list);
+    constantFields.add(constant);
+    fieldIndices.put(name, index);
+    return index;
+  }
+
+  /**
+   * Adds a constant {@link Field}. Constants are immutable and the same
+   * instance is shared by all messages of this type.
+   * 
+   * @param field
+   *          the constant {@link Field}
+   */
+  public void addConstantField(final Field field) {
+    add(field.getName(), field.getType(), false, true, new FieldFactory() {
+      @Override
+      public Field create() {
+        return field;
+      }
+    });
+  }
+
+  /**
+   * Adds a variable field. The {@link FieldFactory} is called once for each
+   * new message to provide it with its own value.
+   * 
+   * @param name
+   *          the name of the field
+   * @param type
+   *          the {@link FieldType} of the field or of its elements
+   * @param list
+   *          {@code true} if the field is an array or list of elements
+   * @param fieldFactory
+   *          the {@link FieldFactory} for the field
+   */
+  public void addVariableField(String name, FieldType type, boolean list,
+      FieldFactory fieldFactory) {
+    int index = add(name, type, list, false, fieldFactory);
+    String getterName = Field.getGetterName(name);
+    if (!getterIndices.containsKey(getterName)) {
+      getterIndices.put(getterName, index);
+    }
+    String setterName = Field.getSetterName(name);
+    if (!setterIndices.containsKey(setterName)) {
+      setterIndices.put(setterName, index);
+    }
+  }
+
+  /**
+   * @return the number of fields (including constants) in this message type
+   */
+  public int getFieldCount() {
+    return fieldNames.size();
   }
 
-  public boolean hasField(FieldType type, String name) {
-    return fields.containsKey(name) && fields.get(name).getType().equals(type);
+  /**
+   * @return the {@link List} of field names in the order they were added
+   */
+  public List<String> getFieldNames() {
+    return Collections.unmodifiableList(fieldNames);
   }
 
-  public Field getField(String name) {
-    return fields.get(name);
+  /**
+   * @param index
+   *          the index of the field
+   * @return the {@link FieldFactory} for the field at the given index
+   */
+  public FieldFactory getFieldFactory(int index) {
+    return fieldFactories.get(index);
   }
 
   /**
-   * @return the {@link List} of {@link Field}s in the order they were added
+   * @param index
+   *          the index of the field
+   * @return the {@link FieldType} of the field or of its elements
    */
-  public List<Field> getFields() {
-    return Collections.unmodifiableList(orderedFields);
+  public FieldType getFieldType(int index) {
+    return fieldTypes.get(index);
+  }
+
+  /**
+   * @param index
+   *          the index of the field
+   * @return {@code true} if the field is an array or list of elements
+   */
+  public boolean isListField(int index) {
+    return listFields.get(index);
+  }
+
+  /**
+   * @param index
+   *          the index of the field
+   * @return {@code true} if the field is a constant
+   */
+  public boolean isConstantField(int index) {
+    return constantFields.get(index);
+  }
+
+  /**
+   * @param name
+   *          the name of the field
+   * @return the index of the field or -1 if no such field exists
+   */
+  public int getFieldIndex(String name) {
+    Integer index = fieldIndices.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param getterName
+   *          the name of a getter method (e.g. "getChildFrameId")
+   * @return the index of the variable field accessed by the getter or -1 if no
+   *         such field exists
+   */
+  public int getGetterIndex(String getterName) {
+    Integer index = getterIndices.get(getterName);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param setterName
+   *          the name of a setter method (e.g. "setChildFrameId")
+   * @return the index of the variable field accessed by the setter or -1 if no
+   *         such field exists
+   */
+  public int getSetterIndex(String setterName) {
+    Integer index = setterIndices.get(setterName);
+    return index == null ? -1 : index;
   }
 
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
-    result = prime * result + ((fields == null) ? 0 : fields.hashCode());
     result = prime * result + ((messageDeclaration == null) ? 0 : messageDeclaration.hashCode());
-    result = prime * result + ((orderedFields == null) ? 0 : orderedFields.hashCode());
     return result;
   }
 
@@ -106,21 +240,11 @@ public class MessageContext {
     if (getClass() != obj.getClass())
       return false;
     MessageContext other = (MessageContext) obj;
-    if (fields == null) {
-      if (other.fields != null)
-        return false;
-    } else if (!fields.equals(other.fields))
-      return false;
     if (messageDeclaration == null) {
       if (other.messageDeclaration != null)
         return false;
     } else if (!messageDeclaration.equals(other.messageDeclaration))
       return false;
-    if (orderedFields == null) {
-      if (other.orderedFields != null)
-        return false;
-    } else if (!orderedFields.equals(other.orderedFields))
-      return false;
     return true;
   }
-}
\ No newline at end of file
+}
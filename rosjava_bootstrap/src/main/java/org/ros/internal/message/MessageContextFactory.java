@@ -51,21 +51,31 @@ public class MessageContextFactory {
       }
 
       @Override
-      public void variableValue(String type, String name) {
-        FieldType fieldType = getFieldType(type);
-        context.addField(fieldType.newVariableValue(name));
+      public void variableValue(String type, final String name) {
+        final FieldType fieldType = getFieldType(type);
+        context.addVariableField(name, fieldType, false, new FieldFactory() {
+          @Override
+          public Field create() {
+            return fieldType.newVariableValue(name);
+          }
+        });
       }
 
       @Override
-      public void variableList(String type, int size, String name) {
-        FieldType fieldType = getFieldType(type);
-        context.addField(fieldType.newVariableList(name, size));
+      public void variableList(String type, final int size, final String name) {
+        final FieldType fieldType = getFieldType(type);
+        context.addVariableField(name, fieldType, true, new FieldFactory() {
+          @Override
+          public Field create() {
+            return fieldType.newVariableList(name, size);
+          }
+        });
       }
 
       @Override
       public void constantValue(String type, String name, String value) {
         FieldType fieldType = getFieldType(type);
-        context.addField(fieldType.newConstantValue(name, fieldType.parseFromString(value)));
+        context.addConstantField(fieldType.newConstantValue(name, fieldType.parseFromString(value)));
       }
     };
     MessageDefinitionParser messageDefinitionParser = new MessageDefinitionParser(visitor);
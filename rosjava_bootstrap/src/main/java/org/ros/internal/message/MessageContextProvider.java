@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.collect.Maps;
+
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageFactory;
+
+import java.util.Map;
+
+/**
+ * Caches {@link MessageContext}s so that each message definition is only parsed
+ * once.
+ */
+public class MessageContextProvider {
+
+  private final MessageContextFactory messageContextFactory;
+  private final Map<MessageDeclaration, MessageContext> cache;
+
+  public MessageContextProvider(MessageFactory messageFactory) {
+    messageContextFactory = new MessageContextFactory(messageFactory);
+    cache = Maps.newConcurrentMap();
+  }
+
+  /**
+   * @param messageDeclaration
+   *          the {@link MessageDeclaration} to get the layout for
+   * @return the {@link MessageContext} for the given {@link MessageDeclaration}
+   */
+  public MessageContext get(MessageDeclaration messageDeclaration) {
+    MessageContext messageContext = cache.get(messageDeclaration);
+    if (messageContext == null) {
+      messageContext = messageContextFactory.newFromMessageDeclaration(messageDeclaration);
+      cache.put(messageDeclaration, messageContext);
+    }
+    return messageContext;
+  }
+}
@@ -78,7 +78,7 @@ public class MessageFieldType implements FieldType {
 
   @Override
   public <T> void serialize(T value, ByteBuffer buffer) {
-    buffer.put(((Message) value).toRawMessage().serialize());
+    ((Message) value).toRawMessage().serialize(buffer);
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link Field}s of a single message laid out according to its
+ * {@link MessageContext}.
+ */
+public class MessageFields {
+
+  private final MessageContext messageContext;
+  private final Field[] fields;
+  private final List<Field> orderedFields;
+
+  public MessageFields(MessageContext messageContext) {
+    this(messageContext, new Field[messageContext.getFieldCount()]);
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = messageContext.getFieldFactory(i).create();
+    }
+  }
+
+  /**
+   * @param messageContext
+   *          the {@link MessageContext} of the message
+   * @param fields
+   *          the array that holds the {@link Field}s of the message, to be
+   *          filled in by the subclass
+   */
+  protected MessageFields(MessageContext messageContext, Field[] fields) {
+    this.messageContext = messageContext;
+    this.fields = fields;
+    orderedFields = Collections.unmodifiableList(Arrays.asList(fields));
+  }
+
+  /**
+   * @param index
+   *          the index of the field in the {@link MessageContext} or -1
+   * @return the {@link Field} at the given index or {@code null} if the index
+   *         is -1
+   */
+  protected Field getField(int index) {
+    return index < 0 ? null : fields[index];
+  }
+
+  /**
+   * @param name
+   *          the name of the field
+   * @return the {@link Field} with the given name or {@code null} if no such
+   *         field exists
+   */
+  public Field getField(String name) {
+    return getField(messageContext.getFieldIndex(name));
+  }
+
+  /**
+   * @param getterName
+   *          the name of a getter method
+   * @return the variable {@link Field} accessed by the getter or {@code null}
+   *         if no such field exists
+   */
+  public Field getGetterField(String getterName) {
+    return getField(messageContext.getGetterIndex(getterName));
+  }
+
+  /**
+   * @param setterName
+   *          the name of a setter method
+   * @return the variable {@link Field} accessed by the setter or {@code null}
+   *         if no such field exists
+   */
+  public Field getSetterField(String setterName) {
+    return getField(messageContext.getSetterIndex(setterName));
+  }
+
+  public boolean hasField(FieldType type, String name) {
+    Field field = getField(name);
+    return field != null && field.getType().equals(type);
+  }
+
+  /**
+   * @return the {@link List} of {@link Field}s in the order they were defined
+   */
+  public List<Field> getFields() {
+    return orderedFields;
+  }
+
+  /**
+   * @return the serialized message if it is available without serializing the
+   *         {@link Field}s, {@code null} otherwise
+   */
+  ByteBuffer getSerializedMessage() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + getFields().hashCode();
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof MessageFields))
+      return false;
+    MessageFields other = (MessageFields) obj;
+    if (!getFields().equals(other.getFields()))
+      return false;
+    return true;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * {@link MessageFields} that are decoded from a serialized message the first
+ * time they are accessed.
+ * 
+ * <p>
+ * The offset of each field in the buffer is computed on demand by skipping the
+ * fields before it. Nested messages are materialized as views over their part
+ * of the buffer.
+ */
+class MessageFieldsView extends MessageFields {
+
+  private final MessageContext messageContext;
+  private final Field[] fields;
+  private final ByteBuffer buffer;
+  private final MessageViewFactory messageViewFactory;
+
+  /**
+   * The nested message views (or the lists of views) handed out for each
+   * field. Used to detect whether a nested message was replaced.
+   */
+  private final Object[] views;
+
+  /**
+   * The offset of each field in the buffer. Only the offsets up to and
+   * including {@link #offsetCount} have been computed.
+   */
+  private final int[] offsets;
+  private int offsetCount;
+
+  MessageFieldsView(MessageContext messageContext, ByteBuffer buffer,
+      MessageViewFactory messageViewFactory) {
+    this(messageContext, new Field[messageContext.getFieldCount()], buffer, messageViewFactory);
+  }
+
+  private MessageFieldsView(MessageContext messageContext, Field[] fields, ByteBuffer buffer,
+      MessageViewFactory messageViewFactory) {
+    super(messageContext, fields);
+    this.messageContext = messageContext;
+    this.fields = fields;
+    this.buffer = buffer;
+    this.messageViewFactory = messageViewFactory;
+    views = new Object[fields.length];
+    offsets = new int[fields.length + 1];
+    offsetCount = 0;
+  }
+
+  @Override
+  protected synchronized Field getField(int index) {
+    if (index < 0) {
+      return null;
+    }
+    if (fields[index] == null) {
+      fields[index] = decode(index);
+    }
+    return fields[index];
+  }
+
+  @Override
+  public synchronized List<Field> getFields() {
+    for (int i = 0; i < fields.length; i++) {
+      getField(i);
+    }
+    return super.getFields();
+  }
+
+  @Override
+  synchronized ByteBuffer getSerializedMessage() {
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i] != null && !messageContext.isConstantField(i) && isModified(i)) {
+        return null;
+      }
+    }
+    return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private boolean isModified(int index) {
+    Object value = fields[index].getValue();
+    if (views[index] instanceof List) {
+      if (!(value instanceof List)) {
+        return true;
+      }
+      List<?> original = (List<?>) views[index];
+      List<?> current = (List<?>) value;
+      if (original.size() != current.size()) {
+        return true;
+      }
+      for (int i = 0; i < original.size(); i++) {
+        if (original.get(i) != current.get(i)
+            || MessageViewFactory.getSerializedMessage(current.get(i)) == null) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (views[index] != null) {
+      return value != views[index] || MessageViewFactory.getSerializedMessage(value) == null;
+    }
+    // The value may have been changed through its setter or in place (e.g.
+    // an array). Compare its encoding with the original.
+    Field field = fields[index];
+    ByteBuffer encoded =
+        ByteBuffer.allocate(field.getSerializedSize()).order(ByteOrder.LITTLE_ENDIAN);
+    field.serialize(encoded);
+    encoded.flip();
+    return !encoded.equals(getFieldBuffer(index));
+  }
+
+  private Field decode(int index) {
+    FieldFactory fieldFactory = messageContext.getFieldFactory(index);
+    if (messageContext.isConstantField(index)) {
+      return fieldFactory.create();
+    }
+    ByteBuffer fieldBuffer = getFieldBuffer(index);
+    FieldType type = messageContext.getFieldType(index);
+    if (!(type instanceof MessageFieldType)) {
+      Field field = fieldFactory.create();
+      field.deserialize(fieldBuffer);
+      return field;
+    }
+    if (messageContext.isListField(index)) {
+      MessageContext elementContext = messageViewFactory.getMessageContext(type.getName());
+      int size = fieldBuffer.getInt();
+      List<Object> messages = Lists.newArrayListWithCapacity(size);
+      for (int i = 0; i < size; i++) {
+        int position = fieldBuffer.position();
+        int length = getMessageSize(fieldBuffer, elementContext, position);
+        fieldBuffer.limit(position + length);
+        messages.add(messageViewFactory.newFromBuffer(type.getName(), fieldBuffer));
+        fieldBuffer.limit(fieldBuffer.capacity());
+        fieldBuffer.position(position + length);
+      }
+      views[index] = ImmutableList.copyOf(messages);
+      Field field = fieldFactory.create();
+      field.setValue(messages);
+      return field;
+    }
+    // Avoid the field factory here since it would create a default message.
+    Object message = messageViewFactory.newFromBuffer(type.getName(), fieldBuffer);
+    views[index] = message;
+    return ValueField.newVariable(type, messageContext.getFieldNames().get(index), message);
+  }
+
+  /**
+   * @return a buffer containing only the serialized field at the given index
+   */
+  private ByteBuffer getFieldBuffer(int index) {
+    ByteBuffer fieldBuffer = buffer.duplicate();
+    fieldBuffer.limit(getOffset(index + 1));
+    fieldBuffer.position(getOffset(index));
+    return fieldBuffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private int getOffset(int index) {
+    while (offsetCount < index) {
+      offsets[offsetCount + 1] =
+          offsets[offsetCount]
+              + getFieldSize(buffer, messageContext, offsetCount, offsets[offsetCount]);
+      offsetCount++;
+    }
+    return offsets[index];
+  }
+
+  /**
+   * @return the serialized size of the field at the given index of a message
+   *         starting at the given position
+   */
+  private int getFieldSize(ByteBuffer buffer, MessageContext messageContext, int index,
+      int position) {
+    if (messageContext.isConstantField(index)) {
+      return 0;
+    }
+    FieldType type = messageContext.getFieldType(index);
+    if (!messageContext.isListField(index)) {
+      return getElementSize(buffer, type, position);
+    }
+    int size = buffer.getInt(position);
+    if (type instanceof PrimitiveFieldType && type != PrimitiveFieldType.STRING) {
+      return 4 + size * type.getSerializedSize();
+    }
+    int length = 4;
+    for (int i = 0; i < size; i++) {
+      length += getElementSize(buffer, type, position + length);
+    }
+    return length;
+  }
+
+  private int getElementSize(ByteBuffer buffer, FieldType type, int position) {
+    if (type == PrimitiveFieldType.STRING) {
+      return 4 + buffer.getInt(position);
+    }
+    if (type instanceof MessageFieldType) {
+      return getMessageSize(buffer, messageViewFactory.getMessageContext(type.getName()),
+          position);
+    }
+    return type.getSerializedSize();
+  }
+
+  private int getMessageSize(ByteBuffer buffer, MessageContext messageContext, int position) {
+    int length = 0;
+    for (int i = 0; i < messageContext.getFieldCount(); i++) {
+      length += getFieldSize(buffer, messageContext, i, position + length);
+    }
+    return length;
+  }
+}
@@ -31,21 +31,23 @@ import java.util.List;
 public class MessageImpl implements RawMessage, GetInstance {
 
   private final MessageContext context;
+  private final MessageFields fields;
 
-  public MessageImpl(MessageContext context) {
+  public MessageImpl(MessageContext context, MessageFields fields) {
     this.context = context;
+    this.fields = fields;
   }
 
   private Object getFieldValue(FieldType type, String name) {
-    if (context.hasField(type, name)) {
-      return context.getField(name).getValue();
+    if (fields.hasField(type, name)) {
+      return fields.getField(name).getValue();
     }
     throw new RosRuntimeException(String.format("Uknown field: %s %s", type, name));
   }
 
   private void setFieldValue(FieldType type, String name, Object value) {
-    if (context.hasField(type, name)) {
-      context.getField(name).setValue(value);
+    if (fields.hasField(type, name)) {
+      fields.getField(name).setValue(value);
     } else {
       throw new RosRuntimeException(String.format("Uknown field: %s %s", type, name));
     }
@@ -83,7 +85,14 @@ public class MessageImpl implements RawMessage, GetInstance {
 
   @Override
   public List<Field> getFields() {
-    return context.getFields();
+    return fields.getFields();
+  }
+
+  /**
+   * @return the {@link MessageFields} holding the values of this message
+   */
+  public MessageFields getMessageFields() {
+    return fields;
   }
 
   @Override
@@ -169,16 +178,16 @@ public class MessageImpl implements RawMessage, GetInstance {
 
   @Override
   public <T extends RawMessage> T getMessage(String name) {
-    if (context.getField(name).getType() instanceof MessageFieldType) {
-      return context.getField(name).<T>getValue();
+    if (fields.getField(name).getType() instanceof MessageFieldType) {
+      return fields.getField(name).<T>getValue();
     }
     throw new RosRuntimeException("Failed to access message field: " + name);
   }
 
   @Override
   public <T extends Message> List<T> getMessageList(String name) {
-    if (context.getField(name).getType() instanceof MessageFieldType) {
-      return context.getField(name).<List<T>>getValue();
+    if (fields.getField(name).getType() instanceof MessageFieldType) {
+      return fields.getField(name).<List<T>>getValue();
     }
     throw new RosRuntimeException("Failed to access list field: " + name);
   }
@@ -328,13 +337,13 @@ public class MessageImpl implements RawMessage, GetInstance {
   @Override
   public void setMessage(String name, RawMessage value) {
     // TODO(damonkohler): Verify the type of the provided Message?
-    context.getField(name).setValue(value);
+    fields.getField(name).setValue(value);
   }
 
   @Override
   public void setMessageList(String name, List<Message> value) {
     // TODO(damonkohler): Verify the type of all Messages in the provided list?
-    context.getField(name).setValue(value);
+    fields.getField(name).setValue(value);
   }
 
   @Override
@@ -447,24 +456,53 @@ public class MessageImpl implements RawMessage, GetInstance {
 
   @Override
   public int getSerializedSize() {
+    ByteBuffer serializedMessage = fields.getSerializedMessage();
+    if (serializedMessage != null) {
+      return serializedMessage.remaining();
+    }
+    return getFieldsSerializedSize();
+  }
+
+  private int getFieldsSerializedSize() {
     int size = 0;
     for (Field field : getFields()) {
-      size += field.getSerializedSize();
+      if (!field.isConstant()) {
+        size += field.getSerializedSize();
+      }
     }
     return size;
   }
 
   @Override
   public ByteBuffer serialize() {
-    int length = getSerializedSize();
-    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer serializedMessage = fields.getSerializedMessage();
+    if (serializedMessage != null) {
+      return serializedMessage;
+    }
+    ByteBuffer buffer =
+        ByteBuffer.allocate(getFieldsSerializedSize()).order(ByteOrder.LITTLE_ENDIAN);
+    serializeFields(buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer serializedMessage = fields.getSerializedMessage();
+    if (serializedMessage != null) {
+      buffer.put(serializedMessage);
+    } else {
+      serializeFields(buffer);
+    }
+  }
+
+  private void serializeFields(ByteBuffer buffer) {
     for (Field field : getFields()) {
       if (!field.isConstant()) {
         field.serialize(buffer);
       }
     }
-    buffer.flip();
-    return buffer;
   }
 
   @Override
@@ -477,6 +515,7 @@ public class MessageImpl implements RawMessage, GetInstance {
     final int prime = 31;
     int result = 1;
     result = prime * result + ((context == null) ? 0 : context.hashCode());
+    result = prime * result + ((fields == null) ? 0 : fields.hashCode());
     return result;
   }
 
@@ -497,6 +536,11 @@ public class MessageImpl implements RawMessage, GetInstance {
         return false;
     } else if (!context.equals(other.context))
       return false;
+    if (fields == null) {
+      if (other.fields != null)
+        return false;
+    } else if (!fields.equals(other.fields))
+      return false;
     return true;
   }
 }
@@ -111,8 +111,9 @@ public class MessageInterfaceBuilder {
       MessageContextFactory messageContextFactory = new MessageContextFactory(messageFactory);
       MessageContext messageContext =
           messageContextFactory.newFromMessageDeclaration(messageDeclaration);
-      appendConstants(messageContext, builder);
-      appendSettersAndGetters(messageContext, builder);
+      MessageFields messageFields = new MessageFields(messageContext);
+      appendConstants(messageFields, builder);
+      appendSettersAndGetters(messageFields, builder);
     }
     if (nestedContent != null) {
       builder.append("\n");
@@ -148,8 +149,8 @@ public class MessageInterfaceBuilder {
     }
   }
 
-  private void appendConstants(MessageContext messageContext, StringBuilder builder) {
-    for (Field field : messageContext.getFields()) {
+  private void appendConstants(MessageFields messageFields, StringBuilder builder) {
+    for (Field field : messageFields.getFields()) {
       if (field.isConstant()) {
         Preconditions.checkState(field.getType() instanceof PrimitiveFieldType);
         PrimitiveFieldType primitiveFieldType = (PrimitiveFieldType) field.getType();
@@ -160,10 +161,10 @@ public class MessageInterfaceBuilder {
     }
   }
 
-  private void appendSettersAndGetters(MessageContext messageContext, StringBuilder builder) {
+  private void appendSettersAndGetters(MessageFields messageFields, StringBuilder builder) {
     Set<String> setters = Sets.newHashSet();
     Set<String> getters = Sets.newHashSet();
-    for (Field field : messageContext.getFields()) {
+    for (Field field : messageFields.getFields()) {
       if (field.isConstant()) {
         continue;
       }
@@ -18,8 +18,12 @@ package org.ros.internal.message;
 
 import com.google.common.base.Preconditions;
 
+import org.ros.exception.RosRuntimeException;
+import org.ros.message.MessageDeclaration;
 import org.ros.message.MessageFactory;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -33,12 +37,19 @@ public class MessageProxyFactory {
   private static final AtomicInteger SEQUENCE_NUMBER = new AtomicInteger(0);
 
   private final MessageInterfaceClassProvider messageInterfaceClassProvider;
-  private final MessageContextFactory messageContextFactory;
+  private final MessageClassProvider messageClassProvider;
+  private final MessageContextProvider messageContextProvider;
 
   public MessageProxyFactory(MessageInterfaceClassProvider messageInterfaceClassProvider,
       MessageFactory messageFactory) {
+    this(messageInterfaceClassProvider, new DefaultMessageClassProvider(), messageFactory);
+  }
+
+  public MessageProxyFactory(MessageInterfaceClassProvider messageInterfaceClassProvider,
+      MessageClassProvider messageClassProvider, MessageFactory messageFactory) {
     this.messageInterfaceClassProvider = messageInterfaceClassProvider;
-    messageContextFactory = new MessageContextFactory(messageFactory);
+    this.messageClassProvider = messageClassProvider;
+    messageContextProvider = new MessageContextProvider(messageFactory);
   }
 
   // TODO(damonkohler): Use MessageDeclaration.
@@ -46,14 +57,33 @@ public class MessageProxyFactory {
   public <T> T newMessageProxy(String messageType, String messageDefinition) {
     Preconditions.checkNotNull(messageType);
     Preconditions.checkNotNull(messageDefinition);
-    MessageContext context = messageContextFactory.newFromStrings(messageType, messageDefinition);
-    Class<T> messageInterfaceClass = (Class<T>) messageInterfaceClassProvider.get(messageType);
+    MessageContext context =
+        messageContextProvider.get(MessageDeclaration.newFromStrings(messageType,
+            messageDefinition));
     MessageImpl implementation = newMessageProxyImplementation(context);
+    Constructor<?> constructor = messageClassProvider.getConstructor(messageType);
+    if (constructor != null) {
+      return (T) newInstance(constructor, implementation);
+    }
+    // Fall back to a proxy for message types without a generated class.
+    Class<T> messageInterfaceClass = (Class<T>) messageInterfaceClassProvider.get(messageType);
     return newProxy(messageInterfaceClass, implementation);
   }
 
+  private Object newInstance(Constructor<?> constructor, MessageImpl implementation) {
+    try {
+      return constructor.newInstance(implementation);
+    } catch (InstantiationException e) {
+      throw new RosRuntimeException(e);
+    } catch (IllegalAccessException e) {
+      throw new RosRuntimeException(e);
+    } catch (InvocationTargetException e) {
+      throw new RosRuntimeException(e);
+    }
+  }
+
   private MessageImpl newMessageProxyImplementation(MessageContext context) {
-    MessageImpl implementation = new MessageImpl(context);
+    MessageImpl implementation = new MessageImpl(context, new MessageFields(context));
     if (implementation.getType().equals(HEADER_MESSAGE_TYPE)) {
       implementation.setUInt32(SEQUENCE_FIELD_NAME, SEQUENCE_NUMBER.incrementAndGet());
     }
@@ -69,7 +99,7 @@ public class MessageProxyFactory {
    *         {@code interfaceClass}
    */
   @SuppressWarnings("unchecked")
-  private <T> T newProxy(Class<T> interfaceClass, final MessageImpl implementation) {
+  static <T> T newProxy(Class<T> interfaceClass, final MessageImpl implementation) {
     ClassLoader classLoader = implementation.getClass().getClassLoader();
     Class<?>[] interfaces = new Class<?>[] { interfaceClass, GetInstance.class };
     MessageProxyInvocationHandler invocationHandler =
@@ -18,7 +18,6 @@ package org.ros.internal.message;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.List;
 
 /**
  * @author damonkohler@google.com (Damon Kohler)
@@ -33,20 +32,20 @@ public class MessageProxyInvocationHandler implements InvocationHandler {
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    List<Field> fields = messageImpl.getFields();
+    MessageFields fields = messageImpl.getMessageFields();
     String methodName = method.getName();
-    for (Field field : fields) {
-      if (field.isConstant()) {
-        continue;
+    if (args == null) {
+      Field getterField = fields.getGetterField(methodName);
+      if (getterField != null) {
+        return getterField.getValue();
       }
-      if (methodName.equals(field.getGetterName()) && method.getParameterTypes().length == 0) {
-        return field.getValue();
-      }
-      if (methodName.equals(field.getSetterName()) && method.getParameterTypes().length == 1) {
-        field.setValue(args[0]);
+    } else if (args.length == 1) {
+      Field setterField = fields.getSetterField(methodName);
+      if (setterField != null) {
+        setterField.setValue(args[0]);
         return null;
       }
     }
     return method.invoke(messageImpl, args);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+import org.ros.exception.RosRuntimeException;
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the source of a {@link MessageBufferSerializer} and a
+ * {@link org.ros.message.MessageDeserializer} for a message type. The
+ * generated code writes and reads each field directly rather than iterating
+ * over the message's {@link Field}s. The source is nested in the class built
+ * by {@link MessageClassBuilder}.
+ */
+public class MessageSerializationBuilder {
+
+  private static final String SERIALIZER_CLASS_NAME = "Serializer";
+  private static final String DESERIALIZER_CLASS_NAME = "Deserializer";
+  private static final String BUFFER_CLASS_NAME = "java.nio.ByteBuffer";
+  private static final String PRIMITIVE_FIELD_TYPE_CLASS_NAME = PrimitiveFieldType.class.getName();
+
+  /**
+   * Maps primitive Java types to the suffix of the {@link java.nio.ByteBuffer}
+   * methods used to read and write them. The boolean type is handled
+   * separately.
+   */
+  private static final Map<String, String> BUFFER_METHOD_SUFFIXES = ImmutableMap
+      .<String, String>builder().put("byte", "").put("short", "Short").put("int", "Int")
+      .put("long", "Long").put("float", "Float").put("double", "Double").build();
+
+  private static final Map<String, Integer> PRIMITIVE_SIZES = ImmutableMap
+      .<String, Integer>builder().put("boolean", 1).put("byte", 1).put("short", 2).put("int", 4)
+      .put("long", 8).put("float", 4).put("double", 8).build();
+
+  private MessageDeclaration messageDeclaration;
+  private Set<String> generatedTypes;
+
+  public MessageSerializationBuilder() {
+    generatedTypes = Sets.newHashSet();
+  }
+
+  /**
+   * @param messageIdentifier
+   *          the {@link MessageIdentifier} of a message type
+   * @return the binary name of the generated serializer class
+   */
+  public static String getSerializerClassName(MessageIdentifier messageIdentifier) {
+    return MessageClassBuilder.getClassName(messageIdentifier) + "$" + SERIALIZER_CLASS_NAME;
+  }
+
+  /**
+   * @param messageIdentifier
+   *          the {@link MessageIdentifier} of a message type
+   * @return the binary name of the generated deserializer class
+   */
+  public static String getDeserializerClassName(MessageIdentifier messageIdentifier) {
+    return MessageClassBuilder.getClassName(messageIdentifier) + "$" + DESERIALIZER_CLASS_NAME;
+  }
+
+  public MessageDeclaration getMessageDeclaration() {
+    return messageDeclaration;
+  }
+
+  public MessageSerializationBuilder setMessageDeclaration(MessageDeclaration messageDeclaration) {
+    Preconditions.checkNotNull(messageDeclaration);
+    this.messageDeclaration = messageDeclaration;
+    return this;
+  }
+
+  public Set<String> getGeneratedTypes() {
+    return generatedTypes;
+  }
+
+  /**
+   * @param generatedTypes
+   *          the message types for which a serializer and deserializer are
+   *          generated; nested messages of other types are serialized through
+   *          their {@link RawMessage}
+   * @return this {@link MessageSerializationBuilder}
+   */
+  public MessageSerializationBuilder setGeneratedTypes(Set<String> generatedTypes) {
+    Preconditions.checkNotNull(generatedTypes);
+    this.generatedTypes = generatedTypes;
+    return this;
+  }
+
+  /**
+   * @param messageFactory
+   *          the {@link MessageFactory} used to resolve nested message types
+   * @return the source of the nested serializer and deserializer classes
+   * @throws RosRuntimeException
+   *           if a field of the message is not accessible through the message
+   *           interface
+   */
+  public String build(MessageFactory messageFactory) {
+    Preconditions.checkNotNull(messageDeclaration);
+    if (messageDeclaration.getName().equals(SERIALIZER_CLASS_NAME)
+        || messageDeclaration.getName().equals(DESERIALIZER_CLASS_NAME)) {
+      throw new RosRuntimeException(String.format(
+          "The name of %s conflicts with a generated class name.", messageDeclaration.getType()));
+    }
+    MessageContextFactory messageContextFactory = new MessageContextFactory(messageFactory);
+    MessageContext messageContext =
+        messageContextFactory.newFromMessageDeclaration(messageDeclaration);
+    MessageFields messageFields = new MessageFields(messageContext);
+    String messageInterface =
+        String.format("%s.%s", messageDeclaration.getPackage(), messageDeclaration.getName());
+
+    int fixedSize = 0;
+    StringBuilder size = new StringBuilder();
+    StringBuilder serialize = new StringBuilder();
+    StringBuilder deserialize = new StringBuilder();
+    Set<String> getters = Sets.newHashSet();
+    Set<String> setters = Sets.newHashSet();
+    for (Field field : messageFields.getFields()) {
+      if (field.isConstant()) {
+        continue;
+      }
+      if (!getters.add(field.getGetterName()) || !setters.add(field.getSetterName())) {
+        throw new RosRuntimeException(String.format(
+            "Field %s of %s is not accessible through the message interface.", field.getName(),
+            messageDeclaration.getType()));
+      }
+      String getter = String.format("message.%s()", field.getGetterName());
+      String setter = "message." + field.getSetterName();
+      FieldType fieldType = field.getType();
+      String elementType = fieldType.getJavaTypeName();
+      if (fieldType instanceof MessageFieldType) {
+        if (field instanceof ListField) {
+          appendMessageList(fieldType.getName(), elementType, getter, setter, size, serialize,
+              deserialize);
+        } else {
+          appendMessage(fieldType.getName(), elementType, getter, setter, size, serialize,
+              deserialize);
+        }
+      } else if (field instanceof ListField) {
+        appendPrimitiveList((PrimitiveFieldType) fieldType, elementType, getter, setter, size,
+            serialize, deserialize);
+      } else if (fieldType == PrimitiveFieldType.STRING) {
+        size.append(String.format("    size += %s.length() + 4;\n", getter));
+        serialize.append(String.format("    %s.STRING.serialize(%s, buffer);\n",
+            PRIMITIVE_FIELD_TYPE_CLASS_NAME, getter));
+        deserialize.append(String.format("    %s(%s.STRING.<%s>deserialize(buffer));\n", setter,
+            PRIMITIVE_FIELD_TYPE_CLASS_NAME, elementType));
+      } else if (fieldType == PrimitiveFieldType.TIME || fieldType == PrimitiveFieldType.DURATION) {
+        fixedSize += fieldType.getSerializedSize();
+        serialize.append(String.format("    %s.%s.serialize(%s, buffer);\n",
+            PRIMITIVE_FIELD_TYPE_CLASS_NAME, fieldType, getter));
+        deserialize.append(String.format("    %s(%s.%s.<%s>deserialize(buffer));\n", setter,
+            PRIMITIVE_FIELD_TYPE_CLASS_NAME, fieldType, elementType));
+      } else if (field.getJavaTypeName().endsWith("[]")) {
+        appendPrimitiveArray(elementType, getter, setter, size, serialize, deserialize);
+      } else {
+        fixedSize += PRIMITIVE_SIZES.get(elementType);
+        serialize.append("    ").append(getPut(elementType, getter)).append(";\n");
+        deserialize.append(String.format("    %s(%s);\n", setter, getGet(elementType)));
+      }
+    }
+
+    StringBuilder builder = new StringBuilder();
+    String viewFactoryName = MessageViewFactory.class.getName();
+    builder.append(String.format("  public static class %s implements %s<%s> {\n\n",
+        SERIALIZER_CLASS_NAME, MessageBufferSerializer.class.getName(), messageInterface));
+    builder.append(String.format("    public static int getSize(%s message) {\n",
+        messageInterface));
+    builder.append(String.format("      int size = %d;\n", fixedSize));
+    builder.append(indent(size));
+    builder.append("      return size;\n");
+    builder.append("    }\n\n");
+    builder.append(String.format("    public static void write(%s message, %s buffer) {\n",
+        messageInterface, BUFFER_CLASS_NAME));
+    builder.append(indent(serialize));
+    builder.append("    }\n\n");
+    // Views of received messages that were not changed are forwarded as is.
+    builder.append("    @Override\n");
+    builder.append(String.format("    public int getSerializedSize(%s message) {\n",
+        messageInterface));
+    builder.append(String.format("      %s buffer = %s.getSerializedMessage(message);\n",
+        BUFFER_CLASS_NAME, viewFactoryName));
+    builder.append("      if (buffer != null) {\n");
+    builder.append("        return buffer.remaining();\n");
+    builder.append("      }\n");
+    builder.append("      return getSize(message);\n");
+    builder.append("    }\n\n");
+    builder.append("    @Override\n");
+    builder.append(String.format("    public void serialize(%s message, %s buffer) {\n",
+        messageInterface, BUFFER_CLASS_NAME));
+    builder.append("      buffer.order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+    builder.append(String.format("      %s serializedMessage = %s.getSerializedMessage(message);\n",
+        BUFFER_CLASS_NAME, viewFactoryName));
+    builder.append("      if (serializedMessage != null) {\n");
+    builder.append("        buffer.put(serializedMessage);\n");
+    builder.append("      } else {\n");
+    builder.append("        write(message, buffer);\n");
+    builder.append("      }\n");
+    builder.append("    }\n\n");
+    builder.append("    @Override\n");
+    builder.append(String.format("    public %s serialize(%s message) {\n", BUFFER_CLASS_NAME,
+        messageInterface));
+    builder.append(String.format("      %s buffer = %s.getSerializedMessage(message);\n",
+        BUFFER_CLASS_NAME, viewFactoryName));
+    builder.append("      if (buffer != null) {\n");
+    builder.append("        return buffer;\n");
+    builder.append("      }\n");
+    builder.append(String.format("      buffer = %s.allocate(getSize(message))\n",
+        BUFFER_CLASS_NAME));
+    builder.append("          .order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+    builder.append("      write(message, buffer);\n");
+    builder.append("      buffer.flip();\n");
+    builder.append("      return buffer;\n");
+    builder.append("    }\n");
+    builder.append("  }\n\n");
+
+    String messageFactoryName = MessageFactory.class.getName();
+    builder.append(String.format("  public static class %s implements %s<%s> {\n\n",
+        DESERIALIZER_CLASS_NAME, org.ros.message.MessageDeserializer.class.getName(),
+        messageInterface));
+    builder.append(String.format("    private final %s messageFactory;\n\n", messageFactoryName));
+    builder.append(String.format("    public %s(%s messageFactory) {\n", DESERIALIZER_CLASS_NAME,
+        messageFactoryName));
+    builder.append("      this.messageFactory = messageFactory;\n");
+    builder.append("    }\n\n");
+    builder.append(String.format(
+        "    public static %s deserialize(%s messageFactory, %s buffer) {\n", messageInterface,
+        messageFactoryName, BUFFER_CLASS_NAME));
+    builder.append(String.format("      %s message = messageFactory.<%s>newFromType(\"%s\");\n",
+        messageInterface, messageInterface, messageDeclaration.getType()));
+    builder.append("      deserialize(messageFactory, buffer, message);\n");
+    builder.append("      return message;\n");
+    builder.append("    }\n\n");
+    builder.append(String.format(
+        "    public static void deserialize(%s messageFactory, %s buffer, %s message) {\n",
+        messageFactoryName, BUFFER_CLASS_NAME, messageInterface));
+    builder.append(indent(deserialize));
+    builder.append("    }\n\n");
+    builder.append("    @Override\n");
+    builder.append(String.format("    public %s deserialize(%s buffer) {\n", messageInterface,
+        BUFFER_CLASS_NAME));
+    builder.append("      buffer.order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+    builder.append("      return deserialize(messageFactory, buffer);\n");
+    builder.append("    }\n");
+    builder.append("  }\n");
+    return builder.toString();
+  }
+
+  private static String indent(StringBuilder code) {
+    return code.toString().replaceAll("(?m)^(.)", "  $1");
+  }
+
+  private static String getPut(String javaType, String value) {
+    if (javaType.equals("boolean")) {
+      return String.format("buffer.put((byte) (%s ? 1 : 0))", value);
+    }
+    return String.format("buffer.put%s(%s)", BUFFER_METHOD_SUFFIXES.get(javaType), value);
+  }
+
+  private static String getGet(String javaType) {
+    if (javaType.equals("boolean")) {
+      return "buffer.get() == 1";
+    }
+    return String.format("buffer.get%s()", BUFFER_METHOD_SUFFIXES.get(javaType));
+  }
+
+  private void appendPrimitiveArray(String elementType, String getter, String setter,
+      StringBuilder size, StringBuilder serialize, StringBuilder deserialize) {
+    int elementSize = PRIMITIVE_SIZES.get(elementType);
+    size.append(String.format("    size += 4 + %s.length * %d;\n", getter, elementSize));
+    serialize.append("    {\n");
+    serialize.append(String.format("      %s[] value = %s;\n", elementType, getter));
+    serialize.append("      buffer.putInt(value.length);\n");
+    deserialize.append("    {\n");
+    deserialize.append(String.format("      %s[] value = new %s[buffer.getInt()];\n",
+        elementType, elementType));
+    if (elementType.equals("byte")) {
+      serialize.append("      buffer.put(value);\n");
+      deserialize.append("      buffer.get(value);\n");
+    } else if (elementType.equals("boolean")) {
+      serialize.append("      for (int i = 0; i < value.length; i++) {\n");
+      serialize.append(String.format("        %s;\n", getPut(elementType, "value[i]")));
+      serialize.append("      }\n");
+      deserialize.append("      for (int i = 0; i < value.length; i++) {\n");
+      deserialize.append(String.format("        value[i] = %s;\n", getGet(elementType)));
+      deserialize.append("      }\n");
+    } else {
+      // See Field#serialize(ByteBuffer).
+      String suffix = BUFFER_METHOD_SUFFIXES.get(elementType);
+      serialize.append(String.format("      buffer.as%sBuffer().put(value);\n", suffix));
+      serialize.append(String.format(
+          "      buffer.position(buffer.position() + value.length * %d);\n", elementSize));
+      deserialize.append(String.format("      buffer.as%sBuffer().get(value);\n", suffix));
+      deserialize.append(String.format(
+          "      buffer.position(buffer.position() + value.length * %d);\n", elementSize));
+    }
+    serialize.append("    }\n");
+    deserialize.append(String.format("      %s(value);\n", setter));
+    deserialize.append("    }\n");
+  }
+
+  private void appendPrimitiveList(PrimitiveFieldType fieldType, String elementType,
+      String getter, String setter, StringBuilder size, StringBuilder serialize,
+      StringBuilder deserialize) {
+    if (fieldType == PrimitiveFieldType.STRING) {
+      size.append("    size += 4;\n");
+      size.append(String.format("    for (%s value : %s) {\n", elementType, getter));
+      size.append("      size += value.length() + 4;\n");
+      size.append("    }\n");
+    } else {
+      size.append(String.format("    size += 4 + %s.size() * %d;\n", getter,
+          fieldType.getSerializedSize()));
+    }
+    serialize.append("    {\n");
+    serialize.append(String.format("      java.util.List<%s> value = %s;\n", elementType, getter));
+    serialize.append("      buffer.putInt(value.size());\n");
+    serialize.append(String.format("      for (%s element : value) {\n", elementType));
+    serialize.append(String.format("        %s.%s.serialize(element, buffer);\n",
+        PRIMITIVE_FIELD_TYPE_CLASS_NAME, fieldType));
+    serialize.append("      }\n");
+    serialize.append("    }\n");
+    deserialize.append("    {\n");
+    deserialize.append("      int size = buffer.getInt();\n");
+    deserialize.append(String.format(
+        "      java.util.List<%s> value = new java.util.ArrayList<%s>(size);\n", elementType,
+        elementType));
+    deserialize.append("      for (int i = 0; i < size; i++) {\n");
+    deserialize.append(String.format("        value.add(%s.%s.<%s>deserialize(buffer));\n",
+        PRIMITIVE_FIELD_TYPE_CLASS_NAME, fieldType, elementType));
+    deserialize.append("      }\n");
+    deserialize.append(String.format("      %s(value);\n", setter));
+    deserialize.append("    }\n");
+  }
+
+  private String getSerializedSize(String messageType, String value) {
+    if (generatedTypes.contains(messageType)) {
+      return String.format("%s.getSize(%s)", getSourceName(messageType,
+          SERIALIZER_CLASS_NAME), value);
+    }
+    return String.format("%s.toRawMessage().getSerializedSize()", value);
+  }
+
+  private String getSerialize(String messageType, String value) {
+    if (generatedTypes.contains(messageType)) {
+      return String.format("%s.write(%s, buffer)", getSourceName(messageType,
+          SERIALIZER_CLASS_NAME), value);
+    }
+    return String.format("%s.toRawMessage().serialize(buffer)", value);
+  }
+
+  private String getDeserialize(String messageType, String javaType) {
+    if (generatedTypes.contains(messageType)) {
+      return String.format("%s.deserialize(messageFactory, buffer)", getSourceName(messageType,
+          DESERIALIZER_CLASS_NAME));
+    }
+    return String.format("new %s<%s>(%s.newFromType(\"%s\"), messageFactory).deserialize(buffer)",
+        DefaultMessageDeserializer.class.getName(), javaType, MessageIdentifier.class.getName(),
+        messageType);
+  }
+
+  private static String getSourceName(String messageType, String nestedClassName) {
+    return MessageClassBuilder.getClassName(MessageIdentifier.newFromType(messageType)) + "."
+        + nestedClassName;
+  }
+
+  private void appendMessage(String messageType, String javaType, String getter, String setter,
+      StringBuilder size, StringBuilder serialize, StringBuilder deserialize) {
+    size.append(String.format("    size += %s;\n", getSerializedSize(messageType, getter)));
+    serialize.append(String.format("    %s;\n", getSerialize(messageType, getter)));
+    if (generatedTypes.contains(messageType)) {
+      // Nested messages are created along with the message and can be
+      // deserialized in place.
+      deserialize.append(String.format("    %s.deserialize(messageFactory, buffer, %s);\n",
+          getSourceName(messageType, DESERIALIZER_CLASS_NAME), getter));
+    } else {
+      deserialize.append(String.format("    %s(%s);\n", setter, getDeserialize(messageType,
+          javaType)));
+    }
+  }
+
+  private void appendMessageList(String messageType, String javaType, String getter,
+      String setter, StringBuilder size, StringBuilder serialize, StringBuilder deserialize) {
+    size.append("    size += 4;\n");
+    size.append(String.format("    for (%s value : %s) {\n", javaType, getter));
+    size.append(String.format("      size += %s;\n", getSerializedSize(messageType, "value")));
+    size.append("    }\n");
+    serialize.append("    {\n");
+    serialize.append(String.format("      java.util.List<%s> value = %s;\n", javaType, getter));
+    serialize.append("      buffer.putInt(value.size());\n");
+    serialize.append(String.format("      for (%s element : value) {\n", javaType));
+    serialize.append(String.format("        %s;\n", getSerialize(messageType, "element")));
+    serialize.append("      }\n");
+    serialize.append("    }\n");
+    deserialize.append("    {\n");
+    deserialize.append("      int size = buffer.getInt();\n");
+    deserialize.append(String.format(
+        "      java.util.List<%s> value = new java.util.ArrayList<%s>(size);\n", javaType,
+        javaType));
+    deserialize.append("      for (int i = 0; i < size; i++) {\n");
+    deserialize.append(String.format("        value.add(%s);\n",
+        getDeserialize(messageType, javaType)));
+    deserialize.append("      }\n");
+    deserialize.append(String.format("      %s(value);\n", setter));
+    deserialize.append("    }\n");
+  }
+}
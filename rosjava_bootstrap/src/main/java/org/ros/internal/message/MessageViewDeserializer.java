@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import org.ros.message.MessageDeserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Deserializes messages into views over the serialized message. See
+ * {@link MessageViewFactory}.
+ */
+public class MessageViewDeserializer<T> implements MessageDeserializer<T> {
+
+  private final String messageType;
+  private final MessageViewFactory messageViewFactory;
+
+  public MessageViewDeserializer(String messageType, MessageViewFactory messageViewFactory) {
+    this.messageType = messageType;
+    this.messageViewFactory = messageViewFactory;
+  }
+
+  @Override
+  public T deserialize(ByteBuffer buffer) {
+    return messageViewFactory.<T>newFromBuffer(messageType, buffer);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import com.google.common.base.Preconditions;
+
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageDefinitionProvider;
+import org.ros.message.MessageFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Creates messages that are views over a serialized message. Fields are
+ * decoded from the buffer the first time they are accessed. Nested messages
+ * are views themselves.
+ * 
+ * <p>
+ * A view holds on to the buffer it was created from. The buffer must not be
+ * modified for the lifetime of the view.
+ */
+public class MessageViewFactory {
+
+  private final MessageDefinitionProvider messageDefinitionProvider;
+  private final MessageInterfaceClassProvider messageInterfaceClassProvider;
+  private final MessageContextProvider messageContextProvider;
+
+  public MessageViewFactory(MessageDefinitionProvider messageDefinitionProvider,
+      MessageFactory messageFactory) {
+    this(messageDefinitionProvider, new DefaultMessageInterfaceClassProvider(), messageFactory);
+  }
+
+  public MessageViewFactory(MessageDefinitionProvider messageDefinitionProvider,
+      MessageInterfaceClassProvider messageInterfaceClassProvider, MessageFactory messageFactory) {
+    this.messageDefinitionProvider = messageDefinitionProvider;
+    this.messageInterfaceClassProvider = messageInterfaceClassProvider;
+    messageContextProvider = new MessageContextProvider(messageFactory);
+  }
+
+  /**
+   * @param message
+   *          a message
+   * @return the buffer the message was created from if the message is a view
+   *         and none of its fields have changed, {@code null} otherwise
+   */
+  public static ByteBuffer getSerializedMessage(Object message) {
+    if (message instanceof GetInstance) {
+      Object instance = ((GetInstance) message).getInstance();
+      if (instance instanceof MessageImpl) {
+        return ((MessageImpl) instance).getMessageFields().getSerializedMessage();
+      }
+    }
+    return null;
+  }
+
+  MessageContext getMessageContext(String messageType) {
+    String messageDefinition = messageDefinitionProvider.get(messageType);
+    Preconditions.checkNotNull(messageDefinition, "Unknown message type: " + messageType);
+    return messageContextProvider.get(MessageDeclaration.newFromStrings(messageType,
+        messageDefinition));
+  }
+
+  /**
+   * @param messageType
+   *          the type of the serialized message
+   * @param buffer
+   *          the serialized message between the buffer's position and limit
+   * @return a new view of the serialized message
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T newFromBuffer(String messageType, ByteBuffer buffer) {
+    MessageContext messageContext = getMessageContext(messageType);
+    ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    MessageImpl implementation =
+        new MessageImpl(messageContext, new MessageFieldsView(messageContext, slice, this));
+    Class<T> messageInterfaceClass = (Class<T>) messageInterfaceClassProvider.get(messageType);
+    return MessageProxyFactory.newProxy(messageInterfaceClass, implementation);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import org.ros.message.MessageDefinitionProvider;
+import org.ros.message.MessageDeserializer;
+
+/**
+ * A {@link DefaultMessageSerializationFactory} that deserializes topic messages
+ * into views over the received buffer (see {@link MessageViewFactory}).
+ * 
+ * <p>
+ * Fields are only decoded when they are accessed. This reduces the cost of
+ * subscribers that inspect a few fields of large messages, forward them
+ * unchanged, or drop them without looking at them.
+ */
+public class MessageViewSerializationFactory extends DefaultMessageSerializationFactory {
+
+  private final MessageViewFactory messageViewFactory;
+
+  public MessageViewSerializationFactory(MessageDefinitionProvider messageDefinitionProvider) {
+    super(messageDefinitionProvider);
+    messageViewFactory =
+        new MessageViewFactory(messageDefinitionProvider, new DefaultMessageFactory(
+            messageDefinitionProvider));
+  }
+
+  @Override
+  public <T> MessageDeserializer<T> newMessageDeserializer(String messageType) {
+    return new MessageViewDeserializer<T>(messageType, messageViewFactory);
+  }
+}
@@ -37,6 +37,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Boolean.FALSE;
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return BooleanValueField.newVariable(this, name);
+    }
+
     @Override
     public BooleanArrayField newVariableList(String name, int size) {
       return BooleanArrayField.newVariable(size, name);
@@ -77,6 +82,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Byte.valueOf((byte) 0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ByteValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return ByteArrayField.newVariable(name, size);
@@ -120,6 +130,11 @@ public enum PrimitiveFieldType implements FieldType {
       return INT8.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ByteValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return INT8.newVariableList(name, size);
@@ -159,6 +174,11 @@ public enum PrimitiveFieldType implements FieldType {
       return INT8.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ByteValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return INT8.newVariableList(name, size);
@@ -201,6 +221,11 @@ public enum PrimitiveFieldType implements FieldType {
       return UINT8.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ByteValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return UINT8.newVariableList(name, size);
@@ -240,6 +265,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Short.valueOf((short) 0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ShortValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return ShortArrayField.newVariable(this, size, name);
@@ -280,6 +310,11 @@ public enum PrimitiveFieldType implements FieldType {
       return INT16.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return ShortValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return INT16.newVariableList(name, size);
@@ -319,6 +354,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Integer.valueOf(0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return IntegerValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return IntegerArrayField.newVariable(this, size, name);
@@ -359,6 +399,11 @@ public enum PrimitiveFieldType implements FieldType {
       return INT32.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return IntegerValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return INT32.newVariableList(name, size);
@@ -398,6 +443,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Long.valueOf(0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return LongValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return LongArrayField.newVariable(this, size, name);
@@ -438,6 +488,11 @@ public enum PrimitiveFieldType implements FieldType {
       return INT64.getDefaultValue();
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return LongValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return INT64.newVariableList(name, size);
@@ -477,6 +532,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Float.valueOf(0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return FloatValueField.newVariable(this, name);
+    }
+
     @Override
     public Field newVariableList(String name, int size) {
       return FloatArrayField.newVariable(size, name);
@@ -517,6 +577,11 @@ public enum PrimitiveFieldType implements FieldType {
       return Double.valueOf(0);
     }
 
+    @Override
+    public Field newVariableValue(String name) {
+      return DoubleValueField.newVariable(this, name);
+    }
+
     @Override
     public int getSerializedSize() {
       return 8;
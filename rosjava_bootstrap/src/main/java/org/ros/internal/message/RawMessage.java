@@ -124,6 +124,16 @@ public interface RawMessage extends Message {
 
   ByteBuffer serialize();
 
+  /**
+   * Writes this message in little-endian order starting at the buffer's
+   * current position.
+   * 
+   * @param buffer
+   *          the buffer to write to, it must have at least
+   *          {@link #getSerializedSize()} bytes remaining
+   */
+  void serialize(ByteBuffer buffer);
+
   void setBool(String name, boolean value);
 
   void setBoolArray(String name, boolean[] value);
@@ -57,18 +57,16 @@ public class ShortArrayField extends Field {
   @Override
   public void serialize(ByteBuffer buffer) {
     buffer.putInt(value.length);
-    for (short v : value) {
-      type.serialize(v, buffer);
-    }
+    buffer.asShortBuffer().put(value);
+    buffer.position(buffer.position() + value.length * type.getSerializedSize());
   }
 
   @Override
   public void deserialize(ByteBuffer buffer) {
     int size = buffer.getInt();
     value = new short[size];
-    for (int i = 0; i < size; i++) {
-      value[i] = (Short) type.deserialize(buffer);
-    }
+    buffer.asShortBuffer().get(value);
+    buffer.position(buffer.position() + size * type.getSerializedSize());
   }
 
   @Override
@@ -36,6 +36,10 @@ class ValueField<T> extends Field {
     return new ValueField<T>(type, name, (T) type.getDefaultValue(), false);
   }
 
+  static <T> ValueField<T> newVariable(FieldType type, String name, T value) {
+    return new ValueField<T>(type, name, value, false);
+  }
+
   private ValueField(FieldType type, String name, T value, boolean isConstant) {
     super(type, name, isConstant);
     this.value = value;
@@ -28,6 +28,9 @@ public interface MessageListener<T> {
 
   /**
    * Called when a new message arrives.
+   * <p>
+   * The message may be shared with other listeners and with its publisher. It
+   * must not be modified.
    * 
    * @param message
    *          the new message
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.message.Duration;
+import org.ros.message.MessageDeserializer;
+import org.ros.message.MessageIdentifier;
+import org.ros.message.MessageSerializer;
+import org.ros.message.Time;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Sends messages through the serializers and deserializers that
+ * {@link GenerateInterfaces} generated for the {@code test_serialization}
+ * messages and compares the result to {@link DefaultMessageSerializer} and
+ * {@link DefaultMessageDeserializer}.
+ */
+public class GeneratedMessageSerializationTest {
+
+  /**
+   * The number of bytes written before each message to check that generated
+   * code respects the buffer's position.
+   */
+  private static final int OFFSET = 3;
+
+  private MessageDefinitionReflectionProvider messageDefinitionProvider;
+  private DefaultMessageFactory messageFactory;
+  private DefaultMessageSerializationFactory messageSerializationFactory;
+
+  @Before
+  public void setUp() {
+    messageDefinitionProvider = new MessageDefinitionReflectionProvider();
+    messageFactory = new DefaultMessageFactory(messageDefinitionProvider);
+    messageSerializationFactory = new DefaultMessageSerializationFactory(messageDefinitionProvider);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Message> void checkSerializeAndDeserialize(T message) {
+    MessageIdentifier messageIdentifier = message.toRawMessage().getIdentifier();
+    MessageSerializer<T> serializer =
+        messageSerializationFactory.newMessageSerializer(messageIdentifier.getType());
+    MessageDeserializer<T> deserializer =
+        messageSerializationFactory.newMessageDeserializer(messageIdentifier.getType());
+    ByteBuffer expected = new DefaultMessageSerializer().serialize(message);
+
+    ByteBuffer buffer = serializer.serialize(message);
+    assertEquals(expected, buffer);
+    assertEquals(expected.remaining(),
+        ((MessageBufferSerializer<T>) serializer).getSerializedSize(message));
+
+    ByteBuffer offsetBuffer = ByteBuffer.allocate(OFFSET + expected.remaining());
+    offsetBuffer.position(OFFSET);
+    ((MessageBufferSerializer<T>) serializer).serialize(message, offsetBuffer);
+    assertFalse(offsetBuffer.hasRemaining());
+    offsetBuffer.position(OFFSET);
+    assertEquals(expected, offsetBuffer.slice());
+
+    T deserialized = deserializer.deserialize(offsetBuffer);
+    assertFalse(offsetBuffer.hasRemaining());
+    assertEquals(message, deserialized);
+    assertEquals(
+        new DefaultMessageDeserializer<T>(messageIdentifier, messageFactory).deserialize(expected
+            .duplicate()), deserialized);
+  }
+
+  private test_serialization.Element newElement(int id) {
+    test_serialization.Element element =
+        messageFactory.newFromType(test_serialization.Element._TYPE);
+    element.setId(id);
+    element.setName("element " + id);
+    element.setStamp(new Time(id, 42));
+    element.setWeight(id / 2.0);
+    element.setValid(id % 2 == 0);
+    return element;
+  }
+
+  private test_serialization.ArrayFields newArrayFields() {
+    test_serialization.ArrayFields arrayFields =
+        messageFactory.newFromType(test_serialization.ArrayFields._TYPE);
+    arrayFields.setBools(new boolean[] { true, false, true });
+    arrayFields.setBytes(new byte[] { 1, -2, 3 });
+    arrayFields.setShorts(new short[] { 1, -2, Short.MAX_VALUE });
+    arrayFields.setInts(new int[] { 1, -2, Integer.MAX_VALUE });
+    arrayFields.setLongs(new long[] { 1, -2, Long.MAX_VALUE });
+    arrayFields.setFloats(new float[] { 1.5f, -2, Float.MAX_VALUE });
+    arrayFields.setDoubles(new double[] { 1.5, -2, Double.MAX_VALUE });
+    arrayFields.setStrings(Lists.newArrayList("foo", "", "bar"));
+    arrayFields.setTimes(Lists.newArrayList(new Time(1, 2), new Time(3, 4)));
+    arrayFields.setDurations(Lists.newArrayList(new Duration(1, 2), new Duration(3, 4)));
+    return arrayFields;
+  }
+
+  @Test
+  public void testGeneratedClassesAreUsed() {
+    Object message = messageFactory.newFromType(test_serialization.Element._TYPE);
+    Object serializer =
+        messageSerializationFactory.newMessageSerializer(test_serialization.Element._TYPE);
+    Object deserializer =
+        messageSerializationFactory.newMessageDeserializer(test_serialization.Element._TYPE);
+    assertTrue(message instanceof test_serialization.impl.Element);
+    assertTrue(serializer instanceof test_serialization.impl.Element.Serializer);
+    assertTrue(deserializer instanceof test_serialization.impl.Element.Deserializer);
+  }
+
+  @Test
+  public void testFixedSizeFields() {
+    test_serialization.Element element = newElement(7);
+    // The int32, time, float64 and bool fields plus the length of the string.
+    assertEquals(4 + 8 + 8 + 1 + 4 + element.getName().length(),
+        test_serialization.impl.Element.Serializer.getSize(element));
+    checkSerializeAndDeserialize(element);
+  }
+
+  @Test
+  public void testArrays() {
+    checkSerializeAndDeserialize(newArrayFields());
+  }
+
+  @Test
+  public void testEmptyArrays() {
+    checkSerializeAndDeserialize(messageFactory
+        .<test_serialization.ArrayFields>newFromType(test_serialization.ArrayFields._TYPE));
+  }
+
+  @Test
+  public void testNestedMessages() {
+    test_serialization.Nested nested = messageFactory.newFromType(test_serialization.Nested._TYPE);
+    nested.setFlags(test_serialization.Nested.FLAG);
+    nested.setElement(newElement(1));
+    nested.setArrays(newArrayFields());
+    nested.setElements(Lists.newArrayList(newElement(2), newElement(3)));
+    nested.setTimeout(new Duration(5, 6));
+    checkSerializeAndDeserialize(nested);
+  }
+
+  @Test
+  public void testNestedMessagesAreDeserializedInPlace() {
+    test_serialization.Nested nested = messageFactory.newFromType(test_serialization.Nested._TYPE);
+    nested.setElement(newElement(1));
+    ByteBuffer buffer = new DefaultMessageSerializer().serialize(nested);
+    test_serialization.Nested deserialized =
+        messageFactory.newFromType(test_serialization.Nested._TYPE);
+    test_serialization.Element element = deserialized.getElement();
+    test_serialization.impl.Nested.Deserializer.deserialize(messageFactory,
+        buffer.order(ByteOrder.LITTLE_ENDIAN), deserialized);
+    assertSame(element, deserialized.getElement());
+    assertEquals(nested, deserialized);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.exception.RosRuntimeException;
+import org.ros.internal.message.topic.TopicDefinitionResourceProvider;
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+
+public class MessageClassBuilderTest {
+
+  private TopicDefinitionResourceProvider topicDefinitionResourceProvider;
+  private MessageFactory messageFactory;
+
+  @Before
+  public void setUp() {
+    topicDefinitionResourceProvider = new TopicDefinitionResourceProvider();
+    messageFactory = new DefaultMessageFactory(topicDefinitionResourceProvider);
+  }
+
+  private String build(String messageType, String definition) {
+    MessageClassBuilder builder = new MessageClassBuilder();
+    builder.setMessageDeclaration(MessageDeclaration.newFromStrings(messageType, definition));
+    return builder.build(messageFactory);
+  }
+
+  @Test
+  public void testClassName() {
+    assertEquals("foo.impl.Bar",
+        MessageClassBuilder.getClassName(MessageIdentifier.newFromType("foo/Bar")));
+  }
+
+  @Test
+  public void testPrimitiveFieldsAreNotBoxed() {
+    String content = build("foo/foo", "float64 x\nint32[] data");
+    assertTrue(content.contains("public class foo implements foo.foo"));
+    assertTrue(content.contains("private final org.ros.internal.message.DoubleValueField xField;"));
+    assertTrue(content.contains("return xField.getDouble();"));
+    assertTrue(content.contains("xField.setDouble(value);"));
+    assertTrue(content.contains("return dataField.<int[]>getValue();"));
+  }
+
+  @Test
+  public void testConstantsAreSkipped() {
+    String content = build("foo/foo", "int8 FOO=42\nint8 data");
+    assertFalse(content.contains("getFOO"));
+    assertTrue(content.contains("getData"));
+  }
+
+  @Test
+  public void testReservedMethodConflict() {
+    try {
+      build("foo/foo", "int8 instance");
+      fail();
+    } catch (RosRuntimeException e) {
+      // Fields may not shadow the methods implemented by every generated class.
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Sets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.message.topic.TopicDefinitionResourceProvider;
+import org.ros.message.MessageDeclaration;
+import org.ros.message.MessageFactory;
+import org.ros.message.MessageIdentifier;
+
+public class MessageSerializationBuilderTest {
+
+  private TopicDefinitionResourceProvider topicDefinitionResourceProvider;
+  private MessageFactory messageFactory;
+
+  @Before
+  public void setUp() {
+    topicDefinitionResourceProvider = new TopicDefinitionResourceProvider();
+    messageFactory = new DefaultMessageFactory(topicDefinitionResourceProvider);
+  }
+
+  private String build(String messageType, String definition, String... generatedTypes) {
+    MessageSerializationBuilder builder = new MessageSerializationBuilder();
+    builder.setMessageDeclaration(MessageDeclaration.newFromStrings(messageType, definition));
+    builder.setGeneratedTypes(Sets.newHashSet(generatedTypes));
+    return builder.build(messageFactory);
+  }
+
+  @Test
+  public void testClassNames() {
+    MessageIdentifier messageIdentifier = MessageIdentifier.newFromType("foo/Bar");
+    assertEquals("foo.impl.Bar$Serializer",
+        MessageSerializationBuilder.getSerializerClassName(messageIdentifier));
+    assertEquals("foo.impl.Bar$Deserializer",
+        MessageSerializationBuilder.getDeserializerClassName(messageIdentifier));
+  }
+
+  @Test
+  public void testFixedSizeFieldsAreSummed() {
+    String content = build("foo/foo", "int8 FOO=42\nfloat64 x\nint32 y\nbool z");
+    assertTrue(content.contains("int size = 13;"));
+    assertTrue(content.contains("buffer.putDouble(message.getX());"));
+    assertTrue(content.contains("message.setZ(buffer.get() == 1);"));
+    assertFalse(content.contains("FOO"));
+  }
+
+  @Test
+  public void testPrimitiveArraysAreCopiedInBulk() {
+    String content = build("foo/foo", "float64[] data");
+    assertTrue(content.contains("buffer.asDoubleBuffer().put(value);"));
+    assertTrue(content.contains("buffer.asDoubleBuffer().get(value);"));
+  }
+
+  @Test
+  public void testNestedMessages() {
+    String content = build("foo/foo", "std_msgs/String a\nstd_msgs/Int8 b", "std_msgs/String");
+    assertTrue(content.contains("std_msgs.impl.String.Serializer.write(message.getA(), buffer);"));
+    assertTrue(content.contains("message.getB().toRawMessage().serialize(buffer);"));
+  }
+}
@@ -87,6 +87,28 @@ public class MessageTest {
     assertEquals(data, fooMessage.getMessage("data").getInt8("data"));
   }
 
+  @Test
+  public void testMessagesOfTheSameTypeHaveIndependentValues() {
+    topicDefinitionResourceProvider.add("foo/foo", "int8 data\nbar bar");
+    topicDefinitionResourceProvider.add("foo/bar", "int8 data");
+    RawMessage firstMessage = messageFactory.newFromType("foo/foo");
+    RawMessage secondMessage = messageFactory.newFromType("foo/foo");
+    firstMessage.setInt8("data", (byte) 1);
+    firstMessage.getMessage("bar").setInt8("data", (byte) 2);
+    assertEquals(0, secondMessage.getInt8("data"));
+    assertEquals(0, secondMessage.getMessage("bar").getInt8("data"));
+  }
+
+  @Test
+  public void testChangedDefinitionIsReparsed() {
+    topicDefinitionResourceProvider.add("foo/foo", "int8 data");
+    messageFactory.newFromType("foo/foo");
+    topicDefinitionResourceProvider.add("foo/foo", "string data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setString("data", "Hello, ROS!");
+    assertEquals("Hello, ROS!", rawMessage.getString("data"));
+  }
+
   @Test
   public void testConstantInt8() {
     topicDefinitionResourceProvider.add("foo/foo", "int8 data=42");
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.internal.message;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.message.topic.TopicDefinitionResourceProvider;
+import org.ros.message.MessageFactory;
+import org.ros.message.Time;
+
+import java.nio.ByteBuffer;
+
+public class MessageViewTest {
+
+  private TopicDefinitionResourceProvider topicDefinitionResourceProvider;
+  private MessageFactory messageFactory;
+  private MessageViewFactory messageViewFactory;
+
+  @Before
+  public void setUp() {
+    topicDefinitionResourceProvider = new TopicDefinitionResourceProvider();
+    topicDefinitionResourceProvider.add("foo/foo",
+        "Header header\nstring[] names\nstd_msgs/String[] strings\nfloat64[] data\nint8 x");
+    messageFactory = new DefaultMessageFactory(topicDefinitionResourceProvider);
+    messageViewFactory = new MessageViewFactory(topicDefinitionResourceProvider, messageFactory);
+  }
+
+  private RawMessage newMessage() {
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    RawMessage header = rawMessage.getMessage("header");
+    header.setString("frame_id", "bar");
+    header.setTime("stamp", new Time(1, 2));
+    rawMessage.setStringList("names", Lists.newArrayList("a", "bc"));
+    RawMessage stringMessageA = messageFactory.newFromType("std_msgs/String");
+    stringMessageA.setString("data", "Hello, ROS!");
+    RawMessage stringMessageB = messageFactory.newFromType("std_msgs/String");
+    stringMessageB.setString("data", "Goodbye, ROS!");
+    rawMessage.setMessageList("strings",
+        Lists.<Message>newArrayList(stringMessageA, stringMessageB));
+    rawMessage.setFloat64Array("data", new double[] { 1, 2, 3 });
+    rawMessage.setInt8("x", (byte) 42);
+    return rawMessage;
+  }
+
+  @Test
+  public void testFieldsAreDecodedOnAccess() {
+    RawMessage rawMessage = newMessage();
+    RawMessage view = messageViewFactory.newFromBuffer("foo/foo", rawMessage.serialize());
+    assertEquals(42, view.getInt8("x"));
+    assertArrayEquals(new double[] { 1, 2, 3 }, view.getFloat64Array("data"), 0);
+    assertEquals("bar", view.<RawMessage>getMessage("header").getString("frame_id"));
+    assertEquals("Goodbye, ROS!",
+        view.<RawMessage>getMessageList("strings").get(1).getString("data"));
+    assertEquals(rawMessage, view);
+  }
+
+  @Test
+  public void testUnchangedViewIsForwarded() {
+    RawMessage rawMessage = newMessage();
+    ByteBuffer buffer = rawMessage.serialize();
+    RawMessage view = messageViewFactory.newFromBuffer("foo/foo", buffer.duplicate());
+    view.<RawMessage>getMessage("header").getTime("stamp");
+    view.getFloat64Array("data");
+    view.getMessageList("strings");
+    assertNotNull(MessageViewFactory.getSerializedMessage(view));
+    assertEquals(buffer, view.serialize());
+  }
+
+  @Test
+  public void testChangedViewIsSerialized() {
+    RawMessage rawMessage = newMessage();
+    RawMessage view = messageViewFactory.newFromBuffer("foo/foo", rawMessage.serialize());
+    view.<RawMessage>getMessage("header").getTime("stamp").secs = 3;
+    assertNull(MessageViewFactory.getSerializedMessage(view));
+    rawMessage.<RawMessage>getMessage("header").setTime("stamp", new Time(3, 2));
+    assertEquals(rawMessage.serialize(), view.serialize());
+  }
+
+  @Test
+  public void testReplacedNestedMessageIsSerialized() {
+    RawMessage rawMessage = newMessage();
+    RawMessage view = messageViewFactory.newFromBuffer("foo/foo", rawMessage.serialize());
+    RawMessage stringMessage = messageFactory.newFromType("std_msgs/String");
+    stringMessage.setString("data", "Hello, ROS!");
+    view.setMessageList("strings", Lists.<Message>newArrayList(stringMessage));
+    assertNull(MessageViewFactory.getSerializedMessage(view));
+    rawMessage.setMessageList("strings", Lists.<Message>newArrayList(stringMessage));
+    assertEquals(rawMessage.serialize(), view.serialize());
+  }
+}
@@ -16,6 +16,7 @@
 
 package org.ros.internal.message;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
@@ -180,4 +181,57 @@ public class RawMessageSerializationTest {
     rawMessage.setInt32Array("data", new int[] { 1, 2, 3, 4, 5 });
     checkSerializeAndDeserialize(rawMessage);
   }
+
+  @Test
+  public void testInt8Array() {
+    topicDefinitionResourceProvider.add("foo/foo", "int8[] data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setInt8Array("data", new byte[] { 1, 2, 3, 4, 5 });
+    checkSerializeAndDeserialize(rawMessage);
+  }
+
+  @Test
+  public void testInt16Array() {
+    topicDefinitionResourceProvider.add("foo/foo", "int16[] data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setInt16Array("data", new short[] { 1, 2, 3, 4, 5 });
+    checkSerializeAndDeserialize(rawMessage);
+  }
+
+  @Test
+  public void testInt64Array() {
+    topicDefinitionResourceProvider.add("foo/foo", "int64[] data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setInt64Array("data", new long[] { 1, 2, 3, 4, 5 });
+    checkSerializeAndDeserialize(rawMessage);
+  }
+
+  @Test
+  public void testFloat32Array() {
+    topicDefinitionResourceProvider.add("foo/foo", "float32[] data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setFloat32Array("data", new float[] { 1, 2, 3, 4, 5 });
+    checkSerializeAndDeserialize(rawMessage);
+  }
+
+  @Test
+  public void testFloat64Array() {
+    topicDefinitionResourceProvider.add("foo/foo", "float64[] data");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setFloat64Array("data", new double[] { 1, 2, 3, 4, 5 });
+    checkSerializeAndDeserialize(rawMessage);
+  }
+
+  @Test
+  public void testArraysAreLittleEndianAndFollowedByOtherFields() {
+    topicDefinitionResourceProvider.add("foo/foo", "int8 a\nint16[] b\nint8 c");
+    RawMessage rawMessage = messageFactory.newFromType("foo/foo");
+    rawMessage.setInt8("a", (byte) 1);
+    rawMessage.setInt16Array("b", new short[] { 2, 3 });
+    rawMessage.setInt8("c", (byte) 4);
+    ByteBuffer buffer = rawMessage.serialize();
+    byte[] expected = new byte[] { 1, 2, 0, 0, 0, 2, 0, 3, 0, 4 };
+    assertEquals(ByteBuffer.wrap(expected), buffer);
+    checkSerializeAndDeserialize(rawMessage);
+  }
 }
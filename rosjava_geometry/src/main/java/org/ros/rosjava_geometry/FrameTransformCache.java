@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_geometry;
+
+import org.ros.namespace.GraphName;
+
+/**
+ * The recent {@link Transform}s of a single child frame, ordered by time.
+ * 
+ * <p>
+ * Transforms are kept in a ring buffer that grows as needed. Transforms that
+ * are older than the cache duration relative to the newest transform are
+ * discarded. Lookups use binary search and are therefore logarithmic in the
+ * number of buffered transforms.
+ */
+class FrameTransformCache {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final long cacheDurationNanos;
+
+  private long[] stamps;
+  private GraphName[] parentFrames;
+  private Transform[] transforms;
+
+  /**
+   * The index of the oldest transform.
+   */
+  private int head;
+  private int size;
+
+  /**
+   * @param cacheDurationNanos
+   *          how long transforms are kept relative to the newest transform
+   */
+  FrameTransformCache(long cacheDurationNanos) {
+    this.cacheDurationNanos = cacheDurationNanos;
+    stamps = new long[INITIAL_CAPACITY];
+    parentFrames = new GraphName[INITIAL_CAPACITY];
+    transforms = new Transform[INITIAL_CAPACITY];
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * @return the buffer index of the transform at the given position, where
+   *         position {@code 0} is the oldest transform
+   */
+  private int index(int position) {
+    int index = head + position;
+    return index < stamps.length ? index : index - stamps.length;
+  }
+
+  /**
+   * @return the position of the oldest transform with a time stamp greater
+   *         than or equal to {@code stamp}, or {@link #size} if there is none
+   */
+  private int search(long stamp) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (stamps[index(middle)] < stamp) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private void grow() {
+    int capacity = stamps.length * 2;
+    long[] newStamps = new long[capacity];
+    GraphName[] newParentFrames = new GraphName[capacity];
+    Transform[] newTransforms = new Transform[capacity];
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+      newStamps[i] = stamps[index];
+      newParentFrames[i] = parentFrames[index];
+      newTransforms[i] = transforms[index];
+    }
+    stamps = newStamps;
+    parentFrames = newParentFrames;
+    transforms = newTransforms;
+    head = 0;
+  }
+
+  private void set(int index, long stamp, GraphName parentFrame, Transform transform) {
+    stamps[index] = stamp;
+    parentFrames[index] = parentFrame;
+    transforms[index] = transform;
+  }
+
+  private GraphName get(int position, Transform out) {
+    int index = index(position);
+    out.set(transforms[index]);
+    return parentFrames[index];
+  }
+
+  /**
+   * Adds a transform. A transform with the same time stamp as an existing one
+   * replaces it. Transforms that are already older than the cache duration
+   * are ignored.
+   * 
+   * @param stamp
+   *          the time stamp of the transform in nanoseconds
+   * @param parentFrame
+   *          the frame the transform maps into
+   * @param transform
+   *          the transform from the child frame to {@code parentFrame}
+   */
+  synchronized void add(long stamp, GraphName parentFrame, Transform transform) {
+    if (size > 0 && stamp < stamps[index(size - 1)] - cacheDurationNanos) {
+      return;
+    }
+    int position = search(stamp);
+    if (position < size && stamps[index(position)] == stamp) {
+      set(index(position), stamp, parentFrame, transform);
+      return;
+    }
+    if (size == stamps.length) {
+      grow();
+    }
+    // Transforms usually arrive in order, in which case nothing is moved.
+    for (int i = size; i > position; i--) {
+      int from = index(i - 1);
+      set(index(i), stamps[from], parentFrames[from], transforms[from]);
+    }
+    set(index(position), stamp, parentFrame, transform);
+    size++;
+    long oldestStamp = stamps[index(size - 1)] - cacheDurationNanos;
+    while (size > 1 && stamps[head] < oldestStamp) {
+      set(head, 0, null, null);
+      head = index(1);
+      size--;
+    }
+  }
+
+  /**
+   * Copies the newest transform.
+   * 
+   * @param out
+   *          the transform to set to the newest transform
+   * @return the parent frame of the newest transform, or {@code null} if the
+   *         cache is empty
+   */
+  synchronized GraphName getLatest(Transform out) {
+    if (size == 0) {
+      return null;
+    }
+    return get(size - 1, out);
+  }
+
+  /**
+   * Looks up the transform at the given time. Between two buffered
+   * transforms, the translation is interpolated linearly and the rotation
+   * spherically. If the two transforms have different parent frames, the
+   * older one is used.
+   * 
+   * @param stamp
+   *          the time in nanoseconds
+   * @param out
+   *          the transform to set to the transform at {@code stamp}
+   * @return the parent frame of the transform at {@code stamp}, or
+   *         {@code null} if {@code stamp} is outside of the buffered time range
+   */
+  synchronized GraphName get(long stamp, Transform out) {
+    int position = search(stamp);
+    if (position == size) {
+      return null;
+    }
+    int laterIndex = index(position);
+    if (stamps[laterIndex] == stamp) {
+      return get(position, out);
+    }
+    if (position == 0) {
+      return null;
+    }
+    int earlierIndex = index(position - 1);
+    if (!parentFrames[earlierIndex].equals(parentFrames[laterIndex])) {
+      return get(position - 1, out);
+    }
+    double fraction =
+        (double) (stamp - stamps[earlierIndex]) / (stamps[laterIndex] - stamps[earlierIndex]);
+    transforms[earlierIndex].interpolateInto(transforms[laterIndex], fraction, out);
+    return parentFrames[earlierIndex];
+  }
+
+  /**
+   * @return the number of buffered transforms
+   */
+  synchronized int getSize() {
+    return size;
+  }
+}
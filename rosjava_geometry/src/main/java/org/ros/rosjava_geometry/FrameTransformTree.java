@@ -19,17 +19,23 @@ package org.ros.rosjava_geometry;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 
-import geometry_msgs.TransformStamped;
+import org.ros.message.Duration;
+import org.ros.message.Time;
 import org.ros.namespace.GraphName;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A tree of {@link FrameTransform}s.
  * 
  * <p>
- * {@link FrameTransformTree} does not currently support time travel. Lookups
- * always use the newest {@link TransformStamped}.
+ * {@link FrameTransformTree} keeps the transforms of each frame for the cache
+ * duration so that transforms can be looked up at the time stamp of, for
+ * example, a sensor message. Between two transforms of a frame, the
+ * translation is interpolated linearly and the rotation spherically. Lookups
+ * at a zero {@link Time} use the newest transform of each frame.
  * 
  * @author moesenle@google.com (Lorenz Moesenlechner)
  * 
@@ -37,16 +43,43 @@ import java.util.Map;
 public class FrameTransformTree {
 
   /**
-   * A {@link Map} from child frame ID to the child frame's most recent
-   * transform.
+   * The default duration for which transforms are kept.
    */
-  private final Map<GraphName, geometry_msgs.TransformStamped> transforms;
+  public static final Duration DEFAULT_CACHE_DURATION = new Duration(10, 0);
+
+  private final long cacheDurationNanos;
+
+  /**
+   * A {@link ConcurrentMap} from child frame ID to the child frame's recent
+   * transforms.
+   */
+  private final ConcurrentMap<GraphName, FrameTransformCache> transforms;
+
+  /**
+   * Notified of updates while there are threads waiting for a transform.
+   */
+  private final Object updateMonitor;
+  private final AtomicInteger waiterCount;
 
   // TODO(damonkohler): Use NameResolver?
   private GraphName prefix;
 
   public FrameTransformTree() {
+    this(DEFAULT_CACHE_DURATION);
+  }
+
+  /**
+   * @param cacheDuration
+   *          how long transforms are kept, relative to the newest transform of
+   *          the same frame
+   */
+  public FrameTransformTree(Duration cacheDuration) {
+    Preconditions.checkNotNull(cacheDuration);
+    Preconditions.checkArgument(!cacheDuration.isNegative(), "Negative cache duration.");
+    cacheDurationNanos = cacheDuration.totalNsecs();
     transforms = Maps.newConcurrentMap();
+    updateMonitor = new Object();
+    waiterCount = new AtomicInteger();
     prefix = null;
   }
 
@@ -57,13 +90,23 @@ public class FrameTransformTree {
    *          the transform to add
    */
   public void updateTransform(geometry_msgs.TransformStamped transform) {
-    GraphName frame = new GraphName(transform.getChildFrameId());
-    transforms.put(frame, transform);
-  }
-
-  private geometry_msgs.TransformStamped getLatestTransform(GraphName frame) {
-    GraphName fullyQualifiedFrame = makeFullyQualified(frame);
-    return transforms.get(fullyQualifiedFrame);
+    GraphName frame = makeFullyQualified(new GraphName(transform.getChildFrameId()));
+    FrameTransformCache cache = transforms.get(frame);
+    if (cache == null) {
+      cache = new FrameTransformCache(cacheDurationNanos);
+      FrameTransformCache existingCache = transforms.putIfAbsent(frame, cache);
+      if (existingCache != null) {
+        cache = existingCache;
+      }
+    }
+    cache.add(transform.getHeader().getStamp().totalNsecs(),
+        makeFullyQualified(new GraphName(transform.getHeader().getFrameId())),
+        Transform.newFromTransformMessage(transform.getTransform()));
+    if (waiterCount.get() > 0) {
+      synchronized (updateMonitor) {
+        updateMonitor.notifyAll();
+      }
+    }
   }
 
   /**
@@ -75,26 +118,100 @@ public class FrameTransformTree {
    *         {@code sourceFrame} to {@code targetFrame}, {@code false} otherwise
    */
   public boolean canTransform(GraphName sourceFrame, GraphName targetFrame) {
+    return canTransform(sourceFrame, targetFrame, new Time());
+  }
+
+  /**
+   * @param sourceFrame
+   *          the source frame
+   * @param targetFrame
+   *          the target frame
+   * @param time
+   *          the time of the transform, or zero for the newest transform
+   * @return {@code true} if there exists a {@link FrameTransform} from
+   *         {@code sourceFrame} to {@code targetFrame} at {@code time},
+   *         {@code false} otherwise
+   */
+  public boolean canTransform(GraphName sourceFrame, GraphName targetFrame, Time time) {
     Preconditions.checkNotNull(sourceFrame);
     Preconditions.checkNotNull(targetFrame);
-    FrameTransform sourceFrameTransform = newFrameTransformToRoot(sourceFrame);
-    FrameTransform targetFrameTransform = newFrameTransformToRoot(targetFrame);
-    return sourceFrameTransform.getTargetFrame().equals(targetFrameTransform.getTargetFrame());
+    Preconditions.checkNotNull(time);
+    FrameTransform sourceFrameTransform = newFrameTransformToRoot(sourceFrame, time);
+    FrameTransform targetFrameTransform = newFrameTransformToRoot(targetFrame, time);
+    return haveCommonRoot(sourceFrameTransform, targetFrameTransform);
+  }
+
+  private boolean haveCommonRoot(FrameTransform sourceFrameTransform,
+      FrameTransform targetFrameTransform) {
+    return sourceFrameTransform != null && targetFrameTransform != null
+        && sourceFrameTransform.getTargetFrame().equals(targetFrameTransform.getTargetFrame());
   }
 
   /**
-   * @return the {@link FrameTransform} from source the frame to the target
-   *         frame
+   * Waits until there exists a {@link FrameTransform} from {@code sourceFrame}
+   * to {@code targetFrame} at {@code time}.
+   * 
+   * @param sourceFrame
+   *          the source frame
+   * @param targetFrame
+   *          the target frame
+   * @param time
+   *          the time of the transform, or zero for the newest transform
+   * @param timeout
+   *          how long to wait
+   * @param unit
+   *          the unit of {@code timeout}
+   * @return {@code true} if the transform became available, {@code false} if
+   *         the timeout elapsed first
+   * @throws InterruptedException
+   */
+  public boolean waitForTransform(GraphName sourceFrame, GraphName targetFrame, Time time,
+      long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    waiterCount.incrementAndGet();
+    try {
+      synchronized (updateMonitor) {
+        while (!canTransform(sourceFrame, targetFrame, time)) {
+          long remainingNanos = deadline - System.nanoTime();
+          if (remainingNanos <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(updateMonitor, remainingNanos);
+        }
+        return true;
+      }
+    } finally {
+      waiterCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return the newest {@link FrameTransform} from source the frame to the
+   *         target frame
    */
   public FrameTransform newFrameTransform(GraphName sourceFrame, GraphName targetFrame) {
+    return newFrameTransform(sourceFrame, targetFrame, new Time());
+  }
+
+  /**
+   * @param time
+   *          the time of the transform, or zero for the newest transform
+   * @return the {@link FrameTransform} from source the frame to the target
+   *         frame at {@code time}
+   */
+  public FrameTransform newFrameTransform(GraphName sourceFrame, GraphName targetFrame,
+      Time time) {
     Preconditions.checkNotNull(sourceFrame);
     Preconditions.checkNotNull(targetFrame);
-    Preconditions.checkArgument(canTransform(sourceFrame, targetFrame),
-        String.format("Cannot transform between %s and %s.", sourceFrame, targetFrame));
-    FrameTransform sourceFrameTransform = newFrameTransformToRoot(sourceFrame);
-    FrameTransform targetFrameTransform = newFrameTransformToRoot(targetFrame);
-    Transform transform =
-        targetFrameTransform.getTransform().invert().multiply(sourceFrameTransform.getTransform());
+    Preconditions.checkNotNull(time);
+    FrameTransform sourceFrameTransform = newFrameTransformToRoot(sourceFrame, time);
+    FrameTransform targetFrameTransform = newFrameTransformToRoot(targetFrame, time);
+    Preconditions.checkArgument(haveCommonRoot(sourceFrameTransform, targetFrameTransform),
+        String.format("Cannot transform between %s and %s at %s.", sourceFrame, targetFrame,
+            time));
+    // Both transforms to root are new, so they may be modified.
+    Transform transform = targetFrameTransform.getTransform();
+    transform.invertInto(transform).multiplyInto(sourceFrameTransform.getTransform(), transform);
     return new FrameTransform(transform, sourceFrameTransform.getSourceFrame(),
         targetFrameTransform.getSourceFrame());
   }
@@ -102,19 +219,29 @@ public class FrameTransformTree {
   /**
    * @param frame
    *          the start frame
-   * @return the {@link Transform} from {@code frame} to root
+   * @param time
+   *          the time of the transform, or zero for the newest transform
+   * @return the {@link Transform} from {@code frame} to root, or {@code null}
+   *         if a frame on the way has no transform at {@code time}
    */
-  private FrameTransform newFrameTransformToRoot(GraphName frame) {
+  private FrameTransform newFrameTransformToRoot(GraphName frame, Time time) {
     GraphName sourceFrame = makeFullyQualified(frame);
+    long stamp = time.totalNsecs();
     Transform result = Transform.newIdentityTransform();
+    Transform parentTransform = Transform.newIdentityTransform();
     GraphName targetFrame = sourceFrame;
     while (true) {
-      TransformStamped transformStamped = getLatestTransform(targetFrame);
-      if (transformStamped == null) {
+      FrameTransformCache cache = transforms.get(targetFrame);
+      if (cache == null) {
         return new FrameTransform(result, sourceFrame, targetFrame);
       }
-      result = Transform.newFromTransformMessage(transformStamped.getTransform()).multiply(result);
-      targetFrame = makeFullyQualified(new GraphName(transformStamped.getHeader().getFrameId()));
+      GraphName parentFrame =
+          time.isZero() ? cache.getLatest(parentTransform) : cache.get(stamp, parentTransform);
+      if (parentFrame == null) {
+        return null;
+      }
+      parentTransform.multiplyInto(result, result);
+      targetFrame = parentFrame;
     }
   }
 
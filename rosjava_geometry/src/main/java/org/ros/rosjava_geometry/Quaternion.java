@@ -25,6 +25,12 @@ import com.google.common.base.Preconditions;
  */
 public class Quaternion {
 
+  /**
+   * Above this cosine of the angle between two quaternions,
+   * {@link #slerp(Quaternion, double)} falls back to linear interpolation.
+   */
+  private static final double SLERP_LINEAR_THRESHOLD = 0.9995;
+
   private double x;
   private double y;
   private double z;
@@ -81,19 +87,103 @@ public class Quaternion {
   }
 
   public Quaternion invert() {
-    return new Quaternion(-x, -y, -z, w);
+    return invertInto(newIdentityQuaternion());
+  }
+
+  /**
+   * @return {@code out}, set to the inverse of this quaternion
+   */
+  public Quaternion invertInto(Quaternion out) {
+    return out.set(-x, -y, -z, w);
   }
 
   public Quaternion multiply(Quaternion other) {
-    return new Quaternion(w * other.x + x * other.w + y * other.z - z * other.y, w * other.y + y
+    return multiplyInto(other, newIdentityQuaternion());
+  }
+
+  /**
+   * @return {@code out}, set to the product of this quaternion and
+   *         {@code other}
+   */
+  public Quaternion multiplyInto(Quaternion other, Quaternion out) {
+    return out.set(w * other.x + x * other.w + y * other.z - z * other.y, w * other.y + y
         * other.w + z * other.x - x * other.z, w * other.z + z * other.w + x * other.y - y
         * other.x, w * other.w - x * other.x - y * other.y - z * other.z);
   }
 
+  /**
+   * Interpolates along the shortest arc between two rotations with constant
+   * angular velocity.
+   * 
+   * @param other
+   *          the rotation to interpolate towards
+   * @param fraction
+   *          the interpolation parameter, {@code 0} for this rotation and
+   *          {@code 1} for {@code other}
+   * @return the spherical linear interpolation between this rotation and
+   *         {@code other}
+   */
+  public Quaternion slerp(Quaternion other, double fraction) {
+    return slerpInto(other, fraction, newIdentityQuaternion());
+  }
+
+  /**
+   * @return {@code out}, set to the spherical linear interpolation between
+   *         this rotation and {@code other}
+   * @see #slerp(Quaternion, double)
+   */
+  public Quaternion slerpInto(Quaternion other, double fraction, Quaternion out) {
+    double cos = x * other.x + y * other.y + z * other.z + w * other.w;
+    // q and -q describe the same rotation. Pick the one that is closer to this
+    // quaternion so that we take the shortest arc.
+    double sign = 1;
+    if (cos < 0) {
+      cos = -cos;
+      sign = -1;
+    }
+    double thisWeight;
+    double otherWeight;
+    if (cos > SLERP_LINEAR_THRESHOLD) {
+      // The rotations are so close that sin(angle) would lose too much
+      // precision. Linear interpolation is accurate enough.
+      thisWeight = 1 - fraction;
+      otherWeight = fraction;
+    } else {
+      double angle = Math.acos(cos);
+      double sin = Math.sin(angle);
+      thisWeight = Math.sin((1 - fraction) * angle) / sin;
+      otherWeight = Math.sin(fraction * angle) / sin;
+    }
+    otherWeight *= sign;
+    double resultX = thisWeight * x + otherWeight * other.x;
+    double resultY = thisWeight * y + otherWeight * other.y;
+    double resultZ = thisWeight * z + otherWeight * other.z;
+    double resultW = thisWeight * w + otherWeight * other.w;
+    double length =
+        Math.sqrt(resultX * resultX + resultY * resultY + resultZ * resultZ + resultW * resultW);
+    return out.set(resultX / length, resultY / length, resultZ / length, resultW / length);
+  }
+
   public Vector3 rotateVector(Vector3 vector) {
-    Quaternion vectorQuaternion = new Quaternion(vector.getX(), vector.getY(), vector.getZ(), 0);
-    Quaternion rotatedQuaternion = multiply(vectorQuaternion.multiply(invert()));
-    return new Vector3(rotatedQuaternion.getX(), rotatedQuaternion.getY(), rotatedQuaternion.getZ());
+    return rotateVectorInto(vector, Vector3.newIdentityVector3());
+  }
+
+  /**
+   * Rotates a vector by computing {@code q * v * q'} in closed form, where
+   * {@code q'} is the conjugate of this quaternion.
+   * 
+   * @return {@code out}, set to {@code vector} rotated by this quaternion
+   */
+  public Vector3 rotateVectorInto(Vector3 vector, Vector3 out) {
+    double vectorX = vector.getX();
+    double vectorY = vector.getY();
+    double vectorZ = vector.getZ();
+    double scale = w * w - x * x - y * y - z * z;
+    double dot = 2 * (x * vectorX + y * vectorY + z * vectorZ);
+    double w2 = 2 * w;
+    return out.set(scale * vectorX + dot * x + w2 * (y * vectorZ - z * vectorY), scale * vectorY
+        + dot * y + w2 * (z * vectorX - x * vectorZ), scale * vectorZ + dot * z + w2
+        * (x * vectorY - y * vectorX));
   }
 
   public geometry_msgs.Quaternion toQuaternionMessage(geometry_msgs.Quaternion result) {
@@ -104,6 +194,24 @@ public class Quaternion {
     return result;
   }
 
+  /**
+   * @return this quaternion, set to the given components
+   */
+  public Quaternion set(double x, double y, double z, double w) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.w = w;
+    return this;
+  }
+
+  /**
+   * @return this quaternion, set to the components of {@code other}
+   */
+  public Quaternion set(Quaternion other) {
+    return set(other.x, other.y, other.z, other.w);
+  }
+
   public double getX() {
     return x;
   }
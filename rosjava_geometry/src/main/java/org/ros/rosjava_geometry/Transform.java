@@ -16,6 +16,8 @@
 
 package org.ros.rosjava_geometry;
 
+import com.google.common.base.Preconditions;
+
 import org.ros.message.Time;
 import org.ros.namespace.GraphName;
 
@@ -35,23 +37,205 @@ public class Transform {
   }
 
   public Transform multiply(Transform other) {
-    return new Transform(transformVector(other.getTranslation()),
-        transformQuaternion(other.getRotation()));
+    return multiplyInto(other, newIdentityTransform());
+  }
+
+  /**
+   * @return {@code out}, set to the product of this transform and
+   *         {@code other}
+   */
+  public Transform multiplyInto(Transform other, Transform out) {
+    // out may be this transform, so read the translation before it is
+    // overwritten.
+    double x = translation.getX();
+    double y = translation.getY();
+    double z = translation.getZ();
+    rotation.rotateVectorInto(other.translation, out.translation);
+    out.translation.set(out.translation.getX() + x, out.translation.getY() + y,
+        out.translation.getZ() + z);
+    rotation.multiplyInto(other.rotation, out.rotation);
+    return out;
   }
 
   public Transform invert() {
-    Quaternion inverseRotation = rotation.invert();
-    return new Transform(inverseRotation.rotateVector(translation.invert()), inverseRotation);
+    return invertInto(newIdentityTransform());
+  }
+
+  /**
+   * @return {@code out}, set to the inverse of this transform
+   */
+  public Transform invertInto(Transform out) {
+    rotation.invertInto(out.rotation);
+    out.rotation.rotateVectorInto(translation, out.translation);
+    out.translation.invertInto(out.translation);
+    return out;
+  }
+
+  /**
+   * @param other
+   *          the transform to interpolate towards
+   * @param fraction
+   *          the interpolation parameter, {@code 0} for this transform and
+   *          {@code 1} for {@code other}
+   * @return a transform with the linearly interpolated translation and the
+   *         spherically interpolated rotation of this transform and
+   *         {@code other}
+   * @see Vector3#interpolate(Vector3, double)
+   * @see Quaternion#slerp(Quaternion, double)
+   */
+  public Transform interpolate(Transform other, double fraction) {
+    return interpolateInto(other, fraction, newIdentityTransform());
+  }
+
+  /**
+   * @return {@code out}, set to the interpolation between this transform and
+   *         {@code other}
+   * @see #interpolate(Transform, double)
+   */
+  public Transform interpolateInto(Transform other, double fraction, Transform out) {
+    translation.interpolateInto(other.translation, fraction, out.translation);
+    rotation.slerpInto(other.rotation, fraction, out.rotation);
+    return out;
   }
 
   public Vector3 transformVector(Vector3 vector) {
-    return translation.add(rotation.rotateVector(vector));
+    return transformVectorInto(vector, Vector3.newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to {@code vector} transformed by this transform
+   */
+  public Vector3 transformVectorInto(Vector3 vector, Vector3 out) {
+    double x = translation.getX();
+    double y = translation.getY();
+    double z = translation.getZ();
+    rotation.rotateVectorInto(vector, out);
+    return out.set(out.getX() + x, out.getY() + y, out.getZ() + z);
   }
 
   public Quaternion transformQuaternion(Quaternion quaternion) {
     return rotation.multiply(quaternion);
   }
 
+  /**
+   * @return {@code out}, set to {@code quaternion} rotated by this transform
+   */
+  public Quaternion transformQuaternionInto(Quaternion quaternion, Quaternion out) {
+    return rotation.multiplyInto(quaternion, out);
+  }
+
+  /**
+   * Transforms packed points in place.
+   * 
+   * @param points
+   *          the coordinates of the points, {@code x, y, z} for each point
+   */
+  public void transformPoints(double[] points) {
+    Preconditions.checkArgument(points.length % 3 == 0,
+        "Point array length must be a multiple of 3.");
+    transformPoints(points, 0, 3, points.length / 3);
+  }
+
+  /**
+   * Transforms points in place. The points may be interleaved with other
+   * data.
+   * 
+   * @param points
+   *          the array that contains the points
+   * @param offset
+   *          the index of the first point's {@code x} coordinate, followed by
+   *          its {@code y} and {@code z} coordinates
+   * @param stride
+   *          the distance between the indices of consecutive points
+   * @param count
+   *          the number of points to transform
+   */
+  public void transformPoints(double[] points, int offset, int stride, int count) {
+    checkPointRange(points.length, offset, stride, count);
+    double x = rotation.getX();
+    double y = rotation.getY();
+    double z = rotation.getZ();
+    double w = rotation.getW();
+    double scale = w * w - x * x - y * y - z * z;
+    // The rotation matrix equivalent to Quaternion.rotateVector().
+    double m00 = scale + 2 * x * x;
+    double m01 = 2 * (x * y - w * z);
+    double m02 = 2 * (x * z + w * y);
+    double m10 = 2 * (x * y + w * z);
+    double m11 = scale + 2 * y * y;
+    double m12 = 2 * (y * z - w * x);
+    double m20 = 2 * (x * z - w * y);
+    double m21 = 2 * (y * z + w * x);
+    double m22 = scale + 2 * z * z;
+    double translationX = translation.getX();
+    double translationY = translation.getY();
+    double translationZ = translation.getZ();
+    for (int i = offset, end = offset + count * stride; i < end; i += stride) {
+      double pointX = points[i];
+      double pointY = points[i + 1];
+      double pointZ = points[i + 2];
+      points[i] = m00 * pointX + m01 * pointY + m02 * pointZ + translationX;
+      points[i + 1] = m10 * pointX + m11 * pointY + m12 * pointZ + translationY;
+      points[i + 2] = m20 * pointX + m21 * pointY + m22 * pointZ + translationZ;
+    }
+  }
+
+  /**
+   * Transforms packed points in place.
+   * 
+   * @param points
+   *          the coordinates of the points, {@code x, y, z} for each point
+   */
+  public void transformPoints(float[] points) {
+    Preconditions.checkArgument(points.length % 3 == 0,
+        "Point array length must be a multiple of 3.");
+    transformPoints(points, 0, 3, points.length / 3);
+  }
+
+  /**
+   * Transforms points in place. The points may be interleaved with other
+   * data. Coordinates are transformed in double precision.
+   * 
+   * @see #transformPoints(double[], int, int, int)
+   */
+  public void transformPoints(float[] points, int offset, int stride, int count) {
+    checkPointRange(points.length, offset, stride, count);
+    double x = rotation.getX();
+    double y = rotation.getY();
+    double z = rotation.getZ();
+    double w = rotation.getW();
+    double scale = w * w - x * x - y * y - z * z;
+    // The rotation matrix equivalent to Quaternion.rotateVector().
+    double m00 = scale + 2 * x * x;
+    double m01 = 2 * (x * y - w * z);
+    double m02 = 2 * (x * z + w * y);
+    double m10 = 2 * (x * y + w * z);
+    double m11 = scale + 2 * y * y;
+    double m12 = 2 * (y * z - w * x);
+    double m20 = 2 * (x * z - w * y);
+    double m21 = 2 * (y * z + w * x);
+    double m22 = scale + 2 * z * z;
+    double translationX = translation.getX();
+    double translationY = translation.getY();
+    double translationZ = translation.getZ();
+    for (int i = offset, end = offset + count * stride; i < end; i += stride) {
+      double pointX = points[i];
+      double pointY = points[i + 1];
+      double pointZ = points[i + 2];
+      points[i] = (float) (m00 * pointX + m01 * pointY + m02 * pointZ + translationX);
+      points[i + 1] = (float) (m10 * pointX + m11 * pointY + m12 * pointZ + translationY);
+      points[i + 2] = (float) (m20 * pointX + m21 * pointY + m22 * pointZ + translationZ);
+    }
+  }
+
+  private static void checkPointRange(int length, int offset, int stride, int count) {
+    Preconditions.checkArgument(stride >= 3, "Stride must be at least 3.");
+    Preconditions.checkArgument(count >= 0, "Negative point count.");
+    Preconditions.checkArgument(offset >= 0
+        && (count == 0 || offset + (long) (count - 1) * stride + 3 <= length),
+        "Points out of range.");
+  }
+
   public geometry_msgs.Transform toTransformMessage(geometry_msgs.Transform result) {
     result.setTranslation(translation.toVector3Message(result.getTranslation()));
     result.setRotation(rotation.toQuaternionMessage(result.getRotation()));
@@ -89,6 +273,16 @@ public class Transform {
     this.translation = translation;
   }
 
+  /**
+   * @return this transform, set to the translation and rotation of
+   *         {@code other}
+   */
+  public Transform set(Transform other) {
+    translation.set(other.translation);
+    rotation.set(other.rotation);
+    return this;
+  }
+
   public Quaternion getRotation() {
     return rotation;
   }
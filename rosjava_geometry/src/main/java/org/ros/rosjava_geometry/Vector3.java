@@ -34,15 +34,70 @@ public class Vector3 {
   }
 
   public Vector3 add(Vector3 other) {
-    return new Vector3(x + other.x, y + other.y, z + other.z);
+    return addInto(other, newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to the sum of this vector and {@code other}
+   */
+  public Vector3 addInto(Vector3 other, Vector3 out) {
+    return out.set(x + other.x, y + other.y, z + other.z);
   }
 
   public Vector3 subtract(Vector3 other) {
-    return new Vector3(x - other.x, y - other.y, z - other.z);
+    return subtractInto(other, newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to the difference of this vector and
+   *         {@code other}
+   */
+  public Vector3 subtractInto(Vector3 other, Vector3 out) {
+    return out.set(x - other.x, y - other.y, z - other.z);
+  }
+
+  public Vector3 scale(double factor) {
+    return scaleInto(factor, newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to this vector multiplied by {@code factor}
+   */
+  public Vector3 scaleInto(double factor, Vector3 out) {
+    return out.set(x * factor, y * factor, z * factor);
+  }
+
+  /**
+   * @param other
+   *          the vector to interpolate towards
+   * @param fraction
+   *          the interpolation parameter, {@code 0} for this vector and
+   *          {@code 1} for {@code other}
+   * @return the linear interpolation between this vector and {@code other}
+   */
+  public Vector3 interpolate(Vector3 other, double fraction) {
+    return interpolateInto(other, fraction, newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to the linear interpolation between this vector
+   *         and {@code other}
+   * @see #interpolate(Vector3, double)
+   */
+  public Vector3 interpolateInto(Vector3 other, double fraction, Vector3 out) {
+    return out.set(x + (other.x - x) * fraction, y + (other.y - y) * fraction, z
+        + (other.z - z) * fraction);
   }
 
   public Vector3 invert() {
-    return new Vector3(-x, -y, -z);
+    return invertInto(newIdentityVector3());
+  }
+
+  /**
+   * @return {@code out}, set to the inverse of this vector
+   */
+  public Vector3 invertInto(Vector3 out) {
+    return out.set(-x, -y, -z);
   }
 
   public double dotProduct(Vector3 other) {
@@ -71,6 +126,23 @@ public class Vector3 {
     return result;
   }
 
+  /**
+   * @return this vector, set to the given coordinates
+   */
+  public Vector3 set(double x, double y, double z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    return this;
+  }
+
+  /**
+   * @return this vector, set to the coordinates of {@code other}
+   */
+  public Vector3 set(Vector3 other) {
+    return set(other.x, other.y, other.z);
+  }
+
   public double getX() {
     return x;
   }
@@ -16,5 +16,10 @@
 
 /**
  * Provides the classes for common geometry operations and representations (e.g. transformations).
+ * <p>
+ * Operations return new objects. Most of them also have a variant ending in {@code Into} that
+ * writes its result to an existing object instead, which may be the receiver or an argument, and
+ * returns it. These variants do not allocate and are meant for hot loops, e.g. when transforming
+ * many points.
  */
 package org.ros.rosjava_geometry;
\ No newline at end of file
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ros.rosjava_geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.internal.message.DefaultMessageFactory;
+import org.ros.internal.message.MessageDefinitionReflectionProvider;
+import org.ros.message.Duration;
+import org.ros.message.MessageFactory;
+import org.ros.message.Time;
+import org.ros.namespace.GraphName;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class FrameTransformTreeTest {
+
+  private MessageFactory messageFactory;
+
+  @Before
+  public void setUp() {
+    messageFactory = new DefaultMessageFactory(new MessageDefinitionReflectionProvider());
+  }
+
+  private geometry_msgs.TransformStamped newTransformStamped(String frame, String childFrame,
+      Time stamp, Transform transform) {
+    geometry_msgs.TransformStamped message =
+        messageFactory.newFromType(geometry_msgs.TransformStamped._TYPE);
+    return transform.toTransformStampedMessage(new GraphName(frame), new GraphName(childFrame),
+        stamp, message);
+  }
+
+  private Transform newTranslation(double x, double y, double z) {
+    return new Transform(new Vector3(x, y, z), Quaternion.newIdentityQuaternion());
+  }
+
+  @Test
+  public void testLatestTransform() {
+    FrameTransformTree frameTransformTree = new FrameTransformTree();
+    frameTransformTree.updateTransform(newTransformStamped("/map", "/odom", new Time(1, 0),
+        newTranslation(1, 0, 0)));
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(1, 0),
+        newTranslation(0, 1, 0)));
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(2, 0),
+        newTranslation(0, 2, 0)));
+    assertTrue(frameTransformTree.canTransform(new GraphName("/base"), new GraphName("/map")));
+    FrameTransform frameTransform =
+        frameTransformTree.newFrameTransform(new GraphName("/base"), new GraphName("/map"));
+    assertEquals(new GraphName("/base"), frameTransform.getSourceFrame());
+    assertEquals(new GraphName("/map"), frameTransform.getTargetFrame());
+    assertEquals(1, frameTransform.getTransform().getTranslation().getX(), 1e-9);
+    assertEquals(2, frameTransform.getTransform().getTranslation().getY(), 1e-9);
+    assertFalse(frameTransformTree.canTransform(new GraphName("/base"), new GraphName("/foo")));
+  }
+
+  @Test
+  public void testInterpolation() {
+    FrameTransformTree frameTransformTree = new FrameTransformTree();
+    Quaternion rotation = Quaternion.newFromAxisAngle(new Vector3(0, 0, 1), Math.PI / 2);
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(1, 0),
+        newTranslation(0, 0, 0)));
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(3, 0),
+        new Transform(new Vector3(2, 4, 0), rotation)));
+    GraphName base = new GraphName("/base");
+    GraphName odom = new GraphName("/odom");
+
+    Transform transform = frameTransformTree.newFrameTransform(base, odom, new Time(2, 0))
+        .getTransform();
+    assertEquals(1, transform.getTranslation().getX(), 1e-9);
+    assertEquals(2, transform.getTranslation().getY(), 1e-9);
+    assertEquals(Math.PI / 4, transform.getRotation().getAngle(), 1e-9);
+
+    transform = frameTransformTree.newFrameTransform(base, odom, new Time(3, 0)).getTransform();
+    assertEquals(2, transform.getTranslation().getX(), 1e-9);
+    assertEquals(Math.PI / 2, transform.getRotation().getAngle(), 1e-9);
+
+    // The inverse is interpolated as well.
+    transform = frameTransformTree.newFrameTransform(odom, base, new Time(2, 0)).getTransform();
+    Vector3 rotated = transform.getRotation().rotateVector(new Vector3(1, 0, 0));
+    assertEquals(Math.cos(-Math.PI / 4), rotated.getX(), 1e-9);
+    assertEquals(Math.sin(-Math.PI / 4), rotated.getY(), 1e-9);
+
+    // Transforms are not extrapolated.
+    assertFalse(frameTransformTree.canTransform(base, odom, new Time(0, 500000000)));
+    assertFalse(frameTransformTree.canTransform(base, odom, new Time(3, 1)));
+    assertTrue(frameTransformTree.canTransform(base, odom, new Time(1, 0)));
+  }
+
+  @Test
+  public void testOutOfOrderUpdates() {
+    FrameTransformTree frameTransformTree = new FrameTransformTree();
+    for (int i = 10; i >= 0; i -= 2) {
+      frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(i, 0),
+          newTranslation(i, 0, 0)));
+    }
+    for (int i = 1; i < 10; i += 2) {
+      frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(i, 0),
+          newTranslation(i, 0, 0)));
+    }
+    // A zero time stands for the newest transform, so start at 0.1 s.
+    for (int i = 1; i <= 100; i++) {
+      Transform transform =
+          frameTransformTree.newFrameTransform(new GraphName("/base"), new GraphName("/odom"),
+              new Time(i / 10.0)).getTransform();
+      assertEquals(i / 10.0, transform.getTranslation().getX(), 1e-6);
+    }
+    FrameTransform latest =
+        frameTransformTree.newFrameTransform(new GraphName("/base"), new GraphName("/odom"));
+    assertEquals(10, latest.getTransform().getTranslation().getX(), 1e-9);
+  }
+
+  @Test
+  public void testCacheDuration() {
+    FrameTransformTree frameTransformTree = new FrameTransformTree(new Duration(5, 0));
+    GraphName base = new GraphName("/base");
+    GraphName odom = new GraphName("/odom");
+    for (int i = 0; i <= 100; i++) {
+      frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(i, 0),
+          newTranslation(i, 0, 0)));
+    }
+    assertTrue(frameTransformTree.canTransform(base, odom, new Time(95, 0)));
+    assertFalse(frameTransformTree.canTransform(base, odom, new Time(94, 0)));
+    // Transforms that are older than the cache duration are ignored.
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(50, 0),
+        newTranslation(50, 0, 0)));
+    assertFalse(frameTransformTree.canTransform(base, odom, new Time(50, 0)));
+  }
+
+  @Test
+  public void testParentChange() {
+    FrameTransformTree frameTransformTree = new FrameTransformTree();
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(1, 0),
+        newTranslation(1, 0, 0)));
+    frameTransformTree.updateTransform(newTransformStamped("/map", "/base", new Time(3, 0),
+        newTranslation(3, 0, 0)));
+    GraphName base = new GraphName("/base");
+    assertTrue(frameTransformTree.canTransform(base, new GraphName("/odom"), new Time(2, 0)));
+    assertFalse(frameTransformTree.canTransform(base, new GraphName("/map"), new Time(2, 0)));
+    assertTrue(frameTransformTree.canTransform(base, new GraphName("/map"), new Time(3, 0)));
+  }
+
+  @Test
+  public void testWaitForTransform() throws InterruptedException {
+    final FrameTransformTree frameTransformTree = new FrameTransformTree();
+    final GraphName base = new GraphName("/base");
+    final GraphName odom = new GraphName("/odom");
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(1, 0),
+        newTranslation(1, 0, 0)));
+    assertFalse(frameTransformTree.waitForTransform(base, odom, new Time(2, 0), 10,
+        TimeUnit.MILLISECONDS));
+
+    final CountDownLatch transformAvailable = new CountDownLatch(1);
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        try {
+          if (frameTransformTree.waitForTransform(base, odom, new Time(2, 0), 10,
+              TimeUnit.SECONDS)) {
+            transformAvailable.countDown();
+          }
+        } catch (InterruptedException e) {
+          // The test will fail.
+        }
+      }
+    };
+    waiter.start();
+    frameTransformTree.updateTransform(newTransformStamped("/odom", "/base", new Time(3, 0),
+        newTranslation(3, 0, 0)));
+    assertTrue(transformAvailable.await(10, TimeUnit.SECONDS));
+  }
+}
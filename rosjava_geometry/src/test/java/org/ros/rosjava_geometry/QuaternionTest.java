@@ -129,4 +129,59 @@ public class QuaternionTest {
     assertEquals(1, rotated.getY(), 1e-9);
     assertEquals(0, rotated.getZ(), 1e-9);
   }
+
+  @Test
+  public void testSlerp() {
+    Quaternion start = Quaternion.newIdentityQuaternion();
+    Quaternion end = Quaternion.newFromAxisAngle(new Vector3(0, 0, 1), Math.PI / 2);
+    Quaternion middle = start.slerp(end, 0.5);
+    assertEquals(Math.PI / 4, middle.getAngle(), 1e-9);
+    assertEquals(1, middle.getAxis().getZ(), 1e-9);
+    assertEquals(0, start.slerp(end, 0).getAngle(), 1e-9);
+    assertEquals(Math.PI / 2, start.slerp(end, 1).getAngle(), 1e-9);
+
+    // -end describes the same rotation as end, so the interpolation must still
+    // take the shortest arc.
+    Quaternion negatedEnd = new Quaternion(-end.getX(), -end.getY(), -end.getZ(), -end.getW());
+    Vector3 rotated = start.slerp(negatedEnd, 0.5).rotateVector(new Vector3(1, 0, 0));
+    assertEquals(Math.cos(Math.PI / 4), rotated.getX(), 1e-9);
+    assertEquals(Math.sin(Math.PI / 4), rotated.getY(), 1e-9);
+
+    // Nearly identical rotations are interpolated linearly.
+    Quaternion nearEnd = Quaternion.newFromAxisAngle(new Vector3(0, 0, 1), 1e-4);
+    assertEquals(0.5e-4, start.slerp(nearEnd, 0.5).getAngle(), 1e-9);
+  }
+
+  @Test
+  public void testIntoMatchesImmutable() {
+    Quaternion quaternion1 = Quaternion.newFromAxisAngle(new Vector3(1, 2, 3), 0.7);
+    Quaternion quaternion2 = Quaternion.newFromAxisAngle(new Vector3(-1, 0, 2), 2.1);
+    Vector3 vector = new Vector3(3, -2, 1);
+    Quaternion out = Quaternion.newIdentityQuaternion();
+    assertEquals(quaternion1.multiply(quaternion2), quaternion1.multiplyInto(quaternion2, out));
+    assertEquals(quaternion1.invert(), quaternion1.invertInto(out));
+    assertEquals(quaternion1.slerp(quaternion2, 0.3),
+        quaternion1.slerpInto(quaternion2, 0.3, out));
+    assertEquals(quaternion1.rotateVector(vector),
+        quaternion1.rotateVectorInto(vector, new Vector3(0, 0, 0)));
+
+    // The output may be one of the operands.
+    Quaternion expected = quaternion1.multiply(quaternion2);
+    assertEquals(expected, quaternion1.multiplyInto(quaternion2, quaternion2));
+    Vector3 rotated = quaternion1.rotateVector(vector);
+    assertEquals(rotated, quaternion1.rotateVectorInto(vector, vector));
+  }
+
+  @Test
+  public void testRotateVectorMatchesConjugation() {
+    // Rotating is equivalent to q * v * q' for quaternions of any length.
+    Quaternion quaternion = new Quaternion(0.3, -0.4, 1.2, 0.8);
+    Vector3 vector = new Vector3(1, 2, 3);
+    Quaternion expected =
+        quaternion.multiply(new Quaternion(1, 2, 3, 0)).multiply(quaternion.invert());
+    Vector3 rotated = quaternion.rotateVector(vector);
+    assertEquals(expected.getX(), rotated.getX(), 1e-9);
+    assertEquals(expected.getY(), rotated.getY(), 1e-9);
+    assertEquals(expected.getZ(), rotated.getZ(), 1e-9);
+  }
 }
@@ -56,4 +56,88 @@ public class TransformTest {
     assertEquals(0.0, neutral.getRotation().getZ(), 1e-9);
     assertEquals(1.0, neutral.getRotation().getW(), 1e-9);
   }
+
+  private Transform newTestTransform() {
+    return new Transform(new Vector3(1, -2, 3), Quaternion.newFromAxisAngle(
+        new Vector3(1, 1, 0), 0.9));
+  }
+
+  private void assertTransformEquals(Transform expected, Transform actual) {
+    assertEquals(expected.getTranslation(), actual.getTranslation());
+    assertEquals(expected.getRotation(), actual.getRotation());
+  }
+
+  @Test
+  public void testIntoMatchesImmutable() {
+    Transform transform1 = newTestTransform();
+    Transform transform2 =
+        new Transform(new Vector3(0, 4, -1), Quaternion.newFromAxisAngle(new Vector3(0, 1, 2),
+            -1.3));
+    Transform out = Transform.newIdentityTransform();
+    assertTransformEquals(transform1.multiply(transform2), transform1.multiplyInto(transform2,
+        out));
+    assertTransformEquals(transform1.invert(), transform1.invertInto(out));
+    assertTransformEquals(transform1.interpolate(transform2, 0.6),
+        transform1.interpolateInto(transform2, 0.6, out));
+    Vector3 vector = new Vector3(2, 2, -5);
+    assertEquals(transform1.transformVector(vector),
+        transform1.transformVectorInto(vector, new Vector3(0, 0, 0)));
+
+    // The output may be one of the operands.
+    Transform expected = transform1.multiply(transform2);
+    assertTransformEquals(expected, transform1.multiplyInto(transform2, transform2));
+    transform2 = expected;
+    expected = transform1.multiply(transform2);
+    assertTransformEquals(expected, transform1.multiplyInto(transform2, transform1));
+    expected = transform2.invert();
+    assertTransformEquals(expected, transform2.invertInto(transform2));
+  }
+
+  @Test
+  public void testTransformPoints() {
+    Transform transform = newTestTransform();
+    Vector3[] vectors =
+        new Vector3[] { new Vector3(0, 0, 0), new Vector3(1, 2, 3), new Vector3(-4, 0.5, 7) };
+    double[] doublePoints = new double[vectors.length * 3];
+    float[] floatPoints = new float[vectors.length * 3];
+    for (int i = 0; i < vectors.length; i++) {
+      doublePoints[3 * i] = vectors[i].getX();
+      doublePoints[3 * i + 1] = vectors[i].getY();
+      doublePoints[3 * i + 2] = vectors[i].getZ();
+      floatPoints[3 * i] = (float) vectors[i].getX();
+      floatPoints[3 * i + 1] = (float) vectors[i].getY();
+      floatPoints[3 * i + 2] = (float) vectors[i].getZ();
+    }
+    transform.transformPoints(doublePoints);
+    transform.transformPoints(floatPoints);
+    for (int i = 0; i < vectors.length; i++) {
+      Vector3 expected = transform.transformVector(vectors[i]);
+      assertEquals(expected.getX(), doublePoints[3 * i], 1e-9);
+      assertEquals(expected.getY(), doublePoints[3 * i + 1], 1e-9);
+      assertEquals(expected.getZ(), doublePoints[3 * i + 2], 1e-9);
+      assertEquals(expected.getX(), floatPoints[3 * i], 1e-5);
+      assertEquals(expected.getY(), floatPoints[3 * i + 1], 1e-5);
+      assertEquals(expected.getZ(), floatPoints[3 * i + 2], 1e-5);
+    }
+  }
+
+  @Test
+  public void testTransformInterleavedPoints() {
+    Transform transform = newTestTransform();
+    // Two points with a fourth value each, e.g. an intensity, after a header.
+    float[] points = new float[] { 42, 1, 2, 3, 100, 4, 5, 6, 200 };
+    transform.transformPoints(points, 1, 4, 2);
+    assertEquals(42, points[0], 0);
+    assertEquals(100, points[4], 0);
+    assertEquals(200, points[8], 0);
+    Vector3 expected = transform.transformVector(new Vector3(4, 5, 6));
+    assertEquals(expected.getX(), points[5], 1e-5);
+    assertEquals(expected.getY(), points[6], 1e-5);
+    assertEquals(expected.getZ(), points[7], 1e-5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransformPointsOutOfRange() {
+    newTestTransform().transformPoints(new double[8], 0, 3, 3);
+  }
 }
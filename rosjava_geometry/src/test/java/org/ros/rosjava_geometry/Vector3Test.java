@@ -49,4 +49,28 @@ public class Vector3Test {
     assertEquals(Math.sqrt(3), new Vector3(1, 1, 1).length(), 1e-9);
   }
 
+  @Test
+  public void testScale() {
+    Vector3 result = new Vector3(1, 2, 3).scale(2);
+    assertEquals(2, result.getX(), 1e-9);
+    assertEquals(4, result.getY(), 1e-9);
+    assertEquals(6, result.getZ(), 1e-9);
+  }
+
+  @Test
+  public void testIntoMatchesImmutable() {
+    Vector3 vector1 = new Vector3(1, 2, 3);
+    Vector3 vector2 = new Vector3(-4, 5, 0.5);
+    Vector3 out = new Vector3(0, 0, 0);
+    assertEquals(vector1.add(vector2), vector1.addInto(vector2, out));
+    assertEquals(vector1.subtract(vector2), vector1.subtractInto(vector2, out));
+    assertEquals(vector1.scale(3), vector1.scaleInto(3, out));
+    assertEquals(vector1.invert(), vector1.invertInto(out));
+    assertEquals(vector1.interpolate(vector2, 0.25), vector1.interpolateInto(vector2, 0.25, out));
+
+    // The output may be one of the operands.
+    Vector3 expected = vector1.add(vector2);
+    assertEquals(expected, vector1.addInto(vector2, vector1));
+    assertEquals(expected, vector1);
+  }
 }